@@ -0,0 +1,42 @@
+package com.utsusynth.utsu.common.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.utsusynth.utsu.ExternalProcess")
+@Label("External Process")
+@Category({"Utsu", "Render"})
+class ExternalProcessEvent extends UtsuEvent {
+    @Label("Command")
+    String command;
+
+    @Label("Arguments")
+    String arguments;
+
+    @Label("Exit Code")
+    long exitCode;
+
+    @Override
+    public TraceSpan set(String field, String value) {
+        switch (field) {
+            case "command":
+                command = value;
+                return this;
+            case "arguments":
+                arguments = value;
+                return this;
+            default:
+                return super.set(field, value);
+        }
+    }
+
+    @Override
+    public TraceSpan set(String field, long value) {
+        if (field.equals("exitCode")) {
+            exitCode = value;
+            return this;
+        }
+        return super.set(field, value);
+    }
+}
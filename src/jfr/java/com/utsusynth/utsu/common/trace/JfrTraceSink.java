@@ -0,0 +1,30 @@
+package com.utsusynth.utsu.common.trace;
+
+/** Records traced work as Flight Recorder events. Loaded by {@link Tracer} when available. */
+public class JfrTraceSink implements TraceSink {
+    @Override
+    public TraceSpan start(TraceType type) {
+        UtsuEvent event = createEvent(type);
+        event.begin();
+        return event;
+    }
+
+    private static UtsuEvent createEvent(TraceType type) {
+        switch (type) {
+            case RENDER_NOTE:
+                return new RenderNoteEvent();
+            case OTO_FILE:
+                return new OtoFileEvent();
+            case UST_READ:
+                return new UstReadEvent();
+            case UST_WRITE:
+                return new UstWriteEvent();
+            case SONG_EDIT:
+                return new SongEditEvent();
+            case EXTERNAL_PROCESS:
+                return new ExternalProcessEvent();
+            default:
+                throw new IllegalArgumentException("Unknown trace type: " + type);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.utsusynth.utsu.common.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.utsusynth.utsu.OtoFile")
+@Label("Load Oto File")
+@Category({"Utsu", "Voicebank"})
+class OtoFileEvent extends UtsuEvent {
+    @Label("Path")
+    String path;
+
+    @Label("Lyrics")
+    long lyrics;
+
+    @Override
+    public TraceSpan set(String field, String value) {
+        if (field.equals("path")) {
+            path = value;
+            return this;
+        }
+        return super.set(field, value);
+    }
+
+    @Override
+    public TraceSpan set(String field, long value) {
+        if (field.equals("lyrics")) {
+            lyrics = value;
+            return this;
+        }
+        return super.set(field, value);
+    }
+}
@@ -0,0 +1,62 @@
+package com.utsusynth.utsu.common.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.utsusynth.utsu.RenderNote")
+@Label("Render Note")
+@Category({"Utsu", "Render"})
+@Description("Resampling one note and adding it to the rendered song")
+class RenderNoteEvent extends UtsuEvent {
+    @Label("Lyric")
+    String lyric;
+
+    @Label("True Lyric")
+    @Description("Lyric found in the voicebank, after prefixes and suffixes")
+    String trueLyric;
+
+    @Label("Position (ms)")
+    long position;
+
+    @Label("Resample Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long resampleTime;
+
+    @Label("Wavtool Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long wavtoolTime;
+
+    @Override
+    public TraceSpan set(String field, String value) {
+        switch (field) {
+            case "lyric":
+                lyric = value;
+                return this;
+            case "trueLyric":
+                trueLyric = value;
+                return this;
+            default:
+                return super.set(field, value);
+        }
+    }
+
+    @Override
+    public TraceSpan set(String field, long value) {
+        switch (field) {
+            case "position":
+                position = value;
+                return this;
+            case "resampleTime":
+                resampleTime = value;
+                return this;
+            case "wavtoolTime":
+                wavtoolTime = value;
+                return this;
+            default:
+                return super.set(field, value);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.utsusynth.utsu.common.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.utsusynth.utsu.SongEdit")
+@Label("Edit Song")
+@Category({"Utsu", "Song"})
+class SongEditEvent extends UtsuEvent {
+    @Label("Operation")
+    String operation;
+
+    @Label("Position (ms)")
+    long position;
+
+    @Override
+    public TraceSpan set(String field, String value) {
+        if (field.equals("operation")) {
+            operation = value;
+            return this;
+        }
+        return super.set(field, value);
+    }
+
+    @Override
+    public TraceSpan set(String field, long value) {
+        if (field.equals("position")) {
+            position = value;
+            return this;
+        }
+        return super.set(field, value);
+    }
+}
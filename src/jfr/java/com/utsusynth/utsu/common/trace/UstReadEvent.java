@@ -0,0 +1,34 @@
+package com.utsusynth.utsu.common.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.utsusynth.utsu.UstRead")
+@Label("Read UST")
+@Category({"Utsu", "Files"})
+class UstReadEvent extends UtsuEvent {
+    @Label("Version")
+    String version;
+
+    @Label("Lines")
+    long lines;
+
+    @Override
+    public TraceSpan set(String field, String value) {
+        if (field.equals("version")) {
+            version = value;
+            return this;
+        }
+        return super.set(field, value);
+    }
+
+    @Override
+    public TraceSpan set(String field, long value) {
+        if (field.equals("lines")) {
+            lines = value;
+            return this;
+        }
+        return super.set(field, value);
+    }
+}
@@ -0,0 +1,34 @@
+package com.utsusynth.utsu.common.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.utsusynth.utsu.UstWrite")
+@Label("Write UST")
+@Category({"Utsu", "Files"})
+class UstWriteEvent extends UtsuEvent {
+    @Label("Version")
+    String version;
+
+    @Label("Notes")
+    long notes;
+
+    @Override
+    public TraceSpan set(String field, String value) {
+        if (field.equals("version")) {
+            version = value;
+            return this;
+        }
+        return super.set(field, value);
+    }
+
+    @Override
+    public TraceSpan set(String field, long value) {
+        if (field.equals("notes")) {
+            notes = value;
+            return this;
+        }
+        return super.set(field, value);
+    }
+}
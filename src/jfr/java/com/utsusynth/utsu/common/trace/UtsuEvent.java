@@ -0,0 +1,24 @@
+package com.utsusynth.utsu.common.trace;
+
+import jdk.jfr.Event;
+
+/** Flight Recorder event that is also a trace span. Subclasses set their own fields. */
+abstract class UtsuEvent extends Event implements TraceSpan {
+    @Override
+    public TraceSpan set(String field, String value) {
+        throw new IllegalArgumentException("No text field called " + field);
+    }
+
+    @Override
+    public TraceSpan set(String field, long value) {
+        throw new IllegalArgumentException("No number field called " + field);
+    }
+
+    @Override
+    public void close() {
+        end();
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.utsusynth.utsu.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.utsusynth.utsu.engine.FrqGenerator;
+import com.utsusynth.utsu.files.SoundFileReader;
+import com.utsusynth.utsu.files.SoundFileWriter;
+import com.utsusynth.utsu.model.ModelModule;
+
+/**
+ * Shared setup for benchmarks. Benchmarks run next to the assets folder, like the packaged app, so
+ * that the default voicebank is found.
+ */
+public class BenchmarkFixtures {
+    // Lyrics that the default voicebank has samples for.
+    private static final String[] LYRICS = {"a", "ka", "sa", "ta", "na", "ha", "ma", "ra", "i"};
+    private static final int NOTE_LENGTH = 480;
+    private static final int REST_INTERVAL = 4; // Every 4th note is a rest.
+
+    private BenchmarkFixtures() {}
+
+    /**
+     * Injector with the model classes, but none of the UI or audio output. Extra modules can
+     * provide classes that benchmarks replace.
+     */
+    public static Injector createInjector(Module... extraModules) {
+        Module benchmarkModule = new AbstractModule() {
+            @Override
+            protected void configure() {}
+
+            @Provides
+            @Singleton
+            private FrqGenerator provideFrqGenerator(
+                    SoundFileReader soundFileReader,
+                    SoundFileWriter soundFileWriter) {
+                return new FrqGenerator(soundFileReader, soundFileWriter, 256, 1);
+            }
+        };
+        return Guice.createInjector(
+                ImmutableList.<Module>builder().add(new ModelModule(), benchmarkModule)
+                        .add(extraModules).build());
+    }
+
+    /**
+     * A UST 1.2 song with the given number of notes, each one beat long. Every fourth note is a
+     * rest, and every other sung note has a portamento.
+     */
+    public static String ust12Song(int numNotes) {
+        StringBuilder ust = new StringBuilder();
+        ust.append("[#VERSION]\nUST Version 1.20\n");
+        ust.append("[#SETTING]\nTempo=125.00\nProjectName=benchmark\nMode2=True\n");
+        for (int i = 0; i < numNotes; i++) {
+            ust.append(String.format("[#%04d]\n", i % 10000));
+            ust.append("Length=").append(NOTE_LENGTH).append("\n");
+            if (isRest(i)) {
+                ust.append("Lyric=R\nNoteNum=60\n");
+                continue;
+            }
+            ust.append("Lyric=").append(LYRICS[i % LYRICS.length]).append("\n");
+            ust.append("NoteNum=").append(55 + (i * 7) % 12).append("\n");
+            ust.append("Intensity=100\nModulation=0\n");
+            if (i % 2 == 0) {
+                ust.append("PBS=-40;0\nPBW=80\nPBY=0\nPBM=s\n");
+            }
+        }
+        ust.append("[#TRACKEND]\n");
+        return ust.toString();
+    }
+
+    /** Position of a rest note near the given fraction of the way through a song. */
+    public static int restPosition(int numNotes, double fraction) {
+        int index = (int) (numNotes * fraction);
+        index -= index % REST_INTERVAL;
+        index += REST_INTERVAL - 1;
+        return Math.min(index, lastRestIndex(numNotes)) * NOTE_LENGTH;
+    }
+
+    private static int lastRestIndex(int numNotes) {
+        int index = numNotes - 1;
+        while (!isRest(index)) {
+            index--;
+        }
+        return index;
+    }
+
+    private static boolean isRest(int index) {
+        return index % REST_INTERVAL == REST_INTERVAL - 1;
+    }
+}
@@ -0,0 +1,220 @@
+package com.utsusynth.utsu.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import com.google.common.io.Files;
+import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import com.utsusynth.utsu.common.data.NoteData;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.exception.NoteAlreadyExistsException;
+import com.utsusynth.utsu.engine.Engine;
+import com.utsusynth.utsu.engine.ExternalProcessRunner;
+import com.utsusynth.utsu.engine.Resampler;
+import com.utsusynth.utsu.engine.StubToolRunner;
+import com.utsusynth.utsu.engine.Wavtool;
+import com.utsusynth.utsu.files.Ust20Reader;
+import com.utsusynth.utsu.files.Ust20Writer;
+import com.utsusynth.utsu.files.VoicebankReader;
+import com.utsusynth.utsu.files.VoicebankWriter;
+import com.utsusynth.utsu.model.song.Song;
+import com.utsusynth.utsu.model.voicebank.Voicebank;
+
+/**
+ * Measures how long opening, standardizing, editing, saving and rendering take as songs get
+ * larger, using generated songs and a generated voicebank. The resampler and wavtool are replaced
+ * with stand-ins that take no time of their own, so render times are mostly the engine's. Options:
+ *
+ * <pre>
+ * --sizes=10000,25000,50000  Numbers of notes to test.
+ * --aliases=30000            Approximate number of voicebank aliases.
+ * --seed=42                  Seed for generated inputs.
+ * --repeat=3                 Times to repeat each measurement. The median is reported.
+ * --layerInterval=500        Notes between second-track notes, or 0 for a single track.
+ * --workDir=path             Where to write generated files, instead of a temporary folder.
+ * </pre>
+ */
+public class ScaleTest {
+    private static final int NUM_EDITS = 100;
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        int[] sizes = Arrays.stream(options.getOrDefault("sizes", "10000,25000,50000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int numAliases = Integer.parseInt(options.getOrDefault("aliases", "30000"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        int repeat = Integer.parseInt(options.getOrDefault("repeat", "3"));
+        int layerInterval = Integer.parseInt(options.getOrDefault("layerInterval", "500"));
+        File workDir = options.containsKey("workDir") ? new File(options.get("workDir"))
+                : Files.createTempDir();
+
+        // Renders leave their temporary folders behind until exit, so keep them with the rest.
+        File renderDir = new File(workDir, "renders");
+        renderDir.mkdirs();
+        System.setProperty("java.io.tmpdir", renderDir.getAbsolutePath());
+
+        File resamplerPath = new File("stub_resampler");
+        File wavtoolPath = new File("stub_wavtool");
+        StubToolRunner runner = new StubToolRunner(resamplerPath, wavtoolPath, 0);
+        Injector injector = BenchmarkFixtures.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(ExternalProcessRunner.class).toInstance(runner);
+            }
+        });
+        SyntheticInputGenerator generator = new SyntheticInputGenerator(
+                seed,
+                injector.getProvider(Song.class),
+                injector.getProvider(Voicebank.class),
+                injector.getInstance(Ust20Writer.class),
+                injector.getInstance(VoicebankWriter.class));
+        Ust20Reader ust20Reader = injector.getInstance(Ust20Reader.class);
+        Ust20Writer ust20Writer = injector.getInstance(Ust20Writer.class);
+        VoicebankReader voicebankReader = injector.getInstance(VoicebankReader.class);
+        Engine engine = new Engine(
+                injector.getInstance(Resampler.class),
+                injector.getInstance(Wavtool.class),
+                resamplerPath,
+                wavtoolPath);
+
+        // Keep the console readable, and keep console output out of the measurements.
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {}
+
+            @Override
+            public void write(byte[] b, int off, int len) {}
+        }));
+
+        File voiceDir = new File(workDir, "voicebank");
+        long start = System.nanoTime();
+        generator.generateVoicebank(numAliases, voiceDir);
+        double generateVoicebankMs = msSince(start);
+        List<Double> loadVoicebankMs = new ArrayList<>();
+        for (int i = 0; i < repeat; i++) {
+            start = System.nanoTime();
+            voicebankReader.loadVoicebankFromDirectory(voiceDir);
+            loadVoicebankMs.add(msSince(start));
+        }
+        console.printf(
+                "Voicebank in %s: generated in %.0f ms, loaded in %.1f ms%n%n",
+                voiceDir,
+                generateVoicebankMs,
+                median(loadVoicebankMs));
+        console.printf(
+                "%8s %10s %10s %12s %10s %10s %10s %10s%n",
+                "notes",
+                "open ms",
+                "stdize ms",
+                "edit us",
+                "save ms",
+                "render ms",
+                "processes",
+                "file KB");
+
+        for (int size : sizes) {
+            File ustFile = new File(workDir, "song" + size + ".ust");
+            generator.writeUst(generator.generateSong(size, voiceDir), layerInterval, ustFile);
+            List<Double> openMs = new ArrayList<>();
+            List<Double> standardizeMs = new ArrayList<>();
+            List<Double> editUs = new ArrayList<>();
+            List<Double> saveMs = new ArrayList<>();
+            List<Double> renderMs = new ArrayList<>();
+            int numProcesses = 0;
+            for (int i = 0; i < repeat; i++) {
+                start = System.nanoTime();
+                String contents = FileUtils.readFileToString(ustFile, StandardCharsets.UTF_8);
+                Song song = ust20Reader.loadSong(contents);
+                openMs.add(msSince(start));
+
+                start = System.nanoTime();
+                song = song.toBuilder().build(); // Standardizes every note again.
+                standardizeMs.add(msSince(start));
+
+                start = System.nanoTime();
+                editMiddleNotes(song);
+                editUs.add(msSince(start) * 1000 / NUM_EDITS);
+
+                start = System.nanoTime();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                PrintStream ps = new PrintStream(bytes, false, "UTF-8");
+                ust20Writer.writeSong(song, ps, "UTF-8");
+                ps.close();
+                FileUtils.writeByteArrayToFile(new File(workDir, "saved.ust"), bytes.toByteArray());
+                saveMs.add(msSince(start));
+
+                int processesBefore = runner.getNumProcesses();
+                start = System.nanoTime();
+                engine.renderWav(song, new File(workDir, "rendered.wav"));
+                renderMs.add(msSince(start));
+                numProcesses = runner.getNumProcesses() - processesBefore;
+                // Otherwise the next render would reuse this one's resampler output.
+                FileUtils.cleanDirectory(renderDir);
+            }
+            console.printf(
+                    "%8d %10.1f %10.1f %12.1f %10.1f %10.1f %10d %10d%n",
+                    size,
+                    median(openMs),
+                    median(standardizeMs),
+                    median(editUs),
+                    median(saveMs),
+                    median(renderMs),
+                    numProcesses,
+                    ustFile.length() / 1024);
+        }
+        // Logging is asynchronous, so write out anything still queued before restoring output.
+        ErrorLogger.getLogger().flush();
+        System.setOut(console);
+        if (!options.containsKey("workDir")) {
+            FileUtils.deleteQuietly(workDir);
+        }
+    }
+
+    // Removes and re-adds notes in the middle of a song, like moving them in the piano roll.
+    private static void editMiddleNotes(Song song) {
+        List<NoteData> notes = song.getNotes();
+        int first = Math.max(0, notes.size() / 2 - NUM_EDITS / 2);
+        for (int i = first; i < first + NUM_EDITS && i < notes.size(); i++) {
+            NoteData note = notes.get(i);
+            song.removeNote(note.getPosition());
+            try {
+                song.addNote(note);
+            } catch (NoteAlreadyExistsException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --option=value, got " + arg);
+            }
+            int split = arg.indexOf('=');
+            options.put(arg.substring(2, split), arg.substring(split + 1));
+        }
+        return options;
+    }
+
+    private static double msSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e6;
+    }
+
+    private static double median(List<Double> values) {
+        List<Double> sorted = new ArrayList<>(values);
+        sorted.sort(null);
+        return sorted.get(sorted.size() / 2);
+    }
+}
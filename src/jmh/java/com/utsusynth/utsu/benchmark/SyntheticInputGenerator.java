@@ -0,0 +1,228 @@
+package com.utsusynth.utsu.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Provider;
+import com.utsusynth.utsu.common.PitchUtils;
+import com.utsusynth.utsu.files.Ust20Writer;
+import com.utsusynth.utsu.files.VoicebankWriter;
+import com.utsusynth.utsu.files.WavFixture;
+import com.utsusynth.utsu.model.song.Note;
+import com.utsusynth.utsu.model.song.Song;
+import com.utsusynth.utsu.model.voicebank.LyricConfig;
+import com.utsusynth.utsu.model.voicebank.Voicebank;
+
+/**
+ * Generates large songs and voicebanks for scale testing. The same seed always generates the same
+ * files, which are written in the same formats Utsu saves.
+ */
+public class SyntheticInputGenerator {
+    private static final ImmutableList<String> CONSONANTS = ImmutableList
+            .of("", "k", "s", "t", "n", "h", "m", "y", "r", "w", "g", "z", "d", "b", "p", "ky",
+                    "sh", "ch", "ny", "hy", "my", "ry", "gy", "j", "by", "py", "ts", "f", "v");
+    private static final ImmutableList<String> VOWELS = ImmutableList.of("a", "i", "u", "e", "o");
+    private static final ImmutableList<String> PITCH_SHAPES = ImmutableList.of("", "s", "r", "j");
+    private static final int SAMPLE_RATE = 44100;
+    private static final int SAMPLE_MS = 600; // Length of every generated sample.
+
+    private final Random random;
+    private final Provider<Song> songProvider;
+    private final Provider<Voicebank> voicebankProvider;
+    private final Ust20Writer ust20Writer;
+    private final VoicebankWriter voicebankWriter;
+
+    public SyntheticInputGenerator(
+            long seed,
+            Provider<Song> songProvider,
+            Provider<Voicebank> voicebankProvider,
+            Ust20Writer ust20Writer,
+            VoicebankWriter voicebankWriter) {
+        this.random = new Random(seed);
+        this.songProvider = songProvider;
+        this.voicebankProvider = voicebankProvider;
+        this.ust20Writer = ust20Writer;
+        this.voicebankWriter = voicebankWriter;
+    }
+
+    /** Syllables that generated voicebanks have samples for, such as "ka" or "shu". */
+    public static ImmutableList<String> getSyllables() {
+        ImmutableList.Builder<String> syllables = ImmutableList.builder();
+        for (String consonant : CONSONANTS) {
+            for (String vowel : VOWELS) {
+                syllables.add(consonant + vowel);
+            }
+        }
+        return syllables.build();
+    }
+
+    /**
+     * Generates a song that uses the voicebank in voiceDir. Every sung note has a multi-point
+     * portamento and most have vibrato. About one note in ten is followed by a rest, and about one
+     * lyric in fifty isn't in the voicebank.
+     */
+    public Song generateSong(int numNotes, File voiceDir) {
+        ImmutableList<String> syllables = getSyllables();
+        Song.Builder builder = songProvider.get().toBuilder().setProjectName("scale test")
+                .setTempo(100 + random.nextInt(80)).setVoiceDirectory(voiceDir);
+        int prevLength = 0;
+        for (int i = 0; i < numNotes; i++) {
+            Note note = new Note();
+            int duration = 120 * (1 + random.nextInt(8));
+            int length = random.nextInt(10) == 0 ? duration + 120 * (1 + random.nextInt(4))
+                    : duration;
+            note.setDelta(prevLength);
+            note.setDuration(duration);
+            note.setLength(length);
+            prevLength = length;
+
+            String lyric = random.nextInt(50) == 0 ? "xx" + random.nextInt(100)
+                    : syllables.get(random.nextInt(syllables.size()));
+            note.setLyric(lyric);
+            note.setNoteNum(48 + random.nextInt(25));
+            note.setVelocity(80 + random.nextInt(70));
+            note.setIntensity(70 + random.nextInt(60));
+
+            // Pitchbends with several points.
+            int numPoints = 2 + random.nextInt(5);
+            String[] pbw = new String[numPoints];
+            String[] pby = new String[numPoints - 1];
+            String[] pbm = new String[numPoints];
+            for (int point = 0; point < numPoints; point++) {
+                pbw[point] = Integer.toString(10 + random.nextInt(duration / numPoints + 10));
+                pbm[point] = PITCH_SHAPES.get(random.nextInt(PITCH_SHAPES.size()));
+                if (point < numPoints - 1) {
+                    pby[point] = Integer.toString(random.nextInt(41) - 20);
+                }
+            }
+            note.setPBS(new String[] {Integer.toString(-random.nextInt(80)),
+                    Integer.toString(random.nextInt(21) - 10)});
+            note.setPBW(pbw);
+            note.setPBY(pby);
+            note.setPBM(pbm);
+            if (random.nextInt(4) != 0) {
+                note.setVibrato(new String[] {Integer.toString(30 + random.nextInt(70)),
+                        Integer.toString(120 + random.nextInt(120)),
+                        Integer.toString(10 + random.nextInt(60)),
+                        Integer.toString(random.nextInt(50)), Integer.toString(random.nextInt(50)),
+                        Integer.toString(random.nextInt(100)), "0", "0", "0", "0"});
+            }
+            builder.addNote(note);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Writes a song as a UST 2.0 file, then adds notes from a second track every so often. Utsu
+     * only reads the main track, so each of these leaves a gap before the next main track note.
+     */
+    public void writeUst(Song song, int layerInterval, File ustFile) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(bytes, false, "UTF-8");
+        ust20Writer.writeSong(song, ps, "UTF-8");
+        ps.close();
+        String[] sections = bytes.toString("UTF-8").split("(?=\\[#)");
+
+        StringBuilder ust = new StringBuilder();
+        int numNotes = 0;
+        for (String section : sections) {
+            boolean isNote = section.matches("(?s)\\[#[0-9]{4,}\\].*");
+            if (isNote && layerInterval > 0 && numNotes > 0 && numNotes % layerInterval == 0) {
+                int layerLength = 120 * (1 + random.nextInt(8));
+                ust.append("[#").append(100000 + numNotes).append("]\n");
+                ust.append("Delta=0\nDuration=").append(layerLength);
+                ust.append("\nLength=").append(layerLength);
+                ust.append("\nLyric=a\nNoteNum=60\nlayer=2\n");
+            }
+            ust.append(section);
+            if (isNote) {
+                numNotes++;
+            }
+        }
+        FileUtils.writeStringToFile(ustFile, ust.toString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Generates a voicebank with about the given number of aliases, split across pitch folders
+     * and matched to pitches with a prefix.map. Each sample has an alias for every previous vowel,
+     * so samples are shared between many aliases.
+     */
+    public Voicebank generateVoicebank(int numAliases, File voiceDir) throws IOException {
+        ImmutableList<String> syllables = getSyllables();
+        int aliasesPerSample = VOWELS.size() + 2; // Plain, "- ka", and "a ka" for each vowel.
+        int samplesPerFolder = syllables.size();
+        int numFolders = Math.max(
+                1,
+                Math.min(
+                        PitchUtils.TOTAL_NUM_PITCHES,
+                        numAliases / (samplesPerFolder * aliasesPerSample)));
+
+        // Pick evenly spaced pitches for the folders, low to high.
+        List<String> folders = new ArrayList<>();
+        int lowestNoteNum = 24;
+        int step = Math.max(1, PitchUtils.TOTAL_NUM_PITCHES / numFolders);
+        for (int i = 0; i < numFolders; i++) {
+            folders.add(PitchUtils.noteNumToPitch(lowestNoteNum + i * step));
+        }
+
+        Voicebank.Builder builder = voicebankProvider.get().toBuilder().setPathToVoicebank(voiceDir)
+                .setName("Scale Test").setAuthor("utsu").setImageName("")
+                .setDescription("Generated voicebank for scale testing.");
+        for (String folder : folders) {
+            File folderDir = new File(voiceDir, folder);
+            folderDir.mkdirs();
+            for (String syllable : syllables) {
+                String fileName = folder + "/" + syllable + ".wav";
+                writeWav(new File(voiceDir, fileName));
+                List<String> prefixes = new ArrayList<>();
+                prefixes.add("");
+                prefixes.add("- ");
+                for (String vowel : VOWELS) {
+                    prefixes.add(vowel + " ");
+                }
+                for (String prefix : prefixes) {
+                    double offset = 20 + random.nextInt(80);
+                    double consonant = 60 + random.nextInt(120);
+                    double cutoff = -(consonant + 100 + random.nextInt(200));
+                    double preutter = 30 + random.nextInt(90);
+                    double overlap = random.nextInt(40);
+                    builder.addLyric(
+                            new LyricConfig(
+                                    voiceDir,
+                                    prefix + syllable + folder,
+                                    fileName,
+                                    offset,
+                                    consonant,
+                                    cutoff,
+                                    preutter,
+                                    overlap),
+                            false);
+                }
+            }
+        }
+
+        // Every pitch uses the samples of the nearest folder at or below it.
+        for (int noteNum = 24; noteNum < 24 + PitchUtils.TOTAL_NUM_PITCHES; noteNum++) {
+            int folder = Math.max(0, Math.min(numFolders - 1, (noteNum - lowestNoteNum) / step));
+            builder.addPitchSuffix(PitchUtils.noteNumToPitch(noteNum), folders.get(folder));
+        }
+
+        Voicebank voicebank = builder.build();
+        voicebankWriter.writeVoicebankToDirectory(voicebank, voiceDir);
+        return voicebank;
+    }
+
+    // A short 16-bit mono sine wave, so that renders have real audio to work with.
+    private void writeWav(File wavFile) throws IOException {
+        WavFixture wav = new WavFixture().setSampleRate(SAMPLE_RATE);
+        double freq = 110 + random.nextInt(330);
+        wav.write(wavFile, wav.sine(freq, 8000, SAMPLE_RATE * SAMPLE_MS / 1000));
+    }
+}
@@ -0,0 +1,117 @@
+package com.utsusynth.utsu.engine;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.google.common.base.Optional;
+import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import com.utsusynth.utsu.benchmark.BenchmarkFixtures;
+import com.utsusynth.utsu.common.RegionBounds;
+import com.utsusynth.utsu.files.Ust12Reader;
+import com.utsusynth.utsu.model.song.Song;
+
+/**
+ * Rendering whole songs with stand-in tools, so that the time measured is the engine's own, plus
+ * any latency the tools are given. Per-note process counts and temporary file I/O are printed at
+ * the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineRenderBenchmark {
+    private static final File RESAMPLER_PATH = new File("stub_resampler");
+    private static final File WAVTOOL_PATH = new File("stub_wavtool");
+
+    @Param({"100", "1000"})
+    public int numNotes;
+
+    @Param({"0", "2"})
+    public long toolLatencyMs; // Added to every resampler and wavtool call.
+
+    @Param({"FULL", "DRAFT"})
+    public RenderQuality quality;
+
+    private StubToolRunner runner;
+    private Engine engine;
+    private Song song;
+    private int numSungNotes;
+    private Optional<File> lastRender;
+
+    // Totals for the whole trial.
+    private int numRenders;
+    private long renderNanos;
+    private long numTempFiles;
+
+    @Setup
+    public void setUp() {
+        runner = new StubToolRunner(RESAMPLER_PATH, WAVTOOL_PATH, toolLatencyMs);
+        Injector injector = BenchmarkFixtures.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(ExternalProcessRunner.class).toInstance(runner);
+            }
+        });
+        engine = new Engine(
+                injector.getInstance(Resampler.class),
+                injector.getInstance(Wavtool.class),
+                RESAMPLER_PATH,
+                WAVTOOL_PATH);
+        song = injector.getInstance(Ust12Reader.class)
+                .loadSong(BenchmarkFixtures.ust12Song(numNotes));
+        numSungNotes = song.getNotes().size();
+        runner.resetCounts();
+    }
+
+    @Benchmark
+    public Optional<File> render() {
+        long start = System.nanoTime();
+        lastRender = engine.render(song, RegionBounds.WHOLE_SONG, quality);
+        renderNanos += System.nanoTime() - start;
+        numRenders++;
+        return lastRender;
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteRender() {
+        if (lastRender.isPresent()) {
+            File tempDir = lastRender.get().getParentFile();
+            numTempFiles += FileUtils.listFiles(tempDir, null, false).size();
+            FileUtils.deleteQuietly(tempDir);
+        }
+    }
+
+    @TearDown
+    public void printPerNote() {
+        if (numRenders == 0) {
+            return;
+        }
+        double numNotesRendered = (double) numRenders * numSungNotes;
+        // Tools run in parallel, so only time when no tool was running counts as the engine's.
+        double overheadUs = (renderNanos - runner.getBusyNanos()) / numNotesRendered / 1000;
+        System.out.printf(
+                "%nPer note: %.1f us in the engine, %.2f processes, %.2f temp files, "
+                        + "%.1f KB read, %.1f KB written%n",
+                overheadUs,
+                runner.getNumProcesses() / numNotesRendered,
+                numTempFiles / numNotesRendered,
+                runner.getBytesRead() / numNotesRendered / 1024,
+                runner.getBytesWritten() / numNotesRendered / 1024);
+    }
+}
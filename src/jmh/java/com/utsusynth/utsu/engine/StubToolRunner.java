@@ -0,0 +1,233 @@
+package com.utsusynth.utsu.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import com.google.common.base.Preconditions;
+import com.utsusynth.utsu.common.PitchUtils;
+import com.utsusynth.utsu.files.WavFixture;
+
+/**
+ * Stands in for the resampler and wavtool without starting any processes, so that renders can be
+ * timed without depending on which tools are installed. It accepts the same arguments that
+ * {@link Resampler} and {@link Wavtool} pass to the real tools and writes real wav files, which
+ * depend only on those arguments. Every call can wait a while first, to act like a slow tool.
+ * Calls can run at the same time, as real tools do, so only the counts are synchronized.
+ */
+public class StubToolRunner extends ExternalProcessRunner {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int HEADER_SIZE = WavFixture.HEADER_SIZE;
+    private static final WavFixture WAV = new WavFixture().setSampleRate(SAMPLE_RATE);
+    private static final int RESAMPLER_ARGS = 14;
+    private static final int SILENCE_RESAMPLER_ARGS = 12;
+    private static final int WAVTOOL_ARGS = 17;
+
+    private final String resamplerPath;
+    private final String wavtoolPath;
+    private final long latencyMs;
+
+    private int numResamplerCalls;
+    private int numWavtoolCalls;
+    private long bytesRead;
+    private long bytesWritten;
+    private int numRunning;
+    private long busySince;
+    // Time that at least one stand-in tool was running, including latency. Calls that overlap
+    // are only counted once, so this never adds up to more than the time that passed.
+    private long busyNanos;
+
+    public StubToolRunner(File resamplerPath, File wavtoolPath, long latencyMs) {
+        this.resamplerPath = resamplerPath.getAbsolutePath();
+        this.wavtoolPath = wavtoolPath.getAbsolutePath();
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public void runProcess(String... args) {
+        startCall();
+        try {
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+            if (args[0].equals(resamplerPath)) {
+                resample(args);
+            } else if (args[0].equals(wavtoolPath)) {
+                addToOutput(args);
+            } else {
+                throw new IllegalArgumentException("Unknown tool: " + args[0]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            finishCall();
+        }
+    }
+
+    public synchronized int getNumProcesses() {
+        return numResamplerCalls + numWavtoolCalls;
+    }
+
+    public synchronized int getNumResamplerCalls() {
+        return numResamplerCalls;
+    }
+
+    public synchronized int getNumWavtoolCalls() {
+        return numWavtoolCalls;
+    }
+
+    public synchronized long getBytesRead() {
+        return bytesRead;
+    }
+
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /** Time that any tool was running, counting time when several ran at once only once. */
+    public synchronized long getBusyNanos() {
+        return numRunning > 0 ? busyNanos + System.nanoTime() - busySince : busyNanos;
+    }
+
+    public synchronized void resetCounts() {
+        numResamplerCalls = 0;
+        numWavtoolCalls = 0;
+        bytesRead = 0;
+        bytesWritten = 0;
+        busyNanos = 0;
+        busySince = System.nanoTime();
+    }
+
+    private synchronized void countResamplerCall() {
+        numResamplerCalls++;
+    }
+
+    private synchronized void countWavtoolCall() {
+        numWavtoolCalls++;
+    }
+
+    private synchronized void addBytesRead(long numBytes) {
+        bytesRead += numBytes;
+    }
+
+    private synchronized void addBytesWritten(long numBytes) {
+        bytesWritten += numBytes;
+    }
+
+    private synchronized void startCall() {
+        if (numRunning++ == 0) {
+            busySince = System.nanoTime();
+        }
+    }
+
+    private synchronized void finishCall() {
+        if (--numRunning == 0) {
+            busyNanos += System.nanoTime() - busySince;
+        }
+    }
+
+    /*
+     * Arguments: resampler, input, output, pitch, velocity, flags, offset, length, consonant,
+     * cutoff, intensity, modulation, and then tempo and pitchbends except for silence. Writes a
+     * sine wave at the note's pitch, as long as the requested length.
+     */
+    private void resample(String[] args) throws IOException {
+        Preconditions.checkArgument(
+                args.length == RESAMPLER_ARGS || args.length == SILENCE_RESAMPLER_ARGS,
+                "Wrong number of resampler arguments: %s",
+                Arrays.toString(args));
+        countResamplerCall();
+        File outputFile = new File(args[2]);
+        int noteNum = PitchUtils.pitchToNoteNum(args[3]);
+        double lengthMs = Double.parseDouble(args[7]);
+        double volume = Integer.parseInt(args[10]) / 100.0;
+
+        double frequency = 440 * Math.pow(2, (noteNum - 69) / 12.0);
+        short[] samples = WAV.sine(frequency, 8000 * volume, toNumSamples(lengthMs));
+        WAV.write(outputFile, samples);
+        addBytesWritten(HEADER_SIZE + samples.length * 2);
+    }
+
+    /*
+     * Arguments: wavtool, output, input, start point, length, p1, p2, p3, v1, v2, v3, v4, overlap,
+     * p4, p5, v5, and whether this is the last note. Appends the requested part of the input to
+     * the output, mixing the overlap into the end of what's already there.
+     */
+    private void addToOutput(String[] args) throws IOException {
+        Preconditions.checkArgument(
+                args.length == WAVTOOL_ARGS,
+                "Wrong number of wavtool arguments: %s",
+                Arrays.toString(args));
+        countWavtoolCall();
+        File outputFile = new File(args[1]);
+        File inputFile = new File(args[2]);
+        int startSample = toNumSamples(Double.parseDouble(args[3]));
+        int numSamples = toNumSamples(Double.parseDouble(args[4]));
+        int overlapSamples = toNumSamples(Double.parseDouble(args[12]));
+
+        short[] input = readSamples(inputFile);
+        short[] toAdd = new short[numSamples];
+        for (int i = 0; i < numSamples && startSample + i < input.length; i++) {
+            toAdd[i] = input[startSample + i];
+        }
+
+        try (RandomAccessFile output = new RandomAccessFile(outputFile, "rw")) {
+            int dataSize = 0;
+            if (output.length() < HEADER_SIZE) {
+                output.write(new byte[HEADER_SIZE]);
+            } else {
+                output.seek(HEADER_SIZE - 4);
+                dataSize = Integer.reverseBytes(output.readInt());
+            }
+            int numExisting = dataSize / 2;
+            int overlap = Math.min(Math.min(overlapSamples, numExisting), numSamples);
+
+            // Mix the overlapping part, then write the rest after it.
+            ByteBuffer mixed = ByteBuffer.allocate(overlap * 2).order(ByteOrder.LITTLE_ENDIAN);
+            output.seek(HEADER_SIZE + (numExisting - overlap) * 2);
+            output.readFully(mixed.array());
+            addBytesRead(overlap * 2);
+            for (int i = 0; i < overlap; i++) {
+                int sum = mixed.getShort(i * 2) + toAdd[i];
+                sum = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum));
+                mixed.putShort(i * 2, (short) sum);
+            }
+            ByteBuffer rest = ByteBuffer.allocate((numSamples - overlap) * 2)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = overlap; i < numSamples; i++) {
+                rest.putShort(toAdd[i]);
+            }
+            output.seek(HEADER_SIZE + (numExisting - overlap) * 2);
+            output.write(mixed.array());
+            output.write(rest.array());
+
+            int newDataSize = (numExisting + numSamples - overlap) * 2;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            WAV.putHeader(header, newDataSize);
+            output.seek(0);
+            output.write(header.array());
+            addBytesWritten(HEADER_SIZE + mixed.capacity() + rest.capacity());
+        }
+    }
+
+    private short[] readSamples(File wavFile) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(wavFile, "r")) {
+            byte[] bytes = new byte[(int) Math.max(0, input.length() - HEADER_SIZE)];
+            input.seek(HEADER_SIZE);
+            input.readFully(bytes);
+            addBytesRead(input.length());
+            short[] samples = new short[bytes.length / 2];
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+            return samples;
+        }
+    }
+
+    private static int toNumSamples(double ms) {
+        return (int) Math.max(0, Math.round(ms * SAMPLE_RATE / 1000));
+    }
+}
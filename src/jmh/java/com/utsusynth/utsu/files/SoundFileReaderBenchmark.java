@@ -0,0 +1,65 @@
+package com.utsusynth.utsu.files;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.google.common.base.Optional;
+import com.utsusynth.utsu.common.data.FrequencyData;
+import com.utsusynth.utsu.common.data.WavData;
+
+/** Loading a sample and its frequency file from the default voicebank. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SoundFileReaderBenchmark {
+    private static final File WAV_FILE = new File("assets/voice/Iona_Beta/ka.wav");
+    private static final File FRQ_FILE = new File("assets/voice/Iona_Beta/ka_wav.frq");
+
+    private SoundFileReader soundFileReader;
+
+    @Setup
+    public void setUp() {
+        soundFileReader = new SoundFileReader();
+        if (!WAV_FILE.canRead() || !FRQ_FILE.canRead()) {
+            throw new IllegalStateException("Run benchmarks from the folder with the assets.");
+        }
+    }
+
+    @Benchmark
+    public Optional<MappedWavFile> openWav() {
+        return soundFileReader.openWav(WAV_FILE);
+    }
+
+    @Benchmark
+    public Optional<MappedWavFile> readWav() {
+        return soundFileReader.readWav(WAV_FILE);
+    }
+
+    @Benchmark
+    public Optional<WavData> loadWavData() {
+        return soundFileReader.loadWavData(WAV_FILE);
+    }
+
+    @Benchmark
+    public Optional<DecodedSample> decodeWav() {
+        Optional<MappedWavFile> wav = soundFileReader.readWav(WAV_FILE);
+        return Optional.of(DecodedSample.decode(wav.get(), WAV_FILE.lastModified()));
+    }
+
+    @Benchmark
+    public Optional<FrequencyData> loadFrqData() {
+        return soundFileReader.loadFrqData(FRQ_FILE);
+    }
+}
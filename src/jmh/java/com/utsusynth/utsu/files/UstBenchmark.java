@@ -0,0 +1,69 @@
+package com.utsusynth.utsu.files;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.google.inject.Injector;
+import com.utsusynth.utsu.benchmark.BenchmarkFixtures;
+import com.utsusynth.utsu.model.song.Song;
+
+/** Parsing and writing UST files of different sizes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UstBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int numNotes;
+
+    private Ust12Reader ust12Reader;
+    private Ust20Reader ust20Reader;
+    private Ust20Writer ust20Writer;
+    private String ust12File;
+    private String ust20File;
+    private Song song;
+
+    @Setup
+    public void setUp() throws UnsupportedEncodingException {
+        Injector injector = BenchmarkFixtures.createInjector();
+        ust12Reader = injector.getInstance(Ust12Reader.class);
+        ust20Reader = injector.getInstance(Ust20Reader.class);
+        ust20Writer = injector.getInstance(Ust20Writer.class);
+        ust12File = BenchmarkFixtures.ust12Song(numNotes);
+        song = ust12Reader.loadSong(ust12File);
+        ust20File = writeUst20();
+    }
+
+    @Benchmark
+    public Song readUst12() {
+        return ust12Reader.loadSong(ust12File);
+    }
+
+    @Benchmark
+    public Song readUst20() {
+        return ust20Reader.loadSong(ust20File);
+    }
+
+    @Benchmark
+    public String writeUst20() throws UnsupportedEncodingException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(bytes, false, "UTF-8");
+        ust20Writer.writeSong(song, ps, "UTF-8");
+        ps.close();
+        return bytes.toString("UTF-8");
+    }
+}
@@ -0,0 +1,68 @@
+package com.utsusynth.utsu.model.song;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.utsusynth.utsu.common.exception.NoteAlreadyExistsException;
+
+/** Inserting and removing a note at the start, middle, or end of a long note list. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoteListBenchmark {
+    private static final int NOTE_LENGTH = 240; // Each note is followed by a rest this long.
+
+    @Param({"100", "1000", "10000"})
+    public int numNotes;
+
+    @Param({"0.0", "0.5", "1.0"})
+    public double whereInList; // Fraction of the way through the list.
+
+    private NoteList noteList;
+    private int insertMs;
+
+    @Setup
+    public void setUp() {
+        NoteList.Builder builder = new NoteList().toBuilder();
+        for (int i = 0; i < numNotes; i++) {
+            builder.appendNote(newNote());
+            builder.appendRestNote(newNote());
+        }
+        noteList = builder.build();
+        // Insert into the rest after a note, so the list is the same after each removal.
+        int index = Math.min((int) (numNotes * whereInList), numNotes - 1);
+        insertMs = index * NOTE_LENGTH * 2 + NOTE_LENGTH;
+    }
+
+    @Benchmark
+    public NoteNode insertAndRemove() throws NoteAlreadyExistsException {
+        noteList.insertNote(newNote(), insertMs);
+        return noteList.removeNote(insertMs);
+    }
+
+    @Benchmark
+    public NoteNode getNote() {
+        return noteList.getNote(insertMs - NOTE_LENGTH);
+    }
+
+    private static Note newNote() {
+        Note note = new Note();
+        note.setDuration(NOTE_LENGTH);
+        note.setLength(NOTE_LENGTH);
+        note.setLyric("a");
+        note.setNoteNum(60);
+        return note;
+    }
+}
@@ -0,0 +1,61 @@
+package com.utsusynth.utsu.model.song;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.google.common.base.Optional;
+import com.utsusynth.utsu.benchmark.BenchmarkFixtures;
+import com.utsusynth.utsu.model.voicebank.Voicebank;
+import com.utsusynth.utsu.model.voicebank.VoicebankContainer;
+
+/** Standardizing a single note between two neighbors. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoteStandardizerBenchmark {
+    @Param({"ka", "か", "xyz"}) // Exact, converted from kana, and missing lyrics.
+    public String lyric;
+
+    private NoteStandardizer standardizer;
+    private Voicebank voicebank;
+    private Optional<Note> prev;
+    private Note note;
+    private Optional<Note> next;
+
+    @Setup
+    public void setUp() {
+        standardizer = new NoteStandardizer();
+        voicebank = BenchmarkFixtures.createInjector().getInstance(VoicebankContainer.class).get();
+        prev = Optional.of(newNote(0, "a"));
+        note = newNote(480, lyric);
+        next = Optional.of(newNote(480, "sa"));
+    }
+
+    @Benchmark
+    public Note standardize() {
+        standardizer.standardize(prev, note, next, voicebank);
+        return note;
+    }
+
+    private static Note newNote(int delta, String lyric) {
+        Note note = new Note();
+        note.setDelta(delta);
+        note.setDuration(480);
+        note.setLength(480);
+        note.setLyric(lyric);
+        note.setNoteNum(60);
+        return note;
+    }
+}
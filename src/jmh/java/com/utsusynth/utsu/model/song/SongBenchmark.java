@@ -0,0 +1,67 @@
+package com.utsusynth.utsu.model.song;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.google.inject.Injector;
+import com.utsusynth.utsu.benchmark.BenchmarkFixtures;
+import com.utsusynth.utsu.common.RegionBounds;
+import com.utsusynth.utsu.common.data.NoteData;
+import com.utsusynth.utsu.common.data.RemoveResponse;
+import com.utsusynth.utsu.common.exception.NoteAlreadyExistsException;
+import com.utsusynth.utsu.files.Ust12Reader;
+
+/** Editing large songs the way the piano roll does, including standardizing neighbors. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SongBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int numNotes;
+
+    @Param({"0.0", "0.5", "1.0"})
+    public double whereInSong; // Fraction of the way through the song.
+
+    private Song song;
+    private NoteData toAdd;
+
+    @Setup
+    public void setUp() {
+        Injector injector = BenchmarkFixtures.createInjector();
+        song = injector.getInstance(Ust12Reader.class)
+                .loadSong(BenchmarkFixtures.ust12Song(numNotes));
+        // Add into a rest, so the song is the same after each removal.
+        int position = BenchmarkFixtures.restPosition(numNotes, whereInSong);
+        toAdd = new NoteData(position, 480, "C4", "ka");
+    }
+
+    @Benchmark
+    public RemoveResponse addAndRemoveNote() throws NoteAlreadyExistsException {
+        song.addNote(toAdd);
+        return song.removeNote(toAdd.getPosition());
+    }
+
+    @Benchmark
+    public List<NoteData> getAllNotes() {
+        return song.getNotes();
+    }
+
+    @Benchmark
+    public List<NoteData> getNotesNearEdit() {
+        int position = toAdd.getPosition();
+        return song.getNotes(new RegionBounds(position - 1920, position + 1920));
+    }
+}
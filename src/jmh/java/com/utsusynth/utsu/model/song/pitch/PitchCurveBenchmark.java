@@ -0,0 +1,80 @@
+package com.utsusynth.utsu.model.song.pitch;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.google.common.collect.ImmutableList;
+import com.utsusynth.utsu.common.data.PitchbendData;
+import com.utsusynth.utsu.model.song.pitch.portamento.PortamentoFactory;
+
+/** Adding and rendering the pitchbends of songs with many notes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PitchCurveBenchmark {
+    private static final int NOTE_LENGTH = 480;
+
+    @Param({"100", "1000", "10000"})
+    public int numNotes;
+
+    private PortamentoFactory portamentoFactory;
+    private PitchCurve curve;
+    private PitchbendData pitchbend;
+    private int middleNoteMs;
+
+    @Setup
+    public void setUp() {
+        portamentoFactory = new PortamentoFactory();
+        pitchbend = new PitchbendData(
+                ImmutableList.of(-40.0, 0.0),
+                ImmutableList.of(80.0),
+                ImmutableList.of(),
+                ImmutableList.of("s"),
+                new int[] {65, 180, 35, 20, 20, 0, 0, 0, 0, 0});
+        curve = addAllPitchbends();
+        middleNoteMs = (numNotes / 2) * NOTE_LENGTH;
+    }
+
+    /** Builds a whole song's pitch curve, as happens when a song is loaded. */
+    @Benchmark
+    public PitchCurve addPitchbends() {
+        return addAllPitchbends();
+    }
+
+    /** Replaces one note's pitchbends in the middle of a song, as happens when it's edited. */
+    @Benchmark
+    public PitchCurve replaceOnePitchbend() {
+        curve.removePitchbends(middleNoteMs, NOTE_LENGTH, pitchbend);
+        curve.addPitchbends(middleNoteMs, NOTE_LENGTH, pitchbend, 60, 64);
+        return curve;
+    }
+
+    /** Renders the resampler pitch string of one note in the middle of a song. */
+    @Benchmark
+    public String renderPitchbends() {
+        int firstStep = middleNoteMs / 5;
+        return curve.renderPitchbends(firstStep, firstStep + NOTE_LENGTH / 5, 64);
+    }
+
+    private PitchCurve addAllPitchbends() {
+        PitchCurve newCurve = new PitchCurve(portamentoFactory);
+        for (int i = 0; i < numNotes; i++) {
+            int noteNum = 60 + (i % 2) * 4;
+            int prevNoteNum = 64 - (i % 2) * 4;
+            newCurve.addPitchbends(i * NOTE_LENGTH, NOTE_LENGTH, pitchbend, prevNoteNum, noteNum);
+        }
+        return newCurve;
+    }
+}
@@ -0,0 +1,62 @@
+package com.utsusynth.utsu.model.voicebank;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.google.common.base.Optional;
+import com.utsusynth.utsu.benchmark.BenchmarkFixtures;
+import com.utsusynth.utsu.files.VoicebankReader;
+
+/** Looking up lyrics in the default voicebank, which happens for every note standardized. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoicebankBenchmark {
+    private VoicebankReader voicebankReader;
+    private Voicebank voicebank;
+
+    @Setup
+    public void setUp() {
+        voicebankReader = BenchmarkFixtures.createInjector().getInstance(VoicebankReader.class);
+        voicebank = loadVoicebank();
+    }
+
+    @Benchmark
+    public Optional<LyricConfig> exactLyric() {
+        return voicebank.getLyricConfig("ka");
+    }
+
+    /** A VCV alias found from the previous note's vowel. */
+    @Benchmark
+    public Optional<LyricConfig> aliasedLyric() {
+        return voicebank.getLyricConfig("ka", "sa", "C4");
+    }
+
+    /** A kana lyric that must be converted before it's found. */
+    @Benchmark
+    public Optional<LyricConfig> convertedLyric() {
+        return voicebank.getLyricConfig("か", "さ", "C4");
+    }
+
+    @Benchmark
+    public Optional<LyricConfig> missingLyric() {
+        return voicebank.getLyricConfig("ka", "xyz", "C4");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Voicebank loadVoicebank() {
+        return voicebankReader.loadVoicebankFromDirectory(voicebankReader.getDefaultPath());
+    }
+}
@@ -1,9 +1,12 @@
 package com.utsusynth.utsu;
 
+import java.io.File;
 import java.io.InputStream;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
 import com.utsusynth.utsu.controller.UtsuController;
+import com.utsusynth.utsu.engine.EngineModule;
 import com.utsusynth.utsu.model.ModelModule;
 import com.utsusynth.utsu.view.ViewModule;
 import javafx.application.Application;
@@ -18,9 +21,15 @@ import javafx.stage.Stage;
 public class UtsuApp extends Application {
     @Override
     public void start(Stage primaryStage) throws Exception {
+        // Keep a log on disk in addition to the console.
+        ErrorLogger.getLogger().logToFile(new File("logs"));
+
         // Set up Guice.
-        Injector injector =
-                Guice.createInjector(new UtsuModule(), new ModelModule(), new ViewModule());
+        Injector injector = Guice.createInjector(
+                new UtsuModule(),
+                new EngineModule(),
+                new ModelModule(),
+                new ViewModule());
         FXMLLoader loader = injector.getInstance(FXMLLoader.class);
 
         // Construct scene.
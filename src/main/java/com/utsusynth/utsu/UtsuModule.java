@@ -12,11 +12,8 @@ import com.utsusynth.utsu.common.i18n.Localizer;
 import com.utsusynth.utsu.common.i18n.NativeLocale;
 import com.utsusynth.utsu.common.quantize.Quantizer;
 import com.utsusynth.utsu.common.quantize.Scaler;
-import com.utsusynth.utsu.engine.Engine;
-import com.utsusynth.utsu.engine.ExternalProcessRunner;
-import com.utsusynth.utsu.engine.FrqGenerator;
-import com.utsusynth.utsu.engine.Resampler;
-import com.utsusynth.utsu.engine.Wavtool;
+import com.utsusynth.utsu.engine.NoteAuditioner;
+import com.utsusynth.utsu.plugin.PluginManager;
 import javafx.fxml.FXMLLoader;
 
 public class UtsuModule extends AbstractModule {
@@ -24,6 +21,7 @@ public class UtsuModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(UndoService.class).asEagerSingleton();
+        bind(NoteAuditioner.class).asEagerSingleton();
     }
 
     @Provides
@@ -50,38 +48,8 @@ public class UtsuModule extends AbstractModule {
 
     @Provides
     @Singleton
-    private Engine provideEngine(Resampler resampler, Wavtool wavtool) {
-        String os = System.getProperty("os.name").toLowerCase();
-        String resamplerPath;
-        String wavtoolPath;
-        if (os.contains("win")) {
-            resamplerPath = "assets/win64/macres.exe";
-            wavtoolPath = "assets/win64/wavtool-yawu.exe";
-        } else if (os.contains("mac")) {
-            resamplerPath = "assets/Mac/macres";
-            wavtoolPath = "assets/Mac/wavtool-yawu";
-        } else {
-            resamplerPath = "assets/linux64/macres";
-            wavtoolPath = "assets/linux64/wavtool-yawu";
-        }
-        File resamplerFile = new File(resamplerPath);
-        File wavtoolFile = new File(wavtoolPath);
-        return new Engine(resampler, wavtool, resamplerFile, wavtoolFile);
-    }
-
-    @Provides
-    @Singleton
-    private FrqGenerator provideFrqGenerator(ExternalProcessRunner runner) {
-        String os = System.getProperty("os.name").toLowerCase();
-        String frqGeneratorPath;
-        if (os.contains("win")) {
-            frqGeneratorPath = "assets/win64/frq0003gen.exe";
-        } else if (os.contains("mac")) {
-            frqGeneratorPath = "assets/Mac/frq0003gen";
-        } else {
-            frqGeneratorPath = "assets/linux64/frq0003gen";
-        }
-        return new FrqGenerator(runner, new File(frqGeneratorPath), 256);
+    private PluginManager providePluginManager() {
+        return new PluginManager(new File("plugins"), getClass().getClassLoader());
     }
 
     @Provides
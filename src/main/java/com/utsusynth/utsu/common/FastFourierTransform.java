@@ -0,0 +1,80 @@
+package com.utsusynth.utsu.common;
+
+/**
+ * In-place radix-2 FFT, along with a few helpers for short-time analysis of audio.
+ */
+public class FastFourierTransform {
+    private final int size;
+    private final double[] cosTable;
+    private final double[] sinTable;
+    private final int[] bitReversed;
+
+    /**
+     * @param size Number of points, which must be a power of two.
+     */
+    public FastFourierTransform(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two: " + size);
+        }
+        this.size = size;
+        this.cosTable = new double[size / 2];
+        this.sinTable = new double[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            cosTable[i] = Math.cos(2 * Math.PI * i / size);
+            sinTable[i] = Math.sin(2 * Math.PI * i / size);
+        }
+        this.bitReversed = new int[size];
+        int numBits = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++) {
+            bitReversed[i] = Integer.reverse(i) >>> (32 - numBits);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /** Transforms real and imaginary arrays of length getSize() in place. */
+    public void transform(double[] real, double[] imag) {
+        if (real.length != size || imag.length != size) {
+            throw new IllegalArgumentException("Expected arrays of length " + size);
+        }
+        for (int i = 0; i < size; i++) {
+            int j = bitReversed[i];
+            if (j > i) {
+                double temp = real[i];
+                real[i] = real[j];
+                real[j] = temp;
+                temp = imag[i];
+                imag[i] = imag[j];
+                imag[j] = temp;
+            }
+        }
+        for (int half = 1; half < size; half *= 2) {
+            int tableStep = size / (half * 2);
+            for (int start = 0; start < size; start += half * 2) {
+                for (int k = 0; k < half; k++) {
+                    int even = start + k;
+                    int odd = even + half;
+                    double cos = cosTable[k * tableStep];
+                    double sin = sinTable[k * tableStep];
+                    double oddReal = real[odd] * cos + imag[odd] * sin;
+                    double oddImag = imag[odd] * cos - real[odd] * sin;
+                    real[odd] = real[even] - oddReal;
+                    imag[odd] = imag[even] - oddImag;
+                    real[even] += oddReal;
+                    imag[even] += oddImag;
+                }
+            }
+        }
+    }
+
+    /** Returns a Hann window of the given length. */
+    public static double[] hannWindow(int length) {
+        double[] window = new double[length];
+        for (int i = 0; i < length; i++) {
+            window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (length - 1));
+        }
+        return window;
+    }
+}
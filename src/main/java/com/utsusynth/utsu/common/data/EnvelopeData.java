@@ -1,5 +1,7 @@
 package com.utsusynth.utsu.common.data;
 
+import java.util.Arrays;
+import java.util.Objects;
 import com.google.common.base.Optional;
 
 public class EnvelopeData {
@@ -42,4 +44,22 @@ public class EnvelopeData {
     public double[] getHeights() {
         return heights;
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof EnvelopeData)) {
+            return false;
+        }
+        EnvelopeData other = (EnvelopeData) obj;
+        return envPreutter.equals(other.envPreutter)
+                && envLength.equals(other.envLength)
+                && Arrays.equals(widths, other.widths)
+                && Arrays.equals(heights, other.heights);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                envPreutter, envLength, Arrays.hashCode(widths), Arrays.hashCode(heights));
+    }
 }
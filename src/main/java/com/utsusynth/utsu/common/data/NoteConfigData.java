@@ -1,5 +1,7 @@
 package com.utsusynth.utsu.common.data;
 
+import java.util.Objects;
+
 public class NoteConfigData {
     private final String trueLyric;
     private final double velocity; // Consonant velocity.
@@ -28,4 +30,21 @@ public class NoteConfigData {
     public String getNoteFlags() {
         return this.noteFlags;
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof NoteConfigData)) {
+            return false;
+        }
+        NoteConfigData other = (NoteConfigData) obj;
+        return trueLyric.equals(other.trueLyric)
+                && Double.compare(velocity, other.velocity) == 0
+                && intensity == other.intensity
+                && noteFlags.equals(other.noteFlags);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(trueLyric, velocity, intensity, noteFlags);
+    }
 }
@@ -1,5 +1,6 @@
 package com.utsusynth.utsu.common.data;
 
+import java.util.Objects;
 import com.google.common.base.Optional;
 
 /**
@@ -96,4 +97,24 @@ public class NoteData {
     public Optional<NoteConfigData> getConfig() {
         return this.config;
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof NoteData)) {
+            return false;
+        }
+        NoteData other = (NoteData) obj;
+        return position == other.position
+                && duration == other.duration
+                && pitch.equals(other.pitch)
+                && lyric.equals(other.lyric)
+                && envelope.equals(other.envelope)
+                && pitchbend.equals(other.pitchbend)
+                && config.equals(other.config);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(position, duration, pitch, lyric, envelope, pitchbend, config);
+    }
 }
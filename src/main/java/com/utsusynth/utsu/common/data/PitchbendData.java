@@ -1,5 +1,7 @@
 package com.utsusynth.utsu.common.data;
 
+import java.util.Arrays;
+import java.util.Objects;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 
@@ -91,4 +93,22 @@ public class PitchbendData {
         }
         return result;
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof PitchbendData)) {
+            return false;
+        }
+        PitchbendData other = (PitchbendData) obj;
+        return pbs.equals(other.pbs)
+                && pbw.equals(other.pbw)
+                && pby.equals(other.pby)
+                && pbm.equals(other.pbm)
+                && Arrays.equals(vibrato, other.vibrato);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pbs, pbw, pby, pbm, Arrays.hashCode(vibrato));
+    }
 }
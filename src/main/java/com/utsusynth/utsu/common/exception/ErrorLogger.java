@@ -1,58 +1,274 @@
 package com.utsusynth.utsu.common.exception;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import com.google.common.base.Optional;
 
-/** A service for handling exceptions. Currently just logs everything to console. */
+/**
+ * A service for handling exceptions and log messages. Messages below the current level are
+ * skipped before any work is done. The rest are queued without locking and written to the console
+ * (and to a log file, if one is set) by a background thread, so logging never waits on output.
+ *
+ * The starting level can be set with -Dutsu.logLevel=DEBUG, for example. It's INFO by default.
+ */
 public class ErrorLogger {
+  private static final int QUEUE_SIZE = 8192;
+  private static final long WRITE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long MAX_LOG_FILE_BYTES = 5 * 1024 * 1024;
+  private static final int NUM_OLD_LOG_FILES = 3;
+
+  private static final ErrorLogger INSTANCE = createLogger();
+
+  private final LogRing<Entry> queue;
+  private final Thread writerThread;
+  private volatile LogLevel level;
+  private Optional<RotatingLogFile> logFile; // Guarded by this.
 
   // Prevent instantiation.
-  private ErrorLogger() {}
+  private ErrorLogger(LogLevel level) {
+    this.queue = new LogRing<>(QUEUE_SIZE);
+    this.writerThread = new Thread(this::writeContinuously, "Utsu log writer");
+    this.level = level;
+    this.logFile = Optional.absent();
+  }
 
-  private static final ErrorLogger INSTANCE = new ErrorLogger();
+  private static ErrorLogger createLogger() {
+    LogLevel level = LogLevel.INFO;
+    String levelName = System.getProperty("utsu.logLevel");
+    if (levelName != null) {
+      try {
+        level = LogLevel.valueOf(levelName.toUpperCase());
+      } catch (IllegalArgumentException e) {
+        System.err.println("Unknown log level: " + levelName);
+      }
+    }
+    ErrorLogger logger = new ErrorLogger(level);
+    logger.writerThread.setDaemon(true);
+    logger.writerThread.start();
+    // Write out whatever is still queued when Utsu closes.
+    Runtime.getRuntime().addShutdownHook(new Thread(logger::close));
+    return logger;
+  }
 
   public static ErrorLogger getLogger() {
     return INSTANCE;
   }
 
+  public LogLevel getLevel() {
+    return level;
+  }
+
+  public void setLevel(LogLevel level) {
+    this.level = level;
+  }
+
+  /** Whether messages of this level are logged. Check this before building costly messages. */
+  public boolean isEnabled(LogLevel messageLevel) {
+    return level.includes(messageLevel);
+  }
+
+  /** Also writes logs to files in the given directory, replacing any previous log file. */
+  public void logToFile(File logDir) {
+    try {
+      RotatingLogFile newLogFile =
+          new RotatingLogFile(logDir, MAX_LOG_FILE_BYTES, NUM_OLD_LOG_FILES);
+      synchronized (this) {
+        closeLogFile();
+        logFile = Optional.of(newLogFile);
+      }
+    } catch (IOException e) {
+      logError(e);
+    }
+  }
+
   public void logError(Throwable e) {
     // TODO: Inject a callable that can display this error as an alert to the user.
-    logToConsole(e);
+    if (isEnabled(LogLevel.ERROR)) {
+      enqueue(new Entry(LogLevel.ERROR, getCaughtLocation(), e));
+    }
   }
 
   public void logWarning(Throwable e) {
-    logToConsole(e);
+    if (isEnabled(LogLevel.WARNING)) {
+      enqueue(new Entry(LogLevel.WARNING, getCaughtLocation(), e));
+    }
   }
 
   public void logInfo(Throwable e) {
-    logToConsole(e);
+    if (isEnabled(LogLevel.INFO)) {
+      enqueue(new Entry(LogLevel.INFO, getCaughtLocation(), e));
+    }
   }
 
   public void logVerbose(Throwable e) {
-    logToConsole(e);
+    if (isEnabled(LogLevel.VERBOSE)) {
+      enqueue(new Entry(LogLevel.VERBOSE, getCaughtLocation(), e));
+    }
   }
 
   public void logDebug(Throwable e) {
-    logToConsole(e);
+    if (isEnabled(LogLevel.DEBUG)) {
+      enqueue(new Entry(LogLevel.DEBUG, getCaughtLocation(), e));
+    }
+  }
+
+  public void logError(String message) {
+    log(LogLevel.ERROR, message);
+  }
+
+  public void logWarning(String message) {
+    log(LogLevel.WARNING, message);
+  }
+
+  public void logInfo(String message) {
+    log(LogLevel.INFO, message);
+  }
+
+  public void logVerbose(String message) {
+    log(LogLevel.VERBOSE, message);
+  }
+
+  public void logDebug(String message) {
+    log(LogLevel.DEBUG, message);
+  }
+
+  /** Logs a message that is only built if verbose logging is on. */
+  public void logVerbose(Supplier<String> message) {
+    if (isEnabled(LogLevel.VERBOSE)) {
+      enqueue(new Entry(LogLevel.VERBOSE, message.get(), null));
+    }
+  }
+
+  /** Logs a message that is only built if debug logging is on. */
+  public void logDebug(Supplier<String> message) {
+    if (isEnabled(LogLevel.DEBUG)) {
+      enqueue(new Entry(LogLevel.DEBUG, message.get(), null));
+    }
+  }
+
+  /** Writes out every queued message before returning. */
+  public void flush() {
+    writeQueued();
+  }
+
+  private void log(LogLevel messageLevel, String message) {
+    if (isEnabled(messageLevel)) {
+      enqueue(new Entry(messageLevel, message, null));
+    }
+  }
+
+  private void enqueue(Entry entry) {
+    if (queue.offer(entry) && entry.level == LogLevel.ERROR) {
+      // Don't make errors wait for the next scheduled write.
+      LockSupport.unpark(writerThread);
+    }
   }
 
-  private void logToConsole(Throwable e) {
-    String errorLine = getCaughtLocation();
-    System.out.print(String.format("%s:%n%s", errorLine, getStackTrace(e)));
+  private void writeContinuously() {
+    while (true) {
+      if (writeQueued() == 0) {
+        LockSupport.parkNanos(this, WRITE_INTERVAL_NANOS);
+      }
+    }
+  }
+
+  // Only one thread can drain the queue at a time.
+  private synchronized int writeQueued() {
+    long numDropped = queue.takeNumDropped();
+    if (numDropped > 0) {
+      write(new Entry(LogLevel.WARNING, numDropped + " log messages were dropped.", null));
+    }
+    int numWritten = queue.drain(this::write);
+    if (numWritten > 0 || numDropped > 0) {
+      System.out.flush();
+      if (logFile.isPresent()) {
+        try {
+          logFile.get().flush();
+        } catch (IOException e) {
+          disableLogFile(e);
+        }
+      }
+    }
+    return numWritten;
+  }
+
+  // Called with the lock held.
+  private void write(Entry entry) {
+    String text = entry.format();
+    System.out.print(text);
+    if (logFile.isPresent()) {
+      try {
+        logFile.get().write(text);
+      } catch (IOException e) {
+        disableLogFile(e);
+      }
+    }
+  }
+
+  private synchronized void close() {
+    writeQueued();
+    closeLogFile();
+  }
+
+  // Called with the lock held.
+  private void closeLogFile() {
+    if (logFile.isPresent()) {
+      try {
+        logFile.get().close();
+      } catch (IOException e) {
+        // Nothing left to do with it.
+      }
+      logFile = Optional.absent();
+    }
+  }
+
+  // Errors in the log file can't be logged to the log file, so they go straight to the console.
+  private void disableLogFile(IOException e) {
+    System.err.print("Stopped writing log file: " + getStackTrace(e));
+    closeLogFile();
   }
 
   /** Returns the location in the code where the exception was caught. */
-  private String getCaughtLocation() {
-    StackTraceElement caller = Thread.currentThread().getStackTrace()[2];
+  private static String getCaughtLocation() {
+    // The stack is getStackTrace, getCaughtLocation, the logging method, and then its caller.
+    StackTraceElement caller = Thread.currentThread().getStackTrace()[3];
     return String.format(
         "%s#%s:%s", caller.getFileName(), caller.getMethodName(), caller.getLineNumber());
   }
 
   /** Prints the stack trace of the given exception to a string. */
-  private String getStackTrace(Throwable e) {
+  private static String getStackTrace(Throwable e) {
     StringWriter stringWriter = new StringWriter();
     PrintWriter printWriter = new PrintWriter(stringWriter);
     e.printStackTrace(printWriter);
     return stringWriter.toString();
   }
+
+  /** One queued log message. Formatting is left to the writer thread. */
+  private static class Entry {
+    private final LogLevel level;
+    private final long timeMs;
+    private final String message;
+    private final Throwable error; // Null for plain messages.
+
+    private Entry(LogLevel level, String message, Throwable error) {
+      this.level = level;
+      this.timeMs = System.currentTimeMillis();
+      this.message = message;
+      this.error = error;
+    }
+
+    private String format() {
+      String prefix = String.format("%tT.%<tL %s ", timeMs, level);
+      if (error == null) {
+        return String.format("%s%s%n", prefix, message);
+      }
+      return String.format("%s%s:%n%s", prefix, message, getStackTrace(error));
+    }
+  }
 }
@@ -0,0 +1,11 @@
+package com.utsusynth.utsu.common.exception;
+
+/** How important a log message is. Each level includes every level above it. */
+public enum LogLevel {
+    ERROR, WARNING, INFO, VERBOSE, DEBUG;
+
+    /** Whether messages of the given level are logged when this is the logger's level. */
+    boolean includes(LogLevel other) {
+        return other.ordinal() <= ordinal();
+    }
+}
@@ -0,0 +1,71 @@
+package com.utsusynth.utsu.common.exception;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Fixed-size queue that any number of threads can add to without locking, drained by one thread
+ * at a time. When the queue is full, new elements are dropped instead of blocking whoever is
+ * logging them.
+ */
+class LogRing<T> {
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong tail; // Position of the next slot to claim.
+    private final AtomicLong head; // Position of the next slot to drain.
+    private final AtomicLong numDropped;
+
+    /** Capacity must be a power of two. */
+    LogRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.tail = new AtomicLong();
+        this.head = new AtomicLong();
+        this.numDropped = new AtomicLong();
+    }
+
+    /** Adds an element, or drops it and returns false if the queue is full. */
+    boolean offer(T element) {
+        while (true) {
+            long position = tail.get();
+            if (position - head.get() >= slots.length()) {
+                numDropped.incrementAndGet();
+                return false;
+            }
+            if (tail.compareAndSet(position, position + 1)) {
+                slots.lazySet((int) position & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Passes queued elements to the consumer in the order they were added, and returns how many
+     * there were. Stops early at a slot that has been claimed but not yet filled.
+     */
+    int drain(Consumer<? super T> consumer) {
+        long position = head.get();
+        int numDrained = 0;
+        while (true) {
+            int index = (int) position & mask;
+            T element = slots.get(index);
+            if (element == null) {
+                return numDrained;
+            }
+            // Clear the slot before handing it back to producers.
+            slots.lazySet(index, null);
+            head.lazySet(++position);
+            consumer.accept(element);
+            numDrained++;
+        }
+    }
+
+    /** Returns how many elements were dropped since the last call. */
+    long takeNumDropped() {
+        return numDropped.getAndSet(0);
+    }
+}
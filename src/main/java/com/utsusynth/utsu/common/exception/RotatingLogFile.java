@@ -0,0 +1,74 @@
+package com.utsusynth.utsu.common.exception;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Log file that starts over once it gets too big, keeping a few old files around. The current
+ * file is utsu.log, the one before is utsu.1.log, and so on. Not thread-safe.
+ */
+class RotatingLogFile {
+    private final File logDir;
+    private final long maxBytes;
+    private final int numOldFiles;
+
+    private Writer writer;
+    private long curBytes;
+
+    RotatingLogFile(File logDir, long maxBytes, int numOldFiles) throws IOException {
+        this.logDir = logDir;
+        this.maxBytes = maxBytes;
+        this.numOldFiles = numOldFiles;
+        if (!logDir.isDirectory() && !logDir.mkdirs()) {
+            throw new IOException("Could not create log directory " + logDir);
+        }
+        open();
+    }
+
+    void write(String text) throws IOException {
+        // Sizes are counted in characters, which is close enough for a size limit.
+        if (curBytes > 0 && curBytes + text.length() > maxBytes) {
+            rotate();
+        }
+        writer.write(text);
+        curBytes += text.length();
+    }
+
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    void close() throws IOException {
+        writer.close();
+    }
+
+    File getFile(int age) {
+        return new File(logDir, age == 0 ? "utsu.log" : "utsu." + age + ".log");
+    }
+
+    private void open() throws IOException {
+        File logFile = getFile(0);
+        curBytes = logFile.length();
+        writer = new BufferedWriter(
+                new OutputStreamWriter(
+                        new FileOutputStream(logFile, true),
+                        StandardCharsets.UTF_8));
+    }
+
+    private void rotate() throws IOException {
+        writer.close();
+        getFile(numOldFiles).delete();
+        for (int age = numOldFiles - 1; age >= 0; age--) {
+            File file = getFile(age);
+            if (file.exists() && !file.renameTo(getFile(age + 1))) {
+                throw new IOException("Could not rotate log file " + file);
+            }
+        }
+        open();
+    }
+}
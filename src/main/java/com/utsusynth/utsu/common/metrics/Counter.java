@@ -0,0 +1,28 @@
+package com.utsusynth.utsu.common.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** A count that only goes up, such as the number of notes rendered. */
+public class Counter {
+    private final LongAdder count;
+
+    Counter() {
+        this.count = new LongAdder();
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    void reset() {
+        count.reset();
+    }
+}
@@ -0,0 +1,117 @@
+package com.utsusynth.utsu.common.metrics;
+
+/** Current value of one metric, in a form that can be shown or exported. */
+public class MetricSummary {
+    public enum Type {
+        COUNTER, TIMER, HISTOGRAM,
+    }
+
+    private final String name;
+    private final Type type;
+    private final long count;
+    // Statistics below are in milliseconds for timers, and are 0 for counters.
+    private final double total;
+    private final double mean;
+    private final double min;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double max;
+
+    private MetricSummary(
+            String name,
+            Type type,
+            long count,
+            double total,
+            double mean,
+            double min,
+            double p50,
+            double p90,
+            double p99,
+            double max) {
+        this.name = name;
+        this.type = type;
+        this.count = count;
+        this.total = total;
+        this.mean = mean;
+        this.min = min;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    static MetricSummary of(String name, Counter counter) {
+        return new MetricSummary(name, Type.COUNTER, counter.get(), 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    static MetricSummary of(String name, Timer timer) {
+        Histogram.Snapshot nanos = timer.getSnapshot();
+        return new MetricSummary(
+                name,
+                Type.TIMER,
+                nanos.getCount(),
+                Metrics.nanosToMs(nanos.getSum()),
+                Metrics.nanosToMs(nanos.getMean()),
+                Metrics.nanosToMs(nanos.getMin()),
+                Metrics.nanosToMs(nanos.getPercentile(0.5)),
+                Metrics.nanosToMs(nanos.getPercentile(0.9)),
+                Metrics.nanosToMs(nanos.getPercentile(0.99)),
+                Metrics.nanosToMs(nanos.getMax()));
+    }
+
+    static MetricSummary of(String name, Histogram histogram) {
+        Histogram.Snapshot values = histogram.getSnapshot();
+        return new MetricSummary(
+                name,
+                Type.HISTOGRAM,
+                values.getCount(),
+                values.getSum(),
+                values.getMean(),
+                values.getMin(),
+                values.getPercentile(0.5),
+                values.getPercentile(0.9),
+                values.getPercentile(0.99),
+                values.getMax());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,138 @@
+package com.utsusynth.utsu.common.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+
+/**
+ * Counters, timers, and histograms for the whole app, so that slow stages of loading, editing, and
+ * rendering can be found. Metrics are created the first time their name is used. Names are
+ * dot-separated, starting with the area of the app, like "render.resample".
+ */
+public class Metrics {
+    private static final Metrics INSTANCE = new Metrics();
+
+    private final Map<String, Counter> counters;
+    private final Map<String, Timer> timers;
+    private final Map<String, Histogram> histograms;
+    private volatile long startMs;
+
+    // Prevent instantiation outside of tests.
+    Metrics() {
+        this.counters = new ConcurrentHashMap<>();
+        this.timers = new ConcurrentHashMap<>();
+        this.histograms = new ConcurrentHashMap<>();
+        this.startMs = System.currentTimeMillis();
+    }
+
+    public static Metrics getMetrics() {
+        return INSTANCE;
+    }
+
+    public Counter counter(String name) {
+        checkUnused(name, counters);
+        return counters.computeIfAbsent(name, unused -> new Counter());
+    }
+
+    public Timer timer(String name) {
+        checkUnused(name, timers);
+        return timers.computeIfAbsent(name, unused -> new Timer());
+    }
+
+    public Histogram histogram(String name) {
+        checkUnused(name, histograms);
+        return histograms.computeIfAbsent(name, unused -> new Histogram());
+    }
+
+    /** Sets every metric back to zero. */
+    public void reset() {
+        counters.values().forEach(Counter::reset);
+        timers.values().forEach(Timer::reset);
+        histograms.values().forEach(Histogram::reset);
+        startMs = System.currentTimeMillis();
+    }
+
+    /** Current values of every metric, sorted by name. */
+    public ImmutableList<MetricSummary> summarize() {
+        ImmutableSortedMap.Builder<String, MetricSummary> summaries =
+                ImmutableSortedMap.naturalOrder();
+        counters.forEach((name, counter) -> summaries.put(name, MetricSummary.of(name, counter)));
+        timers.forEach((name, timer) -> summaries.put(name, MetricSummary.of(name, timer)));
+        histograms.forEach((name, histogram) -> {
+            summaries.put(name, MetricSummary.of(name, histogram));
+        });
+        return summaries.build().values().asList();
+    }
+
+    /** All metrics as a JSON object. Timer values are in milliseconds. */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"startTimeMs\": ").append(startMs);
+        json.append(",\n  \"durationMs\": ").append(System.currentTimeMillis() - startMs);
+        json.append(",\n  \"metrics\": [");
+        boolean first = true;
+        for (MetricSummary summary : summarize()) {
+            json.append(first ? "\n    " : ",\n    ");
+            first = false;
+            json.append("{\"name\": ").append(quote(summary.getName()));
+            json.append(", \"type\": ").append(quote(summary.getType().name().toLowerCase()));
+            json.append(", \"count\": ").append(summary.getCount());
+            if (summary.getType() != MetricSummary.Type.COUNTER) {
+                json.append(", \"total\": ").append(number(summary.getTotal()));
+                json.append(", \"mean\": ").append(number(summary.getMean()));
+                json.append(", \"min\": ").append(number(summary.getMin()));
+                json.append(", \"p50\": ").append(number(summary.getP50()));
+                json.append(", \"p90\": ").append(number(summary.getP90()));
+                json.append(", \"p99\": ").append(number(summary.getP99()));
+                json.append(", \"max\": ").append(number(summary.getMax()));
+            }
+            json.append("}");
+        }
+        json.append(first ? "]\n}\n" : "\n  ]\n}\n");
+        return json.toString();
+    }
+
+    public void writeJson(File jsonFile) throws IOException {
+        FileUtils.writeStringToFile(jsonFile, toJson(), StandardCharsets.UTF_8);
+    }
+
+    // One name can't be used for two kinds of metric, or the JSON would be ambiguous.
+    private void checkUnused(String name, Map<String, ?> sameType) {
+        if (sameType.containsKey(name)) {
+            return;
+        }
+        if (counters.containsKey(name) || timers.containsKey(name)
+                || histograms.containsKey(name)) {
+            throw new IllegalArgumentException("Metric already exists with another type: " + name);
+        }
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    static double nanosToMs(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,63 @@
+package com.utsusynth.utsu.common.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long something takes each time it happens. Typical use:
+ *
+ * <pre>
+ * return metrics.timer("voicebank.load").time(() -&gt; readVoicebank(sourceDir));
+ * </pre>
+ */
+public class Timer {
+    private final Histogram nanos;
+
+    Timer() {
+        this.nanos = new Histogram();
+    }
+
+    /** Does some work and records how long it took, even if it throws. */
+    public <E extends Exception> void time(Work<E> work) throws E {
+        long startNanos = System.nanoTime();
+        try {
+            work.run();
+        } finally {
+            nanos.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /** Computes a value and records how long it took, even if it throws. */
+    public <T, E extends Exception> T time(ValueWork<T, E> work) throws E {
+        long startNanos = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            nanos.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    public void record(long duration, TimeUnit unit) {
+        nanos.record(unit.toNanos(duration));
+    }
+
+    /** Snapshot of recorded durations, in nanoseconds. */
+    public Histogram.Snapshot getSnapshot() {
+        return nanos.getSnapshot();
+    }
+
+    void reset() {
+        nanos.reset();
+    }
+
+    /** Work to time, which may throw a checked exception. */
+    @FunctionalInterface
+    public interface Work<E extends Exception> {
+        void run() throws E;
+    }
+
+    /** Work to time that computes a value, which may throw a checked exception. */
+    @FunctionalInterface
+    public interface ValueWork<T, E extends Exception> {
+        T get() throws E;
+    }
+}
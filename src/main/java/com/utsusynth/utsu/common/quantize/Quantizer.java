@@ -1,6 +1,10 @@
 package com.utsusynth.utsu.common.quantize;
 
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+
 public class Quantizer {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+
     public static final int SMALLEST = 32;
     public static final int LARGEST = 1;
 
@@ -21,7 +25,7 @@ public class Quantizer {
     public void changeQuant(int oldQuant, int newQuant) {
         if (oldQuant != quantization) {
             // TODO: Handle this better.
-            System.out.println("ERROR: Data race when changing quantization!");
+            errorLogger.logError("Data race when changing quantization!");
         }
         quantization = newQuant;
     }
@@ -1,6 +1,10 @@
 package com.utsusynth.utsu.common.quantize;
 
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+
 public class Scaler {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+
     public static final double MIN_HORIZONTAL_SCALE = 0.15;
     public static final double HORIZONTAL_SCALE_INDREMENT = 0.1;
     public static final double MAX_HORIZONTAL_SCALE = 0.45;
@@ -48,7 +52,7 @@ public class Scaler {
     public void changeHorizontalScale(double oldScale, double newScale) {
         if (oldScale != horizontalScale) {
             // TODO: Handle this better.
-            System.out.println("ERROR: Data race when changing horizontal scale!");
+            errorLogger.logError("Data race when changing horizontal scale!");
         }
         horizontalScale = newScale;
     }
@@ -60,7 +64,7 @@ public class Scaler {
     public void changeVerticalScale(double oldScale, double newScale) {
         if (oldScale != verticalScale) {
             // TODO: Handle this better.
-            System.out.println("ERROR: Data race when changing horizontal scale!");
+            errorLogger.logError("Data race when changing horizontal scale!");
         }
         verticalScale = newScale;
     }
@@ -0,0 +1,6 @@
+package com.utsusynth.utsu.common.trace;
+
+/** Somewhere traced work is recorded. */
+public interface TraceSink {
+    TraceSpan start(TraceType type);
+}
@@ -0,0 +1,27 @@
+package com.utsusynth.utsu.common.trace;
+
+/** Work being traced, which is recorded when closed. Times are in nanoseconds. */
+public interface TraceSpan extends AutoCloseable {
+    /** Span that records nothing, used when tracing isn't available. */
+    TraceSpan NONE = new TraceSpan() {
+        @Override
+        public TraceSpan set(String field, String value) {
+            return this;
+        }
+
+        @Override
+        public TraceSpan set(String field, long value) {
+            return this;
+        }
+
+        @Override
+        public void close() {}
+    };
+
+    TraceSpan set(String field, String value);
+
+    TraceSpan set(String field, long value);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,22 @@
+package com.utsusynth.utsu.common.trace;
+
+/** Kinds of work that can be traced, and the fields each one records. */
+public enum TraceType {
+    /** One note of a render. Fields: lyric, trueLyric, position, resampleTime, wavtoolTime. */
+    RENDER_NOTE,
+
+    /** One oto.ini or oto_ini.txt file of a voicebank. Fields: path, lyrics. */
+    OTO_FILE,
+
+    /** Reading a UST file. Fields: version, lines. */
+    UST_READ,
+
+    /** Writing a UST file. Fields: version, notes. */
+    UST_WRITE,
+
+    /** Adding, removing, or modifying one note of a song. Fields: operation, position. */
+    SONG_EDIT,
+
+    /** A resampler, wavtool, or plugin process. Fields: command, arguments, exitCode. */
+    EXTERNAL_PROCESS,
+}
@@ -0,0 +1,36 @@
+package com.utsusynth.utsu.common.trace;
+
+/**
+ * Records what Utsu is doing as Java Flight Recorder events, so that recordings show where the
+ * time of each render or load went. Flight Recorder events need Java 11 or later, so on older
+ * versions nothing is recorded.
+ */
+public class Tracer {
+    private static final String JFR_SINK = "com.utsusynth.utsu.common.trace.JfrTraceSink";
+    private static final Tracer INSTANCE = new Tracer(loadSink());
+
+    private final TraceSink sink;
+
+    Tracer(TraceSink sink) {
+        this.sink = sink;
+    }
+
+    public static Tracer getTracer() {
+        return INSTANCE;
+    }
+
+    /** Starts tracing some work. Close the span when the work is done. */
+    public TraceSpan start(TraceType type) {
+        return sink.start(type);
+    }
+
+    // The Flight Recorder sink is only built with Java 11 or later, so it's loaded by name.
+    private static TraceSink loadSink() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (TraceSink) Class.forName(JFR_SINK).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return type -> TraceSpan.NONE;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.utsusynth.utsu.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.function.ToDoubleFunction;
+import com.google.inject.Inject;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.i18n.Localizable;
+import com.utsusynth.utsu.common.i18n.Localizer;
+import com.utsusynth.utsu.common.metrics.MetricSummary;
+import com.utsusynth.utsu.common.metrics.Metrics;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.BorderPane;
+import javafx.stage.FileChooser;
+import javafx.stage.FileChooser.ExtensionFilter;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+/**
+ * 'DiagnosticsScene.fxml' Controller Class
+ */
+public class DiagnosticsController implements Localizable {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+
+    private final Localizer localizer;
+    private final Metrics metrics;
+    private final Timeline autoRefresh;
+
+    private Stage window;
+    private String title;
+
+    @FXML // fx:id="root"
+    private BorderPane root; // Value injected by FXMLLoader
+
+    @FXML // fx:id="metricsTable"
+    private TableView<MetricSummary> metricsTable; // Value injected by FXMLLoader
+
+    @FXML
+    private TableColumn<MetricSummary, String> nameColumn;
+    @FXML
+    private TableColumn<MetricSummary, String> typeColumn;
+    @FXML
+    private TableColumn<MetricSummary, String> countColumn;
+    @FXML
+    private TableColumn<MetricSummary, String> totalColumn;
+    @FXML
+    private TableColumn<MetricSummary, String> meanColumn;
+    @FXML
+    private TableColumn<MetricSummary, String> p50Column;
+    @FXML
+    private TableColumn<MetricSummary, String> p90Column;
+    @FXML
+    private TableColumn<MetricSummary, String> p99Column;
+    @FXML
+    private TableColumn<MetricSummary, String> maxColumn;
+
+    @FXML // fx:id="unitsLabel"
+    private Label unitsLabel;
+
+    @FXML // fx:id="refreshButton"
+    private Button refreshButton;
+
+    @FXML // fx:id="resetButton"
+    private Button resetButton;
+
+    @FXML // fx:id="exportButton"
+    private Button exportButton;
+
+    @Inject
+    public DiagnosticsController(Localizer localizer) {
+        this.localizer = localizer;
+        this.metrics = Metrics.getMetrics();
+        this.autoRefresh = new Timeline(new KeyFrame(Duration.seconds(1), event -> refresh(null)));
+        autoRefresh.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    public void initialize() {
+        nameColumn.setCellValueFactory(
+                cell -> new ReadOnlyStringWrapper(cell.getValue().getName()));
+        typeColumn.setCellValueFactory(cell -> {
+            String type = cell.getValue().getType().name().toLowerCase();
+            return new ReadOnlyStringWrapper(type);
+        });
+        countColumn.setCellValueFactory(
+                cell -> new ReadOnlyStringWrapper(Long.toString(cell.getValue().getCount())));
+        setStatColumn(totalColumn, MetricSummary::getTotal);
+        setStatColumn(meanColumn, MetricSummary::getMean);
+        setStatColumn(p50Column, MetricSummary::getP50);
+        setStatColumn(p90Column, MetricSummary::getP90);
+        setStatColumn(p99Column, MetricSummary::getP99);
+        setStatColumn(maxColumn, MetricSummary::getMax);
+        refresh(null);
+
+        // Set up localization.
+        localizer.localize(this);
+    }
+
+    /** Keeps the table up to date while the window is showing. */
+    void setWindow(Stage window) {
+        this.window = window;
+        window.setTitle(title);
+        window.setOnShown(event -> autoRefresh.play());
+        window.setOnHidden(event -> autoRefresh.stop());
+    }
+
+    @Override
+    public void localize(ResourceBundle bundle) {
+        nameColumn.setText(bundle.getString("diagnostics.name"));
+        typeColumn.setText(bundle.getString("diagnostics.type"));
+        countColumn.setText(bundle.getString("diagnostics.count"));
+        totalColumn.setText(bundle.getString("diagnostics.total"));
+        meanColumn.setText(bundle.getString("diagnostics.mean"));
+        maxColumn.setText(bundle.getString("diagnostics.max"));
+        unitsLabel.setText(bundle.getString("diagnostics.units"));
+        refreshButton.setText(bundle.getString("diagnostics.refresh"));
+        resetButton.setText(bundle.getString("diagnostics.reset"));
+        exportButton.setText(bundle.getString("diagnostics.export"));
+        title = bundle.getString("diagnostics.title");
+        if (window != null) {
+            window.setTitle(title);
+        }
+    }
+
+    @FXML
+    void refresh(ActionEvent event) {
+        metricsTable.getItems().setAll(metrics.summarize());
+    }
+
+    @FXML
+    void reset(ActionEvent event) {
+        metrics.reset();
+        refresh(event);
+    }
+
+    @FXML
+    void exportJson(ActionEvent event) {
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Export Diagnostics");
+        fc.setInitialFileName("utsu_metrics.json");
+        fc.getExtensionFilters().addAll(new ExtensionFilter(".json files", "*.json"));
+        File file = fc.showSaveDialog(root.getScene().getWindow());
+        if (file != null) {
+            try {
+                metrics.writeJson(file);
+            } catch (IOException e) {
+                errorLogger.logError(e);
+            }
+        }
+    }
+
+    // Counters have no statistics, so their cells are left blank.
+    private static void setStatColumn(
+            TableColumn<MetricSummary, String> column,
+            ToDoubleFunction<MetricSummary> stat) {
+        column.setCellValueFactory(cell -> {
+            MetricSummary summary = cell.getValue();
+            if (summary.getType() == MetricSummary.Type.COUNTER) {
+                return new ReadOnlyStringWrapper("");
+            }
+            String format = summary.getType() == MetricSummary.Type.TIMER ? "%.2f" : "%.1f";
+            return new ReadOnlyStringWrapper(
+                    String.format(Locale.ROOT, format, stat.applyAsDouble(summary)));
+        });
+    }
+}
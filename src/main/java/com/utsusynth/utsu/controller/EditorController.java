@@ -2,6 +2,7 @@ package com.utsusynth.utsu.controller;
 
 import java.io.File;
 import com.google.common.base.Optional;
+import com.utsusynth.utsu.plugin.UtsuPlugin;
 
 /** Used to signify a controller of some sort of file editor. */
 interface EditorController {
@@ -30,4 +31,7 @@ interface EditorController {
 
     /** Calls a legacy UTAU plugin. */
     void invokePlugin(File plugin);
+
+    /** Runs a Java plugin on the current selection. */
+    void invokePlugin(UtsuPlugin plugin);
 }
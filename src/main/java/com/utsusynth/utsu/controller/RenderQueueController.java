@@ -0,0 +1,241 @@
+package com.utsusynth.utsu.controller;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.function.ToLongFunction;
+import com.google.inject.Inject;
+import com.utsusynth.utsu.common.i18n.Localizable;
+import com.utsusynth.utsu.common.i18n.Localizer;
+import com.utsusynth.utsu.engine.RenderJob;
+import com.utsusynth.utsu.engine.RenderJob.Priority;
+import com.utsusynth.utsu.engine.RenderQueue;
+import com.utsusynth.utsu.files.UstFileReader;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.Spinner;
+import javafx.scene.control.SpinnerValueFactory.IntegerSpinnerValueFactory;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.ProgressBarTableCell;
+import javafx.scene.layout.BorderPane;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
+import javafx.stage.FileChooser.ExtensionFilter;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+/**
+ * 'RenderQueueScene.fxml' Controller Class
+ */
+public class RenderQueueController implements Localizable {
+    private final Localizer localizer;
+    private final RenderQueue renderQueue;
+    private final UstFileReader ustFileReader;
+    private final Timeline autoRefresh;
+
+    private Stage window;
+    private String title;
+
+    @FXML // fx:id="root"
+    private BorderPane root; // Value injected by FXMLLoader
+
+    @FXML // fx:id="jobTable"
+    private TableView<RenderJob> jobTable; // Value injected by FXMLLoader
+
+    @FXML
+    private TableColumn<RenderJob, String> nameColumn;
+    @FXML
+    private TableColumn<RenderJob, String> priorityColumn;
+    @FXML
+    private TableColumn<RenderJob, String> stateColumn;
+    @FXML
+    private TableColumn<RenderJob, Double> progressColumn;
+    @FXML
+    private TableColumn<RenderJob, String> waitColumn;
+    @FXML
+    private TableColumn<RenderJob, String> timeColumn;
+
+    @FXML // fx:id="concurrencyLabel"
+    private Label concurrencyLabel;
+
+    @FXML // fx:id="concurrencySpinner"
+    private Spinner<Integer> concurrencySpinner;
+
+    @FXML // fx:id="addFilesButton"
+    private Button addFilesButton;
+
+    @FXML // fx:id="raiseButton"
+    private Button raiseButton;
+
+    @FXML // fx:id="lowerButton"
+    private Button lowerButton;
+
+    @FXML // fx:id="cancelButton"
+    private Button cancelButton;
+
+    @FXML // fx:id="clearButton"
+    private Button clearButton;
+
+    @Inject
+    public RenderQueueController(
+            Localizer localizer,
+            RenderQueue renderQueue,
+            UstFileReader ustFileReader) {
+        this.localizer = localizer;
+        this.renderQueue = renderQueue;
+        this.ustFileReader = ustFileReader;
+        this.autoRefresh =
+                new Timeline(new KeyFrame(Duration.millis(250), event -> refresh()));
+        autoRefresh.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    public void initialize() {
+        nameColumn.setCellValueFactory(
+                cell -> new ReadOnlyStringWrapper(cell.getValue().getName()));
+        priorityColumn.setCellValueFactory(cell -> {
+            String priority = cell.getValue().getPriority().name().toLowerCase();
+            return new ReadOnlyStringWrapper(priority);
+        });
+        stateColumn.setCellValueFactory(cell -> {
+            String state = cell.getValue().getState().name().toLowerCase();
+            return new ReadOnlyStringWrapper(state);
+        });
+        progressColumn.setCellValueFactory(
+                cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getProgress()));
+        progressColumn.setCellFactory(ProgressBarTableCell.forTableColumn());
+        setSecondsColumn(waitColumn, RenderJob::getWaitMs);
+        setSecondsColumn(timeColumn, RenderJob::getRenderMs);
+
+        int maxConcurrency = Runtime.getRuntime().availableProcessors();
+        concurrencySpinner.setValueFactory(
+                new IntegerSpinnerValueFactory(1, maxConcurrency, renderQueue.getConcurrency()));
+        concurrencySpinner.valueProperty().addListener((obs, oldValue, newValue) -> {
+            renderQueue.setConcurrency(newValue);
+        });
+        refresh();
+
+        // Set up localization.
+        localizer.localize(this);
+    }
+
+    /** Keeps the table up to date while the window is showing. */
+    void setWindow(Stage window) {
+        this.window = window;
+        window.setTitle(title);
+        window.setOnShown(event -> autoRefresh.play());
+        window.setOnHidden(event -> autoRefresh.stop());
+    }
+
+    @Override
+    public void localize(ResourceBundle bundle) {
+        nameColumn.setText(bundle.getString("renderQueue.name"));
+        priorityColumn.setText(bundle.getString("renderQueue.priority"));
+        stateColumn.setText(bundle.getString("renderQueue.state"));
+        progressColumn.setText(bundle.getString("renderQueue.progress"));
+        waitColumn.setText(bundle.getString("renderQueue.wait"));
+        timeColumn.setText(bundle.getString("renderQueue.time"));
+        concurrencyLabel.setText(bundle.getString("renderQueue.concurrency"));
+        addFilesButton.setText(bundle.getString("renderQueue.addFiles"));
+        raiseButton.setText(bundle.getString("renderQueue.raise"));
+        lowerButton.setText(bundle.getString("renderQueue.lower"));
+        cancelButton.setText(bundle.getString("general.cancel"));
+        clearButton.setText(bundle.getString("renderQueue.clear"));
+        title = bundle.getString("renderQueue.title");
+        if (window != null) {
+            window.setTitle(title);
+        }
+    }
+
+    private void refresh() {
+        List<RenderJob> jobs = renderQueue.getJobs();
+        if (jobs.equals(jobTable.getItems())) {
+            jobTable.refresh(); // Same jobs, so only their progress and times need updating.
+        } else {
+            jobTable.getItems().setAll(jobs);
+        }
+    }
+
+    @FXML
+    void addFiles(ActionEvent event) {
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Select UST Files");
+        fc.getExtensionFilters().addAll(
+                new ExtensionFilter("UST files", "*.ust"),
+                new ExtensionFilter("All files", "*.*"));
+        List<File> ustFiles = fc.showOpenMultipleDialog(root.getScene().getWindow());
+        if (ustFiles == null || ustFiles.isEmpty()) {
+            return;
+        }
+        DirectoryChooser dc = new DirectoryChooser();
+        dc.setTitle("Select Folder for WAV Files");
+        dc.setInitialDirectory(ustFiles.get(0).getParentFile());
+        File outputDir = dc.showDialog(root.getScene().getWindow());
+        if (outputDir == null) {
+            return;
+        }
+        for (File ustFile : ustFiles) {
+            String baseName = ustFile.getName().replaceFirst("\\.[^.]*$", "");
+            renderQueue.enqueueExport(
+                    ustFile.getName(),
+                    () -> ustFileReader.readSong(ustFile, progress -> {}).getSong(),
+                    new File(outputDir, baseName + ".wav"),
+                    Priority.NORMAL);
+        }
+        refresh();
+    }
+
+    @FXML
+    void raisePriority(ActionEvent event) {
+        changePriority(-1);
+    }
+
+    @FXML
+    void lowerPriority(ActionEvent event) {
+        changePriority(1);
+    }
+
+    // Moves the selected job between high, normal, and low priority.
+    private void changePriority(int change) {
+        RenderJob job = jobTable.getSelectionModel().getSelectedItem();
+        if (job == null) {
+            return;
+        }
+        int newOrdinal = job.getPriority().ordinal() + change;
+        if (newOrdinal > Priority.PLAYBACK.ordinal() && newOrdinal < Priority.values().length) {
+            renderQueue.setPriority(job, Priority.values()[newOrdinal]);
+            refresh();
+        }
+    }
+
+    @FXML
+    void cancelJob(ActionEvent event) {
+        RenderJob job = jobTable.getSelectionModel().getSelectedItem();
+        if (job != null) {
+            renderQueue.cancel(job);
+            refresh();
+        }
+    }
+
+    @FXML
+    void clearFinished(ActionEvent event) {
+        renderQueue.clearFinished();
+        refresh();
+    }
+
+    private static void setSecondsColumn(
+            TableColumn<RenderJob, String> column,
+            ToLongFunction<RenderJob> millis) {
+        column.setCellValueFactory(cell -> {
+            double seconds = millis.applyAsLong(cell.getValue()) / 1000.0;
+            return new ReadOnlyStringWrapper(String.format(Locale.ROOT, "%.1f", seconds));
+        });
+    }
+}
@@ -7,18 +7,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
-import java.nio.ByteBuffer;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetDecoder;
-import java.nio.charset.CodingErrorAction;
-import java.nio.charset.MalformedInputException;
-import java.nio.charset.UnmappableCharacterException;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
 import org.apache.commons.io.FileUtils;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import com.utsusynth.utsu.common.RegionBounds;
 import com.utsusynth.utsu.common.UndoService;
 import com.utsusynth.utsu.common.data.AddResponse;
 import com.utsusynth.utsu.common.data.NoteData;
@@ -30,17 +35,34 @@ import com.utsusynth.utsu.common.i18n.Localizable;
 import com.utsusynth.utsu.common.i18n.Localizer;
 import com.utsusynth.utsu.common.i18n.NativeLocale;
 import com.utsusynth.utsu.common.quantize.Quantizer;
-import com.utsusynth.utsu.engine.Engine;
 import com.utsusynth.utsu.engine.ExternalProcessRunner;
+import com.utsusynth.utsu.engine.LoopPlayer;
+import com.utsusynth.utsu.engine.NoteAuditioner;
+import com.utsusynth.utsu.engine.RenderJob;
+import com.utsusynth.utsu.engine.RenderJob.Priority;
+import com.utsusynth.utsu.engine.RenderQuality;
+import com.utsusynth.utsu.engine.RenderQueue;
+import com.utsusynth.utsu.files.PluginChanges;
+import com.utsusynth.utsu.files.SampleCache;
+import com.utsusynth.utsu.files.SongSnapshotter;
 import com.utsusynth.utsu.files.Ust12Reader;
 import com.utsusynth.utsu.files.Ust12Writer;
-import com.utsusynth.utsu.files.Ust20Reader;
 import com.utsusynth.utsu.files.Ust20Writer;
+import com.utsusynth.utsu.files.UstFileReader;
+import com.utsusynth.utsu.files.UstFileReader.LoadedSong;
+import com.utsusynth.utsu.model.song.Song;
 import com.utsusynth.utsu.model.song.SongContainer;
+import com.utsusynth.utsu.plugin.PluginInput;
+import com.utsusynth.utsu.plugin.PluginManager;
+import com.utsusynth.utsu.plugin.UtsuPlugin;
 import com.utsusynth.utsu.view.song.Piano;
 import com.utsusynth.utsu.view.song.SongCallback;
 import com.utsusynth.utsu.view.song.SongEditor;
+import javafx.application.Platform;
+import javafx.beans.binding.BooleanBinding;
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
@@ -48,24 +70,32 @@ import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ToggleButton;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.media.MediaPlayer;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
-import javafx.util.Duration;
 
 /**
  * 'SongScene.fxml' Controller Class
  */
 public class SongController implements EditorController, Localizable {
     private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final ListeningExecutorService songLoader =
+            MoreExecutors.listeningDecorator(
+                    Executors.newSingleThreadExecutor(
+                            new ThreadFactoryBuilder().setDaemon(true)
+                                    .setNameFormat("song-loader-%d").build()));
 
     public enum Mode {
         ADD, EDIT, DELETE,
@@ -74,20 +104,26 @@ public class SongController implements EditorController, Localizable {
     // User session data goes here.
     private Mode currentMode;
     private EditorCallback callback;
+    private final BooleanProperty isReadingFile; // Whether a file is being read in the background.
 
     // Helper classes go here.
     private final SongContainer song;
-    private final Engine engine;
+    private final RenderQueue renderQueue;
     private final SongEditor songEditor;
     private final Piano piano;
     private final Localizer localizer;
     private final Quantizer quantizer;
     private final UndoService undoService;
     private final Ust12Reader ust12Reader;
-    private final Ust20Reader ust20Reader;
+    private final UstFileReader ustFileReader;
     private final Ust12Writer ust12Writer;
     private final Ust20Writer ust20Writer;
+    private final SongSnapshotter snapshotter;
     private final ExternalProcessRunner processRunner;
+    private final NoteAuditioner noteAuditioner;
+    private final SampleCache sampleCache;
+    private final LoopPlayer loopPlayer;
+    private final PluginManager pluginManager;
     private final Provider<FXMLLoader> fxmlLoaderProvider;
 
     @FXML // fx:id="scrollPaneLeft"
@@ -123,34 +159,48 @@ public class SongController implements EditorController, Localizable {
     @FXML // fx:id="languageChoiceBox"
     private ChoiceBox<NativeLocale> languageChoiceBox; // Value injected by FXMLLoader
 
+    @FXML // fx:id="loadingBar"
+    private ProgressBar loadingBar; // Value injected by FXMLLoader
+
     @Inject
     public SongController(
             SongContainer songContainer, // Inject an empty song.
-            Engine engine,
+            RenderQueue renderQueue,
             SongEditor songEditor,
             Piano piano,
             Localizer localizer,
             Quantizer quantizer,
             UndoService undoService,
             Ust12Reader ust12Reader,
-            Ust20Reader ust20Reader,
+            UstFileReader ustFileReader,
             Ust12Writer ust12Writer,
             Ust20Writer ust20Writer,
+            SongSnapshotter snapshotter,
             ExternalProcessRunner processRunner,
+            NoteAuditioner noteAuditioner,
+            SampleCache sampleCache,
+            LoopPlayer loopPlayer,
+            PluginManager pluginManager,
             Provider<FXMLLoader> fxmlLoaders) {
         this.song = songContainer;
-        this.engine = engine;
+        this.renderQueue = renderQueue;
         this.songEditor = songEditor;
         this.piano = piano;
         this.localizer = localizer;
         this.quantizer = quantizer;
         this.undoService = undoService;
         this.ust12Reader = ust12Reader;
-        this.ust20Reader = ust20Reader;
+        this.ustFileReader = ustFileReader;
         this.ust12Writer = ust12Writer;
         this.ust20Writer = ust20Writer;
+        this.snapshotter = snapshotter;
         this.processRunner = processRunner;
+        this.noteAuditioner = noteAuditioner;
+        this.sampleCache = sampleCache;
+        this.loopPlayer = loopPlayer;
+        this.pluginManager = pluginManager;
         this.fxmlLoaderProvider = fxmlLoaders;
+        this.isReadingFile = new SimpleBooleanProperty(false);
     }
 
     // Provide setup for other frontend song management.
@@ -161,22 +211,37 @@ public class SongController implements EditorController, Localizable {
         songEditor.initialize(new SongCallback() {
             @Override
             public AddResponse addNote(NoteData toAdd) throws NoteAlreadyExistsException {
-                onSongChange();
+                onSongChange(toAdd.getPosition(), toAdd.getDuration());
                 return song.get().addNote(toAdd);
             }
 
             @Override
             public RemoveResponse removeNote(int position) {
-                onSongChange();
+                onSongChange(position, 1);
                 return song.get().removeNote(position);
             }
 
             @Override
             public void modifyNote(NoteData toModify) {
-                onSongChange();
+                onSongChange(toModify.getPosition(), toModify.getDuration());
                 song.get().modifyNote(toModify);
             }
 
+            @Override
+            public double[] getPitches(int firstStep, int lastStep) {
+                return song.get().getPitches(firstStep, lastStep);
+            }
+
+            @Override
+            public void auditionNote(int position) {
+                noteAuditioner.auditionNote(song.get(), position);
+            }
+
+            @Override
+            public void prefetchSamples(RegionBounds region) {
+                sampleCache.prefetch(song.get().getSampleFiles(region));
+            }
+
             @Override
             public Mode getCurrentMode() {
                 return currentMode;
@@ -190,6 +255,22 @@ public class SongController implements EditorController, Localizable {
                 scrollbarTracker.unbind();
                 scrollbarTracker.set(scrollPosition / (newWidth - scrollPaneCenter.getWidth()));
             }
+
+            @Override
+            public void followPlayback(double barX) {
+                double viewportWidth = scrollPaneCenter.getViewportBounds().getWidth();
+                double scrollableWidth = anchorCenter.getWidth() - viewportWidth;
+                if (scrollableWidth <= 0) {
+                    return;
+                }
+                // Turn the page when the bar nears either edge, instead of scrolling every frame.
+                double viewportX = scrollPaneCenter.getHvalue() * scrollableWidth;
+                if (barX < viewportX || barX > viewportX + viewportWidth * 0.9) {
+                    double newViewportX = barX - viewportWidth * 0.1;
+                    scrollPaneCenter
+                            .setHvalue(Math.max(0, Math.min(1, newViewportX / scrollableWidth)));
+                }
+            }
         });
         anchorCenter.widthProperty().addListener(event -> {
             // Sync up the scrollbar's position with where the editor thinks it should be.
@@ -198,6 +279,11 @@ public class SongController implements EditorController, Localizable {
                 scrollbarTracker.bind(scrollPaneCenter.hvalueProperty());
             }
         });
+        // Edits made while a song loads would be lost when it replaces the current one.
+        BooleanBinding isLoading =
+                songEditor.loadProgressProperty().lessThan(1).or(isReadingFile);
+        anchorCenter.mouseTransparentProperty().bind(isLoading);
+        anchorBottom.mouseTransparentProperty().bind(isLoading);
         scrollPaneLeft.vvalueProperty().bindBidirectional(scrollPaneCenter.vvalueProperty());
         scrollPaneCenter.hvalueProperty().bindBidirectional(scrollPaneBottom.hvalueProperty());
         scrollPaneCenter.hvalueProperty().addListener(event -> {
@@ -252,6 +338,10 @@ public class SongController implements EditorController, Localizable {
     private Button renderButton; // Value injected by FXMLLoader
     @FXML
     private Button exportWavButton; // Value injected by FXMLLoader
+    @FXML
+    private ToggleButton loopButton; // Value injected by FXMLLoader
+    @FXML
+    private CheckBox draftCheckBox; // Value injected by FXMLLoader
 
     @Override
     public void localize(ResourceBundle bundle) {
@@ -259,6 +349,8 @@ public class SongController implements EditorController, Localizable {
         quantizationLabel.setText(bundle.getString("song.quantization"));
         renderButton.setText(bundle.getString("song.render"));
         exportWavButton.setText(bundle.getString("song.exportWav"));
+        loopButton.setText(bundle.getString("song.loop"));
+        draftCheckBox.setText(bundle.getString("song.draft"));
     }
 
     @Override
@@ -274,10 +366,18 @@ public class SongController implements EditorController, Localizable {
         anchorCenter.getChildren().add(songEditor.createNewTrack(song.get().getNotes()));
         anchorCenter.getChildren().add(songEditor.getNotesElement());
         anchorCenter.getChildren().add(songEditor.getPitchbendsElement());
+        anchorCenter.getChildren().add(songEditor.getPitchCurveElement());
         anchorCenter.getChildren().add(songEditor.getPlaybackElement());
         anchorBottom.getChildren().clear();
         anchorBottom.getChildren().add(songEditor.getDynamicsElement());
         anchorBottom.getChildren().add(songEditor.getEnvelopesElement());
+        songEditor.selectivelyShowRegion(
+                scrollPaneCenter.getHvalue(),
+                scrollPaneCenter.getViewportBounds().getWidth());
+
+        // Notes are added over the next few frames, during which the track can't be edited.
+        loadingBar.progressProperty().bind(songEditor.loadProgressProperty());
+        loadingBar.visibleProperty().bind(songEditor.loadProgressProperty().lessThan(1));
     }
 
     @Override
@@ -287,6 +387,7 @@ public class SongController implements EditorController, Localizable {
 
     @Override
     public void closeEditor() {
+        stopLoop();
         // Remove this song from local memory.
         song.removeSong();
     }
@@ -314,43 +415,52 @@ public class SongController implements EditorController, Localizable {
                 song.setLocation(file);
             } catch (FileAlreadyOpenException e) {
                 // TODO: Show alert to user.
-                System.out.println("Error: Cannot open the same file in two tabs.");
+                errorLogger.logWarning("Cannot open the same file in two tabs.");
                 return;
             }
-            try {
-                String saveFormat; // Format to save this song in the future.
-                String charset = "UTF-8";
-                CharsetDecoder utf8Decoder = Charset.forName("UTF-8").newDecoder()
-                        .onMalformedInput(CodingErrorAction.REPORT)
-                        .onUnmappableCharacter(CodingErrorAction.REPORT);
-                try {
-                    utf8Decoder.decode(ByteBuffer.wrap(FileUtils.readFileToByteArray(file)));
-                } catch (MalformedInputException | UnmappableCharacterException e) {
-                    charset = "SJIS";
+            // Parse and standardize in the background, then fill in the track a bit at a time.
+            loadingBar.progressProperty().unbind();
+            loadingBar.visibleProperty().unbind();
+            loadingBar.setProgress(0);
+            loadingBar.setVisible(true);
+            DoubleConsumer progress = postLoadProgress();
+            isReadingFile.set(true);
+            ListenableFuture<LoadedSong> loadedSong =
+                    songLoader.submit(() -> ustFileReader.readSong(file, progress));
+            Futures.addCallback(loadedSong, new FutureCallback<LoadedSong>() {
+                @Override
+                public void onSuccess(LoadedSong result) {
+                    isReadingFile.set(false);
+                    stopLoop();
+                    song.setSong(result.getSong());
+                    undoService.clearActions();
+                    callback.enableSave(false);
+                    song.setSaveFormat(result.getSaveFormat());
+                    refreshView();
                 }
-                String content = FileUtils.readFileToString(file, charset);
-                if (content.contains("UST Version1.2")) {
-                    song.setSong(ust12Reader.loadSong(content));
-                    saveFormat = "UST 1.2 (Shift JIS)";
-                } else if (content.contains("UST Version2.0")) {
-                    song.setSong(ust20Reader.loadSong(content));
-                    saveFormat = "UST 2.0 " + (charset.equals("UTF-8") ? "(UTF-8)" : "(Shift JIS)");
-                } else {
-                    // If no version found, assume UST 1.2 for now.
-                    song.setSong(ust12Reader.loadSong(content));
-                    saveFormat = "UST 1.2 (Shift JIS)";
+
+                @Override
+                public void onFailure(Throwable t) {
+                    // TODO Handle this better.
+                    errorLogger.logError(t);
+                    isReadingFile.set(false);
+                    loadingBar.setVisible(false);
                 }
-                undoService.clearActions();
-                callback.enableSave(false);
-                song.setSaveFormat(saveFormat);
-                refreshView();
-            } catch (IOException e) {
-                // TODO Handle this better.
-                errorLogger.logError(e);
-            }
+            }, Platform::runLater);
         }
     }
 
+    // Posts progress from a background thread to the loading bar, at most once per percent.
+    private DoubleConsumer postLoadProgress() {
+        AtomicInteger lastPercent = new AtomicInteger(-1);
+        return progress -> {
+            int percent = (int) (progress * 100);
+            if (lastPercent.getAndSet(percent) != percent) {
+                Platform.runLater(() -> loadingBar.setProgress(progress));
+            }
+        };
+    }
+
     @Override
     public void save() {
         callback.enableSave(false);
@@ -402,7 +512,7 @@ public class SongController implements EditorController, Localizable {
                 song.setLocation(file);
             } catch (FileAlreadyOpenException e) {
                 // TODO: Show alert to user.
-                System.out.println("Error: Cannot open the same file in two tabs.");
+                errorLogger.logWarning("Cannot open the same file in two tabs.");
                 return;
             }
             ExtensionFilter chosenFormat = fc.getSelectedExtensionFilter();
@@ -428,6 +538,16 @@ public class SongController implements EditorController, Localizable {
 
     /** Called whenever a Song is changed. */
     private void onSongChange() {
+        onSongChange(RegionBounds.WHOLE_SONG);
+    }
+
+    /** Called whenever a note is added, removed, or modified. */
+    private void onSongChange(int positionMs, int durationMs) {
+        onSongChange(new RegionBounds(positionMs, positionMs + Math.max(durationMs, 1)));
+    }
+
+    private void onSongChange(RegionBounds editedRegion) {
+        loopPlayer.onSongChange(song.get(), editedRegion);
         if (callback == null) {
             return;
         }
@@ -442,15 +562,43 @@ public class SongController implements EditorController, Localizable {
     @FXML
     void renderSong(ActionEvent event) {
         double tempo = song.get().getTempo();
-        Function<Duration, Void> playbackFn =
-                (duration) -> songEditor.startPlayback(duration, tempo);
+        Function<MediaPlayer, Void> playbackFn =
+                (player) -> songEditor.startPlayback(player, tempo);
 
         // Disable the render button while rendering.
+        stopLoop();
         renderButton.setDisable(true);
-        new Thread(() -> {
-            engine.playSong(song.get(), playbackFn, songEditor.getSelectedTrack());
-            renderButton.setDisable(false);
-        }).start();
+        RenderJob job = renderQueue.enqueuePlayback(
+                getFileName(),
+                song.get(),
+                songEditor.getSelectedTrack(),
+                playbackFn,
+                getPlaybackQuality());
+        job.getResult().addListener(() -> renderButton.setDisable(false), Platform::runLater);
+    }
+
+    @FXML
+    void loopSong(ActionEvent event) {
+        if (!loopButton.isSelected()) {
+            stopLoop();
+            return;
+        }
+        double tempo = song.get().getTempo();
+        RegionBounds region = songEditor.getSelectedTrack();
+        Runnable onPlaying = () -> Platform.runLater(() -> {
+            songEditor.startLoopPlayback(loopPlayer::getPositionMs, tempo);
+        });
+        loopPlayer.startLoop(song.get(), region, getPlaybackQuality(), onPlaying);
+    }
+
+    // Exports ignore this, and are always rendered at full quality.
+    private RenderQuality getPlaybackQuality() {
+        return draftCheckBox.isSelected() ? RenderQuality.DRAFT : RenderQuality.FULL;
+    }
+
+    private void stopLoop() {
+        loopButton.setSelected(false);
+        loopPlayer.stop();
     }
 
     @FXML
@@ -460,7 +608,12 @@ public class SongController implements EditorController, Localizable {
         fc.getExtensionFilters().addAll(new ExtensionFilter(".wav files", "*.wav"));
         File file = fc.showSaveDialog(null);
         if (file != null) {
-            engine.renderWav(song.get(), file);
+            // Exports the song as it is now, even if it's edited before the job is done.
+            renderQueue.enqueueExport(
+                    getFileName(),
+                    snapshotter.snapshot(song.get()),
+                    file,
+                    Priority.NORMAL);
         }
     }
 
@@ -488,6 +641,24 @@ public class SongController implements EditorController, Localizable {
         refreshView();
     }
 
+    private void applyPluginChanges(PluginChanges changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        for (NoteData toRemove : changes.getRemovedNotes()) {
+            songEditor.removeNote(toRemove.getPosition());
+        }
+        for (NoteData toAdd : changes.getAddedNotes()) {
+            try {
+                songEditor.addNote(toAdd);
+            } catch (NoteAlreadyExistsException e) {
+                // The plugin put a note where the song already has one.
+                errorLogger.logError(e);
+            }
+        }
+        onSongChange(changes.getBounds());
+    }
+
     @Override
     public Optional<File> openPlugin() {
         FileChooser fc = new FileChooser();
@@ -510,27 +681,36 @@ public class SongController implements EditorController, Localizable {
             try {
                 // Plugin input. Only give Shift-JIS UST 1.2 files to plugins for now.
                 File pluginFile = File.createTempFile("plugin", ".ust");
-                System.out.println("Plugin input: " + pluginFile.getAbsolutePath());
+                errorLogger.logInfo("Plugin input: " + pluginFile.getAbsolutePath());
                 pluginFile.deleteOnExit();
+                RegionBounds region = songEditor.getSelectedTrack();
                 PrintStream ps = new PrintStream(pluginFile, "SJIS");
-                String[] headers =
-                        ust12Writer.writeToPlugin(song.get(), songEditor.getSelectedTrack(), ps);
+                String[] headers = ust12Writer.writeToPlugin(song.get(), region, ps);
                 ps.flush();
                 ps.close();
-                System.out.println(headers[0] + " " + headers[1]);
+                errorLogger.logDebug(headers[0] + " " + headers[1]);
+                String input = FileUtils.readFileToString(pluginFile, "SJIS");
+                // Plugin input starts at the note before the region, or the start of the song.
+                int startMs = song.get().getNoteIterator(region).getCurDelta();
 
-                // Write pre-plugin song to a string.
+                // Attempt to run plugin.
+                processRunner.runProcess(plugin.getAbsolutePath(), pluginFile.getAbsolutePath());
+
+                // Apply only what the plugin changed, if possible.
+                String output = FileUtils.readFileToString(pluginFile, "SJIS");
+                Optional<PluginChanges> changes =
+                        ust12Reader.readPluginChanges(input, output, startMs);
+                if (changes.isPresent()) {
+                    applyPluginChanges(changes.get());
+                    return;
+                }
+
+                // Otherwise rebuild the song from the pre-plugin song and the plugin output.
                 ByteArrayOutputStream songBytes = new ByteArrayOutputStream();
                 ps = new PrintStream(songBytes, true, "SJIS");
                 ust12Writer.writeSong(song.get(), ps);
                 ps.close();
                 String songString = songBytes.toString("SJIS");
-
-                // Attempt to run plugin.
-                processRunner.runProcess(plugin.getAbsolutePath(), pluginFile.getAbsolutePath());
-
-                // Read song from plugin output.
-                String output = FileUtils.readFileToString(pluginFile, "SJIS");
                 song.setSong(ust12Reader.readFromPlugin(headers, songString, output));
                 onSongChange();
                 refreshView();
@@ -541,4 +721,30 @@ public class SongController implements EditorController, Localizable {
             }
         }
     }
+
+    @Override
+    public void invokePlugin(UtsuPlugin plugin) {
+        RegionBounds region = songEditor.getSelectedTrack();
+        Song before = song.get();
+        List<NoteData> selection = before.getNotes(region);
+        PluginInput input = new PluginInput(selection, before.getTempo());
+        ListenableFuture<PluginChanges> changes = pluginManager.runPlugin(plugin, input);
+        Futures.addCallback(changes, new FutureCallback<PluginChanges>() {
+            @Override
+            public void onSuccess(PluginChanges result) {
+                // Drop the changes if the selected notes were edited while the plugin ran.
+                if (song.get() != before || !selection.equals(song.get().getNotes(region))) {
+                    errorLogger.logInfo("Song changed while running " + plugin.getName());
+                    return;
+                }
+                applyPluginChanges(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // TODO: Tell the user the plugin failed.
+                errorLogger.logError(t);
+            }
+        }, Platform::runLater);
+    }
 }
@@ -5,11 +5,16 @@ import static javafx.scene.input.KeyCombination.SHIFT_DOWN;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.utsusynth.utsu.common.dialog.SaveWarningDialog;
@@ -18,15 +23,21 @@ import com.utsusynth.utsu.common.exception.ErrorLogger;
 import com.utsusynth.utsu.common.i18n.Localizable;
 import com.utsusynth.utsu.common.i18n.Localizer;
 import com.utsusynth.utsu.common.quantize.Scaler;
+import com.utsusynth.utsu.plugin.PluginManager;
+import com.utsusynth.utsu.plugin.UtsuPlugin;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.Scene;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.SeparatorMenuItem;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 
 /**
@@ -41,10 +52,14 @@ public class UtsuController implements Localizable {
 
     // User session data goes here.
     private final Map<String, EditorController> editors;
+    private final List<MenuItem> javaPluginItems;
+    private Optional<Stage> renderQueueWindow;
+    private Optional<Stage> diagnosticsWindow;
 
     // Helper classes go here.
     private final Localizer localizer;
     private final Scaler scaler;
+    private final PluginManager pluginManager;
     private final Provider<SaveWarningDialog> saveWarningProvider;
     private final Provider<FXMLLoader> fxmlLoaderProvider;
 
@@ -55,19 +70,40 @@ public class UtsuController implements Localizable {
     public UtsuController(
             Localizer localizer,
             Scaler scaler,
+            PluginManager pluginManager,
             Provider<SaveWarningDialog> saveWarningProvider,
             Provider<FXMLLoader> fxmlLoaders) {
         this.localizer = localizer;
         this.scaler = scaler;
+        this.pluginManager = pluginManager;
         this.saveWarningProvider = saveWarningProvider;
         this.fxmlLoaderProvider = fxmlLoaders;
 
         this.editors = new HashMap<>();
+        this.javaPluginItems = new ArrayList<>();
+        this.renderQueueWindow = Optional.absent();
+        this.diagnosticsWindow = Optional.absent();
     }
 
     // Provide setup for other controllers.
     // This is called automatically.
     public void initialize() {
+        // Add Java plugins to the plugins menu once their jars have been scanned.
+        Futures.addCallback(
+                pluginManager.loadPluginsAsync(),
+                new FutureCallback<ImmutableList<UtsuPlugin>>() {
+                    @Override
+                    public void onSuccess(ImmutableList<UtsuPlugin> plugins) {
+                        addJavaPlugins(plugins);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        errorLogger.logError(t);
+                    }
+                },
+                Platform::runLater);
+
         // Create an empty song editor.
         createEditor(EditorType.SONG);
 
@@ -75,6 +111,28 @@ public class UtsuController implements Localizable {
         localizer.localize(this);
     }
 
+    private void addJavaPlugins(ImmutableList<UtsuPlugin> plugins) {
+        // Plugins only work on songs, so start disabled if a voicebank is open.
+        Tab selectedTab = tabs.getSelectionModel().getSelectedItem();
+        boolean isVoicebank = selectedTab != null
+                && editors.get(selectedTab.getId()) instanceof VoicebankController;
+        for (UtsuPlugin plugin : plugins) {
+            MenuItem pluginItem = new MenuItem(plugin.getName());
+            pluginItem.setOnAction(event -> {
+                if (!tabs.getTabs().isEmpty()) {
+                    Tab curTab = tabs.getSelectionModel().getSelectedItem();
+                    editors.get(curTab.getId()).invokePlugin(plugin);
+                }
+            });
+            pluginItem.setDisable(isVoicebank);
+            javaPluginItems.add(pluginItem);
+        }
+        if (!javaPluginItems.isEmpty()) {
+            pluginsMenu.getItems().add(new SeparatorMenuItem());
+            pluginsMenu.getItems().addAll(javaPluginItems);
+        }
+    }
+
     @FXML
     private Menu fileMenu; // Value injected by FXMLLoader
     @FXML
@@ -100,6 +158,10 @@ public class UtsuController implements Localizable {
     @FXML
     private MenuItem zoomOutItem; // Value injected by FXMLLoader
     @FXML
+    private MenuItem renderQueueItem; // Value injected by FXMLLoader
+    @FXML
+    private MenuItem diagnosticsItem; // Value injected by FXMLLoader
+    @FXML
     private Menu projectMenu; // Value injected by FXMLLoader
     @FXML
     private MenuItem propertiesItem; // Value injected by FXMLLoader
@@ -132,6 +194,8 @@ public class UtsuController implements Localizable {
         zoomInItem.setAccelerator(new KeyCodeCombination(KeyCode.EQUALS, CONTROL_DOWN));
         zoomOutItem.setText(bundle.getString("menu.view.zoomOut"));
         zoomOutItem.setAccelerator(new KeyCodeCombination(KeyCode.MINUS, CONTROL_DOWN));
+        renderQueueItem.setText(bundle.getString("menu.view.renderQueue"));
+        diagnosticsItem.setText(bundle.getString("menu.view.diagnostics"));
         projectMenu.setText(bundle.getString("menu.project"));
         propertiesItem.setText(bundle.getString("menu.project.properties"));
         pluginsMenu.setText(bundle.getString("menu.plugins"));
@@ -211,10 +275,12 @@ public class UtsuController implements Localizable {
                         saveAsItem.setDisable(false);
                         propertiesItem.setDisable(false);
                         recentPluginsMenu.setDisable(recentPluginsMenu.getItems().isEmpty());
+                        javaPluginItems.forEach(item -> item.setDisable(false));
                     } else if (type == EditorType.VOICEBANK) {
                         saveAsItem.setDisable(true);
                         propertiesItem.setDisable(true);
                         recentPluginsMenu.setDisable(true);
+                        javaPluginItems.forEach(item -> item.setDisable(true));
                     }
                 }
             });
@@ -319,6 +385,54 @@ public class UtsuController implements Localizable {
         }
     }
 
+    @FXML
+    void openRenderQueue(ActionEvent event) {
+        // Only one queue window is needed, since the render queue is app-wide.
+        if (renderQueueWindow.isPresent()) {
+            renderQueueWindow.get().show();
+            renderQueueWindow.get().toFront();
+            return;
+        }
+        InputStream fxml = getClass().getResourceAsStream("/fxml/RenderQueueScene.fxml");
+        FXMLLoader loader = fxmlLoaderProvider.get();
+        try {
+            Stage window = new Stage();
+            window.initOwner(tabs.getScene().getWindow());
+            BorderPane queuePane = loader.load(fxml);
+            RenderQueueController controller = (RenderQueueController) loader.getController();
+            controller.setWindow(window);
+            window.setScene(new Scene(queuePane));
+            window.show();
+            renderQueueWindow = Optional.of(window);
+        } catch (IOException e) {
+            errorLogger.logError(e);
+        }
+    }
+
+    @FXML
+    void openDiagnostics(ActionEvent event) {
+        // Only one diagnostics window is needed, since metrics are app-wide.
+        if (diagnosticsWindow.isPresent()) {
+            diagnosticsWindow.get().show();
+            diagnosticsWindow.get().toFront();
+            return;
+        }
+        InputStream fxml = getClass().getResourceAsStream("/fxml/DiagnosticsScene.fxml");
+        FXMLLoader loader = fxmlLoaderProvider.get();
+        try {
+            Stage window = new Stage();
+            window.initOwner(tabs.getScene().getWindow());
+            BorderPane diagnosticsPane = loader.load(fxml);
+            DiagnosticsController controller = (DiagnosticsController) loader.getController();
+            controller.setWindow(window);
+            window.setScene(new Scene(diagnosticsPane));
+            window.show();
+            diagnosticsWindow = Optional.of(window);
+        } catch (IOException e) {
+            errorLogger.logError(e);
+        }
+    }
+
     @FXML
     void openProperties(ActionEvent event) {
         if (!tabs.getTabs().isEmpty()) {
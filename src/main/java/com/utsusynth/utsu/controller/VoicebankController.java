@@ -12,11 +12,13 @@ import com.utsusynth.utsu.common.i18n.Localizable;
 import com.utsusynth.utsu.common.i18n.Localizer;
 import com.utsusynth.utsu.files.VoicebankWriter;
 import com.utsusynth.utsu.model.voicebank.VoicebankContainer;
+import com.utsusynth.utsu.plugin.UtsuPlugin;
 import com.utsusynth.utsu.view.voicebank.LyricConfigEditor;
 import com.utsusynth.utsu.view.voicebank.PitchCallback;
 import com.utsusynth.utsu.view.voicebank.PitchEditor;
 import com.utsusynth.utsu.view.voicebank.VoicebankCallback;
 import com.utsusynth.utsu.view.voicebank.VoicebankEditor;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
@@ -126,6 +128,7 @@ public class VoicebankController implements EditorController, Localizable {
                 // Load lyric config editor.
                 anchorBottom.getChildren().clear();
                 anchorBottom.getChildren().add(configEditor.createConfigEditor(lyricData));
+                anchorBottom.getChildren().add(configEditor.getSpectrogramElement());
                 anchorBottom.getChildren().add(configEditor.getControlElement());
                 anchorBottom.getChildren().add(configEditor.getChartElement());
                 bindLabelsAndControlBars(configEditor.getControlElement());
@@ -152,10 +155,8 @@ public class VoicebankController implements EditorController, Localizable {
 
             @Override
             public void generateFrqFiles(Iterator<LyricConfigData> lyricIterator) {
-                new Thread(() -> {
-                    voicebank.get().generateFrqs(lyricIterator);
-                    // Change cannot be saved or undone, so don't call onVoicebankChange.
-                }).start();
+                // Change cannot be saved or undone, so don't call onVoicebankChange.
+                voicebank.get().generateFrqs(lyricIterator, Platform::runLater);
             }
         });
 
@@ -328,4 +329,9 @@ public class VoicebankController implements EditorController, Localizable {
     public void invokePlugin(File plugin) {
         // Voicebanks do not have plugins of their own right now.
     }
+
+    @Override
+    public void invokePlugin(UtsuPlugin plugin) {
+        // Voicebanks do not have plugins of their own right now.
+    }
 }
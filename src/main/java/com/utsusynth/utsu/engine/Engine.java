@@ -2,14 +2,24 @@ package com.utsusynth.utsu.engine;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
 import org.apache.commons.io.FileUtils;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.utsusynth.utsu.common.PitchUtils;
 import com.utsusynth.utsu.common.RegionBounds;
 import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.exception.LogLevel;
+import com.utsusynth.utsu.common.metrics.Metrics;
 import com.utsusynth.utsu.common.quantize.Quantizer;
+import com.utsusynth.utsu.common.trace.TraceSpan;
+import com.utsusynth.utsu.common.trace.TraceType;
+import com.utsusynth.utsu.common.trace.Tracer;
 import com.utsusynth.utsu.model.song.Note;
 import com.utsusynth.utsu.model.song.NoteIterator;
 import com.utsusynth.utsu.model.song.Song;
@@ -17,22 +27,42 @@ import com.utsusynth.utsu.model.voicebank.LyricConfig;
 import com.utsusynth.utsu.model.voicebank.Voicebank;
 import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
-import javafx.util.Duration;
 
 public class Engine {
     private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final Metrics metrics = Metrics.getMetrics();
+    private static final Tracer tracer = Tracer.getTracer();
     private static MediaPlayer mediaPlayer; // Used for audio playback.
 
     private final Resampler resampler;
     private final Wavtool wavtool;
     private File resamplerPath;
     private File wavtoolPath;
+    private Optional<ResampleWorkerPool> resampleWorkers;
+    private Optional<File> draftResamplerPath;
+
+    /** Adds a note or silence to the end of the song, once anything it needs is resampled. */
+    private static class Append {
+        private final ListenableFuture<?> resampled;
+        private final Runnable append;
+
+        private Append(ListenableFuture<?> resampled, Runnable append) {
+            this.resampled = resampled;
+            this.append = append;
+        }
+
+        private Append(Runnable append) {
+            this(Futures.immediateFuture(null), append);
+        }
+    }
 
     public Engine(Resampler resampler, Wavtool wavtool, File resamplerPath, File wavtoolPath) {
         this.resampler = resampler;
         this.wavtool = wavtool;
         this.resamplerPath = resamplerPath;
         this.wavtoolPath = wavtoolPath;
+        this.resampleWorkers = Optional.absent();
+        this.draftResamplerPath = Optional.absent();
     }
 
     public File getResamplerPath() {
@@ -51,26 +81,103 @@ public class Engine {
         this.wavtoolPath = wavtoolPath;
     }
 
+    /**
+     * Resamples notes on these workers instead of one at a time here. The wavtool still runs here,
+     * adding notes to the song in order as they come back.
+     */
+    public void setResampleWorkers(Optional<ResampleWorkerPool> resampleWorkers) {
+        this.resampleWorkers = resampleWorkers;
+    }
+
+    public Optional<File> getDraftResamplerPath() {
+        return draftResamplerPath;
+    }
+
+    /**
+     * Resamples draft renders with a faster resampler than the usual one, if set. Workers only have
+     * the usual resampler, so draft notes are resampled here when this is set.
+     */
+    public void setDraftResamplerPath(Optional<File> draftResamplerPath) {
+        this.draftResamplerPath = draftResamplerPath;
+    }
+
     public void renderWav(Song song, File finalDestination) {
-        Optional<File> finalSong = render(song, RegionBounds.WHOLE_SONG);
-        if (finalSong.isPresent()) {
-            finalSong.get().renameTo(finalDestination);
+        renderWav(song, finalDestination, RenderMonitor.NONE);
+    }
+
+    /** Renders a whole song to a wav file. Returns whether the file was written. */
+    public boolean renderWav(Song song, File finalDestination, RenderMonitor monitor) {
+        Optional<File> finalSong =
+                render(song, RegionBounds.WHOLE_SONG, monitor, RenderQuality.FULL);
+        if (!finalSong.isPresent()) {
+            return false;
+        }
+        try {
+            // Moves across file systems too, unlike renameTo.
+            Files.move(finalSong.get(), finalDestination);
+            return true;
+        } catch (IOException e) {
+            errorLogger.logError(e);
+            return false;
         }
     }
 
-    public void playSong(Song song, Function<Duration, Void> callback, RegionBounds bounds) {
-        Optional<File> finalSong = render(song, bounds);
-        if (finalSong.isPresent()) {
-            Media media = new Media(finalSong.get().toURI().toString());
-            mediaPlayer = new MediaPlayer(media);
-            mediaPlayer.setOnReady(() -> {
-                callback.apply(media.getDuration());
-            });
-            mediaPlayer.play();
+    /**
+     * Renders and plays part of a song. The callback receives the player once audio is actually
+     * playing, so that anything following along can read the real playback position from it.
+     */
+    public void playSong(Song song, Function<MediaPlayer, Void> callback, RegionBounds bounds) {
+        playSong(song, callback, bounds, RenderMonitor.NONE, RenderQuality.FULL);
+    }
+
+    /**
+     * Renders and plays part of a song, at draft quality if asked. Returns whether playback was
+     * started.
+     */
+    public boolean playSong(
+            Song song,
+            Function<MediaPlayer, Void> callback,
+            RegionBounds bounds,
+            RenderMonitor monitor,
+            RenderQuality quality) {
+        Optional<File> finalSong = render(song, bounds, monitor, quality);
+        if (!finalSong.isPresent()) {
+            return false;
+        }
+        Media media = new Media(finalSong.get().toURI().toString());
+        if (mediaPlayer != null) {
+            mediaPlayer.dispose();
         }
+        MediaPlayer player = new MediaPlayer(media);
+        mediaPlayer = player;
+        player.setOnPlaying(() -> {
+            callback.apply(player);
+        });
+        player.play();
+        return true;
+    }
+
+    /** Renders part of a song to a wav file in a new temporary directory. */
+    Optional<File> render(Song song, RegionBounds bounds, RenderQuality quality) {
+        return render(song, bounds, RenderMonitor.NONE, quality);
+    }
+
+    private Optional<File> render(
+            Song song,
+            RegionBounds bounds,
+            RenderMonitor monitor,
+            RenderQuality quality) {
+        // Timed separately, so that draft and full renders can be compared.
+        String timerName = quality == RenderQuality.DRAFT ? "render.draftTotal" : "render.total";
+        return metrics.timer(timerName).time(
+                () -> renderInTempDir(song, bounds, monitor, quality));
     }
 
-    private Optional<File> render(Song song, RegionBounds bounds) {
+    private Optional<File> renderInTempDir(
+            Song song,
+            RegionBounds bounds,
+            RenderMonitor monitor,
+            RenderQuality quality) {
         // Create temporary directory for rendering.
         File tempDir = Files.createTempDir();
         File renderedSilence = new File(tempDir, "rendered_silence.wav");
@@ -90,7 +197,21 @@ public class Engine {
         int totalDelta = notes.getCurDelta(); // Absolute position of current note.
         Voicebank voicebank = song.getVoicebank();
         boolean isFirstNote = true;
-        while (notes.hasNext()) {
+        int numNotes = monitor == RenderMonitor.NONE ? 0 : countNotes(song, bounds);
+
+        boolean isDraft = quality == RenderQuality.DRAFT;
+        File noteResamplerPath = isDraft ? draftResamplerPath.or(resamplerPath) : resamplerPath;
+
+        // Notes can be resampled ahead on workers, but are added to the song in order.
+        Optional<ResampleWorkerPool> workers = isDraft && draftResamplerPath.isPresent()
+                ? Optional.<ResampleWorkerPool>absent()
+                : resampleWorkers;
+        int maxAppends = workers.isPresent() ? 2 * workers.get().getCapacity() : 0;
+        Deque<Append> appends = new ArrayDeque<>();
+        for (int noteIndex = 0; notes.hasNext(); noteIndex++) {
+            if (!appendReady(appends, maxAppends) || !monitor.beforeNote(noteIndex, numNotes)) {
+                return Optional.absent();
+            }
             Note note = notes.next();
             totalDelta += note.getDelta(); // Unique for every note in a single sequence.
 
@@ -120,62 +241,88 @@ public class Engine {
             if (isFirstNote) {
                 if (notes.getCurDelta() - preutter > bounds.getMinMs()) {
                     double startDelta = notes.getCurDelta() - preutter - bounds.getMinMs();
-                    addSilence(startDelta, song, renderedSilence, finalSong);
+                    appends.add(new Append(() -> {
+                        addSilence(startDelta, song, renderedSilence, finalSong);
+                    }));
                 }
                 isFirstNote = false;
             }
 
             // Add silence in place of note if lyric not found.
             if (!config.isPresent()) {
-                System.out.println("Could not find config for lyric: " + note.getLyric());
+                errorLogger.logWarning("Could not find config for lyric: " + note.getLyric());
+                metrics.counter("render.missingLyrics").increment();
                 if (notes.peekNext().isPresent()) {
-                    addSilence(
-                            note.getLength() - notes.peekNext().get().getRealPreutter(),
-                            song,
-                            renderedSilence,
-                            finalSong);
+                    double duration = note.getLength() - notes.peekNext().get().getRealPreutter();
+                    appends.add(new Append(() -> {
+                        addSilence(duration, song, renderedSilence, finalSong);
+                    }));
                 } else {
                     // Case where the last note in the song is silent.
-                    addFinalSilence(note.getLength(), song, renderedSilence, finalSong);
+                    appends.add(new Append(() -> {
+                        addFinalSilence(note.getLength(), song, renderedSilence, finalSong);
+                    }));
                 }
                 continue;
             }
-            System.out.println(config.get());
 
             // Adjust note length based on preutterance/overlap.
             double adjustedLength =
                     note.getRealDuration() > -1 ? note.getRealDuration() : note.getDuration();
-            System.out.println("Length is " + adjustedLength);
+            if (errorLogger.isEnabled(LogLevel.DEBUG)) {
+                errorLogger.logDebug(config.get() + "\nLength is " + adjustedLength);
+            }
 
             // Calculate pitchbends.
             int firstStep = getFirstPitchStep(totalDelta, preutter);
             int lastStep = getLastPitchStep(totalDelta, preutter, adjustedLength);
-            String pitchString = song.getPitchString(firstStep, lastStep, note.getNoteNum());
+            String pitchString = isDraft
+                    ? song.getDraftPitchString(firstStep, lastStep, note.getNoteNum())
+                    : song.getPitchString(firstStep, lastStep, note.getNoteNum());
 
             // Re-samples lyric and puts result into renderedNote file.
+            metrics.counter("render.notes").increment();
             File renderedNote = new File(tempDir, "rendered_note" + totalDelta + ".wav");
-            resampler.resample(
-                    resamplerPath,
+            TraceSpan span = tracer.start(TraceType.RENDER_NOTE);
+            span.set("lyric", note.getLyric())
+                    .set("trueLyric", config.get().getTrueLyric())
+                    .set("position", totalDelta);
+            long resampleStart = System.nanoTime();
+            ListenableFuture<File> resampled = resampler.resample(
+                    noteResamplerPath,
                     note,
                     adjustedLength,
                     config.get(),
                     renderedNote,
                     pitchString,
-                    song);
-
-            // Append rendered note to the output file using wavtool.
-            wavtool.addNewNote(
-                    wavtoolPath,
                     song,
-                    note,
-                    adjustedLength,
-                    config.get(),
-                    renderedNote,
-                    finalSong,
-                    // Whether to include overlap in the wavtool.
-                    areNotesTouching(notes.peekPrev(), voicebank, Optional.of(preutter)),
-                    // Whether this is the last note in the song.
-                    !notes.peekNext().isPresent());
+                    workers);
+            LyricConfig noteConfig = config.get();
+            // Whether to include overlap in the wavtool.
+            boolean includeOverlap =
+                    areNotesTouching(notes.peekPrev(), voicebank, Optional.of(preutter));
+            // Whether this is the last note in the song.
+            boolean isLastNote = !notes.peekNext().isPresent();
+            appends.add(new Append(resampled, () -> {
+                try (TraceSpan noteSpan = span) {
+                    // Includes waiting for earlier notes, when resampling ahead.
+                    long wavtoolStart = System.nanoTime();
+                    noteSpan.set("resampleTime", wavtoolStart - resampleStart);
+
+                    // Append rendered note to the output file using wavtool.
+                    wavtool.addNewNote(
+                            wavtoolPath,
+                            song,
+                            note,
+                            adjustedLength,
+                            noteConfig,
+                            renderedNote,
+                            finalSong,
+                            includeOverlap,
+                            isLastNote);
+                    noteSpan.set("wavtoolTime", System.nanoTime() - wavtoolStart);
+                }
+            }));
 
             // Possible silence after each note.
             if (notes.peekNext().isPresent()
@@ -187,26 +334,65 @@ public class Engine {
                 } else {
                     silenceLength = note.getLength() - note.getDuration();
                 }
-                addSilence(silenceLength, song, renderedSilence, finalSong);
+                appends.add(new Append(() -> {
+                    addSilence(silenceLength, song, renderedSilence, finalSong);
+                }));
             }
         }
+        if (!appendReady(appends, 0)) {
+            return Optional.absent();
+        }
         return Optional.of(finalSong);
     }
 
+    /**
+     * Adds notes and silences to the song in order, as long as the next one is ready or there are
+     * more than the maximum waiting. Returns false if interrupted.
+     */
+    private static boolean appendReady(Deque<Append> appends, int maxAppends) {
+        while (!appends.isEmpty()
+                && (appends.peek().resampled.isDone() || appends.size() > maxAppends)) {
+            Append next = appends.poll();
+            try {
+                next.resampled.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                // Carry on without this note, as when the resampler fails.
+                errorLogger.logError(e.getCause());
+            }
+            next.append.run();
+        }
+        return true;
+    }
+
     private void addSilence(double duration, Song song, File renderedNote, File finalSong) {
         if (duration <= 0.0) {
             return;
         }
-        duration = duration * (125.0 / song.getTempo());
-        resampler.resampleSilence(resamplerPath, renderedNote, duration);
-        wavtool.addSilence(wavtoolPath, duration, renderedNote, finalSong, false);
+        double scaledDuration = duration * (125.0 / song.getTempo());
+        metrics.timer("render.silence").time(() -> {
+            resampler.resampleSilence(resamplerPath, renderedNote, scaledDuration);
+            wavtool.addSilence(wavtoolPath, scaledDuration, renderedNote, finalSong, false);
+        });
     }
 
     private void addFinalSilence(double duration, Song song, File renderedNote, File finalSong) {
         // The final note must be passed to the wavtool.
-        duration = Math.max(duration, 0) * (125.0 / song.getTempo());
-        resampler.resampleSilence(resamplerPath, renderedNote, duration);
-        wavtool.addSilence(wavtoolPath, duration, renderedNote, finalSong, true);
+        double scaledDuration = Math.max(duration, 0) * (125.0 / song.getTempo());
+        metrics.timer("render.silence").time(() -> {
+            resampler.resampleSilence(resamplerPath, renderedNote, scaledDuration);
+            wavtool.addSilence(wavtoolPath, scaledDuration, renderedNote, finalSong, true);
+        });
+    }
+
+    private static int countNotes(Song song, RegionBounds bounds) {
+        int numNotes = 0;
+        for (NoteIterator notes = song.getNoteIterator(bounds); notes.hasNext(); notes.next()) {
+            numNotes++;
+        }
+        return numNotes;
     }
 
     // Returns empty string if there is no nearby (within DEFAULT_NOTE_DURATION) previous note.
@@ -0,0 +1,90 @@
+package com.utsusynth.utsu.engine;
+
+import java.io.File;
+import com.google.common.base.Optional;
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.utsusynth.utsu.files.SampleCache;
+import com.utsusynth.utsu.files.SoundFileReader;
+import com.utsusynth.utsu.files.SoundFileWriter;
+
+/**
+ * Rendering classes, kept apart from the UI so that songs can also be rendered without one.
+ */
+public class EngineModule extends AbstractModule {
+
+    @Override
+    protected void configure() {}
+
+    @Provides
+    @Singleton
+    private Engine provideEngine(Resampler resampler, Wavtool wavtool) {
+        Engine engine = new Engine(
+                resampler,
+                wavtool,
+                getDefaultResamplerPath(),
+                getDefaultWavtoolPath());
+        // Resample on other processes or machines, like -Dutsu.resampleWorkers=host1:7600,host2.
+        String workerAddresses = System.getProperty("utsu.resampleWorkers");
+        if (workerAddresses != null) {
+            engine.setResampleWorkers(Optional.of(ResampleWorkerPool.connect(workerAddresses)));
+        }
+        // A faster resampler for draft playback, like -Dutsu.draftResampler=path/to/resampler.
+        String draftResampler = System.getProperty("utsu.draftResampler");
+        if (draftResampler != null) {
+            engine.setDraftResamplerPath(Optional.of(new File(draftResampler)));
+        }
+        return engine;
+    }
+
+    @Provides
+    @Singleton
+    private FrqGenerator provideFrqGenerator(
+            SoundFileReader soundFileReader,
+            SoundFileWriter soundFileWriter) {
+        int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        return new FrqGenerator(soundFileReader, soundFileWriter, 256, numThreads);
+    }
+
+    @Provides
+    @Singleton
+    private RenderQueue provideRenderQueue(Engine engine) {
+        // Leave some cores free for the resampler processes of playback and for the UI.
+        int concurrency = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new RenderQueue(engine, concurrency);
+    }
+
+    @Provides
+    @Singleton
+    private SampleCache provideSampleCache(SoundFileReader soundFileReader) {
+        // Use at most a quarter of the heap for decoded samples.
+        long maxBytes = Math.min(256L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 4);
+        return new SampleCache(soundFileReader, maxBytes);
+    }
+
+    /** The resampler that comes with Utsu for this platform. */
+    static File getDefaultResamplerPath() {
+        return new File(getToolDir(), "macres" + getToolExtension());
+    }
+
+    /** The wavtool that comes with Utsu for this platform. */
+    static File getDefaultWavtoolPath() {
+        return new File(getToolDir(), "wavtool-yawu" + getToolExtension());
+    }
+
+    private static String getToolDir() {
+        String os = System.getProperty("os.name").toLowerCase();
+        if (os.contains("win")) {
+            return "assets/win64";
+        } else if (os.contains("mac")) {
+            return "assets/Mac";
+        } else {
+            return "assets/linux64";
+        }
+    }
+
+    private static String getToolExtension() {
+        return System.getProperty("os.name").toLowerCase().contains("win") ? ".exe" : "";
+    }
+}
@@ -4,21 +4,32 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.trace.TraceSpan;
+import com.utsusynth.utsu.common.trace.TraceType;
+import com.utsusynth.utsu.common.trace.Tracer;
 
 /**
- * Class that runs an external command-line process with the provided arguments.
+ * Class that runs an external command-line process with the provided arguments. Safe to call from
+ * several threads at once, as each call waits only for its own process.
  */
 public class ExternalProcessRunner {
     private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final Tracer tracer = Tracer.getTracer();
 
-    private Process curProcess;
+    // Only kept so they can be destroyed when Utsu closes.
+    private final Set<Process> liveProcesses;
 
     public ExternalProcessRunner() {
+        this.liveProcesses = ConcurrentHashMap.newKeySet();
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             // Destroy any ongoing processes when Utsu closes.
-            if (curProcess != null && curProcess.isAlive()) {
-                curProcess.destroy();
+            for (Process process : liveProcesses) {
+                if (process.isAlive()) {
+                    process.destroy();
+                }
             }
         }));
     }
@@ -26,10 +37,16 @@ public class ExternalProcessRunner {
     public void runProcess(String... args) {
         ProcessBuilder builder = new ProcessBuilder(args);
         builder.redirectErrorStream(true);
-        try {
-            curProcess = builder.start();
-            watch(curProcess.getInputStream());
-            curProcess.waitFor();
+        try (TraceSpan span = tracer.start(TraceType.EXTERNAL_PROCESS)) {
+            span.set("command", args[0]).set("arguments", String.join(" ", args));
+            Process process = builder.start();
+            liveProcesses.add(process);
+            try {
+                watch(process.getInputStream());
+                span.set("exitCode", process.waitFor());
+            } finally {
+                liveProcesses.remove(process);
+            }
         } catch (IOException | InterruptedException e) {
             errorLogger.logError(e);
         }
@@ -42,7 +59,7 @@ public class ExternalProcessRunner {
                 String line = null;
                 try {
                     while ((line = input.readLine()) != null) {
-                        System.out.println(line);
+                        errorLogger.logVerbose(line);
                     }
                 } catch (IOException e) {
                     errorLogger.logError(e);
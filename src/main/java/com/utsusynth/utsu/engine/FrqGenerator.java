@@ -1,25 +1,114 @@
 package com.utsusynth.utsu.engine;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
+import com.utsusynth.utsu.common.data.FrequencyData;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.metrics.Metrics;
+import com.utsusynth.utsu.files.MappedWavFile;
+import com.utsusynth.utsu.files.SoundFileReader;
+import com.utsusynth.utsu.files.SoundFileWriter;
 
+/**
+ * Generates FREQ0003 .frq files in-process, estimating F0 with YIN. Files are processed in
+ * parallel on a bounded pool shared by all voicebanks.
+ */
 public class FrqGenerator {
-    private final ExternalProcessRunner runner;
-    private final File frqGeneratorPath;
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final Metrics metrics = Metrics.getMetrics();
+    private static final float SILENCE_THRESHOLD = 0.001f; // RMS below this is unvoiced.
+
+    private final SoundFileReader soundFileReader;
+    private final SoundFileWriter soundFileWriter;
     private final int samplesPerFrq; // Samples per value in frq file. Currently always 256.
+    private final ListeningExecutorService executor;
 
     @Inject
-    public FrqGenerator(ExternalProcessRunner runner, File frqGeneratorPath, int samplesPerFrq) {
-        this.runner = runner;
-        this.frqGeneratorPath = frqGeneratorPath;
+    public FrqGenerator(
+            SoundFileReader soundFileReader,
+            SoundFileWriter soundFileWriter,
+            int samplesPerFrq,
+            int numThreads) {
+        this.soundFileReader = soundFileReader;
+        this.soundFileWriter = soundFileWriter;
         this.samplesPerFrq = samplesPerFrq;
+        this.executor = MoreExecutors.listeningDecorator(
+                Executors.newFixedThreadPool(
+                        numThreads,
+                        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("frq-gen-%d")
+                                .build()));
+    }
+
+    /** Queues an frq file to be generated. The future returns whether generation succeeded. */
+    public ListenableFuture<Boolean> genFrqFileAsync(File input, File output) {
+        return executor.submit(() -> genFrqFile(input, output));
     }
 
-    public void genFrqFile(File input, File output) {
-        runner.runProcess(
-                frqGeneratorPath.getAbsolutePath(),
-                input.getAbsolutePath(),
-                output.getAbsolutePath(),
-                Integer.toString(samplesPerFrq));
+    /** Generates an frq file on the calling thread. Returns whether generation succeeded. */
+    public boolean genFrqFile(File input, File output) {
+        Optional<MappedWavFile> wav = soundFileReader.readWav(input);
+        if (!wav.isPresent()) {
+            return false;
+        }
+        try {
+            metrics.timer("frq.generate")
+                    .time(() -> soundFileWriter.writeFrqData(output, analyze(wav.get())));
+            return true;
+        } catch (IOException e) {
+            errorLogger.logError(e);
+            return false;
+        }
+    }
+
+    FrequencyData analyze(MappedWavFile wav) {
+        YinPitchEstimator estimator = new YinPitchEstimator(wav.getSampleRate());
+        int frameSize = estimator.getFrameSize();
+        float[] frame = new float[frameSize];
+        int numFrames = wav.getNumFrames();
+        int numBlocks = (numFrames + samplesPerFrq - 1) / samplesPerFrq;
+        double[] frequencies = new double[numBlocks];
+        double[] amplitudes = new double[numBlocks];
+        double frqSum = 0;
+        int numVoiced = 0;
+        for (int block = 0; block < numBlocks; block++) {
+            // Analyze a window centered on the middle of each block, zero-padding at the edges.
+            int center = block * samplesPerFrq + samplesPerFrq / 2;
+            int start = center - frameSize / 2;
+            int readStart = Math.max(0, start);
+            int readEnd = Math.min(numFrames, start + frameSize);
+            Arrays.fill(frame, 0);
+            wav.readMono(readStart, frame, readStart - start, readEnd - readStart);
+
+            // Amplitude is the RMS of the block itself, in 16-bit sample units. At low sample rates
+            // the window is shorter than a block, so only the part inside the window is used.
+            int blockEnd = Math.min(numFrames, block * samplesPerFrq + samplesPerFrq);
+            int rmsStart = Math.max(block * samplesPerFrq, start);
+            int rmsEnd = Math.min(blockEnd, start + frameSize);
+            double squareSum = 0;
+            for (int i = rmsStart; i < rmsEnd; i++) {
+                float sample = frame[i - start];
+                squareSum += sample * sample;
+            }
+            double rms = Math.sqrt(squareSum / Math.max(1, rmsEnd - rmsStart));
+            amplitudes[block] = rms * Short.MAX_VALUE;
+            if (rms < SILENCE_THRESHOLD) {
+                continue;
+            }
+            frequencies[block] = estimator.estimate(frame);
+            if (frequencies[block] > 0) {
+                frqSum += frequencies[block];
+                numVoiced++;
+            }
+        }
+        double average = numVoiced > 0 ? frqSum / numVoiced : 0;
+        return new FrequencyData(average, samplesPerFrq, frequencies, amplitudes);
     }
 }
@@ -0,0 +1,266 @@
+package com.utsusynth.utsu.engine;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import org.apache.commons.io.FileUtils;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.utsusynth.utsu.common.RegionBounds;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.quantize.Quantizer;
+import com.utsusynth.utsu.files.DecodedSample;
+import com.utsusynth.utsu.files.MappedWavFile;
+import com.utsusynth.utsu.files.SongSnapshotter;
+import com.utsusynth.utsu.files.SoundFileReader;
+import com.utsusynth.utsu.model.song.Song;
+
+/**
+ * Plays part of a song on repeat without gaps. The region is rendered once and kept in memory, and
+ * is only rendered again when an edit could change how it sounds. New renders are swapped in at
+ * the end of a loop, so playback never stops while the user edits. Renders use a snapshot of the
+ * song taken when it was edited, never the song the user is editing.
+ */
+public class LoopPlayer {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final long RERENDER_DELAY_MS = 250; // Lets a burst of edits finish first.
+    // Edits this close to the region can still change it through overlap or portamento.
+    private static final int EDIT_MARGIN_MS = 4 * Quantizer.COL_WIDTH;
+    private static final int CHUNK_FRAMES = 1024;
+
+    private final Engine engine;
+    private final SoundFileReader soundFileReader;
+    private final SongSnapshotter snapshotter;
+    private final ScheduledExecutorService renderThread;
+
+    private Optional<Loop> loop;
+
+    /** One region being played on repeat, from when it's started to when it's stopped. */
+    private static class Loop {
+        private final RegionBounds region;
+        private final RenderQuality quality;
+        private final Runnable onPlaying;
+        private final AtomicReference<DecodedSample> nextBuffer; // Swapped in at loop boundary.
+        private final Deque<long[]> iterations; // First frame and length of each loop written.
+
+        private volatile Callable<Song> song; // Snapshot of the song to render next.
+        private volatile boolean isStopped;
+        private volatile SourceDataLine line;
+        private ScheduledFuture<?> scheduledRender;
+        private boolean isStarted; // Only accessed on the render thread.
+
+        private Loop(
+                Callable<Song> song,
+                RegionBounds region,
+                RenderQuality quality,
+                Runnable onPlaying) {
+            this.song = song;
+            this.region = region;
+            this.quality = quality;
+            this.onPlaying = onPlaying;
+            this.nextBuffer = new AtomicReference<>();
+            this.iterations = new ArrayDeque<>();
+        }
+    }
+
+    @Inject
+    public LoopPlayer(
+            Engine engine,
+            SoundFileReader soundFileReader,
+            SongSnapshotter snapshotter) {
+        this.engine = engine;
+        this.soundFileReader = soundFileReader;
+        this.snapshotter = snapshotter;
+        this.renderThread = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("loop-render-%d")
+                        .build());
+        this.loop = Optional.absent();
+    }
+
+    /**
+     * Renders a region in the background and plays it on repeat until stopped. The callback is
+     * run on the playback thread once audio actually starts. Renders after edits use the same
+     * quality as the first. Call this on the thread that edits the song.
+     */
+    public synchronized void startLoop(
+            Song song,
+            RegionBounds region,
+            RenderQuality quality,
+            Runnable onPlaying) {
+        stop();
+        Loop newLoop = new Loop(snapshotter.snapshot(song), region, quality, onPlaying);
+        loop = Optional.of(newLoop);
+        scheduleRender(newLoop, 0);
+    }
+
+    /** Stops the current loop, if any, and drops any render in progress. */
+    public synchronized void stop() {
+        if (!loop.isPresent()) {
+            return;
+        }
+        Loop oldLoop = loop.get();
+        oldLoop.isStopped = true;
+        if (oldLoop.scheduledRender != null) {
+            oldLoop.scheduledRender.cancel(false);
+        }
+        SourceDataLine line = oldLoop.line;
+        if (line != null) {
+            line.close(); // Unblocks the playback thread if it's waiting to write.
+        }
+        loop = Optional.absent();
+    }
+
+    public synchronized boolean isLooping() {
+        return loop.isPresent();
+    }
+
+    /**
+     * Tells the player that part of a song was edited, or that the song was replaced. The loop
+     * is rendered again if the edit is close enough to affect it. Call this on the thread that
+     * edits the song.
+     */
+    public synchronized void onSongChange(Song song, RegionBounds edited) {
+        if (!loop.isPresent()) {
+            return;
+        }
+        Loop curLoop = loop.get();
+        long minMs = (long) curLoop.region.getMinMs() - EDIT_MARGIN_MS;
+        long maxMs = (long) curLoop.region.getMaxMs() + EDIT_MARGIN_MS;
+        if (edited.getMaxMs() > minMs && edited.getMinMs() < maxMs) {
+            curLoop.song = snapshotter.snapshot(song);
+            scheduleRender(curLoop, RERENDER_DELAY_MS);
+        }
+    }
+
+    /**
+     * How far into the current loop playback is, in ms of audio, or -1 if nothing is playing.
+     * Safe to call from any thread.
+     */
+    public double getPositionMs() {
+        Optional<Loop> curLoop;
+        synchronized (this) {
+            curLoop = loop;
+        }
+        if (!curLoop.isPresent() || curLoop.get().line == null) {
+            return -1;
+        }
+        SourceDataLine line = curLoop.get().line;
+        long playedFrame = line.getLongFramePosition();
+        Deque<long[]> iterations = curLoop.get().iterations;
+        synchronized (iterations) {
+            // Drop loops that finished playing, keeping the one that's playing now.
+            while (iterations.size() > 1 && iterations.peekFirst()[0]
+                    + iterations.peekFirst()[1] <= playedFrame) {
+                iterations.removeFirst();
+            }
+            if (iterations.isEmpty()) {
+                return -1;
+            }
+            long framesIntoLoop = Math.max(0, playedFrame - iterations.peekFirst()[0]);
+            return framesIntoLoop * 1000.0 / line.getFormat().getSampleRate();
+        }
+    }
+
+    // Must hold the lock on this player.
+    private void scheduleRender(Loop curLoop, long delayMs) {
+        if (curLoop.scheduledRender != null) {
+            curLoop.scheduledRender.cancel(false);
+        }
+        curLoop.scheduledRender =
+                renderThread.schedule(() -> render(curLoop), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void render(Loop curLoop) {
+        if (curLoop.isStopped) {
+            return;
+        }
+        Song song;
+        try {
+            song = curLoop.song.call();
+        } catch (Exception e) {
+            errorLogger.logError(e);
+            return;
+        }
+        Optional<File> rendered = engine.render(song, curLoop.region, curLoop.quality);
+        if (!rendered.isPresent()) {
+            return;
+        }
+        Optional<MappedWavFile> wav = soundFileReader.readWav(rendered.get());
+        if (!wav.isPresent()) {
+            return;
+        }
+        DecodedSample buffer = DecodedSample.decode(wav.get(), rendered.get().lastModified());
+        // The render is in memory now, so its temporary files are no longer needed.
+        FileUtils.deleteQuietly(rendered.get().getParentFile());
+        if (curLoop.isStopped || buffer.getNumFrames() == 0) {
+            return;
+        }
+        curLoop.nextBuffer.set(buffer);
+        if (!curLoop.isStarted) {
+            curLoop.isStarted = true;
+            Thread playbackThread = new Thread(() -> play(curLoop), "loop-playback");
+            playbackThread.setDaemon(true);
+            playbackThread.start();
+        }
+    }
+
+    private void play(Loop curLoop) {
+        DecodedSample buffer = curLoop.nextBuffer.getAndSet(null);
+        AudioFormat format = new AudioFormat(buffer.getSampleRate(), 16, 1, true, false);
+        byte[] chunk = new byte[CHUNK_FRAMES * 2];
+        long framesWritten = 0;
+        try {
+            SourceDataLine line = AudioSystem.getSourceDataLine(format);
+            line.open(format);
+            curLoop.line = line;
+            if (curLoop.isStopped) {
+                line.close(); // Stopped while the line was opening.
+                return;
+            }
+            line.start();
+            curLoop.onPlaying.run();
+            while (!curLoop.isStopped && line.isOpen()) {
+                DecodedSample next = curLoop.nextBuffer.getAndSet(null);
+                if (next != null && next.getSampleRate() == buffer.getSampleRate()) {
+                    buffer = next; // Swap in a newer render at the start of a loop.
+                }
+                int numFrames = buffer.getNumFrames();
+                synchronized (curLoop.iterations) {
+                    curLoop.iterations.addLast(new long[] {framesWritten, numFrames});
+                }
+                for (int frame = 0; frame < numFrames; frame += CHUNK_FRAMES) {
+                    if (curLoop.isStopped) {
+                        break;
+                    }
+                    int length = Math.min(CHUNK_FRAMES, numFrames - frame);
+                    for (int i = 0; i < length; i++) {
+                        short sample = buffer.getPcmSample(frame + i);
+                        chunk[i * 2] = (byte) sample;
+                        chunk[i * 2 + 1] = (byte) (sample >> 8);
+                    }
+                    line.write(chunk, 0, length * 2);
+                }
+                framesWritten += numFrames;
+            }
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            // No audio output that can play this format.
+            errorLogger.logError(e);
+        } finally {
+            SourceDataLine line = curLoop.line;
+            if (line != null) {
+                line.close();
+            }
+        }
+    }
+}
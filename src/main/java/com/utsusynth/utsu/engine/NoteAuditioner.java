@@ -0,0 +1,223 @@
+package com.utsusynth.utsu.engine;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.openal.AL;
+import org.lwjgl.openal.AL10;
+import org.lwjgl.openal.ALC;
+import org.lwjgl.openal.ALC10;
+import org.lwjgl.openal.ALCCapabilities;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.utsusynth.utsu.common.RegionBounds;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.files.DecodedSample;
+import com.utsusynth.utsu.files.MappedFrqFile;
+import com.utsusynth.utsu.files.SampleCache;
+import com.utsusynth.utsu.files.SoundFileReader;
+import com.utsusynth.utsu.model.song.Note;
+import com.utsusynth.utsu.model.song.NoteIterator;
+import com.utsusynth.utsu.model.song.Song;
+import com.utsusynth.utsu.model.voicebank.LyricConfig;
+
+/**
+ * Plays a single note or alias straight from its voicebank sample through OpenAL, skipping the
+ * resampler and wavtool so that it can be heard right after it's clicked or edited. The sample is
+ * shifted to the note's pitch by changing its playback rate, so this is only a preview of what
+ * the full render will sound like.
+ */
+public class NoteAuditioner {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final double MAX_NOTE_MS = 3000; // Longest note audition.
+    private static final double FADE_MS = 5; // Fade in and out to avoid clicks.
+    private static final double MIN_PITCH_RATIO = 0.5;
+    private static final double MAX_PITCH_RATIO = 2.0;
+
+    private final SoundFileReader soundFileReader;
+    private final SampleCache sampleCache;
+    private final ExecutorService audioThread; // Only thread that makes OpenAL calls.
+
+    private boolean isOpen; // Whether an OpenAL device was opened successfully.
+    private int source;
+    private int buffer;
+
+    /** An alias within a decoded sample, from its offset to its cutoff. */
+    private static class Slice {
+        private final DecodedSample sample;
+        private final int startFrame;
+        private final int numFrames;
+        private final double averageFreq; // From the alias's frq file, or 0 if there is none.
+
+        private Slice(DecodedSample sample, int startFrame, int numFrames, double averageFreq) {
+            this.sample = sample;
+            this.startFrame = startFrame;
+            this.numFrames = numFrames;
+            this.averageFreq = averageFreq;
+        }
+    }
+
+    @Inject
+    public NoteAuditioner(SoundFileReader soundFileReader, SampleCache sampleCache) {
+        this.soundFileReader = soundFileReader;
+        this.sampleCache = sampleCache;
+        this.audioThread = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("audition-%d").build());
+
+        // Open the device up front so the first audition doesn't have to wait for it.
+        runOnAudioThread(this::openDevice);
+    }
+
+    /**
+     * Plays the song note at a position at roughly its pitch and length. Must be called on the
+     * same thread that edits the song.
+     */
+    public void auditionNote(Song song, int positionMs) {
+        NoteIterator notes = song.getNoteIterator(new RegionBounds(positionMs, positionMs + 1));
+        int totalDelta = notes.getCurDelta();
+        while (notes.hasNext()) {
+            Note note = notes.next();
+            totalDelta += note.getDelta();
+            if (totalDelta != positionMs) {
+                continue;
+            }
+            Optional<LyricConfig> config = note.getTrueLyric().isEmpty() ? Optional.absent()
+                    : song.getVoicebank().getLyricConfig(note.getTrueLyric());
+            if (!config.isPresent()) {
+                return;
+            }
+            File wavFile = config.get().getPathToFile();
+            double offsetMs = config.get().getOffset();
+            double cutoffMs = config.get().getCutoff();
+            double duration =
+                    note.getRealDuration() > -1 ? note.getRealDuration() : note.getDuration();
+            double lengthMs = note.getRealPreutter() + duration;
+            int noteNum = note.getNoteNum();
+            runOnAudioThread(() -> {
+                Optional<Slice> slice = getSlice(wavFile, offsetMs, cutoffMs);
+                if (slice.isPresent()) {
+                    play(
+                            slice.get(),
+                            Math.min(lengthMs, MAX_NOTE_MS),
+                            getPitchRatio(slice.get(), noteNum));
+                }
+            });
+            return;
+        }
+    }
+
+    /** Plays all of an alias of a voicebank at its original pitch, from offset to cutoff. */
+    public void auditionAlias(File wavFile, double offsetMs, double cutoffMs) {
+        runOnAudioThread(() -> {
+            Optional<Slice> slice = getSlice(wavFile, offsetMs, cutoffMs);
+            if (slice.isPresent()) {
+                int sampleRate = slice.get().sample.getSampleRate();
+                play(slice.get(), slice.get().numFrames * 1000.0 / sampleRate, 1.0);
+            }
+        });
+    }
+
+    /** Stops whatever is currently being auditioned. */
+    public void stop() {
+        runOnAudioThread(() -> {
+            if (isOpen) {
+                AL10.alSourceStop(source);
+            }
+        });
+    }
+
+    // Logs failures, which would otherwise be lost along with the task.
+    private void runOnAudioThread(Runnable task) {
+        audioThread.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                errorLogger.logError(e);
+            }
+        });
+    }
+
+    private void openDevice() {
+        try {
+            long device = ALC10.alcOpenDevice((ByteBuffer) null);
+            if (device == 0) {
+                errorLogger.logWarning("No audio device found, auditions are disabled.");
+                return;
+            }
+            ALCCapabilities deviceCapabilities = ALC.createCapabilities(device);
+            long context = ALC10.alcCreateContext(device, (IntBuffer) null);
+            ALC10.alcMakeContextCurrent(context);
+            AL.createCapabilities(deviceCapabilities);
+            source = AL10.alGenSources();
+            buffer = AL10.alGenBuffers();
+            isOpen = true;
+        } catch (Throwable e) {
+            // OpenAL natives may be missing on this platform, which only disables auditions.
+            errorLogger.logWarning(e);
+        }
+    }
+
+    private Optional<Slice> getSlice(File wavFile, double offsetMs, double cutoffMs) {
+        Optional<DecodedSample> wav = sampleCache.get(wavFile);
+        if (!wav.isPresent()) {
+            return Optional.absent();
+        }
+        int startFrame = wav.get().getStartFrame(offsetMs);
+        int numFrames = wav.get().getEndFrame(offsetMs, cutoffMs) - startFrame;
+
+        double averageFreq = 0;
+        String wavName = wavFile.getName();
+        File frqFile = new File(
+                wavFile.getParent(),
+                wavName.substring(0, wavName.length() - 4) + "_wav.frq");
+        if (frqFile.canRead()) {
+            Optional<MappedFrqFile> frq = soundFileReader.readFrq(frqFile);
+            if (frq.isPresent()) {
+                averageFreq = frq.get().getAverageFreq();
+            }
+        }
+        return Optional.of(new Slice(wav.get(), startFrame, numFrames, averageFreq));
+    }
+
+    private static double getPitchRatio(Slice slice, int noteNum) {
+        if (slice.averageFreq <= 0) {
+            return 1.0; // Pitch of the sample is unknown, so play it as-is.
+        }
+        double noteFreq = 440 * Math.pow(2, (noteNum - 69) / 12.0);
+        return Math.max(MIN_PITCH_RATIO, Math.min(MAX_PITCH_RATIO, noteFreq / slice.averageFreq));
+    }
+
+    private void play(Slice slice, double lengthMs, double pitchRatio) {
+        if (!isOpen) {
+            return;
+        }
+        // A higher pitch plays samples faster, so more of them are needed to fill the same time.
+        int sampleRate = slice.sample.getSampleRate();
+        int numFrames =
+                (int) Math.min(slice.numFrames, lengthMs * pitchRatio * sampleRate / 1000);
+        if (numFrames <= 0) {
+            return;
+        }
+        int fadeFrames =
+                Math.max(1, Math.min(numFrames / 2, (int) (FADE_MS * sampleRate / 1000)));
+        ShortBuffer pcm = BufferUtils.createShortBuffer(numFrames);
+        for (int i = 0; i < numFrames; i++) {
+            double gain = Math.min(1.0, Math.min(i, numFrames - 1 - i) / (double) fadeFrames);
+            pcm.put((short) Math.round(slice.sample.getPcmSample(slice.startFrame + i) * gain));
+        }
+        pcm.flip();
+
+        // Replace whatever was playing with the new buffer.
+        AL10.alSourceStop(source);
+        AL10.alSourcei(source, AL10.AL_BUFFER, 0);
+        AL10.alBufferData(buffer, AL10.AL_FORMAT_MONO16, pcm, sampleRate);
+        AL10.alSourcef(source, AL10.AL_PITCH, (float) pitchRatio);
+        AL10.alSourceQueueBuffers(source, buffer);
+        AL10.alSourcePlay(source);
+    }
+}
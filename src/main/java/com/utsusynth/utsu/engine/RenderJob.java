@@ -0,0 +1,139 @@
+package com.utsusynth.utsu.engine;
+
+import java.util.concurrent.Callable;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.utsusynth.utsu.model.song.Song;
+
+/** One song to play or export through the {@link RenderQueue}. */
+public class RenderJob {
+    /** Jobs with earlier priorities run first. Playback also pauses every other kind of job. */
+    public enum Priority {
+        PLAYBACK, HIGH, NORMAL, LOW,
+    }
+
+    public enum State {
+        QUEUED, RUNNING, PAUSED, DONE, FAILED, CANCELLED,
+    }
+
+    /** What a job does with its song once it's loaded. Returns whether it succeeded. */
+    interface Work {
+        boolean render(Song song, RenderMonitor monitor) throws Exception;
+    }
+
+    private final String name;
+    private final long sequence; // Order jobs were added in, for jobs of the same priority.
+    private final Callable<Song> songLoader;
+    private final Work work;
+    private final long queuedMs;
+    private final SettableFuture<Boolean> result;
+
+    // Written by the render queue, read by anything showing the job.
+    private volatile Priority priority;
+    private volatile State state;
+    private volatile int notesDone;
+    private volatile int numNotes;
+    private volatile long startMs;
+    private volatile long endMs;
+    private volatile boolean isCancelRequested;
+
+    RenderJob(
+            String name,
+            Priority priority,
+            long sequence,
+            Callable<Song> songLoader,
+            Work work) {
+        this.name = name;
+        this.priority = priority;
+        this.sequence = sequence;
+        this.songLoader = songLoader;
+        this.work = work;
+        this.queuedMs = System.currentTimeMillis();
+        this.result = SettableFuture.create();
+        this.state = State.QUEUED;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isFinished() {
+        return state == State.DONE || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    /** Fraction of notes rendered so far, or -1 if the number of notes isn't known yet. */
+    public double getProgress() {
+        if (state == State.DONE) {
+            return 1;
+        }
+        int total = numNotes;
+        return total > 0 ? (double) notesDone / total : -1;
+    }
+
+    /** Time spent waiting to start, so far if the job hasn't started yet. */
+    public long getWaitMs() {
+        long start = startMs;
+        if (start > 0) {
+            return start - queuedMs;
+        }
+        return isFinished() ? endMs - queuedMs : System.currentTimeMillis() - queuedMs;
+    }
+
+    /** Time spent loading and rendering, including pauses. 0 if the job hasn't started. */
+    public long getRenderMs() {
+        long start = startMs;
+        if (start <= 0) {
+            return 0;
+        }
+        return isFinished() ? endMs - start : System.currentTimeMillis() - start;
+    }
+
+    /** Completes with true once the job succeeds, or false if it fails or is cancelled. */
+    public ListenableFuture<Boolean> getResult() {
+        return result;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    void setProgress(int notesDone, int numNotes) {
+        this.notesDone = notesDone;
+        this.numNotes = numNotes;
+    }
+
+    boolean isCancelRequested() {
+        return isCancelRequested;
+    }
+
+    void requestCancel() {
+        isCancelRequested = true;
+    }
+
+    boolean run(RenderMonitor monitor) throws Exception {
+        startMs = System.currentTimeMillis();
+        return work.render(songLoader.call(), monitor);
+    }
+
+    void finish(State finalState) {
+        endMs = System.currentTimeMillis();
+        state = finalState;
+        result.set(finalState == State.DONE);
+    }
+}
@@ -0,0 +1,14 @@
+package com.utsusynth.utsu.engine;
+
+/** Follows the progress of a render, and can pause or stop it between notes. */
+public interface RenderMonitor {
+    /** Monitor that lets every render run to the end. */
+    RenderMonitor NONE = (noteIndex, numNotes) -> true;
+
+    /**
+     * Called on the render thread before each note is rendered. May block to pause the render.
+     *
+     * @return false to stop the render, which then produces no output
+     */
+    boolean beforeNote(int noteIndex, int numNotes);
+}
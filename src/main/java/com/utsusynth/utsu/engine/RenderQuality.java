@@ -0,0 +1,13 @@
+package com.utsusynth.utsu.engine;
+
+/** How closely a render follows the song, traded against how quickly it's done. */
+public enum RenderQuality {
+    /** Every detail of the song. Exports always render at full quality. */
+    FULL,
+
+    /**
+     * For quick checks while composing. Vibrato is left out, pitchbends are coarser, and notes go
+     * to the draft resampler if one is set.
+     */
+    DRAFT,
+}
@@ -0,0 +1,214 @@
+package com.utsusynth.utsu.engine;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.utsusynth.utsu.common.RegionBounds;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.metrics.Metrics;
+import com.utsusynth.utsu.engine.RenderJob.Priority;
+import com.utsusynth.utsu.engine.RenderJob.State;
+import com.utsusynth.utsu.model.song.Song;
+import javafx.scene.media.MediaPlayer;
+
+/**
+ * App-wide queue of songs to play or export, from any tab or from files on disk. Up to a set
+ * number of jobs render at once, highest priority first. Playback always starts right away, and
+ * other jobs pause between notes until it's done rendering, so playback never waits on exports.
+ * Renders of the same notes share resampler output through the engine.
+ */
+public class RenderQueue {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final Metrics metrics = Metrics.getMetrics();
+
+    private final Engine engine;
+    private final ExecutorService workers;
+    private final PriorityQueue<RenderJob> pending;
+    private final List<RenderJob> jobs; // Every job not yet cleared, in the order added.
+
+    private int concurrency;
+    private int numRunning; // Jobs running other than playback.
+    private int numPlaybackRunning;
+    private long nextSequence;
+
+    public RenderQueue(Engine engine, int concurrency) {
+        this.engine = engine;
+        this.workers = Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("render-queue-%d")
+                        .build());
+        this.pending = new PriorityQueue<>(
+                Comparator.comparing(RenderJob::getPriority)
+                        .thenComparingLong(RenderJob::getSequence));
+        this.jobs = new ArrayList<>();
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Renders and plays part of an open song ahead of every other job. The callback receives the
+     * player once audio is playing.
+     */
+    public RenderJob enqueuePlayback(
+            String name,
+            Song song,
+            RegionBounds bounds,
+            Function<MediaPlayer, Void> callback) {
+        return enqueuePlayback(name, song, bounds, callback, RenderQuality.FULL);
+    }
+
+    /** Like enqueuePlayback, but can render a draft for a quicker start. */
+    public synchronized RenderJob enqueuePlayback(
+            String name,
+            Song song,
+            RegionBounds bounds,
+            Function<MediaPlayer, Void> callback,
+            RenderQuality quality) {
+        return enqueue(
+                name,
+                Priority.PLAYBACK,
+                () -> song,
+                (loadedSong, monitor) -> engine
+                        .playSong(loadedSong, callback, bounds, monitor, quality));
+    }
+
+    /**
+     * Renders a whole song to a wav file, always at full quality. The song is only loaded once the
+     * job starts, so it can be read from disk on a render thread. It must not return a song that
+     * is still being edited; pass a snapshot of an open song instead.
+     */
+    public synchronized RenderJob enqueueExport(
+            String name,
+            Callable<Song> song,
+            File destination,
+            Priority priority) {
+        if (priority == Priority.PLAYBACK) {
+            throw new IllegalArgumentException("Exports can't have playback priority.");
+        }
+        return enqueue(
+                name,
+                priority,
+                song,
+                (loadedSong, monitor) -> engine.renderWav(loadedSong, destination, monitor));
+    }
+
+    private RenderJob enqueue(
+            String name,
+            Priority priority,
+            Callable<Song> song,
+            RenderJob.Work work) {
+        RenderJob job = new RenderJob(name, priority, nextSequence++, song, work);
+        jobs.add(job);
+        pending.add(job);
+        startPendingJobs();
+        return job;
+    }
+
+    /** Removes a job that hasn't started, or stops a running job at its next note. */
+    public synchronized void cancel(RenderJob job) {
+        if (pending.remove(job)) {
+            job.finish(State.CANCELLED);
+        } else if (!job.isFinished()) {
+            job.requestCancel();
+            notifyAll(); // Wakes the job if it's paused.
+        }
+    }
+
+    /** Changes the priority of a job that hasn't started yet. */
+    public synchronized void setPriority(RenderJob job, Priority priority) {
+        if (priority == Priority.PLAYBACK || job.getPriority() == Priority.PLAYBACK) {
+            return;
+        }
+        if (pending.remove(job)) {
+            job.setPriority(priority);
+            pending.add(job);
+        }
+    }
+
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    /** Sets how many jobs other than playback can render at once. */
+    public synchronized void setConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+        startPendingJobs();
+    }
+
+    /** Every job that hasn't been cleared, in the order they were added. */
+    public synchronized ImmutableList<RenderJob> getJobs() {
+        return ImmutableList.copyOf(jobs);
+    }
+
+    /** Forgets every job that has finished. */
+    public synchronized void clearFinished() {
+        jobs.removeIf(RenderJob::isFinished);
+    }
+
+    // Called with the lock held.
+    private void startPendingJobs() {
+        while (!pending.isEmpty()) {
+            RenderJob next = pending.peek();
+            boolean isPlayback = next.getPriority() == Priority.PLAYBACK;
+            if (!isPlayback && numRunning >= concurrency) {
+                return;
+            }
+            pending.poll();
+            if (isPlayback) {
+                numPlaybackRunning++;
+            } else {
+                numRunning++;
+            }
+            next.setState(State.RUNNING);
+            workers.execute(() -> run(next));
+        }
+    }
+
+    private void run(RenderJob job) {
+        boolean succeeded = false;
+        try {
+            succeeded = job.run((noteIndex, numNotes) -> beforeNote(job, noteIndex, numNotes));
+        } catch (Exception e) {
+            errorLogger.logError(e);
+        }
+        synchronized (this) {
+            if (job.getPriority() == Priority.PLAYBACK) {
+                numPlaybackRunning--;
+                notifyAll(); // Resumes paused jobs.
+            } else {
+                numRunning--;
+            }
+            startPendingJobs();
+        }
+        metrics.timer("render.queueWait").record(job.getWaitMs(), TimeUnit.MILLISECONDS);
+        if (job.isCancelRequested()) {
+            job.finish(State.CANCELLED);
+        } else {
+            job.finish(succeeded ? State.DONE : State.FAILED);
+        }
+    }
+
+    // Pauses jobs other than playback while playback is rendering.
+    private synchronized boolean beforeNote(RenderJob job, int noteIndex, int numNotes) {
+        job.setProgress(noteIndex, numNotes);
+        while (job.getPriority() != Priority.PLAYBACK && numPlaybackRunning > 0
+                && !job.isCancelRequested()) {
+            job.setState(State.PAUSED);
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        job.setState(State.RUNNING);
+        return !job.isCancelRequested();
+    }
+}
@@ -0,0 +1,296 @@
+package com.utsusynth.utsu.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+
+/**
+ * Resamples notes for a {@link ResampleWorkerPool}, usually on another machine. Samples are sent
+ * the first time a note needs them and kept by content hash afterwards, so voicebanks don't have
+ * to be installed on workers. Several workers can run on one machine with different ports. Run it
+ * from the folder with the assets folder, like the app. Options:
+ *
+ * <pre>
+ * --port=7600        Port to listen on.
+ * --bind=127.0.0.1   Address to listen on. Use 0.0.0.0 to accept notes from other machines.
+ * --slots=4          Notes to resample at once. The number of cores by default.
+ * --resampler=path   Resampler to use instead of the one that comes with Utsu.
+ * --cacheDir=path    Where to keep samples, instead of a folder in the temporary folder.
+ * </pre>
+ */
+public class ResampleWorker {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final int MAX_ARGS = 64;
+    private static final int MAX_FILES = 16;
+
+    private final ExternalProcessRunner runner;
+    private final File resamplerPath;
+    private final File sampleDir;
+    private final File outputDir;
+    private final int numSlots;
+    private final Semaphore slots;
+    private final ExecutorService connectionThreads;
+    private final AtomicInteger numNotes;
+    private final AtomicInteger numSamplesReceived;
+    private final Set<Socket> openSockets;
+    private final Striped<Lock> sampleLocks;
+
+    private ServerSocket serverSocket;
+
+    /** The runner is shared by every slot, so it must be safe to call from several threads. */
+    public ResampleWorker(
+            ExternalProcessRunner runner,
+            File resamplerPath,
+            File cacheDir,
+            int numSlots) {
+        this.runner = runner;
+        this.resamplerPath = resamplerPath;
+        this.sampleDir = new File(cacheDir, "samples");
+        this.outputDir = new File(cacheDir, "output");
+        this.numSlots = numSlots;
+        this.slots = new Semaphore(numSlots);
+        this.connectionThreads = Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("resample-worker-%d")
+                        .build());
+        this.numNotes = new AtomicInteger();
+        this.numSamplesReceived = new AtomicInteger();
+        this.openSockets = ConcurrentHashMap.newKeySet();
+        this.sampleLocks = Striped.lock(64);
+    }
+
+    /** Starts listening for pools, on any free port if the port is 0. */
+    public void start(InetAddress address, int port) throws IOException {
+        sampleDir.mkdirs();
+        outputDir.mkdirs();
+        serverSocket = new ServerSocket(port, 50, address);
+        // Not a daemon, so that a worker started from the command line keeps running.
+        new Thread(this::acceptConnections, "resample-worker-accept").start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /** Notes resampled since this worker started. */
+    public int getNumNotes() {
+        return numNotes.get();
+    }
+
+    /** Sample files received since this worker started. */
+    public int getNumSamplesReceived() {
+        return numSamplesReceived.get();
+    }
+
+    /** Stops accepting connections and drops the open ones. */
+    public void stop() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            errorLogger.logWarning(e);
+        }
+        for (Socket socket : openSockets) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to do with it.
+            }
+        }
+        connectionThreads.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connectionThreads.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    errorLogger.logError(e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket accepted) {
+        openSockets.add(accepted);
+        try (Socket socket = accepted) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in =
+                    new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != WorkerProtocol.MAGIC || in.readInt() != WorkerProtocol.VERSION) {
+                errorLogger.logWarning("Unexpected connection from " + socket.getInetAddress());
+                return;
+            }
+            out.writeInt(numSlots);
+            out.flush();
+            while (!Thread.currentThread().isInterrupted()) {
+                String command = WorkerProtocol.readString(in);
+                if (!command.equals(WorkerProtocol.RESAMPLE)) {
+                    throw new IOException("Unknown command: " + command);
+                }
+                resample(in, out);
+            }
+        } catch (EOFException | SocketException e) {
+            // The pool closed its connection.
+        } catch (IOException e) {
+            errorLogger.logWarning(e);
+        } finally {
+            openSockets.remove(accepted);
+        }
+    }
+
+    private void resample(DataInputStream in, DataOutputStream out) throws IOException {
+        String[] args = new String[WorkerProtocol.readCount(in, MAX_ARGS)];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = WorkerProtocol.readString(in);
+        }
+        int numFiles = WorkerProtocol.readCount(in, MAX_FILES);
+        String[] suffixes = new String[numFiles];
+        String[] hashes = new String[numFiles];
+        for (int i = 0; i < numFiles; i++) {
+            suffixes[i] = WorkerProtocol.readString(in);
+            hashes[i] = WorkerProtocol.readString(in);
+            // These become file names, so only accept what a pool would send.
+            boolean isKnownSuffix = suffixes[i].equals(WorkerProtocol.WAV_SUFFIX)
+                    || suffixes[i].equals(WorkerProtocol.FRQ_SUFFIX);
+            if (!isKnownSuffix || !hashes[i].matches("[0-9a-f]{64}")) {
+                throw new IOException("Unexpected sample file: " + suffixes[i] + " " + hashes[i]);
+            }
+        }
+        if (numFiles < 1 || !suffixes[0].equals(WorkerProtocol.WAV_SUFFIX)) {
+            throw new IOException("Expected a wav file first.");
+        }
+        // Keep a sample's files together under one name, as the resampler expects.
+        String sampleName = String.join("-", hashes);
+        File[] files = new File[numFiles];
+        // Other connections wanting the same sample wait for it instead of asking for it too.
+        Lock sampleLock = sampleLocks.get(sampleName);
+        sampleLock.lock();
+        try {
+            Map<String, File> missing = new HashMap<>();
+            for (int i = 0; i < numFiles; i++) {
+                files[i] = new File(sampleDir, sampleName + suffixes[i]);
+                if (!files[i].isFile()) {
+                    missing.put(hashes[i], files[i]);
+                }
+            }
+            if (!missing.isEmpty()) {
+                WorkerProtocol.writeString(out, WorkerProtocol.NEED);
+                out.writeInt(missing.size());
+                for (String hash : missing.keySet()) {
+                    WorkerProtocol.writeString(out, hash);
+                }
+                out.flush();
+                for (int i = 0; i < missing.size(); i++) {
+                    receiveFile(in, missing);
+                }
+            }
+        } finally {
+            sampleLock.unlock();
+        }
+
+        File outputFile = File.createTempFile("note", ".wav", outputDir);
+        try {
+            String[] command = new String[args.length + 3];
+            command[0] = resamplerPath.getAbsolutePath();
+            command[1] = files[0].getAbsolutePath();
+            command[2] = outputFile.getAbsolutePath();
+            System.arraycopy(args, 0, command, 3, args.length);
+            slots.acquireUninterruptibly();
+            try {
+                runner.runProcess(command);
+            } finally {
+                slots.release();
+            }
+            if (outputFile.length() > 0) {
+                WorkerProtocol.writeString(out, WorkerProtocol.DONE);
+                WorkerProtocol.writeFile(out, outputFile);
+                numNotes.incrementAndGet();
+            } else {
+                WorkerProtocol.writeString(out, WorkerProtocol.ERROR);
+                WorkerProtocol.writeString(out, "The resampler wrote nothing.");
+            }
+            out.flush();
+        } finally {
+            outputFile.delete();
+        }
+    }
+
+    // Checks the hash of each file received, and only then gives it its final name.
+    private void receiveFile(DataInputStream in, Map<String, File> missing) throws IOException {
+        String hash = WorkerProtocol.readString(in);
+        File file = missing.get(hash);
+        if (file == null) {
+            throw new IOException("Received a file that wasn't asked for: " + hash);
+        }
+        File partFile = File.createTempFile("sample", ".part", sampleDir);
+        try {
+            WorkerProtocol.readFile(in, partFile);
+            String actualHash = com.google.common.io.Files.asByteSource(partFile)
+                    .hash(Hashing.sha256()).toString();
+            if (!actualHash.equals(hash)) {
+                throw new IOException("Expected hash " + hash + " but got " + actualHash);
+            }
+            Files.move(partFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            numSamplesReceived.incrementAndGet();
+        } finally {
+            partFile.delete();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int equals = arg.indexOf('=');
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        int port = Integer.parseInt(options.getOrDefault("port", "7600"));
+        InetAddress address = options.containsKey("bind")
+                ? InetAddress.getByName(options.get("bind"))
+                : InetAddress.getLoopbackAddress();
+        int numSlots = Integer.parseInt(
+                options.getOrDefault(
+                        "slots",
+                        Integer.toString(Runtime.getRuntime().availableProcessors())));
+        File resamplerPath = options.containsKey("resampler")
+                ? new File(options.get("resampler"))
+                : EngineModule.getDefaultResamplerPath();
+        File cacheDir = options.containsKey("cacheDir") ? new File(options.get("cacheDir"))
+                : new File(System.getProperty("java.io.tmpdir"), "utsu-resample-worker");
+
+        ResampleWorker worker =
+                new ResampleWorker(new ExternalProcessRunner(), resamplerPath, cacheDir, numSlots);
+        worker.start(address, port);
+        errorLogger.logInfo(
+                "Resample worker listening on " + address.getHostAddress() + ":"
+                        + worker.getPort() + " with " + numSlots + " slots");
+    }
+}
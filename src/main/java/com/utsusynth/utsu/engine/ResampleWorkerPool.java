@@ -0,0 +1,178 @@
+package com.utsusynth.utsu.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.metrics.Metrics;
+import com.utsusynth.utsu.engine.WorkerConnection.SampleFile;
+
+/**
+ * Resamples notes on {@link ResampleWorker}s, so that a long render can use more than one machine.
+ * Each note goes to whichever worker is free first. Workers keep voicebank samples by their
+ * content hash, so each worker only receives each sample once.
+ */
+public class ResampleWorkerPool {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final Metrics metrics = Metrics.getMetrics();
+    private static final int DEFAULT_PORT = 7600;
+    private static final int MAX_HASHES = 4096;
+
+    private final BlockingQueue<WorkerConnection> idleConnections;
+    private final AtomicInteger numConnections;
+    private final ListeningExecutorService requestThreads;
+    // Content hashes of sample files, by path, size and last modified time.
+    private final Cache<String, String> sampleHashes;
+
+    private ResampleWorkerPool(List<WorkerConnection> connections) {
+        this.idleConnections = new LinkedBlockingQueue<>(connections);
+        this.numConnections = new AtomicInteger(connections.size());
+        this.requestThreads = MoreExecutors.listeningDecorator(
+                Executors.newCachedThreadPool(
+                        new ThreadFactoryBuilder().setDaemon(true)
+                                .setNameFormat("resample-pool-%d").build()));
+        this.sampleHashes = CacheBuilder.newBuilder().maximumSize(MAX_HASHES).build();
+    }
+
+    /**
+     * Connects to workers listed like "localhost:7600,render2:7600", opening one connection for
+     * each note a worker can resample at once. Workers that can't be reached are skipped.
+     */
+    public static ResampleWorkerPool connect(String workerAddresses) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String address : workerAddresses.split(",")) {
+            if (!address.trim().isEmpty()) {
+                HostAndPort hostAndPort =
+                        HostAndPort.fromString(address.trim()).withDefaultPort(DEFAULT_PORT);
+                addresses.add(
+                        new InetSocketAddress(hostAndPort.getHost(), hostAndPort.getPort()));
+            }
+        }
+        return connect(addresses);
+    }
+
+    public static ResampleWorkerPool connect(List<InetSocketAddress> workerAddresses) {
+        List<WorkerConnection> connections = new ArrayList<>();
+        for (InetSocketAddress address : workerAddresses) {
+            try {
+                WorkerConnection first = WorkerConnection.open(address);
+                connections.add(first);
+                for (int i = 1; i < first.getNumSlots(); i++) {
+                    connections.add(WorkerConnection.open(address));
+                }
+                errorLogger.logInfo(
+                        "Resampling on " + address + " with " + first.getNumSlots() + " slots");
+            } catch (IOException e) {
+                errorLogger.logWarning("Could not connect to resample worker at " + address);
+                errorLogger.logWarning(e);
+            }
+        }
+        return new ResampleWorkerPool(connections);
+    }
+
+    /** How many notes can be resampled at once across every worker. */
+    public int getCapacity() {
+        return numConnections.get();
+    }
+
+    /**
+     * Resamples a note on the next free worker. Fails if the worker fails or no workers are left.
+     *
+     * @param resamplerArgs The arguments the resampler takes after its output file.
+     */
+    ListenableFuture<File> resample(String[] resamplerArgs, File inputFile, File outputFile) {
+        return requestThreads.submit(() -> {
+            List<SampleFile> sampleFiles = new ArrayList<>();
+            sampleFiles.add(
+                    new SampleFile(WorkerProtocol.WAV_SUFFIX, getHash(inputFile), inputFile));
+            File frqFile = getFrqFile(inputFile);
+            if (frqFile.isFile()) {
+                sampleFiles.add(
+                        new SampleFile(WorkerProtocol.FRQ_SUFFIX, getHash(frqFile), frqFile));
+            }
+            WorkerConnection connection = takeConnection();
+            try {
+                metrics.timer("render.resampleRemote").time(
+                        () -> connection.resample(resamplerArgs, sampleFiles, outputFile));
+                idleConnections.add(connection);
+                return outputFile;
+            } catch (WorkerConnection.ResampleException e) {
+                // Only this note failed, and the worker is ready for the next one.
+                idleConnections.add(connection);
+                metrics.counter("render.workerFailures").increment();
+                throw e;
+            } catch (IOException e) {
+                // Don't give this worker any more notes over this connection.
+                connection.close();
+                numConnections.decrementAndGet();
+                metrics.counter("render.workerFailures").increment();
+                throw e;
+            }
+        });
+    }
+
+    /** Closes every connection, once any notes being resampled are done. */
+    public void close() {
+        requestThreads.shutdown();
+        WorkerConnection connection;
+        while (numConnections.get() > 0 && (connection = pollConnection()) != null) {
+            connection.close();
+            numConnections.decrementAndGet();
+        }
+    }
+
+    private WorkerConnection takeConnection() throws IOException, InterruptedException {
+        while (numConnections.get() > 0) {
+            WorkerConnection connection = idleConnections.poll(100, TimeUnit.MILLISECONDS);
+            if (connection != null) {
+                return connection;
+            }
+        }
+        throw new IOException("No resample workers are connected.");
+    }
+
+    private WorkerConnection pollConnection() {
+        try {
+            return idleConnections.poll(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private String getHash(File file) throws IOException {
+        String key = file.getAbsolutePath() + '\u0000' + file.length() + '\u0000'
+                + file.lastModified();
+        try {
+            return sampleHashes
+                    .get(key, () -> Files.asByteSource(file).hash(Hashing.sha256()).toString());
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    // Where the resampler looks for a sample's frequency file.
+    static File getFrqFile(File wavFile) {
+        String wavName = wavFile.getName();
+        return new File(
+                wavFile.getParentFile(),
+                wavName.substring(0, wavName.length() - 4) + "_wav.frq");
+    }
+}
@@ -1,30 +1,52 @@
 package com.utsusynth.utsu.engine;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
 import com.utsusynth.utsu.common.PitchUtils;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.metrics.Metrics;
 import com.utsusynth.utsu.model.song.Note;
 import com.utsusynth.utsu.model.song.Song;
 import com.utsusynth.utsu.model.voicebank.LyricConfig;
 
 public class Resampler {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final Metrics metrics = Metrics.getMetrics();
     private static final File SILENCE_PATH = new File("assets/silence.wav");
+    private static final int MAX_SHARED_OUTPUTS = 4096;
 
     private final ExternalProcessRunner runner;
+    // Recent resampler output by resampler arguments, so that renders of the same note reuse it.
+    private final Cache<String, File> sharedOutputs;
 
     @Inject
     Resampler(ExternalProcessRunner runner) {
         this.runner = runner;
+        this.sharedOutputs = CacheBuilder.newBuilder().maximumSize(MAX_SHARED_OUTPUTS).build();
     }
 
-    void resample(
+    /**
+     * Resamples a note into the output file, on a worker if there are any. Completes once the
+     * output file is written. Notes that a worker fails to resample are resampled here instead.
+     */
+    ListenableFuture<File> resample(
             File resamplerPath,
             Note note,
             double noteLength,
             LyricConfig config,
             File outputFile,
             String pitchString,
-            Song song) {
+            Song song,
+            Optional<ResampleWorkerPool> workers) {
         String inputFilePath = config.getPathToFile().getAbsolutePath();
         String outputFilePath = outputFile.getAbsolutePath();
         String pitch = PitchUtils.noteNumToPitch(note.getNoteNum());
@@ -39,8 +61,7 @@ public class Resampler {
         String modulation = Integer.toString(note.getModulation()); // TODO: Set this song-wide?
         String tempo = "T" + Double.toString(song.getTempo()); // TODO: Override with note tempo.
 
-        // Call resampler.
-        runner.runProcess(
+        String[] args = {
                 resamplerPath.getAbsolutePath(),
                 inputFilePath,
                 outputFilePath,
@@ -54,7 +75,58 @@ public class Resampler {
                 intensity,
                 modulation,
                 tempo,
-                pitchString);
+                pitchString};
+
+        // Reuse output from an earlier render if nothing that affects it has changed.
+        String key = getSharingKey(args, config.getPathToFile());
+        File sharedOutput = sharedOutputs.getIfPresent(key);
+        if (sharedOutput != null && sharedOutput.isFile()) {
+            try {
+                Files.copy(sharedOutput, outputFile);
+                metrics.counter("render.resampleShared").increment();
+                return Futures.immediateFuture(outputFile);
+            } catch (IOException e) {
+                errorLogger.logWarning(e);
+            }
+        }
+
+        if (workers.isPresent() && workers.get().getCapacity() > 0) {
+            String[] workerArgs = Arrays.copyOfRange(args, 3, args.length);
+            ListenableFuture<File> remoteOutput =
+                    workers.get().resample(workerArgs, config.getPathToFile(), outputFile);
+            ListenableFuture<File> cachedOutput = Futures.transform(remoteOutput, output -> {
+                sharedOutputs.put(key, output);
+                return output;
+            }, MoreExecutors.directExecutor());
+            return Futures.catching(cachedOutput, IOException.class, e -> {
+                errorLogger.logWarning(e);
+                return resampleLocally(args, key, outputFile);
+            }, MoreExecutors.directExecutor());
+        }
+        return Futures.immediateFuture(resampleLocally(args, key, outputFile));
+    }
+
+    private File resampleLocally(String[] args, String key, File outputFile) {
+        // Call resampler.
+        metrics.timer("render.resample").time(() -> runner.runProcess(args));
+        if (outputFile.isFile()) {
+            sharedOutputs.put(key, outputFile);
+        }
+        return outputFile;
+    }
+
+    // Every argument but the output file, plus when the input file and its frq file were last
+    // changed. A missing frq file counts as last changed at 0, so adding one changes the key.
+    private static String getSharingKey(String[] args, File inputFile) {
+        File frqFile = ResampleWorkerPool.getFrqFile(inputFile);
+        StringBuilder key = new StringBuilder().append(inputFile.lastModified()).append(':')
+                .append(frqFile.lastModified());
+        for (int i = 0; i < args.length; i++) {
+            if (i != 2) {
+                key.append('\u0000').append(args[i]);
+            }
+        }
+        return key.toString();
     }
 
     void resampleSilence(File resamplerPath, File outputFile, double duration) {
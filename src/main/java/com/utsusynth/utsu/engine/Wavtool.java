@@ -2,11 +2,14 @@ package com.utsusynth.utsu.engine;
 
 import java.io.File;
 import com.google.inject.Inject;
+import com.utsusynth.utsu.common.metrics.Metrics;
 import com.utsusynth.utsu.model.song.Song;
 import com.utsusynth.utsu.model.song.Note;
 import com.utsusynth.utsu.model.voicebank.LyricConfig;
 
 public class Wavtool {
+    private static final Metrics metrics = Metrics.getMetrics();
+
     private final ExternalProcessRunner runner;
 
     @Inject
@@ -39,7 +42,7 @@ public class Wavtool {
         double scaleFactor = 125 / song.getTempo();
 
         // Call wavtool to add new note onto the end of the output file.
-        runner.runProcess(
+        String[] args = {
                 wavtoolPath.getAbsolutePath(),
                 outputFilePath,
                 inputFilePath,
@@ -56,7 +59,8 @@ public class Wavtool {
                 envelope[8], // p4
                 envelope[9], // p5
                 envelope[10], // v5
-                triggerSynthesis ? "LAST_NOTE" : ""); // Triggers final song processing.
+                triggerSynthesis ? "LAST_NOTE" : ""}; // Triggers final song processing.
+        metrics.timer("render.wavtool").time(() -> runner.runProcess(args));
     }
 
     void addSilence(
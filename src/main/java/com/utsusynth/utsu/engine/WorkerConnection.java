@@ -0,0 +1,146 @@
+package com.utsusynth.utsu.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import com.utsusynth.utsu.common.metrics.Metrics;
+
+/** One connection to a {@link ResampleWorker}, which resamples one note at a time. */
+class WorkerConnection implements Closeable {
+    private static final Metrics metrics = Metrics.getMetrics();
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    // Longest wait for any reply, including the time to resample a note.
+    private static final int READ_TIMEOUT_MS = 2 * 60 * 1000;
+    private static final int MAX_NEEDED_FILES = 16;
+
+    private final InetSocketAddress address;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final int numSlots;
+
+    /** The worker couldn't resample a note, but the connection can still be used. */
+    static class ResampleException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private ResampleException(String message) {
+            super(message);
+        }
+    }
+
+    /** A voicebank file a worker needs to resample a note. */
+    static class SampleFile {
+        private final String suffix; // How the resampler expects the file to be named.
+        private final String hash;
+        private final File file;
+
+        SampleFile(String suffix, String hash, File file) {
+            this.suffix = suffix;
+            this.hash = hash;
+            this.file = file;
+        }
+    }
+
+    private WorkerConnection(InetSocketAddress address, Socket socket) throws IOException {
+        this.address = address;
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(WorkerProtocol.MAGIC);
+        out.writeInt(WorkerProtocol.VERSION);
+        out.flush();
+        this.numSlots = in.readInt();
+    }
+
+    static WorkerConnection open(InetSocketAddress address) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(address, CONNECT_TIMEOUT_MS);
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(READ_TIMEOUT_MS);
+            return new WorkerConnection(address, socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /** How many notes the worker can resample at once. */
+    int getNumSlots() {
+        return numSlots;
+    }
+
+    /**
+     * Resamples a note on the worker and writes the result to the output file. The arguments are
+     * the ones the resampler takes after its output file. Throws a ResampleException if only
+     * this note failed, and any other IOException if the connection can't be used anymore.
+     */
+    void resample(String[] resamplerArgs, List<SampleFile> sampleFiles, File outputFile)
+            throws IOException {
+        WorkerProtocol.writeString(out, WorkerProtocol.RESAMPLE);
+        out.writeInt(resamplerArgs.length);
+        for (String arg : resamplerArgs) {
+            WorkerProtocol.writeString(out, arg);
+        }
+        out.writeInt(sampleFiles.size());
+        for (SampleFile sampleFile : sampleFiles) {
+            WorkerProtocol.writeString(out, sampleFile.suffix);
+            WorkerProtocol.writeString(out, sampleFile.hash);
+        }
+        out.flush();
+
+        String reply = WorkerProtocol.readString(in);
+        if (reply.equals(WorkerProtocol.NEED)) {
+            int numNeeded = WorkerProtocol.readCount(in, MAX_NEEDED_FILES);
+            String[] needed = new String[numNeeded];
+            for (int i = 0; i < numNeeded; i++) {
+                needed[i] = WorkerProtocol.readString(in);
+            }
+            for (String hash : needed) {
+                File file = findFile(sampleFiles, hash);
+                WorkerProtocol.writeString(out, hash);
+                WorkerProtocol.writeFile(out, file);
+                metrics.counter("render.workerSampleBytes").add(file.length());
+            }
+            out.flush();
+            reply = WorkerProtocol.readString(in);
+        }
+        if (reply.equals(WorkerProtocol.DONE)) {
+            WorkerProtocol.readFile(in, outputFile);
+        } else if (reply.equals(WorkerProtocol.ERROR)) {
+            String message = WorkerProtocol.readString(in);
+            throw new ResampleException(address + " could not resample: " + message);
+        } else {
+            throw new IOException(address + " sent an unknown reply: " + reply);
+        }
+    }
+
+    private File findFile(List<SampleFile> sampleFiles, String hash) throws IOException {
+        for (SampleFile sampleFile : sampleFiles) {
+            if (sampleFile.hash.equals(hash)) {
+                return sampleFile.file;
+            }
+        }
+        throw new IOException(address + " asked for a file it wasn't sent: " + hash);
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to do with it.
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.utsusynth.utsu.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The socket protocol between a {@link ResampleWorkerPool} and its {@link ResampleWorker}s. Each
+ * connection sends one request at a time. A connection starts with:
+ *
+ * <pre>
+ * pool:   int MAGIC, int VERSION
+ * worker: int number of notes it can resample at once
+ * </pre>
+ *
+ * Then, for each note:
+ *
+ * <pre>
+ * pool:   "RESAMPLE", int n, n resampler arguments after the output file,
+ *         int m, m sample files as (file name suffix, content hash)
+ * worker: "NEED", int k, k content hashes the worker doesn't have yet
+ * pool:   k files as (content hash, long length, bytes)
+ * worker: "DONE", long length, bytes of the resampled wav, or "ERROR", message
+ * </pre>
+ *
+ * The worker only sends "NEED" if it's missing something. Strings are sent as an int length and
+ * that many bytes of UTF-8, since pitch strings of long notes can be too long for writeUTF.
+ */
+final class WorkerProtocol {
+    static final int MAGIC = 0x75747375; // "utsu"
+    static final int VERSION = 1;
+    static final String RESAMPLE = "RESAMPLE";
+    static final String NEED = "NEED";
+    static final String DONE = "DONE";
+    static final String ERROR = "ERROR";
+
+    // Names of a sample's files, as the resampler expects them.
+    static final String WAV_SUFFIX = ".wav";
+    static final String FRQ_SUFFIX = "_wav.frq";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_STRING_BYTES = 16 * 1024 * 1024;
+    // Over an hour and a half of 16-bit mono audio at 44.1kHz, far longer than any sample.
+    private static final long MAX_FILE_BYTES = 512L * 1024 * 1024;
+
+    private WorkerProtocol() {}
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Reads a number of items that follow, which must be at most the given maximum. */
+    static int readCount(DataInputStream in, int max) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > max) {
+            throw new IOException("Unexpected count: " + count);
+        }
+        return count;
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException("Unexpected string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Writes the length and contents of a file. */
+    static void writeFile(DataOutputStream out, File file) throws IOException {
+        long length = file.length();
+        out.writeLong(length);
+        try (InputStream in = new FileInputStream(file)) {
+            copy(in, out, length);
+        }
+    }
+
+    /** Reads a length and that many bytes into a file. */
+    static void readFile(DataInputStream in, File file) throws IOException {
+        long length = in.readLong();
+        if (length < 0 || length > MAX_FILE_BYTES) {
+            throw new IOException("Unexpected file length: " + length);
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            copy(in, out, length);
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, long length) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long remaining = length;
+        while (remaining > 0) {
+            int numRead = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (numRead < 0) {
+                throw new EOFException("Expected " + remaining + " more bytes.");
+            }
+            out.write(buffer, 0, numRead);
+            remaining -= numRead;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.utsusynth.utsu.engine;
+
+import com.utsusynth.utsu.common.FastFourierTransform;
+
+/**
+ * Estimates the F0 of short frames of audio using the YIN algorithm, with the difference function
+ * computed through an FFT-based autocorrelation. Not thread-safe; use one estimator per thread.
+ */
+class YinPitchEstimator {
+    private static final double MIN_FREQ = 60; // Lowest pitch we expect in a voicebank.
+    private static final double MAX_FREQ = 1200; // Highest pitch we expect in a voicebank.
+    private static final double THRESHOLD = 0.15; // Standard YIN absolute threshold.
+    private static final double MAX_APERIODICITY = 0.35; // Anything noisier is unvoiced.
+
+    private final int sampleRate;
+    private final int minLag;
+    private final int windowSize; // Also the largest lag considered.
+    private final FastFourierTransform fft;
+    private final double[] frameReal;
+    private final double[] frameImag;
+    private final double[] windowReal;
+    private final double[] windowImag;
+    private final double[] difference;
+
+    YinPitchEstimator(int sampleRate) {
+        this.sampleRate = sampleRate;
+        this.minLag = Math.max(2, (int) (sampleRate / MAX_FREQ));
+        this.windowSize = (int) Math.ceil(sampleRate / MIN_FREQ);
+        int fftSize = Integer.highestOneBit(windowSize * 3 - 1) << 1;
+        this.fft = new FastFourierTransform(fftSize);
+        this.frameReal = new double[fftSize];
+        this.frameImag = new double[fftSize];
+        this.windowReal = new double[fftSize];
+        this.windowImag = new double[fftSize];
+        this.difference = new double[windowSize + 1];
+    }
+
+    /** Number of samples expected by estimate(), centered on the point being analyzed. */
+    int getFrameSize() {
+        return windowSize * 2;
+    }
+
+    /**
+     * Estimates the F0 of a frame of getFrameSize() samples.
+     *
+     * @return The frequency in Hz, or 0 if the frame is unvoiced.
+     */
+    double estimate(float[] samples) {
+        // Autocorrelation r(lag) = sum x[j] * x[j + lag] over the first windowSize samples.
+        for (int i = 0; i < frameReal.length; i++) {
+            frameReal[i] = i < windowSize * 2 ? samples[i] : 0;
+            frameImag[i] = 0;
+            windowReal[i] = i < windowSize ? samples[i] : 0;
+            windowImag[i] = 0;
+        }
+        fft.transform(frameReal, frameImag);
+        fft.transform(windowReal, windowImag);
+        for (int i = 0; i < frameReal.length; i++) {
+            // Multiply the frame spectrum by the conjugate of the window spectrum, then conjugate
+            // again so the forward transform can compute the inverse.
+            double real = frameReal[i] * windowReal[i] + frameImag[i] * windowImag[i];
+            double imag = frameImag[i] * windowReal[i] - frameReal[i] * windowImag[i];
+            frameReal[i] = real;
+            frameImag[i] = -imag;
+        }
+        fft.transform(frameReal, frameImag);
+        double scale = 1.0 / frameReal.length;
+
+        // Difference function d(lag) = e(0) + e(lag) - 2 * r(lag), where e is windowed energy.
+        double startEnergy = 0;
+        for (int i = 0; i < windowSize; i++) {
+            startEnergy += samples[i] * samples[i];
+        }
+        if (startEnergy <= 0) {
+            return 0;
+        }
+        double lagEnergy = startEnergy;
+        difference[0] = 0;
+        for (int lag = 1; lag <= windowSize; lag++) {
+            double removed = samples[lag - 1];
+            double added = samples[lag + windowSize - 1];
+            lagEnergy += added * added - removed * removed;
+            difference[lag] = Math.max(0, startEnergy + lagEnergy - 2 * frameReal[lag] * scale);
+        }
+
+        // Cumulative mean normalized difference.
+        double runningSum = 0;
+        for (int lag = 1; lag <= windowSize; lag++) {
+            runningSum += difference[lag];
+            difference[lag] = runningSum > 0 ? difference[lag] * lag / runningSum : 1;
+        }
+
+        // Take the bottom of the first dip below threshold, or else the global minimum.
+        int bestLag = minLag;
+        for (int lag = minLag; lag <= windowSize; lag++) {
+            if (difference[lag] < THRESHOLD) {
+                while (lag + 1 <= windowSize && difference[lag + 1] < difference[lag]) {
+                    lag++;
+                }
+                bestLag = lag;
+                break;
+            }
+            if (difference[lag] < difference[bestLag]) {
+                bestLag = lag;
+            }
+        }
+        if (difference[bestLag] > MAX_APERIODICITY) {
+            return 0;
+        }
+        return sampleRate / interpolate(bestLag);
+    }
+
+    // Parabolic interpolation around a lag for sub-sample accuracy.
+    private double interpolate(int lag) {
+        if (lag <= 1 || lag >= windowSize) {
+            return lag;
+        }
+        double left = difference[lag - 1];
+        double center = difference[lag];
+        double right = difference[lag + 1];
+        double denominator = left - 2 * center + right;
+        if (denominator <= 0) {
+            return lag;
+        }
+        return lag + 0.5 * (left - right) / denominator;
+    }
+}
@@ -0,0 +1,95 @@
+package com.utsusynth.utsu.files;
+
+/**
+ * A whole .wav file decoded into memory as mono 16-bit PCM. Frame math follows MappedWavFile, so
+ * the two can be used interchangeably by anything that only needs mono samples.
+ */
+public class DecodedSample {
+    private final short[] samples;
+    private final int sampleRate;
+    private final long lastModified; // Of the wav file when it was decoded.
+
+    private DecodedSample(short[] samples, int sampleRate, long lastModified) {
+        this.samples = samples;
+        this.sampleRate = sampleRate;
+        this.lastModified = lastModified;
+    }
+
+    /** Decodes every frame of a mapped wav file, mixing all channels down to mono. */
+    public static DecodedSample decode(MappedWavFile wav, long lastModified) {
+        short[] samples = new short[wav.getNumFrames()];
+        for (int frame = 0; frame < samples.length; frame++) {
+            float sample = Math.max(-1, Math.min(1, wav.getMonoSample(frame)));
+            samples[frame] = (short) Math.round(sample * Short.MAX_VALUE);
+        }
+        return new DecodedSample(samples, wav.getSampleRate(), lastModified);
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getNumFrames() {
+        return samples.length;
+    }
+
+    public double getLengthMs() {
+        return samples.length * 1000.0 / sampleRate;
+    }
+
+    long getLastModified() {
+        return lastModified;
+    }
+
+    int getSizeBytes() {
+        return samples.length * 2;
+    }
+
+    /** Converts a time in ms to the nearest frame index, clamped to the sample. */
+    public int msToFrame(double ms) {
+        long frame = Math.round(ms * sampleRate / 1000.0);
+        return (int) Math.max(0, Math.min(frame, samples.length));
+    }
+
+    /** First frame of an alias, given its oto.ini offset. */
+    public int getStartFrame(double offsetMs) {
+        return msToFrame(offsetMs);
+    }
+
+    /** Frame just past the end of an alias, with the same cutoff convention as MappedWavFile. */
+    public int getEndFrame(double offsetMs, double cutoffMs) {
+        int startFrame = getStartFrame(offsetMs);
+        int endFrame;
+        if (cutoffMs >= 0) {
+            endFrame = samples.length - msToFrame(cutoffMs);
+        } else {
+            endFrame = msToFrame(offsetMs - cutoffMs);
+        }
+        return Math.max(startFrame, endFrame);
+    }
+
+    /** Returns a single sample as 16-bit PCM. */
+    public short getPcmSample(int frame) {
+        return samples[frame];
+    }
+
+    /** Returns a single sample, normalized to [-1, 1]. */
+    public float getMonoSample(int frame) {
+        return samples[frame] / 32768f;
+    }
+
+    /** Copies a range of frames, normalized to [-1, 1], into the destination array. */
+    public void readMono(int startFrame, float[] dest, int destOffset, int length) {
+        if (startFrame < 0 || startFrame + length > samples.length || length < 0) {
+            throw new IndexOutOfBoundsException(
+                    String.format(
+                            "Frames [%d, %d) out of [0, %d)",
+                            startFrame,
+                            startFrame + length,
+                            samples.length));
+        }
+        for (int i = 0; i < length; i++) {
+            dest[destOffset + i] = samples[startFrame + i] / 32768f;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.utsusynth.utsu.files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import com.utsusynth.utsu.common.data.FrequencyData;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+
+/**
+ * Read-only view of a FREQ0003 .frq file backed by a memory-mapped FileChannel, or by a copy on
+ * the heap. The header is parsed up front, but frequency/amplitude blocks are only read when
+ * requested.
+ */
+public class MappedFrqFile {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+
+    static final String MAGIC = "FREQ0003";
+    static final int HEADER_SIZE = 40; // Magic, samples per frq, average, padding, num blocks.
+    static final int BLOCK_SIZE = 16; // One frequency and one amplitude, both doubles.
+
+    private final ByteBuffer buffer;
+    private final int samplesPerFrq;
+    private final double averageFreq;
+    private final int numBlocks;
+
+    private MappedFrqFile(ByteBuffer buffer, int samplesPerFrq, double averageFreq, int numBlocks) {
+        this.buffer = buffer;
+        this.samplesPerFrq = samplesPerFrq;
+        this.averageFreq = averageFreq;
+        this.numBlocks = numBlocks;
+    }
+
+    /**
+     * Maps a .frq file into memory and parses its header.
+     *
+     * @throws IOException if the file can't be read or is not a FREQ0003 file.
+     */
+    public static MappedFrqFile open(File frqFile) throws IOException {
+        return parse(MappedWavFile.map(frqFile), frqFile);
+    }
+
+    /**
+     * Copies a .frq file onto the heap and parses its header. Unlike a mapped file, this leaves
+     * the file free to be replaced, as FrqGenerator does.
+     *
+     * @throws IOException if the file can't be read or is not a FREQ0003 file.
+     */
+    public static MappedFrqFile read(File frqFile) throws IOException {
+        return parse(MappedWavFile.readFully(frqFile), frqFile);
+    }
+
+    private static MappedFrqFile parse(ByteBuffer buffer, File frqFile) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || !MAGIC.equals(
+                MappedWavFile.readTag(buffer, 0) + MappedWavFile.readTag(buffer, 4))) {
+            throw new IOException("Not a FREQ0003 file: " + frqFile);
+        }
+        int samplesPerFrq = buffer.getInt(8); // Number of samples per frequency value.
+        double average = buffer.getDouble(12); // Average F0 (pitch) of the sound.
+        // 16 bytes of empty space.
+        int declaredBlocks = buffer.getInt(36);
+        int availableBlocks = (buffer.limit() - HEADER_SIZE) / BLOCK_SIZE;
+        if (declaredBlocks > availableBlocks) {
+            errorLogger.logWarning("Frq file is shorter than its header claims.");
+        }
+        int numBlocks = Math.max(0, Math.min(declaredBlocks, availableBlocks));
+        return new MappedFrqFile(buffer, samplesPerFrq, average, numBlocks);
+    }
+
+    public int getSamplesPerFreqValue() {
+        return samplesPerFrq;
+    }
+
+    public double getAverageFreq() {
+        return averageFreq;
+    }
+
+    public int getNumBlocks() {
+        return numBlocks;
+    }
+
+    public double getFrequency(int block) {
+        return buffer.getDouble(HEADER_SIZE + checkBlock(block) * BLOCK_SIZE);
+    }
+
+    public double getAmplitude(int block) {
+        return buffer.getDouble(HEADER_SIZE + checkBlock(block) * BLOCK_SIZE + 8);
+    }
+
+    /** Returns the block covering the given sample frame of the source wav. */
+    public int frameToBlock(int frame) {
+        return Math.max(0, Math.min(frame / samplesPerFrq, numBlocks - 1));
+    }
+
+    /** Copies every block into a FrequencyData. Prefer the lazy accessors where possible. */
+    public FrequencyData toFrequencyData() {
+        double[] frqs = new double[numBlocks];
+        double[] amplitudes = new double[numBlocks];
+        for (int i = 0; i < numBlocks; i++) {
+            frqs[i] = getFrequency(i);
+            amplitudes[i] = getAmplitude(i);
+        }
+        return new FrequencyData(averageFreq, samplesPerFrq, frqs, amplitudes);
+    }
+
+    private int checkBlock(int block) {
+        if (block < 0 || block >= numBlocks) {
+            throw new IndexOutOfBoundsException("Block " + block + " out of " + numBlocks);
+        }
+        return block;
+    }
+}
@@ -0,0 +1,296 @@
+package com.utsusynth.utsu.files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of a .wav file backed by a memory-mapped FileChannel, or by a copy on the heap.
+ * Only the RIFF header is parsed up front; samples are decoded on demand, so callers of a mapped
+ * file that need a single alias only ever touch the pages between its offset and cutoff. Supports
+ * 8/16/24/32-bit PCM and 32/64-bit float data, with any number of interleaved channels.
+ */
+public class MappedWavFile {
+    private static final int WAVE_FORMAT_PCM = 0x0001;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 0x0003;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private final ByteBuffer data; // Only the contents of the "data" chunk.
+    private final int sampleRate;
+    private final int numChannels;
+    private final int bitsPerSample;
+    private final boolean isFloat;
+    private final int bytesPerSample;
+    private final int frameSize;
+    private final int numFrames;
+
+    private MappedWavFile(
+            ByteBuffer data,
+            int sampleRate,
+            int numChannels,
+            int bitsPerSample,
+            boolean isFloat) {
+        this.data = data;
+        this.sampleRate = sampleRate;
+        this.numChannels = numChannels;
+        this.bitsPerSample = bitsPerSample;
+        this.isFloat = isFloat;
+        this.bytesPerSample = bitsPerSample / 8;
+        this.frameSize = bytesPerSample * numChannels;
+        this.numFrames = data.limit() / frameSize;
+    }
+
+    /**
+     * Maps a .wav file into memory and parses its RIFF chunks.
+     *
+     * @throws IOException if the file can't be read or is not a supported wav format.
+     */
+    public static MappedWavFile open(File wavFile) throws IOException {
+        return parse(map(wavFile), wavFile);
+    }
+
+    /**
+     * Copies a .wav file onto the heap and parses its RIFF chunks. Unlike a mapped file, which
+     * stays mapped until garbage collected, this leaves the file free to be replaced or deleted.
+     *
+     * @throws IOException if the file can't be read or is not a supported wav format.
+     */
+    public static MappedWavFile read(File wavFile) throws IOException {
+        return parse(readFully(wavFile), wavFile);
+    }
+
+    private static MappedWavFile parse(ByteBuffer buffer, File wavFile) throws IOException {
+        if (buffer.remaining() < 12 || !"RIFF".equals(readTag(buffer, 0))
+                || !"WAVE".equals(readTag(buffer, 8))) {
+            throw new IOException("Not a RIFF/WAVE file: " + wavFile);
+        }
+
+        int formatTag = -1;
+        int numChannels = 0;
+        int sampleRate = 0;
+        int bitsPerSample = 0;
+        ByteBuffer dataChunk = null;
+        int chunkStart = 12;
+        while (chunkStart + 8 <= buffer.limit()) {
+            String chunkId = readTag(buffer, chunkStart);
+            long chunkSize = buffer.getInt(chunkStart + 4) & 0xFFFFFFFFL;
+            int bodyStart = chunkStart + 8;
+            // Some writers leave the size unset when streaming, so clamp to what is on disk.
+            int bodySize = (int) Math.min(chunkSize, buffer.limit() - bodyStart);
+            if (chunkId.equals("fmt ") && bodySize >= 16) {
+                formatTag = buffer.getShort(bodyStart) & 0xFFFF;
+                numChannels = buffer.getShort(bodyStart + 2) & 0xFFFF;
+                sampleRate = buffer.getInt(bodyStart + 4);
+                bitsPerSample = buffer.getShort(bodyStart + 14) & 0xFFFF;
+                if (formatTag == WAVE_FORMAT_EXTENSIBLE && bodySize >= 26) {
+                    // First two bytes of the sub-format GUID hold the real format tag.
+                    formatTag = buffer.getShort(bodyStart + 24) & 0xFFFF;
+                }
+            } else if (chunkId.equals("data")) {
+                dataChunk = slice(buffer, bodyStart, bodyStart + bodySize);
+            }
+            // Chunks are padded to an even number of bytes.
+            chunkStart = bodyStart + bodySize + (bodySize % 2);
+        }
+
+        if (formatTag == -1 || dataChunk == null) {
+            throw new IOException("Missing fmt or data chunk: " + wavFile);
+        }
+        if (numChannels <= 0 || sampleRate <= 0) {
+            throw new IOException("Invalid wav format header: " + wavFile);
+        }
+        boolean isFloat;
+        if (formatTag == WAVE_FORMAT_PCM) {
+            isFloat = false;
+            if (bitsPerSample != 8 && bitsPerSample != 16 && bitsPerSample != 24
+                    && bitsPerSample != 32) {
+                throw new IOException("Unsupported PCM sample size " + bitsPerSample);
+            }
+        } else if (formatTag == WAVE_FORMAT_IEEE_FLOAT) {
+            isFloat = true;
+            if (bitsPerSample != 32 && bitsPerSample != 64) {
+                throw new IOException("Unsupported float sample size " + bitsPerSample);
+            }
+        } else {
+            throw new IOException("Unsupported wav encoding " + formatTag + ": " + wavFile);
+        }
+        return new MappedWavFile(dataChunk, sampleRate, numChannels, bitsPerSample, isFloat);
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getNumChannels() {
+        return numChannels;
+    }
+
+    public int getBitsPerSample() {
+        return bitsPerSample;
+    }
+
+    public boolean isFloatingPoint() {
+        return isFloat;
+    }
+
+    public int getNumFrames() {
+        return numFrames;
+    }
+
+    public double getLengthMs() {
+        return numFrames * 1000.0 / sampleRate;
+    }
+
+    /** Converts a time in ms to the nearest frame index, clamped to the file. */
+    public int msToFrame(double ms) {
+        long frame = Math.round(ms * sampleRate / 1000.0);
+        return (int) Math.max(0, Math.min(frame, numFrames));
+    }
+
+    /** First frame of an alias, given its oto.ini offset. */
+    public int getStartFrame(double offsetMs) {
+        return msToFrame(offsetMs);
+    }
+
+    /**
+     * Frame just past the end of an alias. Follows oto.ini convention: a positive cutoff is
+     * measured from the end of the file and a negative cutoff is a length measured from offset.
+     */
+    public int getEndFrame(double offsetMs, double cutoffMs) {
+        int startFrame = getStartFrame(offsetMs);
+        int endFrame;
+        if (cutoffMs >= 0) {
+            endFrame = numFrames - msToFrame(cutoffMs);
+        } else {
+            endFrame = msToFrame(offsetMs - cutoffMs);
+        }
+        return Math.max(startFrame, endFrame);
+    }
+
+    /** Returns a single sample, normalized to [-1, 1]. */
+    public float getSample(int frame, int channel) {
+        int index = frame * frameSize + channel * bytesPerSample;
+        if (isFloat) {
+            return bitsPerSample == 32 ? data.getFloat(index) : (float) data.getDouble(index);
+        }
+        switch (bitsPerSample) {
+            case 8:
+                return ((data.get(index) & 0xFF) - 128) / 128f;
+            case 16:
+                return data.getShort(index) / 32768f;
+            case 24:
+                int value = (data.get(index) & 0xFF) | ((data.get(index + 1) & 0xFF) << 8)
+                        | (data.get(index + 2) << 16);
+                return value / 8388608f;
+            default:
+                return data.getInt(index) / 2147483648f;
+        }
+    }
+
+    /** Returns the average of all channels of a frame, normalized to [-1, 1]. */
+    public float getMonoSample(int frame) {
+        if (numChannels == 1) {
+            return getSample(frame, 0);
+        }
+        float sum = 0;
+        for (int channel = 0; channel < numChannels; channel++) {
+            sum += getSample(frame, channel);
+        }
+        return sum / numChannels;
+    }
+
+    /** Decodes a range of frames as mono into the destination array. */
+    public void readMono(int startFrame, float[] dest, int destOffset, int length) {
+        checkRange(startFrame, startFrame + length);
+        for (int i = 0; i < length; i++) {
+            dest[destOffset + i] = getMonoSample(startFrame + i);
+        }
+    }
+
+    /** Returns the raw interleaved bytes of a range of frames. Does not copy. */
+    public ByteBuffer getRawRange(int startFrame, int endFrame) {
+        checkRange(startFrame, endFrame);
+        return slice(data, startFrame * frameSize, endFrame * frameSize);
+    }
+
+    /**
+     * Returns a range of interleaved 16-bit samples. Does not copy.
+     *
+     * @throws IllegalStateException if this file is not 16-bit PCM.
+     */
+    public ShortBuffer getShortRange(int startFrame, int endFrame) {
+        if (isFloat || bitsPerSample != 16) {
+            throw new IllegalStateException("Short view requires 16-bit PCM data.");
+        }
+        return getRawRange(startFrame, endFrame).asShortBuffer();
+    }
+
+    /**
+     * Returns a range of interleaved 32-bit float samples. Does not copy.
+     *
+     * @throws IllegalStateException if this file is not 32-bit float.
+     */
+    public FloatBuffer getFloatRange(int startFrame, int endFrame) {
+        if (!isFloat || bitsPerSample != 32) {
+            throw new IllegalStateException("Float view requires 32-bit float data.");
+        }
+        return getRawRange(startFrame, endFrame).asFloatBuffer();
+    }
+
+    private void checkRange(int startFrame, int endFrame) {
+        if (startFrame < 0 || endFrame > numFrames || startFrame > endFrame) {
+            throw new IndexOutOfBoundsException(
+                    String.format(
+                            "Frames [%d, %d) out of [0, %d)",
+                            startFrame,
+                            endFrame,
+                            numFrames));
+        }
+    }
+
+    static ByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + file);
+            }
+            // Mapping stays valid after the channel is closed.
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    static ByteBuffer readFully(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large to read: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full or the file ends.
+            }
+            buffer.flip();
+            return buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    static String readTag(ByteBuffer buffer, int index) {
+        char[] tag = new char[4];
+        for (int i = 0; i < 4; i++) {
+            tag[i] = (char) (buffer.get(index + i) & 0xFF);
+        }
+        return new String(tag);
+    }
+
+    // Slices using absolute positions so the shared buffer is never mutated.
+    static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.limit(end);
+        duplicate.position(start);
+        return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
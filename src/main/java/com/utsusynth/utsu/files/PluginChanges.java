@@ -0,0 +1,93 @@
+package com.utsusynth.utsu.files;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import com.google.common.collect.ImmutableList;
+import com.utsusynth.utsu.common.RegionBounds;
+import com.utsusynth.utsu.common.data.NoteData;
+
+/**
+ * Notes a plugin changed, either found by comparing what a legacy plugin was given with what it
+ * returned or built directly by a Java plugin. Changed notes are listed as a removal and an
+ * addition at the same position.
+ */
+public class PluginChanges {
+    private final ImmutableList<NoteData> removedNotes; // Notes in the song before the plugin ran.
+    private final ImmutableList<NoteData> addedNotes; // In order of position.
+
+    PluginChanges(ImmutableList<NoteData> removedNotes, ImmutableList<NoteData> addedNotes) {
+        this.removedNotes = removedNotes;
+        this.addedNotes = addedNotes;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public ImmutableList<NoteData> getRemovedNotes() {
+        return removedNotes;
+    }
+
+    public ImmutableList<NoteData> getAddedNotes() {
+        return addedNotes;
+    }
+
+    public boolean isEmpty() {
+        return removedNotes.isEmpty() && addedNotes.isEmpty();
+    }
+
+    /** Region covered by all removed and added notes, or INVALID if nothing changed. */
+    public RegionBounds getBounds() {
+        RegionBounds bounds = RegionBounds.INVALID;
+        for (NoteData note : removedNotes) {
+            bounds = mergeBounds(bounds, note);
+        }
+        for (NoteData note : addedNotes) {
+            bounds = mergeBounds(bounds, note);
+        }
+        return bounds;
+    }
+
+    private static RegionBounds mergeBounds(RegionBounds bounds, NoteData note) {
+        RegionBounds noteBounds =
+                new RegionBounds(note.getPosition(), note.getPosition() + note.getDuration());
+        return bounds == RegionBounds.INVALID ? noteBounds : bounds.mergeWith(noteBounds);
+    }
+
+    /** Collects the edits made by a Java plugin. */
+    public static class Builder {
+        private final List<NoteData> removedNotes;
+        private final List<NoteData> addedNotes;
+
+        private Builder() {
+            this.removedNotes = new ArrayList<>();
+            this.addedNotes = new ArrayList<>();
+        }
+
+        /** Removes the song's note at this note's position. */
+        public Builder removeNote(NoteData toRemove) {
+            removedNotes.add(toRemove);
+            return this;
+        }
+
+        /** Adds a note, which can be at the position of a note that was removed. */
+        public Builder addNote(NoteData toAdd) {
+            addedNotes.add(toAdd);
+            return this;
+        }
+
+        /** Replaces a note with another, which doesn't need to be at the same position. */
+        public Builder replaceNote(NoteData oldNote, NoteData newNote) {
+            return removeNote(oldNote).addNote(newNote);
+        }
+
+        public PluginChanges build() {
+            Comparator<NoteData> byPosition = Comparator.comparingInt(NoteData::getPosition);
+            addedNotes.sort(byPosition);
+            return new PluginChanges(
+                    ImmutableList.copyOf(removedNotes),
+                    ImmutableList.copyOf(addedNotes));
+        }
+    }
+}
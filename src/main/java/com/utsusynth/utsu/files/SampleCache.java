@@ -0,0 +1,120 @@
+package com.utsusynth.utsu.files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Session-wide cache of decoded voicebank samples, so that each wav file is read from disk once no
+ * matter how many auditions and views use it. Least recently used samples are evicted once the
+ * cache is over its size limit, and samples are reloaded if their wav file changes.
+ */
+public class SampleCache {
+    private final SoundFileReader soundFileReader;
+    private final ListeningExecutorService prefetcher;
+    private final Cache<String, DecodedSample> samples; // Keyed by absolute path.
+    private final Set<String> prefetching;
+
+    public SampleCache(SoundFileReader soundFileReader, long maxBytes) {
+        this.soundFileReader = soundFileReader;
+        this.prefetcher = MoreExecutors.listeningDecorator(
+                Executors.newSingleThreadExecutor(
+                        new ThreadFactoryBuilder().setDaemon(true)
+                                .setNameFormat("sample-prefetch-%d").build()));
+        this.samples = CacheBuilder.newBuilder().maximumWeight(maxBytes)
+                .weigher((String key, DecodedSample value) -> value.getSizeBytes()).recordStats()
+                .build();
+        this.prefetching = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Returns the decoded contents of a wav file, reading it first if it isn't cached. Blocks
+     * while reading, so this shouldn't be called on the FX thread. Concurrent requests for the
+     * same file only read it once.
+     */
+    public Optional<DecodedSample> get(File wavFile) {
+        String key = wavFile.getAbsolutePath();
+        DecodedSample cached = samples.asMap().get(key); // Doesn't count as a hit or miss.
+        if (cached != null && cached.getLastModified() != wavFile.lastModified()) {
+            samples.invalidate(key); // The file was edited since it was decoded.
+        }
+        try {
+            return Optional.of(samples.get(key, () -> decode(wavFile)));
+        } catch (ExecutionException e) {
+            return Optional.absent(); // Failure was already reported by the reader.
+        }
+    }
+
+    /** Whether a wav file is already decoded. Doesn't count towards hits or misses. */
+    public boolean contains(File wavFile) {
+        DecodedSample cached = samples.asMap().get(wavFile.getAbsolutePath());
+        return cached != null && cached.getLastModified() == wavFile.lastModified();
+    }
+
+    /**
+     * Decodes wav files in the background, in the order given, so that they're ready by the time
+     * they're needed. Files that are cached or already queued are skipped.
+     */
+    public void prefetch(Iterable<File> wavFiles) {
+        for (File wavFile : wavFiles) {
+            String key = wavFile.getAbsolutePath();
+            if (contains(wavFile) || !prefetching.add(key)) {
+                continue;
+            }
+            prefetcher.submit(() -> {
+                try {
+                    if (!contains(wavFile)) {
+                        samples.asMap().computeIfAbsent(key, newKey -> {
+                            try {
+                                return decode(wavFile);
+                            } catch (IOException e) {
+                                return null;
+                            }
+                        });
+                    }
+                } finally {
+                    prefetching.remove(key);
+                }
+            });
+        }
+    }
+
+    /** Hit, miss, load and eviction counts since the cache was created. */
+    public CacheStats getStats() {
+        return samples.stats();
+    }
+
+    /** Number of samples currently cached. */
+    public long getNumSamples() {
+        return samples.size();
+    }
+
+    /** Approximate memory used by cached samples. */
+    public long getSizeBytes() {
+        long sizeBytes = 0;
+        for (Map.Entry<String, DecodedSample> entry : samples.asMap().entrySet()) {
+            sizeBytes += entry.getValue().getSizeBytes();
+        }
+        return sizeBytes;
+    }
+
+    private DecodedSample decode(File wavFile) throws IOException {
+        long lastModified = wavFile.lastModified();
+        Optional<MappedWavFile> wav = soundFileReader.readWav(wavFile);
+        if (!wav.isPresent()) {
+            throw new IOException("Could not read " + wavFile);
+        }
+        return DecodedSample.decode(wav.get(), lastModified);
+    }
+}
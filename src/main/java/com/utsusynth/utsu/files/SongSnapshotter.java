@@ -0,0 +1,42 @@
+package com.utsusynth.utsu.files;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import com.google.inject.Inject;
+import com.utsusynth.utsu.model.song.Song;
+
+/**
+ * Copies open songs, so that they can be rendered on another thread while the user keeps editing.
+ * The song is written out as UST 2.0 text right away, and only read back into a new song when the
+ * copy is needed, which can be on a render thread.
+ */
+public class SongSnapshotter {
+    private static final String CHARSET = "UTF-8";
+
+    private final Ust20Writer ust20Writer;
+    private final Ust20Reader ust20Reader;
+
+    @Inject
+    public SongSnapshotter(Ust20Writer ust20Writer, Ust20Reader ust20Reader) {
+        this.ust20Writer = ust20Writer;
+        this.ust20Reader = ust20Reader;
+    }
+
+    /**
+     * Takes a snapshot of a song. Call this on the thread that edits the song. The result can be
+     * called on any thread, and returns a new copy of the song as it was each time.
+     */
+    public Callable<Song> snapshot(Song song) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PrintStream ps = new PrintStream(bytes, false, CHARSET)) {
+            ust20Writer.writeSong(song, ps, CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e); // Every JVM supports UTF-8.
+        }
+        String ust = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        return () -> ust20Reader.loadSong(ust);
+    }
+}
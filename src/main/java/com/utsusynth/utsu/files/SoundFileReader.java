@@ -2,14 +2,6 @@ package com.utsusynth.utsu.files;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.ShortBuffer;
-import javax.sound.sampled.AudioFormat.Encoding;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.UnsupportedAudioFileException;
-import org.apache.commons.io.FileUtils;
 import com.google.common.base.Optional;
 import com.utsusynth.utsu.common.data.FrequencyData;
 import com.utsusynth.utsu.common.data.WavData;
@@ -21,37 +13,33 @@ import com.utsusynth.utsu.common.exception.ErrorLogger;
 public class SoundFileReader {
     private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
 
-    public Optional<FrequencyData> loadFrqData(File frqFile) {
+    /**
+     * Opens a memory-mapped view of a .frq file without reading its blocks. The file stays mapped
+     * until the view is garbage collected, and on Windows can't be replaced until then, so prefer
+     * readFrq for any file that FrqGenerator might write.
+     */
+    public Optional<MappedFrqFile> openFrq(File frqFile) {
         if (!frqFile.canRead()) {
-            System.out.println("Warning: frq file not found: " + frqFile.getAbsolutePath());
+            errorLogger.logWarning("Frq file not found: " + frqFile.getAbsolutePath());
             return Optional.absent();
         }
         try {
-            // Parse header values.
-            ByteBuffer buffer = ByteBuffer.wrap(FileUtils.readFileToByteArray(frqFile));
-            buffer.order(ByteOrder.LITTLE_ENDIAN);
-            byte[] charBuf = new byte[8];
-            buffer.get(charBuf);
-            if (!"FREQ0003".equals(new String(charBuf))) {
-                System.out.println("Error: used loadFrqData on a non-frq file.");
-                return Optional.absent();
-            }
-            int samplesPerFrq = buffer.getInt(); // Number of samples per frequency value.
-            double average = buffer.getDouble(); // Average F0 (pitch) of the sound.
-            buffer.get(new byte[16]); // 16 bytes of empty space.
+            return Optional.of(MappedFrqFile.open(frqFile));
+        } catch (IOException e) {
+            // TODO: Handle this.
+            errorLogger.logError(e);
+            return Optional.absent();
+        }
+    }
 
-            // Parse frequency/amplitude values.
-            int numBlocks = buffer.getInt();
-            double[] frqs = new double[numBlocks];
-            double[] amplitudes = new double[numBlocks];
-            for (int i = 0; i < numBlocks; i++) {
-                frqs[i] = buffer.getDouble();
-                amplitudes[i] = buffer.getDouble();
-            }
-            if (buffer.hasRemaining()) {
-                System.out.println("Warning: Parts of frq file were left unread.");
-            }
-            return Optional.of(new FrequencyData(average, samplesPerFrq, frqs, amplitudes));
+    /** Copies a .frq file onto the heap, leaving the file itself free to be replaced. */
+    public Optional<MappedFrqFile> readFrq(File frqFile) {
+        if (!frqFile.canRead()) {
+            errorLogger.logWarning("Frq file not found: " + frqFile.getAbsolutePath());
+            return Optional.absent();
+        }
+        try {
+            return Optional.of(MappedFrqFile.read(frqFile));
         } catch (IOException e) {
             // TODO: Handle this.
             errorLogger.logError(e);
@@ -59,54 +47,62 @@ public class SoundFileReader {
         }
     }
 
-    public Optional<WavData> loadWavData(File wavFile) {
+    /**
+     * Opens a memory-mapped view of a .wav file without reading its samples. The file stays
+     * mapped until the view is garbage collected, and on Windows can't be replaced or deleted
+     * until then, so only use this for files that are kept open and never change.
+     */
+    public Optional<MappedWavFile> openWav(File wavFile) {
         if (!wavFile.canRead()) {
-            System.out.println("Error: wav file not found!");
+            errorLogger.logError("Wav file not found!");
             return Optional.absent();
         }
-        try (AudioInputStream input = AudioSystem.getAudioInputStream(wavFile)) {
-            int numFrames = (int) input.getFrameLength();
-            double lengthMs = numFrames / input.getFormat().getFrameRate() * 1000;
-            if (input.getFormat().getSampleSizeInBits() != 16) {
-                System.out.println("Error: Does not support sample sizes other than 16 bit.");
-                return Optional.absent();
-            }
-            if (input.getFormat().getEncoding() != Encoding.PCM_SIGNED) {
-                System.out.println("Error: Does not support encodings other than PCM_SIGNED.");
-                return Optional.absent();
-            }
-
-            // Create a buffer to read 16-bit samples.
-            byte[] bytes = new byte[numFrames * input.getFormat().getFrameSize()];
-            int bytesRead = input.read(bytes);
-            if (bytesRead < bytes.length) {
-                System.out.println("Error: Could not read entire wav file.");
-                return Optional.absent();
-            }
-            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-            byteBuffer.order(
-                    input.getFormat().isBigEndian() ? ByteOrder.BIG_ENDIAN
-                            : ByteOrder.LITTLE_ENDIAN);
-            ShortBuffer shortBuffer = byteBuffer.asShortBuffer();
+        try {
+            return Optional.of(MappedWavFile.open(wavFile));
+        } catch (IOException e) {
+            // TODO: Handle this.
+            errorLogger.logError(e);
+            return Optional.absent();
+        }
+    }
 
-            int[] samples = new int[numFrames];
-            for (int i = 0; i < numFrames; i++) {
-                for (int channel = 0; channel < input.getFormat().getChannels(); channel++) {
-                    int sample = shortBuffer.get();
-                    if (channel == 0) {
-                        samples[i] = sample;
-                    }
-                }
-            }
-            if (shortBuffer.hasRemaining()) {
-                System.out.println("Warning: Parts of wav file were left unread.");
-            }
-            input.close();
-            return Optional.of(new WavData(lengthMs, samples));
-        } catch (IOException | UnsupportedAudioFileException e) {
+    /** Copies a .wav file onto the heap, leaving the file itself free to be replaced or deleted. */
+    public Optional<MappedWavFile> readWav(File wavFile) {
+        if (!wavFile.canRead()) {
+            errorLogger.logError("Wav file not found!");
+            return Optional.absent();
+        }
+        try {
+            return Optional.of(MappedWavFile.read(wavFile));
+        } catch (IOException e) {
             // TODO: Handle this.
             errorLogger.logError(e);
             return Optional.absent();
         }
     }
+
+    public Optional<FrequencyData> loadFrqData(File frqFile) {
+        Optional<MappedFrqFile> frq = readFrq(frqFile);
+        if (!frq.isPresent()) {
+            return Optional.absent();
+        }
+        return Optional.of(frq.get().toFrequencyData());
+    }
+
+    /**
+     * Loads an entire wav file as 16-bit-range mono samples, mixing down all channels.
+     */
+    public Optional<WavData> loadWavData(File wavFile) {
+        Optional<MappedWavFile> wav = readWav(wavFile);
+        if (!wav.isPresent()) {
+            return Optional.absent();
+        }
+        int numFrames = wav.get().getNumFrames();
+        int[] samples = new int[numFrames];
+        for (int i = 0; i < numFrames; i++) {
+            float sample = Math.max(-1, Math.min(1, wav.get().getMonoSample(i)));
+            samples[i] = Math.round(sample * Short.MAX_VALUE);
+        }
+        return Optional.of(new WavData(wav.get().getLengthMs(), samples));
+    }
 }
@@ -0,0 +1,40 @@
+package com.utsusynth.utsu.files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import com.utsusynth.utsu.common.data.FrequencyData;
+
+/**
+ * Writes .frq files.
+ */
+public class SoundFileWriter {
+
+    /** Writes frequency data in the FREQ0003 format read by SoundFileReader. */
+    public void writeFrqData(File frqFile, FrequencyData frqData) throws IOException {
+        double[] frequencies = frqData.getFrequencies();
+        double[] amplitudes = frqData.getAmplitudes();
+        int numBlocks = Math.min(frequencies.length, amplitudes.length);
+        ByteBuffer buffer = ByteBuffer
+                .allocate(MappedFrqFile.HEADER_SIZE + numBlocks * MappedFrqFile.BLOCK_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (char c : MappedFrqFile.MAGIC.toCharArray()) {
+            buffer.put((byte) c);
+        }
+        buffer.putInt(frqData.getSamplesPerFreqValue());
+        buffer.putDouble(frqData.getAverageFreq());
+        buffer.put(new byte[16]); // 16 bytes of empty space.
+        buffer.putInt(numBlocks);
+        for (int i = 0; i < numBlocks; i++) {
+            buffer.putDouble(frequencies[i]);
+            buffer.putDouble(amplitudes[i]);
+        }
+        // Write to a temp file first so readers never see a partially written frq.
+        File tempFile = new File(frqFile.getParentFile(), frqFile.getName() + ".tmp");
+        Files.write(tempFile.toPath(), buffer.array());
+        Files.move(tempFile.toPath(), frqFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -1,8 +1,23 @@
 package com.utsusynth.utsu.files;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleConsumer;
 import java.util.regex.Pattern;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import com.utsusynth.utsu.common.PitchUtils;
+import com.utsusynth.utsu.common.data.NoteData;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.metrics.Metrics;
+import com.utsusynth.utsu.common.trace.TraceSpan;
+import com.utsusynth.utsu.common.trace.TraceType;
+import com.utsusynth.utsu.common.trace.Tracer;
 import com.utsusynth.utsu.model.song.Note;
 import com.utsusynth.utsu.model.song.Song;
 
@@ -10,6 +25,10 @@ import com.utsusynth.utsu.model.song.Song;
  * Reads a song from a Unicode UST 1.2 file.
  */
 public class Ust12Reader {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final Metrics metrics = Metrics.getMetrics();
+    private static final Tracer tracer = Tracer.getTracer();
+
     private static final Pattern HEADER_PATTERN = Pattern.compile("\\[#[A-Z0-9]+\\]");
     private static final Pattern NOTE_PATTERN = Pattern.compile("\\[#[0-9]{4,}\\]");
     private final Provider<Song> songProvider;
@@ -81,21 +100,169 @@ public class Ust12Reader {
         return songBuilder.build();
     }
 
-    public Song loadSong(String fileContents) {
-        Song.Builder songBuilder = songProvider.get().toBuilder();
-        String[] lines = fileContents.split("\n");
+    /**
+     * Compares the notes given to a plugin with the notes it returned, so that only the changes
+     * need to be applied to the song. Returns absent if the plugin did something that can only be
+     * applied by rebuilding the song with readFromPlugin, like changing song settings, changing
+     * the length of the region when there are notes after it, or setting note values the song's
+     * edit path doesn't carry.
+     * 
+     * @param pluginInput, the file given to the plugin
+     * @param pluginOutput, the same file after the plugin ran
+     * @param startMs, position in the song of the first section of the plugin input
+     */
+    public Optional<PluginChanges> readPluginChanges(
+            String pluginInput,
+            String pluginOutput,
+            int startMs) {
+        List<String> inputSettings = new ArrayList<>();
+        List<String> outputSettings = new ArrayList<>();
+        Map<Integer, Note> inputNotes = new LinkedHashMap<>();
+        Map<Integer, Note> outputNotes = new LinkedHashMap<>();
+        int inputLength = readPluginNotes(pluginInput.split("\n"), inputSettings, inputNotes);
+        int outputLength = readPluginNotes(pluginOutput.split("\n"), outputSettings, outputNotes);
+        if (inputLength < 0 || outputLength < 0 || inputNotes.isEmpty()
+                || !inputSettings.equals(outputSettings)) {
+            return Optional.absent();
+        }
+        if (inputLength != outputLength && pluginInput.contains("[#NEXT]")) {
+            return Optional.absent(); // Notes after the region would have to move.
+        }
+
+        ImmutableList.Builder<NoteData> removed = ImmutableList.builder();
+        ImmutableList.Builder<NoteData> added = ImmutableList.builder();
+        for (Map.Entry<Integer, Note> entry : inputNotes.entrySet()) {
+            Note outputNote = outputNotes.get(entry.getKey());
+            if (outputNote == null || !isSameNote(entry.getValue(), outputNote)) {
+                removed.add(toNoteData(startMs + entry.getKey(), entry.getValue()));
+            }
+        }
+        for (Map.Entry<Integer, Note> entry : outputNotes.entrySet()) {
+            Note inputNote = inputNotes.get(entry.getKey());
+            if (inputNote == null || !isSameNote(inputNote, entry.getValue())) {
+                Note note = entry.getValue();
+                if (note.getPreutter() != -1 || note.getOverlap() != -1
+                        || note.getStartPoint() != 0 || note.getModulation() != 0) {
+                    return Optional.absent();
+                }
+                added.add(toNoteData(startMs + entry.getKey(), note));
+            }
+        }
+        return Optional.of(new PluginChanges(removed.build(), added.build()));
+    }
+
+    /**
+     * Reads the settings and non-rest notes of a plugin file, keyed by position relative to the
+     * first section. Returns the total length of all sections, or -1 if the file can't be read
+     * note by note.
+     */
+    private int readPluginNotes(String[] lines, List<String> settings, Map<Integer, Note> notes) {
+        int positionMs = 0;
         int curLine = 0;
         while (curLine >= 0 && curLine < lines.length) {
-            curLine = parseSection(lines, curLine, songBuilder);
+            String header = lines[curLine].trim();
+            if (header.equals("[#TRACKEND]")) {
+                break;
+            } else if (header.equals("[#VERSION]")) {
+                curLine = parseVersion(lines, curLine + 1);
+            } else if (header.equals("[#SETTING]")) {
+                for (curLine++; curLine < lines.length; curLine++) {
+                    String line = lines[curLine].trim();
+                    if (HEADER_PATTERN.matcher(line).matches()) {
+                        break;
+                    } else if (!line.isEmpty()) {
+                        settings.add(line);
+                    }
+                }
+            } else if (header.equals("[#DELETE]")) {
+                // Deleted notes take up no time, so skip to the next section.
+                curLine = parseNoteFields(lines, curLine + 1, new Note());
+            } else if (NOTE_PATTERN.matcher(header).matches() || header.equals("[#PREV]")
+                    || header.equals("[#NEXT]") || header.equals("[#INSERT]")) {
+                Note note = new Note();
+                curLine = parseNoteFields(lines, curLine + 1, note);
+                if (note.getDuration() < 0) {
+                    return -1;
+                }
+                if (!note.getLyric().equals("R")) {
+                    if (notes.containsKey(positionMs)) {
+                        return -1; // Zero-length notes can't be placed.
+                    }
+                    notes.put(positionMs, note);
+                }
+                positionMs += note.getDuration();
+            } else {
+                return -1;
+            }
+        }
+        return positionMs;
+    }
+
+    private static boolean isSameNote(Note first, Note second) {
+        return first.getDuration() == second.getDuration()
+                && first.getLyric().equals(second.getLyric())
+                && first.getNoteNum() == second.getNoteNum()
+                && first.getPreutter() == second.getPreutter()
+                && first.getOverlap() == second.getOverlap()
+                && first.getVelocity() == second.getVelocity()
+                && first.getStartPoint() == second.getStartPoint()
+                && first.getIntensity() == second.getIntensity()
+                && first.getModulation() == second.getModulation()
+                && first.getNoteFlags().equals(second.getNoteFlags())
+                && first.getPBS().equals(second.getPBS())
+                && first.getPBW().equals(second.getPBW())
+                && first.getPBY().equals(second.getPBY())
+                && first.getPBM().equals(second.getPBM())
+                && Arrays.equals(first.getRawFullEnvelope(), second.getRawFullEnvelope())
+                && Arrays.equals(first.getVibrato(), second.getVibrato());
+    }
+
+    private static NoteData toNoteData(int positionMs, Note note) {
+        return new NoteData(
+                positionMs,
+                note.getDuration(),
+                PitchUtils.noteNumToPitch(note.getNoteNum()),
+                note.getLyric(),
+                Optional.of(note.getEnvelope()),
+                Optional.of(note.getPitchbends()),
+                Optional.of(note.getConfigData()));
+    }
+
+    public Song loadSong(String fileContents) {
+        return loadSong(fileContents, progress -> {});
+    }
+
+    /**
+     * Reads a song, reporting progress from 0 to 1. Parsing lines takes up the first part, and
+     * standardizing notes, which happens last, takes up the rest.
+     */
+    public Song loadSong(String fileContents, DoubleConsumer progress) {
+        return metrics.timer("ust.read").time(() -> readSong(fileContents, progress));
+    }
+
+    private Song readSong(String fileContents, DoubleConsumer progress) {
+        try (TraceSpan span = tracer.start(TraceType.UST_READ)) {
+            Song.Builder songBuilder = songProvider.get().toBuilder();
+            String[] lines = fileContents.split("\n");
+            span.set("version", "1.2").set("lines", lines.length);
+            int curLine = 0;
+            while (curLine >= 0 && curLine < lines.length) {
+                curLine = parseSection(lines, curLine, songBuilder);
+                double parsed = curLine < 0 ? 1.0 : (double) curLine / lines.length;
+                progress.accept(parsed * UstFileReader.PARSE_SHARE);
+            }
+            return songBuilder.build(standardized -> {
+                double share = UstFileReader.PARSE_SHARE;
+                progress.accept(share + standardized * (1 - share));
+            });
         }
-        return songBuilder.build();
     }
 
     private int parseSection(String[] lines, int sectionStart, Song.Builder builder) {
         String header = lines[sectionStart].trim();
         if (!HEADER_PATTERN.matcher(header).matches()) {
             // Report parse section not called on section header warning.
-            System.out.println("Warning: parse header not called on section header.");
+            errorLogger.logWarning("Parse header not called on section header.");
             return -1;
         }
         // Case for notes.
@@ -111,10 +278,10 @@ public class Ust12Reader {
             case "[#NEXT]":
                 return parseNote(lines, sectionStart + 1, builder); // For plugins.
             case "[#TRACKEND]":
-                System.out.println("Finished parsing the track!");
+                errorLogger.logVerbose("Finished parsing the track!");
                 return -1;
             default:
-                System.out.println("Unexpected header discovered.");
+                errorLogger.logWarning("Unexpected header discovered.");
                 // Report unexpected header discovered warning.
                 return -1;
         }
@@ -122,6 +289,19 @@ public class Ust12Reader {
 
     private int parseNote(String[] lines, int noteStart, Song.Builder builder) {
         Note note = new Note();
+        int nextSection = parseNoteFields(lines, noteStart, note);
+        if (nextSection >= 0) {
+            if (note.getLyric().equals("R")) {
+                builder.addRestNote(note);
+            } else {
+                builder.addNote(note);
+            }
+        }
+        return nextSection;
+    }
+
+    // Returns the line of the next section header, or -1 if there isn't one.
+    private int parseNoteFields(String[] lines, int noteStart, Note note) {
         for (int i = noteStart; i < lines.length; i++) {
             String line = lines[i].trim();
             if (line.startsWith("Length=")) {
@@ -157,11 +337,6 @@ public class Ust12Reader {
             } else if (line.startsWith("VBR=")) {
                 note.setVibrato(line.substring("VBR=".length()).split(","));
             } else if (HEADER_PATTERN.matcher(line).matches()) {
-                if (note.getLyric().equals("R")) {
-                    builder.addRestNote(note);
-                } else {
-                    builder.addNote(note);
-                }
                 return i;
             }
         }
@@ -5,6 +5,11 @@ import java.text.DecimalFormat;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.utsusynth.utsu.common.RegionBounds;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.metrics.Metrics;
+import com.utsusynth.utsu.common.trace.TraceSpan;
+import com.utsusynth.utsu.common.trace.TraceType;
+import com.utsusynth.utsu.common.trace.Tracer;
 import com.utsusynth.utsu.model.song.Note;
 import com.utsusynth.utsu.model.song.NoteIterator;
 import com.utsusynth.utsu.model.song.Song;
@@ -14,6 +19,10 @@ import com.utsusynth.utsu.model.voicebank.LyricConfig;
  * Writes a song to a Shift-JIS UST 1.2 file.
  */
 public class Ust12Writer {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final Metrics metrics = Metrics.getMetrics();
+    private static final Tracer tracer = Tracer.getTracer();
+
     /**
      * Writes a special format of UST 1.2 used as an input to legacy UTAU plugins.
      * 
@@ -104,26 +113,35 @@ public class Ust12Writer {
     }
 
     public void writeSong(Song song, PrintStream ps) {
-        ps.println("[#VERSION]");
-        ps.println("UST Version1.2");
-        writeSettings(song, ps);
+        metrics.timer("ust.write").time(() -> writeUst(song, ps));
+    }
 
-        NoteIterator notes = song.getNoteIterator();
-        for (int index = 0; notes.hasNext(); index++) {
-            Note note = notes.next();
-            int prevDuration =
-                    notes.peekPrev().isPresent() ? notes.peekPrev().get().getDuration() : 0;
-            // Write rest notes.
-            for (int restLength : getRestNotes(prevDuration, note)) {
-                ps.println(getNoteLabel(index));
+    private void writeUst(Song song, PrintStream ps) {
+        try (TraceSpan span = tracer.start(TraceType.UST_WRITE).set("version", "1.2")) {
+            ps.println("[#VERSION]");
+            ps.println("UST Version1.2");
+            writeSettings(song, ps);
+
+            NoteIterator notes = song.getNoteIterator();
+            int index = 0;
+            while (notes.hasNext()) {
+                Note note = notes.next();
+                int prevDuration =
+                        notes.peekPrev().isPresent() ? notes.peekPrev().get().getDuration() : 0;
+                // Write rest notes.
+                for (int restLength : getRestNotes(prevDuration, note)) {
+                    ps.println(getNoteLabel(index));
+                    index++;
+                    ps.println("Length=" + restLength);
+                    ps.println("Lyric=R");
+                    ps.println("NoteNum=60");
+                }
+                writeNote(getNoteLabel(index), note, ps);
                 index++;
-                ps.println("Length=" + restLength);
-                ps.println("Lyric=R");
-                ps.println("NoteNum=60");
             }
-            writeNote(getNoteLabel(index), note, ps);
+            ps.println("[#TRACKEND]");
+            span.set("notes", index);
         }
-        ps.println("[#TRACKEND]");
     }
 
     private void writeSettings(Song song, PrintStream ps) {
@@ -211,10 +229,8 @@ public class Ust12Writer {
     }
 
     private String getNoteLabel(int index) {
-        if (index > 9999) {
-            // TODO: Throw error
-            System.out.println("Too many notes!");
-        } else if (index >= 1000) {
+        if (index >= 1000) {
+            // Notes past [#9999] just get more digits, which UST readers accept.
             return "[#" + index + "]";
         } else if (index >= 100) {
             return "[#0" + index + "]";
@@ -224,7 +240,7 @@ public class Ust12Writer {
             return "[#000" + index + "]";
         } else {
             // TODO: Throw error
-            System.out.println("Negative notes!");
+            errorLogger.logWarning("Negative notes!");
         }
         return null;
     }
@@ -1,8 +1,14 @@
 package com.utsusynth.utsu.files;
 
+import java.util.function.DoubleConsumer;
 import java.util.regex.Pattern;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.metrics.Metrics;
+import com.utsusynth.utsu.common.trace.TraceSpan;
+import com.utsusynth.utsu.common.trace.TraceType;
+import com.utsusynth.utsu.common.trace.Tracer;
 import com.utsusynth.utsu.model.song.Note;
 import com.utsusynth.utsu.model.song.Song;
 
@@ -10,6 +16,10 @@ import com.utsusynth.utsu.model.song.Song;
  * Reads a song from a Unicode UST 2.0 file.
  */
 public class Ust20Reader {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final Metrics metrics = Metrics.getMetrics();
+    private static final Tracer tracer = Tracer.getTracer();
+
     private static final Pattern HEADER_PATTERN = Pattern.compile("\\[#[A-Z0-9]+\\]");
     private static final Pattern NOTE_PATTERN = Pattern.compile("\\[#[0-9]{4,}\\]");
     private final Provider<Song> songProvider;
@@ -22,20 +32,40 @@ public class Ust20Reader {
     }
 
     public Song loadSong(String fileContents) {
-        String[] lines = fileContents.split("\n");
-        Song.Builder songBuilder = songProvider.get().toBuilder();
-        int curLine = 0;
-        while (curLine >= 0 && curLine < lines.length) {
-            curLine = parseSection(lines, curLine, songBuilder);
+        return loadSong(fileContents, progress -> {});
+    }
+
+    /**
+     * Reads a song, reporting progress from 0 to 1. Parsing lines takes up the first part, and
+     * standardizing notes, which happens last, takes up the rest.
+     */
+    public Song loadSong(String fileContents, DoubleConsumer progress) {
+        return metrics.timer("ust.read").time(() -> readSong(fileContents, progress));
+    }
+
+    private Song readSong(String fileContents, DoubleConsumer progress) {
+        try (TraceSpan span = tracer.start(TraceType.UST_READ)) {
+            Song.Builder songBuilder = songProvider.get().toBuilder();
+            String[] lines = fileContents.split("\n");
+            span.set("version", "2.0").set("lines", lines.length);
+            int curLine = 0;
+            while (curLine >= 0 && curLine < lines.length) {
+                curLine = parseSection(lines, curLine, songBuilder);
+                double parsed = curLine < 0 ? 1.0 : (double) curLine / lines.length;
+                progress.accept(parsed * UstFileReader.PARSE_SHARE);
+            }
+            return songBuilder.build(standardized -> {
+                double share = UstFileReader.PARSE_SHARE;
+                progress.accept(share + standardized * (1 - share));
+            });
         }
-        return songBuilder.build();
     }
 
     private int parseSection(String[] lines, int sectionStart, Song.Builder builder) {
         String header = lines[sectionStart].trim();
         if (!HEADER_PATTERN.matcher(header).matches()) {
             // Report parse section not called on section header warning.
-            System.out.println("Parse header not called on section header.");
+            errorLogger.logWarning("Parse header not called on section header.");
             return -1;
         }
         // Case for notes.
@@ -48,10 +78,10 @@ public class Ust20Reader {
             case "[#SETTING]":
                 return parseSetting(lines, sectionStart + 1, builder);
             case "[#TRACKEND]":
-                System.out.println("Finished parsing the track!");
+                errorLogger.logVerbose("Finished parsing the track!");
                 return -1;
             default:
-                System.out.println("Unexpected header discovered.");
+                errorLogger.logWarning("Unexpected header discovered.");
                 // Report unexpected header discovered warning.
                 return -1;
         }
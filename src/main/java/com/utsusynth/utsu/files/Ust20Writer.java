@@ -4,6 +4,11 @@ import java.io.PrintStream;
 import java.text.DecimalFormat;
 import java.util.Iterator;
 import com.google.common.collect.ImmutableList;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.metrics.Metrics;
+import com.utsusynth.utsu.common.trace.TraceSpan;
+import com.utsusynth.utsu.common.trace.TraceType;
+import com.utsusynth.utsu.common.trace.Tracer;
 import com.utsusynth.utsu.model.song.Note;
 import com.utsusynth.utsu.model.song.Song;
 
@@ -11,91 +16,101 @@ import com.utsusynth.utsu.model.song.Song;
  * Writes a song to a Unicode UST 2.0 file.
  */
 public class Ust20Writer {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final Metrics metrics = Metrics.getMetrics();
+    private static final Tracer tracer = Tracer.getTracer();
+
     public void writeSong(Song song, PrintStream ps, String charset) {
-        ps.println("[#VERSION]");
-        ps.println("UST Version2.0");
-        ps.println("Charset=" + charset);
-        ps.println("[#SETTING]");
-        ps.println("TimeSignatures=(4/4/0),");
-        ps.println("Tempo=" + roundDecimal(song.getTempo(), "#.##"));
-        ps.println("ProjectName=" + song.getProjectName());
-        ps.println("OutFile=" + song.getOutputFile());
-        ps.println("VoiceDir=" + song.getVoiceDir());
-        ps.println("Flags=" + song.getFlags());
-        ps.println("Mode2=" + (song.getMode2() ? "True" : "False"));
+        metrics.timer("ust.write").time(() -> writeUst(song, ps, charset));
+    }
 
-        Iterator<Note> iterator = song.getNoteIterator();
-        int index = 0;
-        while (iterator.hasNext()) {
-            Note note = iterator.next();
-            ps.println(getNoteLabel(index));
-            ps.println("Delta=" + note.getDelta());
-            ps.println("Duration=" + note.getDuration());
-            ps.println("Length=" + note.getLength());
-            ps.println("Lyric=" + note.getLyric());
-            ps.println("NoteNum=" + note.getNoteNum());
-            ps.println("PreUtterance=" + roundDecimal(note.getPreutter(), "#.##"));
-            ps.println("VoiceOverlap=" + roundDecimal(note.getOverlap(), "#.##"));
-            ps.println("Velocity=" + roundDecimal(note.getVelocity(), "#.##"));
-            ps.println("StartPoint=" + roundDecimal(note.getStartPoint(), "#.##"));
-            ps.println("Intensity=" + note.getIntensity());
-            ps.println("Modulation=" + note.getModulation());
-            ps.println("Flags=" + note.getNoteFlags());
+    private void writeUst(Song song, PrintStream ps, String charset) {
+        try (TraceSpan span = tracer.start(TraceType.UST_WRITE).set("version", "2.0")) {
+            ps.println("[#VERSION]");
+            ps.println("UST Version2.0");
+            ps.println("Charset=" + charset);
+            ps.println("[#SETTING]");
+            ps.println("TimeSignatures=(4/4/0),");
+            ps.println("Tempo=" + roundDecimal(song.getTempo(), "#.##"));
+            ps.println("ProjectName=" + song.getProjectName());
+            ps.println("OutFile=" + song.getOutputFile());
+            ps.println("VoiceDir=" + song.getVoiceDir());
+            ps.println("Flags=" + song.getFlags());
+            ps.println("Mode2=" + (song.getMode2() ? "True" : "False"));
 
-            // Pitch bends.
-            ImmutableList<Double> pbs = note.getPBS();
-            ps.print("PBS=");
-            for (int i = 0; i < pbs.size() - 1; i++) {
-                ps.print(roundDecimal(pbs.get(i), "#.#") + ",");
-            }
-            ps.println(roundDecimal(pbs.get(pbs.size() - 1), "#.#"));
-            ImmutableList<Double> pbw = note.getPBW();
-            ps.print("PBW=");
-            for (int i = 0; i < pbw.size() - 1; i++) {
-                ps.print(roundDecimal(pbw.get(i), "#.#") + ",");
-            }
-            ps.println(roundDecimal(pbw.get(pbw.size() - 1), "#.#"));
-            ImmutableList<Double> pby = note.getPBY();
-            if (!pby.isEmpty()) {
-                ps.print("PBY=");
-                for (int i = 0; i < pby.size() - 1; i++) {
-                    ps.print(roundDecimal(pby.get(i), "#.#") + ",");
+            Iterator<Note> iterator = song.getNoteIterator();
+            int index = 0;
+            while (iterator.hasNext()) {
+                Note note = iterator.next();
+                ps.println(getNoteLabel(index));
+                ps.println("Delta=" + note.getDelta());
+                ps.println("Duration=" + note.getDuration());
+                ps.println("Length=" + note.getLength());
+                ps.println("Lyric=" + note.getLyric());
+                ps.println("NoteNum=" + note.getNoteNum());
+                ps.println("PreUtterance=" + roundDecimal(note.getPreutter(), "#.##"));
+                ps.println("VoiceOverlap=" + roundDecimal(note.getOverlap(), "#.##"));
+                ps.println("Velocity=" + roundDecimal(note.getVelocity(), "#.##"));
+                ps.println("StartPoint=" + roundDecimal(note.getStartPoint(), "#.##"));
+                ps.println("Intensity=" + note.getIntensity());
+                ps.println("Modulation=" + note.getModulation());
+                ps.println("Flags=" + note.getNoteFlags());
+
+                // Pitch bends.
+                ImmutableList<Double> pbs = note.getPBS();
+                ps.print("PBS=");
+                for (int i = 0; i < pbs.size() - 1; i++) {
+                    ps.print(roundDecimal(pbs.get(i), "#.#") + ",");
                 }
-                ps.println(roundDecimal(pby.get(pby.size() - 1), "#.#"));
-            }
-            ImmutableList<String> pbm = note.getPBM();
-            if (!pbm.isEmpty()) {
-                ps.print("PBM=");
-                for (int i = 0; i < pbm.size() - 1; i++) {
-                    ps.print(pbm.get(i) + ",");
+                ps.println(roundDecimal(pbs.get(pbs.size() - 1), "#.#"));
+                ImmutableList<Double> pbw = note.getPBW();
+                ps.print("PBW=");
+                for (int i = 0; i < pbw.size() - 1; i++) {
+                    ps.print(roundDecimal(pbw.get(i), "#.#") + ",");
+                }
+                ps.println(roundDecimal(pbw.get(pbw.size() - 1), "#.#"));
+                ImmutableList<Double> pby = note.getPBY();
+                if (!pby.isEmpty()) {
+                    ps.print("PBY=");
+                    for (int i = 0; i < pby.size() - 1; i++) {
+                        ps.print(roundDecimal(pby.get(i), "#.#") + ",");
+                    }
+                    ps.println(roundDecimal(pby.get(pby.size() - 1), "#.#"));
+                }
+                ImmutableList<String> pbm = note.getPBM();
+                if (!pbm.isEmpty()) {
+                    ps.print("PBM=");
+                    for (int i = 0; i < pbm.size() - 1; i++) {
+                        ps.print(pbm.get(i) + ",");
+                    }
+                    ps.println(pbm.get(pbm.size() - 1));
                 }
-                ps.println(pbm.get(pbm.size() - 1));
-            }
 
-            // Envelope.
-            ps.print("Envelope=");
-            for (double value : note.getRawFullEnvelope()) {
-                ps.print(roundDecimal(value, "#.#") + ",");
-            }
-            ps.println("0.0,1.0,100.0,1.0,100.0"); // Not sure what the meaning of these values is.
+                // Envelope.
+                ps.print("Envelope=");
+                for (double value : note.getRawFullEnvelope()) {
+                    ps.print(roundDecimal(value, "#.#") + ",");
+                }
+                // Not sure what the meaning of these values is.
+                ps.println("0.0,1.0,100.0,1.0,100.0");
 
-            // Vibrato.
-            ps.print("VBR=");
-            String[] vibrato = note.getVibrato();
-            for (int i = 0; i < 9; i++) {
-                ps.print(vibrato[i] + ",");
+                // Vibrato.
+                ps.print("VBR=");
+                String[] vibrato = note.getVibrato();
+                for (int i = 0; i < 9; i++) {
+                    ps.print(vibrato[i] + ",");
+                }
+                ps.println(vibrato[9]);
+                index++;
             }
-            ps.println(vibrato[9]);
-            index++;
+            ps.println("[#TRACKEND]");
+            span.set("notes", index);
         }
-        ps.println("[#TRACKEND]");
     }
 
     private String getNoteLabel(int index) {
-        if (index > 9999) {
-            // TODO: Throw error
-            System.out.println("Too many notes!");
-        } else if (index >= 1000) {
+        if (index >= 1000) {
+            // Notes past [#9999] just get more digits, which UST readers accept.
             return "[#" + index + "]";
         } else if (index >= 100) {
             return "[#0" + index + "]";
@@ -105,7 +120,7 @@ public class Ust20Writer {
             return "[#000" + index + "]";
         } else {
             // TODO: Throw error
-            System.out.println("Negative notes!");
+            errorLogger.logWarning("Negative notes!");
         }
         return null;
     }
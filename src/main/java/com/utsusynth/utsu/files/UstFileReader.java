@@ -0,0 +1,86 @@
+package com.utsusynth.utsu.files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.function.DoubleConsumer;
+import org.apache.commons.io.FileUtils;
+import com.google.inject.Inject;
+import com.utsusynth.utsu.model.song.Song;
+
+/**
+ * Reads a song from a UST file of any version, in either UTF-8 or Shift JIS.
+ */
+public class UstFileReader {
+    // Share of load progress for parsing lines, in every UST version. Standardizing notes
+    // afterwards is slower.
+    static final double PARSE_SHARE = 0.3;
+
+    private final Ust12Reader ust12Reader;
+    private final Ust20Reader ust20Reader;
+
+    /** A song read from disk along with the format it was read in. */
+    public static class LoadedSong {
+        private final Song song;
+        private final String saveFormat;
+
+        private LoadedSong(Song song, String saveFormat) {
+            this.song = song;
+            this.saveFormat = saveFormat;
+        }
+
+        public Song getSong() {
+            return song;
+        }
+
+        /** Format to save this song in the future. */
+        public String getSaveFormat() {
+            return saveFormat;
+        }
+    }
+
+    @Inject
+    public UstFileReader(Ust12Reader ust12Reader, Ust20Reader ust20Reader) {
+        this.ust12Reader = ust12Reader;
+        this.ust20Reader = ust20Reader;
+    }
+
+    /** Reads a song, reporting progress from 0 to 1 as it is parsed and its notes standardized. */
+    public LoadedSong readSong(File file, DoubleConsumer progress) throws IOException {
+        return readSong(FileUtils.readFileToByteArray(file), progress);
+    }
+
+    /** Reads a song from the contents of a UST file. */
+    public LoadedSong readSong(byte[] ustBytes, DoubleConsumer progress) {
+        String saveFormat;
+        boolean isUtf8 = true;
+        CharsetDecoder utf8Decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        try {
+            utf8Decoder.decode(ByteBuffer.wrap(ustBytes));
+        } catch (CharacterCodingException e) {
+            isUtf8 = false;
+        }
+        String content =
+                new String(ustBytes, isUtf8 ? StandardCharsets.UTF_8 : Charset.forName("SJIS"));
+        Song newSong;
+        if (content.contains("UST Version1.2")) {
+            newSong = ust12Reader.loadSong(content, progress);
+            saveFormat = "UST 1.2 (Shift JIS)";
+        } else if (content.contains("UST Version2.0")) {
+            newSong = ust20Reader.loadSong(content, progress);
+            saveFormat = "UST 2.0 " + (isUtf8 ? "(UTF-8)" : "(Shift JIS)");
+        } else {
+            // If no version found, assume UST 1.2 for now.
+            newSong = ust12Reader.loadSong(content, progress);
+            saveFormat = "UST 1.2 (Shift JIS)";
+        }
+        return new LoadedSong(newSong, saveFormat);
+    }
+}
@@ -22,11 +22,18 @@ import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.metrics.Metrics;
+import com.utsusynth.utsu.common.trace.TraceSpan;
+import com.utsusynth.utsu.common.trace.TraceType;
+import com.utsusynth.utsu.common.trace.Tracer;
+import com.utsusynth.utsu.model.voicebank.DisjointLyricSet;
 import com.utsusynth.utsu.model.voicebank.LyricConfig;
 import com.utsusynth.utsu.model.voicebank.Voicebank;
 
 public class VoicebankReader {
     private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final Metrics metrics = Metrics.getMetrics();
+    private static final Tracer tracer = Tracer.getTracer();
 
     private static final Pattern LYRIC_PATTERN = Pattern.compile("(.+\\.wav)=([^,]*),");
     private static final Pattern PITCH_PATTERN =
@@ -51,6 +58,10 @@ public class VoicebankReader {
     }
 
     public Voicebank loadVoicebankFromDirectory(File sourceDir) {
+        return metrics.timer("voicebank.load").time(() -> readVoicebank(sourceDir));
+    }
+
+    private Voicebank readVoicebank(File sourceDir) {
         Voicebank.Builder builder = voicebankProvider.get().toBuilder();
 
         File pathToVoicebank;
@@ -64,7 +75,7 @@ public class VoicebankReader {
             }
         }
         builder.setPathToVoicebank(pathToVoicebank);
-        System.out.println("Parsed voicebank as " + pathToVoicebank);
+        errorLogger.logInfo("Parsed voicebank as " + pathToVoicebank);
 
         // Parse character data.
         String characterData =
@@ -114,9 +125,6 @@ public class VoicebankReader {
             parsePitchMap(pathToVoicebank.toPath().resolve(pitchMapName).toFile(), builder);
         }
 
-        // Parse conversion set for romaji-hiragana-katakana conversion.
-        readLyricConversionsFromFile(builder);
-
         return builder.build();
     }
 
@@ -125,29 +133,36 @@ public class VoicebankReader {
             Path pathToOtoFile,
             String otoFile,
             Voicebank.Builder builder) {
-        String otoData = readConfigFile(pathToOtoFile.resolve(otoFile).toFile());
-        for (String rawLine : otoData.split("\n")) {
-            String line = rawLine.trim();
-            Matcher matcher = LYRIC_PATTERN.matcher(line);
-            if (matcher.find()) {
-                String fileName = matcher.group(1); // Assuming this is a .wav file
-                String lyricName = matcher.group(2);
-                String[] configValues = line.substring(matcher.end()).split(",");
-                if (configValues.length != 5 || fileName == null || lyricName == null) {
-                    System.out.println("Received unexpected results while parsing oto.ini");
-                    continue;
+        File otoIni = pathToOtoFile.resolve(otoFile).toFile();
+        try (TraceSpan span = tracer.start(TraceType.OTO_FILE)) {
+            span.set("path", otoIni.getAbsolutePath());
+            int numLyrics = 0;
+            String otoData = readConfigFile(otoIni);
+            for (String rawLine : otoData.split("\n")) {
+                String line = rawLine.trim();
+                Matcher matcher = LYRIC_PATTERN.matcher(line);
+                if (matcher.find()) {
+                    String fileName = matcher.group(1); // Assuming this is a .wav file
+                    String lyricName = matcher.group(2);
+                    String[] configValues = line.substring(matcher.end()).split(",");
+                    if (configValues.length != 5 || fileName == null || lyricName == null) {
+                        errorLogger.logWarning("Received unexpected results while parsing oto.ini");
+                        continue;
+                    }
+                    // Search for a frq file.
+                    String frqName = fileName.substring(0, fileName.length() - 4) + "_wav.frq";
+                    File frqFile = pathToOtoFile.resolve(frqName).toFile();
+                    builder.addLyric(
+                            new LyricConfig(
+                                    pathToVoicebank,
+                                    pathToOtoFile.resolve(fileName).toFile(),
+                                    lyricName,
+                                    configValues),
+                            frqFile.canRead());
+                    numLyrics++;
                 }
-                // Search for a frq file.
-                String frqName = fileName.substring(0, fileName.length() - 4) + "_wav.frq";
-                File frqFile = pathToOtoFile.resolve(frqName).toFile();
-                builder.addLyric(
-                        new LyricConfig(
-                                pathToVoicebank,
-                                pathToOtoFile.resolve(fileName).toFile(),
-                                lyricName,
-                                configValues),
-                        frqFile.canRead());
             }
+            span.set("lyrics", numLyrics);
         }
     }
 
@@ -165,12 +180,17 @@ public class VoicebankReader {
         }
     }
 
-    /* Gets disjoint set used for romaji-hiragana-katakana conversions. */
-    private void readLyricConversionsFromFile(Voicebank.Builder builder) {
+    /**
+     * Reads the disjoint set used for romaji-hiragana-katakana conversions. This only needs to
+     * happen once, as the result is shared between all voicebanks.
+     */
+    public DisjointLyricSet loadLyricConversions() {
+        DisjointLyricSet.Builder builder = DisjointLyricSet.builder();
         String conversionData = readConfigFile(lyricConversionPath);
         for (String line : conversionData.split("\n")) {
-            builder.addConversionGroup(line.trim().split(","));
+            builder.addGroup(line.trim().split(","));
         }
+        return builder.build();
     }
 
     private String readConfigFile(File file) {
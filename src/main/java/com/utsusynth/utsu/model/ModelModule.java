@@ -48,6 +48,13 @@ public class ModelModule extends AbstractModule {
         return new Voicebank(configMap, pitchMap, conversionSet, new HashSet<>(), frqGen);
     }
 
+    @Provides
+    @Singleton
+    private DisjointLyricSet provideConversionSet(VoicebankReader voicebankReader) {
+        // Every voicebank shares the same immutable conversion set.
+        return voicebankReader.loadLyricConversions();
+    }
+
     @Provides
     @Singleton
     private VoicebankReader provideVoicebankReader(Provider<Voicebank> voicebankProvider) {
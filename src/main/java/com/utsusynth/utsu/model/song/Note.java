@@ -4,12 +4,15 @@ import com.google.common.collect.ImmutableList;
 import com.utsusynth.utsu.common.data.EnvelopeData;
 import com.utsusynth.utsu.common.data.NoteConfigData;
 import com.utsusynth.utsu.common.data.PitchbendData;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
 
 /**
  * Represents one note in a song. This is primarily a data storage class, so it can be instantiated
  * directly and not injected.
  */
 public class Note {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+
     // Values the user has control over. These are saved to file.
     private int delta; // In ms, corresponds with 125 bpm tempo.
     private int duration; // In ms, corresponds with 125 bpm tempo.
@@ -382,7 +385,7 @@ public class Note {
         try {
             return Integer.parseInt(fromMe);
         } catch (Exception e) {
-            System.out.println("Warning: failed to parse int from " + fromMe);
+            errorLogger.logWarning("Failed to parse int from " + fromMe);
             return fallback;
         }
     }
@@ -391,7 +394,7 @@ public class Note {
         try {
             return Double.parseDouble(fromMe);
         } catch (Exception e) {
-            System.out.println("Warning: failed to parse double from " + fromMe);
+            errorLogger.logWarning("Failed to parse double from " + fromMe);
             return fallback;
         }
     }
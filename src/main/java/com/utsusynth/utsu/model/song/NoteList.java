@@ -2,8 +2,10 @@ package com.utsusynth.utsu.model.song;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.DoubleConsumer;
 import com.google.common.base.Optional;
 import com.utsusynth.utsu.common.RegionBounds;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
 import com.utsusynth.utsu.common.exception.NoteAlreadyExistsException;
 import com.utsusynth.utsu.model.voicebank.Voicebank;
 
@@ -11,6 +13,8 @@ import com.utsusynth.utsu.model.voicebank.Voicebank;
  * Implementation of a linked list of SongNotes, including head.
  */
 public class NoteList implements Iterable<Note> {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+
     private Optional<NoteNode> head;
     private Map<Integer, NoteNode> nodeMap;
 
@@ -62,7 +66,7 @@ public class NoteList implements Iterable<Note> {
                 overrideDelta = 0;
             } else {
                 // TODO: throw error
-                System.out.println("Unexpected error while making note list.");
+                errorLogger.logError("Unexpected error while making note list.");
                 return this;
             }
             totalDelta += note.getDelta();
@@ -86,7 +90,7 @@ public class NoteList implements Iterable<Note> {
                 tail.get().getNote().setLength(tailLength + note.getDuration());
             } else {
                 // TODO: throw error
-                System.out.println("Unexpected error while making note list.");
+                errorLogger.logError("Unexpected error while making note list.");
                 return this;
             }
             return this;
@@ -108,11 +112,21 @@ public class NoteList implements Iterable<Note> {
             return this;
         }
 
-        public Builder standardize(NoteStandardizer standardizer, Voicebank voicebank) {
+        /** Standardizes every note, reporting progress as the fraction of notes done so far. */
+        public Builder standardize(
+                NoteStandardizer standardizer,
+                Voicebank voicebank,
+                DoubleConsumer progress) {
+            int numNotes = 0;
+            for (Optional<NoteNode> cur = tail; cur.isPresent(); cur = cur.get().getPrev()) {
+                numNotes++;
+            }
+            int numDone = 0;
             Optional<NoteNode> cur = tail;
             while (cur.isPresent()) {
                 cur.get().standardize(standardizer, voicebank);
                 cur = cur.get().getPrev();
+                progress.accept((double) ++numDone / numNotes);
             }
             return this;
         }
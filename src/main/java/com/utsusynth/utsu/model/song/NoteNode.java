@@ -1,6 +1,7 @@
 package com.utsusynth.utsu.model.song;
 
 import com.google.common.base.Optional;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
 import com.utsusynth.utsu.common.exception.NoteAlreadyExistsException;
 import com.utsusynth.utsu.model.voicebank.Voicebank;
 
@@ -8,6 +9,8 @@ import com.utsusynth.utsu.model.voicebank.Voicebank;
  * Node of a linked list of SongNotes.
  */
 public class NoteNode {
+	private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+
 	private Note note;
 	private Optional<NoteNode> prev;
 	private Optional<NoteNode> next;
@@ -86,15 +89,27 @@ public class NoteNode {
 	 */
 	NoteNode insertNote(Note noteToInsert, int deltaToInsert, int prevDelta)
 			throws NoteAlreadyExistsException {
-		int curDelta = prevDelta + this.note.getDelta();
+		// Walk down the list in a loop, as long songs have more notes than the stack has room for.
+		NoteNode node = this;
+		int curDelta = prevDelta + node.note.getDelta();
+		while (deltaToInsert > curDelta && node.next.isPresent()) {
+			node = node.next.get();
+			curDelta += node.note.getDelta();
+		}
+		return node.insertNoteHere(noteToInsert, deltaToInsert, curDelta);
+	}
+
+	private NoteNode insertNoteHere(Note noteToInsert, int deltaToInsert, int curDelta)
+			throws NoteAlreadyExistsException {
 		if (deltaToInsert < curDelta) {
 			if (!this.prev.isPresent()) {
 				// TODO: Throw an error.
-				System.out.println("ERROR: Tried to replace head from inside SongNode!");
+				errorLogger.logError("Tried to replace head from inside SongNode!");
 				return null;
 			} else {
 				// Update with new lengths and deltas.
 				NoteNode prevNode = this.prev.get();
+				int prevDelta = curDelta - this.note.getDelta();
 				int prevToInsertedNote = deltaToInsert - prevDelta;
 				prevNode.getNote().safeSetLength(prevToInsertedNote);
 				noteToInsert.setDelta(prevToInsertedNote);
@@ -112,7 +127,7 @@ public class NoteNode {
 		} else if (deltaToInsert == curDelta) {
 			// Don't insert note.
 			throw new NoteAlreadyExistsException();
-		} else if (!this.next.isPresent()) {
+		} else {
 			// Update with new length and delta.
 			int curToInsertedNote = deltaToInsert - curDelta;
 			this.note.safeSetLength(curToInsertedNote);
@@ -123,9 +138,6 @@ public class NoteNode {
 			this.next = Optional.of(nodeToInsert);
 			nodeToInsert.prev = Optional.of(this);
 			return nodeToInsert;
-		} else {
-			// Continue down the linked list.
-			return this.next.get().insertNote(noteToInsert, deltaToInsert, curDelta);
 		}
 	}
 
@@ -147,7 +159,16 @@ public class NoteNode {
 	 * @return The node that was removed.
 	 */
 	NoteNode removeNote(int deltaToRemove, int prevDelta) {
-		int curDelta = prevDelta + this.note.getDelta();
+		NoteNode node = this;
+		int curDelta = prevDelta + node.note.getDelta();
+		while (deltaToRemove != curDelta && node.next.isPresent()) {
+			node = node.next.get();
+			curDelta += node.note.getDelta();
+		}
+		return node.removeNoteHere(deltaToRemove, curDelta);
+	}
+
+	private NoteNode removeNoteHere(int deltaToRemove, int curDelta) {
 		if (deltaToRemove == curDelta) {
 			// Remove this node.
 			if (this.prev.isPresent() && this.next.isPresent()) {
@@ -166,20 +187,18 @@ public class NoteNode {
 				prevNode.next = Optional.absent();
 			} else if (this.next.isPresent()) {
 				// TODO: Throw error.
-				System.out.println("ERROR: Tried to delete first node from inside SongNode!");
+				errorLogger.logError("Tried to delete first node from inside SongNode!");
 				return null;
 			} else {
 				// TODO: Throw error.
-				System.out.println("ERROR: Tried to delete the only node from inside SongNode!");
+				errorLogger.logError("Tried to delete the only node from inside SongNode!");
 				return null;
 			}
 			return this;
-		} else if (!this.next.isPresent()) {
+		} else {
 			// TODO: Throw error.
-			System.out.println("Failed to find note :(");
+			errorLogger.logWarning("Failed to find note :(");
 			return null;
-		} else {
-			return this.next.get().removeNote(deltaToRemove, curDelta);
 		}
 	}
 
@@ -2,17 +2,26 @@ package com.utsusynth.utsu.model.song;
 
 import java.io.File;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.Set;
+import java.util.function.DoubleConsumer;
 import com.google.common.base.Optional;
 import com.utsusynth.utsu.common.PitchUtils;
 import com.utsusynth.utsu.common.RegionBounds;
 import com.utsusynth.utsu.common.data.AddResponse;
 import com.utsusynth.utsu.common.data.NeighborData;
+import com.utsusynth.utsu.common.data.NoteConfigData;
 import com.utsusynth.utsu.common.data.NoteData;
 import com.utsusynth.utsu.common.data.PitchbendData;
 import com.utsusynth.utsu.common.data.RemoveResponse;
 import com.utsusynth.utsu.common.exception.NoteAlreadyExistsException;
+import com.utsusynth.utsu.common.metrics.Metrics;
+import com.utsusynth.utsu.common.trace.TraceSpan;
+import com.utsusynth.utsu.common.trace.TraceType;
+import com.utsusynth.utsu.common.trace.Tracer;
 import com.utsusynth.utsu.model.song.pitch.PitchCurve;
+import com.utsusynth.utsu.model.voicebank.LyricConfig;
 import com.utsusynth.utsu.model.voicebank.Voicebank;
 import com.utsusynth.utsu.model.voicebank.VoicebankContainer;
 
@@ -20,6 +29,9 @@ import com.utsusynth.utsu.model.voicebank.VoicebankContainer;
  * In-code representation of a song. Compatible with UST versions 1.2 and 2.0.
  */
 public class Song {
+    private static final Metrics metrics = Metrics.getMetrics();
+    private static final Tracer tracer = Tracer.getTracer();
+
     private final VoicebankContainer voicebank;
     private final NoteStandardizer standardizer;
 
@@ -103,7 +115,15 @@ public class Song {
         }
 
         public Song build() {
-            noteListBuilder.standardize(newSong.standardizer, newSong.voicebank.get());
+            return build(progress -> {});
+        }
+
+        /** Builds the song, reporting progress as the fraction of notes standardized so far. */
+        public Song build(DoubleConsumer progress) {
+            metrics.timer("song.standardize").time(() -> {
+                noteListBuilder
+                        .standardize(newSong.standardizer, newSong.voicebank.get(), progress);
+            });
             newSong.noteList = noteListBuilder.build();
             return newSong;
         }
@@ -139,6 +159,13 @@ public class Song {
      * @throws NoteAlreadyExistsException
      */
     public AddResponse addNote(NoteData toAdd) throws NoteAlreadyExistsException {
+        try (TraceSpan span = tracer.start(TraceType.SONG_EDIT)) {
+            span.set("operation", "add").set("position", toAdd.getPosition());
+            return insertNote(toAdd);
+        }
+    }
+
+    private AddResponse insertNote(NoteData toAdd) throws NoteAlreadyExistsException {
         Note note = new Note();
         // New note's delta/length may be overridden while inserting into note list.
         note.setDelta(toAdd.getPosition());
@@ -146,7 +173,14 @@ public class Song {
         note.safeSetLength(toAdd.getDuration());
         note.setLyric(toAdd.getLyric());
         note.setNoteNum(PitchUtils.pitchToNoteNum(toAdd.getPitch()));
-        note.setNoteFlags("B0");
+        if (toAdd.getConfig().isPresent()) {
+            NoteConfigData config = toAdd.getConfig().get();
+            note.setVelocity(config.getVelocity());
+            note.setIntensity(config.getIntensity());
+            note.setNoteFlags(config.getNoteFlags());
+        } else {
+            note.setNoteFlags("B0");
+        }
         if (toAdd.getEnvelope().isPresent()) {
             note.setEnvelope(toAdd.getEnvelope().get());
         }
@@ -227,6 +261,13 @@ public class Song {
 
     /** Removes the note at the specified position from the song object. */
     public RemoveResponse removeNote(int positionMs) {
+        try (TraceSpan span = tracer.start(TraceType.SONG_EDIT)) {
+            span.set("operation", "remove").set("position", positionMs);
+            return deleteNote(positionMs);
+        }
+    }
+
+    private RemoveResponse deleteNote(int positionMs) {
         NoteNode removedNode = this.noteList.removeNote(positionMs);
 
         // Do standardization separately as it must happen in back -> front order.
@@ -288,6 +329,13 @@ public class Song {
 
     /** Modifies a note in-place without changing its lyric, position, or duration. */
     public void modifyNote(NoteData toModify) {
+        try (TraceSpan span = tracer.start(TraceType.SONG_EDIT)) {
+            span.set("operation", "modify").set("position", toModify.getPosition());
+            updateNote(toModify);
+        }
+    }
+
+    private void updateNote(NoteData toModify) {
         int positionMs = toModify.getPosition();
         NoteNode node = this.noteList.getNote(positionMs);
         Note note = node.getNote();
@@ -318,19 +366,33 @@ public class Song {
         while (iterator.hasNext()) {
             Note note = iterator.next();
             totalDelta += note.getDelta();
-            notes.add(
-                    new NoteData(
-                            totalDelta,
-                            note.getDuration(),
-                            PitchUtils.noteNumToPitch(note.getNoteNum()),
-                            note.getLyric(),
-                            Optional.of(note.getEnvelope()),
-                            Optional.of(note.getPitchbends()),
-                            Optional.of(note.getConfigData())));
+            notes.add(toNoteData(note, totalDelta));
+        }
+        return notes;
+    }
+
+    /** Notes that overlap a region, in order of position. */
+    public LinkedList<NoteData> getNotes(RegionBounds bounds) {
+        LinkedList<NoteData> notes = new LinkedList<>();
+        NoteIterator iterator = noteList.boundedIterator(bounds);
+        while (iterator.hasNext()) {
+            Note note = iterator.next();
+            notes.add(toNoteData(note, iterator.getCurDelta()));
         }
         return notes;
     }
 
+    private static NoteData toNoteData(Note note, int positionMs) {
+        return new NoteData(
+                positionMs,
+                note.getDuration(),
+                PitchUtils.noteNumToPitch(note.getNoteNum()),
+                note.getLyric(),
+                Optional.of(note.getEnvelope()),
+                Optional.of(note.getPitchbends()),
+                Optional.of(note.getConfigData()));
+    }
+
     public String getProjectName() {
         return projectName;
     }
@@ -355,6 +417,23 @@ public class Song {
         return noteList.boundedIterator(bounds);
     }
 
+    /** Voicebank samples used by notes in a region, in the order they're first used. */
+    public Set<File> getSampleFiles(RegionBounds bounds) {
+        Set<File> sampleFiles = new LinkedHashSet<>();
+        NoteIterator notes = noteList.boundedIterator(bounds);
+        while (notes.hasNext()) {
+            Note note = notes.next();
+            if (note.getTrueLyric().isEmpty()) {
+                continue;
+            }
+            Optional<LyricConfig> config = voicebank.get().getLyricConfig(note.getTrueLyric());
+            if (config.isPresent()) {
+                sampleFiles.add(config.get().getPathToFile());
+            }
+        }
+        return sampleFiles;
+    }
+
     public String getFlags() {
         return flags;
     }
@@ -368,7 +447,19 @@ public class Song {
     }
 
     public String getPitchString(int firstPitchStep, int lastPitchStep, int noteNum) {
-        return pitchbends.renderPitchbends(firstPitchStep, lastPitchStep, noteNum);
+        return metrics.timer("render.pitchString").time(
+                () -> pitchbends.renderPitchbends(firstPitchStep, lastPitchStep, noteNum));
+    }
+
+    /** A rougher pitch string without vibrato, for draft renders. */
+    public String getDraftPitchString(int firstPitchStep, int lastPitchStep, int noteNum) {
+        return metrics.timer("render.pitchString").time(
+                () -> pitchbends.renderDraftPitchbends(firstPitchStep, lastPitchStep, noteNum));
+    }
+
+    /** Absolute pitch at each 5ms step of a section, in tenths of a semitone. */
+    public double[] getPitches(int firstPitchStep, int lastPitchStep) {
+        return pitchbends.renderPitches(firstPitchStep, lastPitchStep);
     }
 
     @Override
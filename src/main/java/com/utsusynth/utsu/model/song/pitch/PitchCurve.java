@@ -14,6 +14,10 @@ import com.utsusynth.utsu.model.song.pitch.portamento.PortamentoFactory;
  * beat, regardless of tempo.
  */
 public class PitchCurve {
+	// How coarse draft pitchbends are: 4 steps is 20ms, and 10 cents is a tenth of a semitone.
+	private static final int DRAFT_STEPS = 4;
+	private static final int DRAFT_CENTS = 10;
+
 	// Map of pitch step number to attached pitchbend, if any.
 	// TODO: Limit the minimum and maximum x-values of portamento/vibrato.
 	private final HashMap<Integer, Pitchbend> pitchbends;
@@ -135,10 +139,16 @@ public class PitchCurve {
 		}
 	}
 
-	/** Writes out pitchbends for a section into a format readable by resamplers. */
-	public String renderPitchbends(int firstStep, int lastStep, int noteNum) {
-		String result = "";
-		double noteNumPitch = noteNum * 10; // In tenths. (1/10 of a semitone)
+	/**
+	 * Computes the pitch at each step of a section, in tenths of a semitone. This is the curve that
+	 * renderPitchbends passes to resamplers, so views can use it to show exactly what will play.
+	 */
+	public double[] renderPitches(int firstStep, int lastStep) {
+		return renderPitches(firstStep, lastStep, true);
+	}
+
+	private double[] renderPitches(int firstStep, int lastStep, boolean includeVibrato) {
+		double[] pitches = new double[Math.max(0, lastStep - firstStep + 1)];
 		double defaultPitch = 0; // In tenths. (1/10 of a semitone)
 		for (int scanStep = firstStep; scanStep <= lastStep; scanStep++) {
 			// Scan through the steps until first default pitch is found.
@@ -153,14 +163,14 @@ public class PitchCurve {
 
 		for (int step = firstStep; step <= lastStep; step++) {
 			if (pitchbends.containsKey(step)) {
-				// Write pitchbend.
 				int positionMs = step * 5; // 92 pitch steps in a beat of 480 ms.
-				double realPitch = pitchbends.get(step).apply(positionMs); // In tenths.
+				Pitchbend pitchbend = pitchbends.get(step);
+				double realPitch = includeVibrato ? pitchbend.apply(positionMs)
+						: pitchbend.applyWithoutVibrato(positionMs); // In tenths.
 				if (!pitchbends.get(step).getPortamento().isPresent()) {
 					realPitch += defaultPitch; // Vibrato modifies default pitch if no portamento.
 				}
-				int diff = (int) ((realPitch - noteNumPitch) * 10); // In cents.
-				result += convertTo12Bit(diff);
+				pitches[step - firstStep] = realPitch;
 
 				// Set the default pitch to the one at the end of current portamento.
 				Optional<Portamento> portamento = pitchbends.get(step).getPortamento();
@@ -168,25 +178,67 @@ public class PitchCurve {
 					defaultPitch = portamento.get().getEndPitch();
 				}
 			} else {
-				// Write a stretch of no pitchbends.
-				int numEmpty = 0;
-				int emptyStep = step;
-				for (; emptyStep <= lastStep; emptyStep++) {
-					if (pitchbends.containsKey(emptyStep)) {
-						break;
-					} else {
-						numEmpty++;
-					}
+				pitches[step - firstStep] = defaultPitch;
+			}
+		}
+		return pitches;
+	}
+
+	/** Writes out pitchbends for a section into a format readable by resamplers. */
+	public String renderPitchbends(int firstStep, int lastStep, int noteNum) {
+		StringBuilder result = new StringBuilder();
+		double noteNumPitch = noteNum * 10; // In tenths. (1/10 of a semitone)
+		double[] pitches = renderPitches(firstStep, lastStep);
+		for (int step = firstStep; step <= lastStep; step++) {
+			int diff = (int) ((pitches[step - firstStep] - noteNumPitch) * 10); // In cents.
+			result.append(convertTo12Bit(diff));
+			if (!pitchbends.containsKey(step)) {
+				// Write a stretch of no pitchbends, which all share the same default pitch.
+				int numEmpty = 1;
+				while (step + numEmpty <= lastStep && !pitchbends.containsKey(step + numEmpty)) {
+					numEmpty++;
 				}
-				int diff = (int) ((defaultPitch - noteNumPitch) * 10); // In cents.
-				result += convertTo12Bit(diff);
 				if (numEmpty > 1) {
-					result += String.format("#%d#", numEmpty - 1);
+					result.append(String.format("#%d#", numEmpty - 1));
 				}
-				step = emptyStep - 1; // Move step to the end of the empty stretch.
+				step += numEmpty - 1; // Move step to the end of the empty stretch.
 			}
 		}
-		return result;
+		return result.toString();
+	}
+
+	/**
+	 * Writes out a rougher version of a section's pitchbends, for draft renders. Vibrato is left
+	 * out, and each pitch is held for DRAFT_STEPS steps and rounded to DRAFT_CENTS. The held values
+	 * are run-length encoded, so the string is shorter and more notes render exactly the same.
+	 */
+	public String renderDraftPitchbends(int firstStep, int lastStep, int noteNum) {
+		StringBuilder result = new StringBuilder();
+		double noteNumPitch = noteNum * 10; // In tenths. (1/10 of a semitone)
+		double[] pitches = renderPitches(firstStep, lastStep, false);
+		int prevDiff = 0;
+		int numRepeats = 0;
+		for (int i = 0; i < pitches.length; i++) {
+			int heldIndex = i - i % DRAFT_STEPS;
+			int diff = (int) Math.round((pitches[heldIndex] - noteNumPitch) * 10 / DRAFT_CENTS)
+					* DRAFT_CENTS; // In cents.
+			if (i > 0 && diff == prevDiff) {
+				numRepeats++;
+				continue;
+			}
+			appendRepeats(result, numRepeats);
+			numRepeats = 0;
+			result.append(convertTo12Bit(diff));
+			prevDiff = diff;
+		}
+		appendRepeats(result, numRepeats);
+		return result.toString();
+	}
+
+	private static void appendRepeats(StringBuilder result, int numRepeats) {
+		if (numRepeats > 0) {
+			result.append(String.format("#%d#", numRepeats));
+		}
 	}
 
 	/**
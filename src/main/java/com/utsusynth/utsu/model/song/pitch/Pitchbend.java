@@ -2,9 +2,12 @@ package com.utsusynth.utsu.model.song.pitch;
 
 import java.util.HashMap;
 import com.google.common.base.Optional;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
 import com.utsusynth.utsu.model.song.pitch.portamento.Portamento;
 
 class Pitchbend implements PitchMutation {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+
     private HashMap<Integer, Portamento> portamento;
     private Optional<Vibrato> vibrato;
 
@@ -28,7 +31,7 @@ class Pitchbend implements PitchMutation {
     void addPortamento(int noteStartMs, Portamento portamento) {
         if (this.portamento.containsKey(noteStartMs)) {
             // TODO: Handle this.
-            System.out.println("Error: tried to add portamento twice.");
+            errorLogger.logError("Tried to add portamento twice.");
         } else {
             this.portamento.put(noteStartMs, portamento);
         }
@@ -52,7 +55,7 @@ class Pitchbend implements PitchMutation {
     void addVibrato(Vibrato vibrato) {
         if (this.vibrato.isPresent()) {
             // TODO: Handle this.
-            System.out.println("Error: tried to add overlapping vibrato.");
+            errorLogger.logError("Tried to add overlapping vibrato.");
         } else {
             this.vibrato = Optional.of(vibrato);
         }
@@ -81,4 +84,13 @@ class Pitchbend implements PitchMutation {
         }
         return portamentoVal + vibratoVal;
     }
+
+    /** Like apply, but leaves out any vibrato. */
+    double applyWithoutVibrato(int positionMs) {
+        Optional<Portamento> lastPortamento = getPortamento();
+        if (lastPortamento.isPresent()) {
+            return lastPortamento.get().apply(positionMs);
+        }
+        return 0;
+    }
 }
@@ -1,7 +1,11 @@
 package com.utsusynth.utsu.model.song.pitch.portamento;
 
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+
 /** Represents an "r"-shaped portamento. */
 class LogarithmicPortamento extends Portamento {
+	private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+
 	private final double x1;
 	private final double y1;
 	private final double x2;
@@ -24,7 +28,7 @@ class LogarithmicPortamento extends Portamento {
 	public double apply(int positionMs) {
 		if (positionMs < x1 || positionMs > x2) {
 			// TODO: Handle this.
-			System.out.println("Tried to apply a logarithmic portamento that doesn't exist here.");
+			errorLogger.logWarning("Tried to apply a logarithmic portamento that doesn't exist here.");
 			return 0.0;
 		}
 		// Don't get a divide-by-zero error and don't let pitch go beyond y1.
@@ -1,6 +1,10 @@
 package com.utsusynth.utsu.model.song.pitch.portamento;
 
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+
 public class PortamentoFactory {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+
     public Portamento makePortamento(double x1, double y1, double x2, double y2, String shape) {
         // Corner cases.
         if (y1 == y2) {
@@ -8,7 +12,7 @@ public class PortamentoFactory {
             return new LinearPortamento(x1, y1, x2, y2);
         } else if (x1 >= x2) {
             // TODO: Handle this better.
-            System.out.println("Tried to enter a portamento of length 0. :(");
+            errorLogger.logWarning("Tried to enter a portamento of length 0. :(");
             return new LinearPortamento(x2, y1, x1 + 0.1, y1);
         }
 
@@ -22,7 +26,7 @@ public class PortamentoFactory {
             return new LogisticPortamento(x1, y1, x2, y2);
         } else {
             // Assume an s-curve for unrecognized shapes.
-            System.out.println("Warning: Unrecognized portamento shape.");
+            errorLogger.logWarning("Unrecognized portamento shape.");
             return new LogisticPortamento(x1, y1, x2, y2);
         }
     }
@@ -1,7 +1,11 @@
 package com.utsusynth.utsu.model.song.pitch.portamento;
 
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+
 /** Represents a "j"-shaped portamento. */
 class QuadraticPortamento extends Portamento {
+	private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+
 	private final double x1;
 	private final double y1;
 	private final double x2;
@@ -20,7 +24,7 @@ class QuadraticPortamento extends Portamento {
 	public double apply(int positionMs) {
 		if (positionMs < x1 || positionMs > x2) {
 			// TODO: Handle this.
-			System.out.println("Tried to apply a quadradic portamento that doesn't exist here.");
+			errorLogger.logWarning("Tried to apply a quadradic portamento that doesn't exist here.");
 			return 0.0;
 		}
 		double adjustedX = positionMs - x1;
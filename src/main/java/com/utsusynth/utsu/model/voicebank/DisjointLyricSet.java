@@ -1,49 +1,138 @@
 package com.utsusynth.utsu.model.voicebank;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 /**
- * A disjoint set used to do automatic hiragana-romaji-katakana.
+ * A disjoint set used to do automatic hiragana-romaji-katakana. Immutable once built, so a single
+ * instance can be shared between all voicebanks.
  */
 public class DisjointLyricSet {
-    private final Map<String, Set<String>> disjointSet;
+    public static final int NO_GROUP = -1;
 
-    public DisjointLyricSet() {
-        disjointSet = new HashMap<>();
-    }
+    // Maps each member to the interned id of the group it belongs to.
+    private final ImmutableMap<String, Integer> groupIds;
+    private final ImmutableList<ImmutableSet<String>> groups;
+
+    public static class Builder {
+        private final Map<String, Integer> memberIds;
+        private final List<String> members;
+        private int[] parents; // Union-find forest over member ids.
+
+        private Builder() {
+            memberIds = new HashMap<>();
+            members = new ArrayList<>();
+            parents = new int[64];
+        }
 
-    public DisjointLyricSet addGroup(String... members) {
-        if (members.length == 0) {
+        public Builder addGroup(String... newMembers) {
+            int firstId = NO_GROUP;
+            for (String rawMember : newMembers) {
+                String member = rawMember.trim();
+                if (member.isEmpty()) {
+                    continue;
+                }
+                int id = intern(member);
+                if (firstId == NO_GROUP) {
+                    firstId = id;
+                } else {
+                    union(firstId, id);
+                }
+            }
             return this;
         }
-        HashSet<String> group = new HashSet<>();
-        for (String member : members) {
-            if (disjointSet.containsKey(member)) {
-                merge(disjointSet.get(member), group);
-            } else {
-                group.add(member);
-                disjointSet.put(member, group);
+
+        public DisjointLyricSet build() {
+            ImmutableMap.Builder<String, Integer> idBuilder = ImmutableMap.builder();
+            List<ImmutableSet.Builder<String>> groupBuilders = new ArrayList<>();
+            int[] rootToGroup = new int[members.size()];
+            Arrays.fill(rootToGroup, NO_GROUP);
+            for (int id = 0; id < members.size(); id++) {
+                int root = find(id);
+                if (rootToGroup[root] == NO_GROUP) {
+                    rootToGroup[root] = groupBuilders.size();
+                    groupBuilders.add(ImmutableSet.builder());
+                }
+                int groupId = rootToGroup[root];
+                groupBuilders.get(groupId).add(members.get(id));
+                idBuilder.put(members.get(id), groupId);
+            }
+            ImmutableList.Builder<ImmutableSet<String>> groupList = ImmutableList.builder();
+            for (ImmutableSet.Builder<String> groupBuilder : groupBuilders) {
+                groupList.add(groupBuilder.build());
             }
+            return new DisjointLyricSet(idBuilder.build(), groupList.build());
+        }
+
+        private int intern(String member) {
+            Integer existing = memberIds.get(member);
+            if (existing != null) {
+                return existing;
+            }
+            int id = members.size();
+            if (id == parents.length) {
+                parents = Arrays.copyOf(parents, parents.length * 2);
+            }
+            parents[id] = id;
+            members.add(member);
+            memberIds.put(member, id);
+            return id;
         }
-        return this;
-    }
 
-    public HashSet<String> getGroup(String member) {
-        HashSet<String> group = new HashSet<>();
-        if (disjointSet.containsKey(member)) {
-            group.addAll(disjointSet.get(member));
+        private int find(int id) {
+            while (parents[id] != id) {
+                parents[id] = parents[parents[id]]; // Path halving.
+                id = parents[id];
+            }
+            return id;
         }
-        return group;
+
+        private void union(int first, int second) {
+            int firstRoot = find(first);
+            int secondRoot = find(second);
+            if (firstRoot != secondRoot) {
+                parents[secondRoot] = firstRoot;
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private DisjointLyricSet(
+            ImmutableMap<String, Integer> groupIds,
+            ImmutableList<ImmutableSet<String>> groups) {
+        this.groupIds = groupIds;
+        this.groups = groups;
+    }
+
+    /** Returns the interned id of a member's group, or NO_GROUP if it has none. */
+    public int getGroupId(String member) {
+        Integer groupId = groupIds.get(member);
+        return groupId == null ? NO_GROUP : groupId;
     }
 
-    private void merge(Set<String> oldGroup, Set<String> newGroup) {
-        for (String member : oldGroup) {
-            newGroup.add(member);
-            disjointSet.put(member, newGroup);
+    /** Returns an unmodifiable view of a member's group. Never copies. */
+    public Set<String> getGroup(String member) {
+        return getGroupById(getGroupId(member));
+    }
+
+    public Set<String> getGroupById(int groupId) {
+        if (groupId < 0 || groupId >= groups.size()) {
+            return ImmutableSet.of();
         }
+        return groups.get(groupId);
     }
 
+    public int getNumGroups() {
+        return groups.size();
+    }
 }
@@ -1,14 +1,18 @@
 package com.utsusynth.utsu.model.voicebank;
 
 import java.io.File;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.concurrent.Executor;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.utsusynth.utsu.common.data.LyricConfigData;
 import com.utsusynth.utsu.common.data.LyricConfigData.FrqStatus;
 import com.utsusynth.utsu.common.data.PitchMapData;
@@ -19,8 +23,7 @@ import com.utsusynth.utsu.engine.FrqGenerator;
  * as well
  */
 public class Voicebank {
-    // TODO: Once you have a VoicebankManager, consider sharing between voicebanks.
-    private final DisjointLyricSet conversionSet;
+    private final DisjointLyricSet conversionSet; // Shared between all voicebanks.
     private final LyricConfigMap lyricConfigs;
     private final PitchMap pitchMap;
     private final Set<File> soundFiles;
@@ -77,11 +80,6 @@ public class Voicebank {
             return this;
         }
 
-        public Builder addConversionGroup(String... members) {
-            conversionSet.addGroup(members);
-            return this;
-        }
-
         public Voicebank build() {
             return newVoicebank;
         }
@@ -132,7 +130,7 @@ public class Voicebank {
             }
         }
 
-        SortedSet<LyricConfig> matches = new TreeSet<>();
+        LyricConfig firstMatch = null;
         for (String convertedLyric : conversionSet.getGroup(lyric)) {
             if (convertedLyric.equals(lyric)) {
                 // Don't check the same lyric twice.
@@ -141,13 +139,16 @@ public class Voicebank {
 
             for (String combo : allCombinations(prefix, convertedLyric, suffix)) {
                 if (lyricConfigs.hasLyric(combo)) {
-                    matches.add(lyricConfigs.getConfig(combo));
+                    LyricConfig match = lyricConfigs.getConfig(combo);
+                    if (firstMatch == null || match.compareTo(firstMatch) < 0) {
+                        firstMatch = match;
+                    }
                 }
             }
         }
         // For now, arbitrarily but consistently return the first match.
-        if (!matches.isEmpty()) {
-            return Optional.of(matches.first());
+        if (firstMatch != null) {
+            return Optional.of(firstMatch);
         }
 
         return Optional.absent();
@@ -245,34 +246,44 @@ public class Voicebank {
         pitchMap.put(data.getPitch(), data.getSuffix());
     }
 
-    private boolean generateFrq(File wavFile) {
-        String wavName = wavFile.getName();
-        String frqName = wavName.substring(0, wavName.length() - 4) + "_wav.frq";
-        File frqFile = wavFile.getParentFile().toPath().resolve(frqName).toFile();
-        frqGenerator.genFrqFile(wavFile, frqFile);
-        if (frqFile.canRead()) {
-            soundFiles.remove(frqFile); // Removes existing frq file, if present.
-            soundFiles.add(frqFile);
-            return true;
-        }
-        return false;
-    }
-
     /**
-     * Generates the specified frq files and updates each piece of data.
+     * Generates the specified frq files in parallel and updates each piece of data as its file
+     * finishes. Returns immediately.
+     *
+     * @param callbackExecutor Where status updates are run, usually the UI thread.
      */
-    public void generateFrqs(Iterator<LyricConfigData> dataIterator) {
+    public void generateFrqs(Iterator<LyricConfigData> dataIterator, Executor callbackExecutor) {
+        // Aliases often share a wav file, so only generate each frq once.
+        Map<File, ListenableFuture<Boolean>> frqFutures = new HashMap<>();
         while (dataIterator.hasNext()) {
             LyricConfigData data = dataIterator.next();
             if (data == null) {
                 continue;
             }
             data.setFrqStatus(FrqStatus.LOADING);
-            if (generateFrq(data.getPathToFile())) {
-                data.setFrqStatus(FrqStatus.VALID);
-            } else {
-                data.setFrqStatus(FrqStatus.INVALID);
+            File wavFile = data.getPathToFile();
+            String wavName = wavFile.getName();
+            String frqName = wavName.substring(0, wavName.length() - 4) + "_wav.frq";
+            File frqFile = wavFile.getParentFile().toPath().resolve(frqName).toFile();
+            if (!frqFutures.containsKey(wavFile)) {
+                frqFutures.put(wavFile, frqGenerator.genFrqFileAsync(wavFile, frqFile));
             }
+            Futures.addCallback(frqFutures.get(wavFile), new FutureCallback<Boolean>() {
+                @Override
+                public void onSuccess(Boolean succeeded) {
+                    if (succeeded && frqFile.canRead()) {
+                        soundFiles.add(frqFile);
+                        data.setFrqStatus(FrqStatus.VALID);
+                    } else {
+                        data.setFrqStatus(FrqStatus.INVALID);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    data.setFrqStatus(FrqStatus.INVALID);
+                }
+            }, callbackExecutor);
         }
     }
 
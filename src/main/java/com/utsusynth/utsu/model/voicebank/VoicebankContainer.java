@@ -20,13 +20,9 @@ public class VoicebankContainer {
 
     public Voicebank get() {
         // Reloads voicebank from file if necessary.
-        if (voicebankManager.hasVoicebank(location)) {
-            return voicebankManager.getVoicebank(location);
-        } else {
-            Voicebank voicebank = voicebankReader.loadVoicebankFromDirectory(location);
-            voicebankManager.setVoicebank(location, voicebank);
-            return voicebank;
-        }
+        return voicebankManager.getVoicebank(
+                location,
+                voicebankReader::loadVoicebankFromDirectory);
     }
 
     public void mutate(Voicebank newVoicebank) {
@@ -2,13 +2,15 @@ package com.utsusynth.utsu.model.voicebank;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import com.utsusynth.utsu.common.exception.ErrorLogger;
 
 /**
  * Manages all voicebanks in use by Utsu. This class is a singleton to ensure the same voicebank
- * does not open on two editors.
+ * does not open on two editors. Voicebanks stay loaded until removed, and can be shared by songs
+ * on any thread.
  */
 public class VoicebankManager {
     private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
@@ -16,7 +18,7 @@ public class VoicebankManager {
     private final Map<File, Voicebank> voicebanks;
 
     public VoicebankManager() {
-        voicebanks = new HashMap<>();
+        voicebanks = new ConcurrentHashMap<>();
     }
 
     public boolean hasVoicebank(File location) {
@@ -29,6 +31,12 @@ public class VoicebankManager {
         return voicebanks.get(normalized);
     }
 
+    /** Returns the voicebank at a location, loading it first if nothing else has yet. */
+    public Voicebank getVoicebank(File location, Function<File, Voicebank> loader) {
+        File normalized = normalize(location);
+        return voicebanks.computeIfAbsent(normalized, loader);
+    }
+
     public void setVoicebank(File location, Voicebank voicebank) {
         File normalized = normalize(location);
         voicebanks.put(normalized, voicebank);
@@ -0,0 +1,68 @@
+package com.utsusynth.utsu.plugin;
+
+import java.util.List;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.utsusynth.utsu.common.data.EnvelopeData;
+import com.utsusynth.utsu.common.data.NoteData;
+import com.utsusynth.utsu.common.data.PitchbendData;
+
+/**
+ * What a Java plugin is given: a snapshot of the selected notes that the plugin can read from
+ * another thread. Nothing a plugin does to these notes affects the song.
+ */
+public class PluginInput {
+    private final ImmutableList<NoteData> notes; // In order of position.
+    private final double tempo;
+
+    public PluginInput(List<NoteData> notes, double tempo) {
+        ImmutableList.Builder<NoteData> copies = ImmutableList.builder();
+        for (NoteData note : notes) {
+            copies.add(copyNote(note));
+        }
+        this.notes = copies.build();
+        this.tempo = tempo;
+    }
+
+    public ImmutableList<NoteData> getNotes() {
+        return notes;
+    }
+
+    public double getTempo() {
+        return tempo;
+    }
+
+    // Envelopes and vibratos are stored as arrays, which are copied so plugins can't edit them.
+    private static NoteData copyNote(NoteData note) {
+        Optional<EnvelopeData> envelope = Optional.absent();
+        if (note.getEnvelope().isPresent()) {
+            EnvelopeData oldEnvelope = note.getEnvelope().get();
+            double[] widths = oldEnvelope.getWidths().clone();
+            double[] heights = oldEnvelope.getHeights().clone();
+            if (oldEnvelope.getPreutter().isPresent() && oldEnvelope.getLength().isPresent()) {
+                envelope = Optional.of(
+                        new EnvelopeData(
+                                oldEnvelope.getPreutter().get(),
+                                oldEnvelope.getLength().get(),
+                                widths,
+                                heights));
+            } else {
+                envelope = Optional.of(new EnvelopeData(widths, heights));
+            }
+        }
+        Optional<PitchbendData> pitchbend = Optional.absent();
+        if (note.getPitchbend().isPresent()) {
+            PitchbendData oldPitchbend = note.getPitchbend().get();
+            pitchbend = Optional.of(
+                    oldPitchbend.withVibrato(Optional.of(oldPitchbend.getVibrato().clone())));
+        }
+        return new NoteData(
+                note.getPosition(),
+                note.getDuration(),
+                note.getPitch(),
+                note.getLyric(),
+                envelope,
+                pitchbend,
+                note.getConfig());
+    }
+}
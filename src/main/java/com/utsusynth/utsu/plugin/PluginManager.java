@@ -0,0 +1,96 @@
+package com.utsusynth.utsu.plugin;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.Executors;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.files.PluginChanges;
+
+/**
+ * Finds Java plugins in the jars of a plugins directory and runs them off the UI thread. Plugins
+ * are loaded once, the first time they're asked for.
+ */
+public class PluginManager {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+
+    private final File pluginsDir;
+    private final ClassLoader parentLoader;
+    private final ListeningExecutorService pluginThread;
+
+    private ImmutableList<UtsuPlugin> plugins; // Null until plugins are loaded.
+
+    public PluginManager(File pluginsDir, ClassLoader parentLoader) {
+        this.pluginsDir = pluginsDir;
+        this.parentLoader = parentLoader;
+        this.pluginThread = MoreExecutors.listeningDecorator(
+                Executors.newSingleThreadExecutor(
+                        new ThreadFactoryBuilder().setDaemon(true)
+                                .setNameFormat("java-plugin-%d").build()));
+    }
+
+    /** All plugins found, in the order their jars are named. */
+    public synchronized ImmutableList<UtsuPlugin> getPlugins() {
+        if (plugins == null) {
+            plugins = loadPlugins();
+        }
+        return plugins;
+    }
+
+    /** Loads plugins in the background, so that scanning their jars doesn't hold up the UI. */
+    public ListenableFuture<ImmutableList<UtsuPlugin>> loadPluginsAsync() {
+        return pluginThread.submit(this::getPlugins);
+    }
+
+    /**
+     * Runs a plugin in the background. The returned future fails if the plugin throws, and
+     * callbacks on it must move back to the UI thread before applying the changes.
+     */
+    public ListenableFuture<PluginChanges> runPlugin(UtsuPlugin plugin, PluginInput input) {
+        return pluginThread.submit(() -> plugin.run(input));
+    }
+
+    private ImmutableList<UtsuPlugin> loadPlugins() {
+        List<URL> jarUrls = new ArrayList<>();
+        File[] jars = pluginsDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".jar"));
+        if (jars != null) {
+            Arrays.sort(jars);
+            for (File jar : jars) {
+                try {
+                    jarUrls.add(jar.toURI().toURL());
+                } catch (MalformedURLException e) {
+                    errorLogger.logError(e);
+                }
+            }
+        }
+        ClassLoader classLoader =
+                new URLClassLoader(jarUrls.toArray(new URL[jarUrls.size()]), parentLoader);
+        ImmutableList.Builder<UtsuPlugin> found = ImmutableList.builder();
+        Iterator<UtsuPlugin> iterator =
+                ServiceLoader.load(UtsuPlugin.class, classLoader).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                found.add(iterator.next());
+            } catch (ServiceConfigurationError e) {
+                // Skip a broken plugin without giving up on the rest.
+                errorLogger.logError(e);
+            }
+        }
+        return found.build();
+    }
+}
@@ -0,0 +1,20 @@
+package com.utsusynth.utsu.plugin;
+
+import com.utsusynth.utsu.files.PluginChanges;
+
+/**
+ * A plugin written in Java that runs inside Utsu and works on notes directly, instead of on a UST
+ * file like legacy UTAU plugins. Plugins are found with {@link java.util.ServiceLoader}, so a
+ * plugin jar must list its implementations in
+ * META-INF/services/com.utsusynth.utsu.plugin.UtsuPlugin.
+ */
+public interface UtsuPlugin {
+    /** Name shown in the plugins menu. */
+    String getName();
+
+    /**
+     * Edits the selected notes. This is called on a background thread, so it must not touch the
+     * UI. Returning no changes leaves the song as it was.
+     */
+    PluginChanges run(PluginInput input);
+}
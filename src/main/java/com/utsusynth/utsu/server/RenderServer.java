@@ -0,0 +1,445 @@
+package com.utsusynth.utsu.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import com.google.common.base.Optional;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.common.metrics.Metrics;
+import com.utsusynth.utsu.engine.EngineModule;
+import com.utsusynth.utsu.engine.RenderJob;
+import com.utsusynth.utsu.engine.RenderJob.Priority;
+import com.utsusynth.utsu.engine.RenderJob.State;
+import com.utsusynth.utsu.engine.RenderQueue;
+import com.utsusynth.utsu.files.UstFileReader;
+import com.utsusynth.utsu.model.ModelModule;
+import com.utsusynth.utsu.model.song.Song;
+
+/**
+ * Renders UST files over HTTP without any UI, so songs can be rendered as part of a build. Only
+ * listens on the loopback address. Voicebanks stay loaded between requests. Endpoints:
+ *
+ * <pre>
+ * POST   /render?voicebank=path  Renders the UST file in the request body. Returns the job as
+ *                                JSON, or the WAV itself with wait=true. The voicebank is
+ *                                optional, and name=title names the job.
+ * GET    /jobs                   Every job that hasn't been removed.
+ * GET    /jobs/{id}              A job's state, progress and timings.
+ * GET    /jobs/{id}/wav          The rendered WAV, once the job is done.
+ * DELETE /jobs/{id}              Cancels a job and deletes its WAV.
+ * GET    /metrics                Metrics for the whole server, as JSON.
+ * </pre>
+ *
+ * Run it from the folder with the assets folder, like the app. Options:
+ *
+ * <pre>
+ * --port=8089          Port to listen on.
+ * --concurrency=2      Songs to render at once. Half the cores by default.
+ * --maxQueuedJobs=16   Jobs that can wait or render at once before new ones are turned away.
+ * --outputDir=path     Where to keep rendered WAVs, instead of a temporary folder.
+ * </pre>
+ */
+public class RenderServer {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final Metrics metrics = Metrics.getMetrics();
+    private static final long RESULT_LIFETIME_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private final RenderQueue renderQueue;
+    private final UstFileReader ustFileReader;
+    private final File outputDir;
+    private final int maxQueuedJobs;
+    private final Map<String, ServerJob> jobs; // Guarded by this, in the order added.
+
+    private HttpServer server;
+
+    /** A render requested through the server, and where its WAV goes. */
+    private static class ServerJob {
+        private final String id;
+        private final File wavFile;
+        private final Optional<File> voicebank;
+        private RenderJob job; // Set once, right after the job is queued.
+        private volatile long loadMs;
+        private volatile long finishedMs;
+
+        private ServerJob(String id, File wavFile, Optional<File> voicebank) {
+            this.id = id;
+            this.wavFile = wavFile;
+            this.voicebank = voicebank;
+        }
+    }
+
+    /** A request that can't be served, with the status to respond with. */
+    private static class RequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        private RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    public RenderServer(
+            RenderQueue renderQueue,
+            UstFileReader ustFileReader,
+            File outputDir,
+            int maxQueuedJobs) {
+        this.renderQueue = renderQueue;
+        this.ustFileReader = ustFileReader;
+        this.outputDir = outputDir;
+        this.maxQueuedJobs = maxQueuedJobs;
+        this.jobs = new LinkedHashMap<>();
+    }
+
+    /** Starts listening on a port of localhost, or any free port if the port is 0. */
+    public void start(int port) throws IOException {
+        server = HttpServer
+                .create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/render", exchange -> respond(exchange, this::handleRender));
+        server.createContext("/jobs", exchange -> respond(exchange, this::handleJobs));
+        server.createContext("/metrics", exchange -> respond(exchange, this::handleMetrics));
+        // Requests that wait for their render hold a thread, so don't limit the number.
+        server.setExecutor(
+                Executors.newCachedThreadPool(
+                        new ThreadFactoryBuilder().setDaemon(true)
+                                .setNameFormat("render-server-%d").build()));
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** Stops listening and cancels any jobs that haven't finished. */
+    public void stop() {
+        server.stop(0);
+        synchronized (this) {
+            for (ServerJob serverJob : jobs.values()) {
+                renderQueue.cancel(serverJob.job);
+            }
+        }
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException, RequestException;
+    }
+
+    private void respond(HttpExchange exchange, Handler handler) {
+        try {
+            handler.handle(exchange);
+        } catch (RequestException e) {
+            sendJson(exchange, e.status, "{\"error\": " + quote(e.getMessage()) + "}");
+        } catch (Exception e) {
+            errorLogger.logError(e);
+            sendJson(exchange, 500, "{\"error\": " + quote(String.valueOf(e)) + "}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleRender(HttpExchange exchange) throws IOException, RequestException {
+        requireMethod(exchange, "POST");
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        Optional<File> voicebank = Optional.absent();
+        if (params.containsKey("voicebank")) {
+            File voiceDir = new File(params.get("voicebank"));
+            if (!voiceDir.isDirectory()) {
+                throw new RequestException(400, "No voicebank found at " + voiceDir);
+            }
+            voicebank = Optional.of(voiceDir);
+        }
+        byte[] ustBytes = ByteStreams.toByteArray(exchange.getRequestBody());
+        if (ustBytes.length == 0) {
+            throw new RequestException(400, "Expected a UST file in the request body.");
+        }
+        ServerJob serverJob = enqueue(params.getOrDefault("name", "song"), ustBytes, voicebank);
+
+        exchange.getResponseHeaders().set("Location", "/jobs/" + serverJob.id);
+        if (!Boolean.parseBoolean(params.get("wait"))) {
+            sendJson(exchange, 202, toJson(serverJob));
+            return;
+        }
+        boolean succeeded;
+        try {
+            succeeded = serverJob.job.getResult().get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException(e);
+        }
+        if (!succeeded) {
+            sendJson(exchange, 500, toJson(serverJob));
+            return;
+        }
+        // The caller has its WAV, so there's no reason to keep the job.
+        sendWav(exchange, serverJob);
+        remove(serverJob);
+    }
+
+    private synchronized ServerJob enqueue(
+            String name,
+            byte[] ustBytes,
+            Optional<File> voicebank) throws RequestException {
+        removeExpiredJobs();
+        long numQueued = jobs.values().stream().filter(serverJob -> !serverJob.job.isFinished())
+                .count();
+        if (numQueued >= maxQueuedJobs) {
+            metrics.counter("server.rejected").increment();
+            throw new RequestException(503, "Too many jobs, try again later.");
+        }
+        String id = UUID.randomUUID().toString();
+        ServerJob serverJob = new ServerJob(id, new File(outputDir, id + ".wav"), voicebank);
+        serverJob.job = renderQueue.enqueueExport(
+                name,
+                () -> loadSong(serverJob, ustBytes),
+                serverJob.wavFile,
+                Priority.NORMAL);
+        jobs.put(id, serverJob);
+        serverJob.job.getResult()
+                .addListener(() -> onFinished(serverJob), MoreExecutors.directExecutor());
+        return serverJob;
+    }
+
+    private Song loadSong(ServerJob serverJob, byte[] ustBytes) {
+        long startMs = System.currentTimeMillis();
+        Song song = ustFileReader.readSong(ustBytes, progress -> {}).getSong();
+        if (serverJob.voicebank.isPresent()) {
+            song = song.toBuilder().setVoiceDirectory(serverJob.voicebank.get()).build();
+        }
+        serverJob.loadMs = System.currentTimeMillis() - startMs;
+        return song;
+    }
+
+    private void onFinished(ServerJob serverJob) {
+        serverJob.finishedMs = System.currentTimeMillis();
+        RenderJob job = serverJob.job;
+        metrics.timer("server.jobWait").record(job.getWaitMs(), TimeUnit.MILLISECONDS);
+        if (job.getState() == State.DONE) {
+            metrics.timer("server.jobLoad").record(serverJob.loadMs, TimeUnit.MILLISECONDS);
+            metrics.timer("server.jobRender")
+                    .record(getRenderMs(serverJob), TimeUnit.MILLISECONDS);
+        } else if (job.getState() == State.FAILED) {
+            metrics.counter("server.failedJobs").increment();
+        }
+        errorLogger.logInfo(
+                String.format(
+                        "Job %s %s after %d ms waiting, %d ms loading, %d ms rendering",
+                        serverJob.id,
+                        job.getState().name().toLowerCase(),
+                        job.getWaitMs(),
+                        serverJob.loadMs,
+                        getRenderMs(serverJob)));
+    }
+
+    private void handleJobs(HttpExchange exchange) throws IOException, RequestException {
+        // Paths look like /jobs, /jobs/{id} or /jobs/{id}/wav.
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        if (parts.length <= 2) {
+            requireMethod(exchange, "GET");
+            sendJson(exchange, 200, jobsToJson());
+            return;
+        }
+        ServerJob serverJob;
+        synchronized (this) {
+            removeExpiredJobs();
+            serverJob = jobs.get(parts[2]);
+        }
+        if (serverJob == null || parts.length > 4
+                || (parts.length == 4 && !parts[3].equals("wav"))) {
+            throw new RequestException(404, "No such job.");
+        }
+        if (parts.length == 4) {
+            requireMethod(exchange, "GET");
+            if (serverJob.job.getState() != State.DONE) {
+                sendJson(exchange, 409, toJson(serverJob));
+                return;
+            }
+            sendWav(exchange, serverJob);
+        } else if (exchange.getRequestMethod().equals("DELETE")) {
+            remove(serverJob);
+            sendJson(exchange, 200, toJson(serverJob));
+        } else {
+            requireMethod(exchange, "GET");
+            sendJson(exchange, 200, toJson(serverJob));
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException, RequestException {
+        requireMethod(exchange, "GET");
+        sendJson(exchange, 200, metrics.toJson());
+    }
+
+    private synchronized void remove(ServerJob serverJob) {
+        jobs.remove(serverJob.id);
+        renderQueue.cancel(serverJob.job);
+        serverJob.wavFile.delete();
+    }
+
+    // Called with the lock held.
+    private void removeExpiredJobs() {
+        long now = System.currentTimeMillis();
+        Iterator<ServerJob> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            ServerJob serverJob = iterator.next();
+            if (serverJob.finishedMs > 0 && now - serverJob.finishedMs > RESULT_LIFETIME_MS) {
+                serverJob.wavFile.delete();
+                iterator.remove();
+            }
+        }
+        renderQueue.clearFinished();
+    }
+
+    private synchronized String jobsToJson() {
+        StringBuilder json = new StringBuilder("[");
+        for (ServerJob serverJob : jobs.values()) {
+            json.append(json.length() > 1 ? ",\n  " : "\n  ").append(toJson(serverJob));
+        }
+        return json.append(jobs.isEmpty() ? "]" : "\n]").toString();
+    }
+
+    private static String toJson(ServerJob serverJob) {
+        RenderJob job = serverJob.job;
+        return String.format(
+                Locale.ROOT,
+                "{\"id\": %s, \"name\": %s, \"state\": %s, \"progress\": %.3f, \"waitMs\": %d, "
+                        + "\"loadMs\": %d, \"renderMs\": %d, \"voicebank\": %s}",
+                quote(serverJob.id),
+                quote(job.getName()),
+                quote(job.getState().name().toLowerCase()),
+                job.getProgress(),
+                job.getWaitMs(),
+                serverJob.loadMs,
+                getRenderMs(serverJob),
+                serverJob.voicebank.isPresent() ? quote(serverJob.voicebank.get().getPath())
+                        : "null");
+    }
+
+    // Render time of the job itself, apart from loading its song.
+    private static long getRenderMs(ServerJob serverJob) {
+        return Math.max(0, serverJob.job.getRenderMs() - serverJob.loadMs);
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method)
+            throws RequestException {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new RequestException(405, "Expected " + method + ".");
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery)
+            throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String param : rawQuery.split("&")) {
+            int equals = param.indexOf('=');
+            if (equals > 0) {
+                params.put(
+                        URLDecoder.decode(param.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(param.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+
+    private static void sendWav(HttpExchange exchange, ServerJob serverJob) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "audio/wav");
+        exchange.getResponseHeaders().set("X-Job-Id", serverJob.id);
+        exchange.getResponseHeaders().set("X-Wait-Ms", Long.toString(serverJob.job.getWaitMs()));
+        exchange.getResponseHeaders().set("X-Load-Ms", Long.toString(serverJob.loadMs));
+        exchange.getResponseHeaders()
+                .set("X-Render-Ms", Long.toString(getRenderMs(serverJob)));
+        exchange.sendResponseHeaders(200, serverJob.wavFile.length());
+        try (OutputStream body = exchange.getResponseBody()) {
+            Files.copy(serverJob.wavFile, body);
+        }
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) {
+        byte[] bytes = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        try {
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(bytes);
+            }
+        } catch (IOException e) {
+            // The client has most likely gone away.
+            errorLogger.logVerbose(e);
+        }
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        int port = Integer.parseInt(options.getOrDefault("port", "8089"));
+        int maxQueuedJobs = Integer.parseInt(options.getOrDefault("maxQueuedJobs", "16"));
+        File outputDir = options.containsKey("outputDir") ? new File(options.get("outputDir"))
+                : Files.createTempDir();
+        outputDir.mkdirs();
+        ErrorLogger.getLogger().logToFile(new File("logs"));
+
+        // Only the engine and model, since there's no UI or audio output.
+        Injector injector = Guice.createInjector(new EngineModule(), new ModelModule());
+        RenderQueue renderQueue = injector.getInstance(RenderQueue.class);
+        if (options.containsKey("concurrency")) {
+            renderQueue.setConcurrency(Integer.parseInt(options.get("concurrency")));
+        }
+        RenderServer server = new RenderServer(
+                renderQueue,
+                injector.getInstance(UstFileReader.class),
+                outputDir,
+                maxQueuedJobs);
+        server.start(port);
+        errorLogger.logInfo(
+                "Render server listening on http://localhost:" + server.getPort() + ", writing to "
+                        + outputDir);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int equals = arg.indexOf('=');
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+}
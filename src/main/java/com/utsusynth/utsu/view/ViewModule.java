@@ -8,6 +8,8 @@ import com.utsusynth.utsu.view.song.note.NoteFactory;
 import com.utsusynth.utsu.view.song.note.envelope.EnvelopeFactory;
 import com.utsusynth.utsu.view.song.note.pitch.PitchbendFactory;
 import com.utsusynth.utsu.view.song.note.pitch.portamento.CurveFactory;
+import com.utsusynth.utsu.view.voicebank.SpectrogramCache;
+import com.utsusynth.utsu.view.voicebank.WaveformCache;
 
 public class ViewModule extends AbstractModule {
 
@@ -17,6 +19,8 @@ public class ViewModule extends AbstractModule {
         bind(EnvelopeFactory.class).asEagerSingleton();
         bind(PitchbendFactory.class).asEagerSingleton();
         bind(CurveFactory.class).asEagerSingleton();
+        bind(WaveformCache.class).asEagerSingleton();
+        bind(SpectrogramCache.class).asEagerSingleton();
     }
 
     @Provides
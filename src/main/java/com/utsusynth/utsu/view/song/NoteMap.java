@@ -1,14 +1,18 @@
 package com.utsusynth.utsu.view.song;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import com.google.inject.Inject;
 import com.utsusynth.utsu.common.RegionBounds;
 import com.utsusynth.utsu.common.data.EnvelopeData;
 import com.utsusynth.utsu.common.data.PitchbendData;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
 import com.utsusynth.utsu.common.exception.NoteAlreadyExistsException;
 import com.utsusynth.utsu.view.song.note.Note;
 import com.utsusynth.utsu.view.song.note.envelope.Envelope;
@@ -19,21 +23,30 @@ import com.utsusynth.utsu.view.song.note.pitch.PitchbendCallback;
 import com.utsusynth.utsu.view.song.note.pitch.PitchbendFactory;
 import javafx.beans.property.BooleanProperty;
 import javafx.scene.Group;
+import javafx.scene.Node;
 
 public class NoteMap {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+
     private final EnvelopeFactory envelopeFactory;
     private final PitchbendFactory pitchbendFactory;
 
-    // Maps absolute position (in ms) to track note's data.
-    private Map<Integer, Note> noteMap;
+    // Maps absolute position (in ms) to track note's data, sorted so that the notes in any
+    // region can be found without scanning the whole song.
+    private TreeMap<Integer, Note> noteMap;
     private Map<Integer, Envelope> envelopeMap;
     private Map<Integer, Pitchbend> pitchbendMap;
     private Set<Note> allNotes; // Includes invalid notes.
+    private Set<Note> invalidNotes; // Notes not in noteMap, which are checked individually.
+    private int maxDurationMs; // Longest note ever put in noteMap, used to bound range queries.
 
     private RegionBounds visibleRegion;
     private Group visibleNotes; // Only includes notes in the visible region.
     private Group visibleEnvelopes; // Only includes envelopes in the visible region.
     private Group visiblePitchbends; // Only includes pitchbends in the visible region.
+    private Set<Note> attachedNotes; // Notes whose elements are in visibleNotes.
+    private Map<Integer, Envelope> attachedEnvelopes; // Keyed by position of attached note.
+    private Map<Integer, Pitchbend> attachedPitchbends; // Keyed by position of attached note.
 
     @Inject
     public NoteMap(EnvelopeFactory envelopeFactory, PitchbendFactory pitchbendFactory) {
@@ -54,15 +67,24 @@ public class NoteMap {
         return visiblePitchbends;
     }
 
+    RegionBounds getVisibleRegion() {
+        return visibleRegion;
+    }
+
     void clear() {
-        noteMap = new HashMap<>();
+        noteMap = new TreeMap<>();
         envelopeMap = new HashMap<>();
         pitchbendMap = new HashMap<>();
         allNotes = new HashSet<>();
+        invalidNotes = new HashSet<>();
+        maxDurationMs = 0;
         visibleRegion = RegionBounds.WHOLE_SONG;
         visibleNotes = new Group();
         visibleEnvelopes = new Group();
         visiblePitchbends = new Group();
+        attachedNotes = new HashSet<>();
+        attachedEnvelopes = new HashMap<>();
+        attachedPitchbends = new HashMap<>();
     }
 
     void setVisibleRegion(RegionBounds newRegion) {
@@ -73,34 +95,72 @@ public class NoteMap {
         }
         visibleRegion = newRegion;
 
-        // Add all elements from new visibleRegion.
-        for (Note note : allNotes) {
-            int pos = note.getAbsPositionMs();
-            if (newRegion.intersects(note.getBounds())) {
-                if (!visibleNotes.getChildren().contains(note.getElement())) {
-                    visibleNotes.getChildren().add(note.getElement());
-                    if (envelopeMap.containsKey(pos) && pitchbendMap.containsKey(pos)) {
-                        Envelope envelope = envelopeMap.get(pos);
-                        if (!visibleEnvelopes.getChildren().contains(envelope.getElement())) {
-                            visibleEnvelopes.getChildren().add(envelope.getElement());
-                        }
-                        Pitchbend pitchbend = pitchbendMap.get(pos);
-                        if (!visiblePitchbends.getChildren().contains(pitchbend.getElement())) {
-                            visiblePitchbends.getChildren().add(pitchbend.getElement());
-                        }
-                    }
+        // Removes all elements outside visible region, in one pass over each group.
+        Set<Node> notesToRemove = new HashSet<>();
+        Set<Node> envelopesToRemove = new HashSet<>();
+        Set<Node> pitchbendsToRemove = new HashSet<>();
+        Iterator<Note> attached = attachedNotes.iterator();
+        while (attached.hasNext()) {
+            Note note = attached.next();
+            if (!newRegion.intersects(note.getBounds())) {
+                attached.remove();
+                notesToRemove.add(note.getElement());
+                int pos = note.getAbsPositionMs();
+                if (attachedEnvelopes.containsKey(pos)) {
+                    envelopesToRemove.add(attachedEnvelopes.remove(pos).getElement());
+                }
+                if (attachedPitchbends.containsKey(pos)) {
+                    pitchbendsToRemove.add(attachedPitchbends.remove(pos).getElement());
                 }
-            } else {
-                // Removes all elements outside visible region.
-                visibleNotes.getChildren().remove(note.getElement());
+            }
+        }
+        visibleNotes.getChildren().removeAll(notesToRemove);
+        visibleEnvelopes.getChildren().removeAll(envelopesToRemove);
+        visiblePitchbends.getChildren().removeAll(pitchbendsToRemove);
+
+        // Add all elements from new visibleRegion.
+        for (Note note : getNotesInRegion(newRegion)) {
+            if (attachedNotes.add(note)) {
+                visibleNotes.getChildren().add(note.getElement());
+                int pos = note.getAbsPositionMs();
                 if (envelopeMap.containsKey(pos) && pitchbendMap.containsKey(pos)) {
-                    visibleEnvelopes.getChildren().remove(envelopeMap.get(pos).getElement());
-                    visiblePitchbends.getChildren().remove(pitchbendMap.get(pos).getElement());
+                    attachEnvelope(pos, envelopeMap.get(pos));
+                    attachPitchbend(pos, pitchbendMap.get(pos));
                 }
             }
         }
+    }
 
-        // Removes all elements not in visibleRegion.
+    /** Returns every note, valid or not, whose bounds intersect the given region. */
+    List<Note> getNotesInRegion(RegionBounds region) {
+        List<Note> notes = new ArrayList<>();
+        for (Note note : getValidNotesInRegion(region)) {
+            notes.add(note);
+        }
+        for (Note note : invalidNotes) {
+            if (region.intersects(note.getBounds())) {
+                notes.add(note);
+            }
+        }
+        return notes;
+    }
+
+    /** Returns valid notes whose bounds intersect the given region, in order of position. */
+    List<Note> getValidNotesInRegion(RegionBounds region) {
+        List<Note> notes = new ArrayList<>();
+        if (noteMap.isEmpty() || region.getMaxMs() <= region.getMinMs()) {
+            return notes;
+        }
+        // No note can start more than maxDurationMs before the region and still reach it.
+        int searchStart = (int) Math.max(
+                Integer.MIN_VALUE,
+                (long) region.getMinMs() - maxDurationMs);
+        for (Note note : noteMap.subMap(searchStart, true, region.getMaxMs(), false).values()) {
+            if (region.intersects(note.getBounds())) {
+                notes.add(note);
+            }
+        }
+        return notes;
     }
 
     boolean hasNote(int position) {
@@ -111,42 +171,50 @@ public class NoteMap {
         return noteMap.get(position);
     }
 
-    Collection<Note> getAllValidNotes() {
-        return noteMap.values();
-    }
-
     void putNote(int position, Note note) throws NoteAlreadyExistsException {
         if (noteMap.containsKey(position)) {
             throw new NoteAlreadyExistsException();
         }
         noteMap.put(position, note);
+        invalidNotes.remove(note);
+        maxDurationMs = Math.max(maxDurationMs, note.getDurationMs());
     }
 
     void addNoteElement(Note note) {
         allNotes.add(note);
-        if (visibleRegion.intersects(note.getBounds())) {
+        if (noteMap.get(note.getAbsPositionMs()) != note) {
+            invalidNotes.add(note);
+        }
+        if (visibleRegion.intersects(note.getBounds()) && attachedNotes.add(note)) {
             visibleNotes.getChildren().add(note.getElement());
         }
     }
 
     void removeNoteElement(Note note) {
         allNotes.remove(note);
-        visibleNotes.getChildren().remove(note.getElement());
+        invalidNotes.remove(note);
+        if (attachedNotes.remove(note)) {
+            visibleNotes.getChildren().remove(note.getElement());
+        }
     }
 
     void removeFullNote(int position) {
         if (noteMap.containsKey(position)) {
-            noteMap.remove(position);
+            Note removed = noteMap.remove(position);
+            if (allNotes.contains(removed)) {
+                // Note might still be on the track, even if it's no longer in the song.
+                invalidNotes.add(removed);
+            }
         } else {
             // TODO: Handle this better.
-            System.out.println("Could not find note in map of track notes :(");
+            errorLogger.logWarning("Could not find note in map of track notes :(");
         }
         if (envelopeMap.containsKey(position)) {
-            visibleEnvelopes.getChildren().remove(envelopeMap.get(position).getElement());
+            detachEnvelope(position);
             envelopeMap.remove(position);
         }
         if (pitchbendMap.containsKey(position)) {
-            visiblePitchbends.getChildren().remove(pitchbendMap.get(position).getElement());
+            detachPitchbend(position);
             pitchbendMap.remove(position);
         }
     }
@@ -157,12 +225,10 @@ public class NoteMap {
             Envelope envelope =
                     envelopeFactory.createEnvelope(noteMap.get(position), envelopeData, callback);
             // Overrides are expected here.
-            if (envelopeMap.containsKey(position)) {
-                visibleEnvelopes.getChildren().remove(envelopeMap.get(position).getElement());
-            }
+            detachEnvelope(position);
             envelopeMap.put(position, envelope);
             if (visibleRegion.intersects(noteMap.get(position).getBounds())) {
-                visibleEnvelopes.getChildren().add(envelope.getElement());
+                attachEnvelope(position, envelope);
             }
         }
     }
@@ -189,12 +255,10 @@ public class NoteMap {
                     callback,
                     vibratoEditor);
             // Overrides are expected here.
-            if (pitchbendMap.containsKey(position)) {
-                visiblePitchbends.getChildren().remove(pitchbendMap.get(position).getElement());
-            }
+            detachPitchbend(position);
             pitchbendMap.put(position, pitchbend);
             if (visibleRegion.intersects(noteMap.get(position).getBounds())) {
-                visiblePitchbends.getChildren().add(pitchbend.getElement());
+                attachPitchbend(position, pitchbend);
             }
         }
     }
@@ -210,4 +274,33 @@ public class NoteMap {
     boolean isEmpty() {
         return noteMap.isEmpty() && envelopeMap.isEmpty() && pitchbendMap.isEmpty();
     }
+
+    private void attachEnvelope(int position, Envelope envelope) {
+        if (attachedEnvelopes.get(position) != envelope) {
+            detachEnvelope(position);
+            attachedEnvelopes.put(position, envelope);
+            visibleEnvelopes.getChildren().add(envelope.getElement());
+        }
+    }
+
+    private void detachEnvelope(int position) {
+        if (attachedEnvelopes.containsKey(position)) {
+            visibleEnvelopes.getChildren().remove(attachedEnvelopes.remove(position).getElement());
+        }
+    }
+
+    private void attachPitchbend(int position, Pitchbend pitchbend) {
+        if (attachedPitchbends.get(position) != pitchbend) {
+            detachPitchbend(position);
+            attachedPitchbends.put(position, pitchbend);
+            visiblePitchbends.getChildren().add(pitchbend.getElement());
+        }
+    }
+
+    private void detachPitchbend(int position) {
+        if (attachedPitchbends.containsKey(position)) {
+            visiblePitchbends.getChildren()
+                    .remove(attachedPitchbends.remove(position).getElement());
+        }
+    }
 }
@@ -0,0 +1,211 @@
+package com.utsusynth.utsu.view.song;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import com.google.common.base.Optional;
+import com.google.inject.Inject;
+import com.utsusynth.utsu.common.RegionBounds;
+import com.utsusynth.utsu.common.quantize.Quantizer;
+import com.utsusynth.utsu.common.quantize.Scaler;
+import com.utsusynth.utsu.view.song.note.Note;
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.scene.Group;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * Optional layer that draws the song's pitch curve exactly as the model renders it for
+ * resamplers, as opposed to the editable pitchbend shapes which only approximate it. The curve is
+ * sampled per 5ms step and stroked as one polyline per run of adjacent notes onto canvas tiles,
+ * and edits only redraw the part of the curve they affect.
+ */
+public class PitchCurveOverlay {
+    private static final int TILE_WIDTH = 1024; // In pixels.
+    private static final int MS_PER_STEP = 5; // Resolution of the model's pitch curve.
+    private static final int HIGHEST_NOTE_NUM = 107; // Note num of row 0, B7.
+    private static final Color CURVE_COLOR = Color.ORANGERED;
+
+    private final Scaler scaler;
+    private final Group overlay;
+    private final Map<Integer, Canvas> tiles; // Tiles currently shown, by tile index.
+    private final List<Canvas> spareTiles; // Tiles that scrolled out of view, kept for reuse.
+    private final BooleanProperty showCurve;
+
+    private SongCallback model;
+    private NoteMap noteMap;
+    private Optional<RegionBounds> dirtyRegion;
+
+    @Inject
+    public PitchCurveOverlay(Scaler scaler) {
+        this.scaler = scaler;
+        this.overlay = new Group();
+        this.tiles = new HashMap<>();
+        this.spareTiles = new ArrayList<>();
+        this.showCurve = new SimpleBooleanProperty(false);
+        overlay.setMouseTransparent(true);
+        overlay.visibleProperty().bind(showCurve);
+        showCurve.addListener(event -> {
+            if (showCurve.get()) {
+                // Nothing is drawn while the overlay is hidden, so catch up all at once.
+                for (int tileIndex : tiles.keySet()) {
+                    redrawTile(tileIndex, 0, TILE_WIDTH);
+                }
+            }
+        });
+        clear();
+    }
+
+    void initialize(SongCallback model, NoteMap noteMap) {
+        this.model = model;
+        this.noteMap = noteMap;
+    }
+
+    Group getElement() {
+        return overlay;
+    }
+
+    BooleanProperty showCurveProperty() {
+        return showCurve;
+    }
+
+    /** Discards all tiles so that they're recreated at the current zoom level. */
+    void clear() {
+        overlay.getChildren().clear();
+        tiles.clear();
+        spareTiles.clear();
+        dirtyRegion = Optional.absent();
+    }
+
+    /** Shows tiles covering the given region, in ms, drawing any that weren't already shown. */
+    void setVisibleRegion(RegionBounds region) {
+        int firstTile = (int) (scaler.scaleX(region.getMinMs()) / TILE_WIDTH);
+        int lastTile = (int) (scaler.scaleX(region.getMaxMs()) / TILE_WIDTH);
+        Iterator<Map.Entry<Integer, Canvas>> iterator = tiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Canvas> entry = iterator.next();
+            if (entry.getKey() < firstTile || entry.getKey() > lastTile) {
+                entry.getValue().setVisible(false);
+                spareTiles.add(entry.getValue());
+                iterator.remove();
+            }
+        }
+        for (int tileIndex = firstTile; tileIndex <= lastTile; tileIndex++) {
+            if (!tiles.containsKey(tileIndex)) {
+                Canvas tile = getSpareTile();
+                tile.setLayoutX(tileIndex * TILE_WIDTH);
+                tile.setVisible(true);
+                tiles.put(tileIndex, tile);
+                redrawTile(tileIndex, 0, TILE_WIDTH);
+            }
+        }
+    }
+
+    /**
+     * Notes that the pitch curve changed somewhere in a region, in ms. Dirty regions are merged
+     * and redrawn together once the current edit is done.
+     */
+    void markDirty(RegionBounds region) {
+        if (dirtyRegion.isPresent()) {
+            dirtyRegion = Optional.of(dirtyRegion.get().mergeWith(region));
+            return;
+        }
+        dirtyRegion = Optional.of(region);
+        Platform.runLater(this::redrawDirtyRegion);
+    }
+
+    private void redrawDirtyRegion() {
+        if (!dirtyRegion.isPresent()) {
+            return; // Overlay was cleared in the meantime.
+        }
+        RegionBounds region = dirtyRegion.get();
+        dirtyRegion = Optional.absent();
+        if (!showCurve.get()) {
+            return;
+        }
+        // Widen by a step on each side so the redrawn section joins up with what's around it.
+        double minX = scaler.scaleX(region.getMinMs() - MS_PER_STEP);
+        double maxX = scaler.scaleX(region.getMaxMs() + MS_PER_STEP);
+        for (Map.Entry<Integer, Canvas> entry : tiles.entrySet()) {
+            double tileX = entry.getKey() * TILE_WIDTH;
+            double startX = Math.max(0, Math.floor(minX - tileX));
+            double endX = Math.min(TILE_WIDTH, Math.ceil(maxX - tileX));
+            if (startX < endX) {
+                redrawTile(entry.getKey(), startX, endX);
+            }
+        }
+    }
+
+    /** Clears and redraws the pixels of a tile from startX to endX, relative to the tile. */
+    private void redrawTile(int tileIndex, double startX, double endX) {
+        Canvas tile = tiles.get(tileIndex);
+        GraphicsContext gc = tile.getGraphicsContext2D();
+        gc.clearRect(startX, 0, endX - startX, tile.getHeight());
+        if (!showCurve.get() || model == null) {
+            return;
+        }
+        double tileX = tileIndex * TILE_WIDTH;
+        // Sample one step past each edge so lines crossing the edges are drawn too.
+        int minMs = (int) Math.floor(scaler.unscaleX(tileX + startX)) - MS_PER_STEP;
+        int maxMs = (int) Math.ceil(scaler.unscaleX(tileX + endX)) + MS_PER_STEP;
+
+        gc.save();
+        gc.beginPath();
+        gc.rect(startX, 0, endX - startX, tile.getHeight());
+        gc.clip();
+        gc.setStroke(CURVE_COLOR);
+        gc.setLineWidth(2);
+        int runStart = -1;
+        int runEnd = -1;
+        for (Note note : noteMap.getValidNotesInRegion(new RegionBounds(minMs, maxMs))) {
+            RegionBounds bounds = note.getValidBounds();
+            if (bounds.getMinMs() == runEnd) {
+                runEnd = bounds.getMaxMs(); // Adjacent notes share one polyline.
+                continue;
+            }
+            strokeRun(gc, tileX, Math.max(runStart, minMs), Math.min(runEnd, maxMs));
+            runStart = bounds.getMinMs();
+            runEnd = bounds.getMaxMs();
+        }
+        strokeRun(gc, tileX, Math.max(runStart, minMs), Math.min(runEnd, maxMs));
+        gc.restore();
+    }
+
+    private void strokeRun(GraphicsContext gc, double tileX, int startMs, int endMs) {
+        if (startMs >= endMs) {
+            return;
+        }
+        int firstStep = startMs / MS_PER_STEP;
+        int lastStep = (endMs - 1) / MS_PER_STEP;
+        double[] pitches = model.getPitches(firstStep, lastStep);
+        double[] xValues = new double[pitches.length];
+        double[] yValues = new double[pitches.length];
+        double rowHeight = getRowHeight();
+        for (int i = 0; i < pitches.length; i++) {
+            xValues[i] = scaler.scaleX((firstStep + i) * MS_PER_STEP) - tileX;
+            // Pitches are in tenths of a semitone, centered vertically in their row.
+            yValues[i] = (HIGHEST_NOTE_NUM - pitches[i] / 10 + 0.5) * rowHeight;
+        }
+        gc.strokePolyline(xValues, yValues, pitches.length);
+    }
+
+    private Canvas getSpareTile() {
+        if (!spareTiles.isEmpty()) {
+            Canvas tile = spareTiles.remove(spareTiles.size() - 1);
+            tile.getGraphicsContext2D().clearRect(0, 0, tile.getWidth(), tile.getHeight());
+            return tile;
+        }
+        Canvas tile = new Canvas(TILE_WIDTH, getRowHeight() * TrackGrid.NUM_ROWS);
+        overlay.getChildren().add(tile);
+        return tile;
+    }
+
+    private double getRowHeight() {
+        return Math.round(scaler.scaleY(Quantizer.ROW_HEIGHT));
+    }
+}
@@ -1,16 +1,21 @@
 package com.utsusynth.utsu.view.song;
 
-import java.util.Collection;
 import java.util.HashSet;
+import java.util.function.DoubleSupplier;
+import com.google.common.base.Optional;
 import com.google.inject.Inject;
 import com.utsusynth.utsu.common.PitchUtils;
 import com.utsusynth.utsu.common.RegionBounds;
 import com.utsusynth.utsu.common.quantize.Quantizer;
 import com.utsusynth.utsu.common.quantize.Scaler;
 import com.utsusynth.utsu.view.song.note.Note;
-import javafx.animation.Interpolator;
-import javafx.animation.TranslateTransition;
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
 import javafx.scene.Group;
+import javafx.scene.media.MediaPlayer;
+import javafx.scene.media.MediaPlayer.Status;
 import javafx.scene.shape.Line;
 import javafx.util.Duration;
 
@@ -22,7 +27,9 @@ public class PlaybackBarManager {
 
     private final Scaler scaler;
     private final HashSet<Note> highlighted;
-    private final TranslateTransition playback;
+    private final DoubleProperty playbackX;
+
+    private Optional<AnimationTimer> playback;
 
     private Line startBar;
     private Line endBar;
@@ -32,7 +39,8 @@ public class PlaybackBarManager {
     public PlaybackBarManager(Scaler scaler) {
         this.scaler = scaler;
         highlighted = new HashSet<>();
-        playback = new TranslateTransition();
+        playbackX = new SimpleDoubleProperty(0);
+        playback = Optional.absent();
         clear();
     }
 
@@ -40,30 +48,78 @@ public class PlaybackBarManager {
         return bars;
     }
 
-    // Sends the playback bar across the part of the song that plays.
-    void startPlayback(Duration duration, double tempo) {
-        if (duration != Duration.UNKNOWN && duration != Duration.INDEFINITE) {
-            // Create a playback bar.
-            double barX = bars.getChildren().contains(startBar) ? startBar.getTranslateX() : 0;
-            Line playBar = new Line(barX, 0, barX, scaler.scaleY(totalHeight));
-            playBar.getStyleClass().addAll("playback-bar");
-            bars.getChildren().add(playBar);
-
-            // Move the playback bar as the song plays.
-            playback.stop();
-            playback.setDuration(duration);
-            playback.setNode(playBar);
-            double numBeats = tempo * duration.toMinutes();
-            playback.setByX(numBeats * scaler.scaleX(Quantizer.COL_WIDTH));
-            playback.setInterpolator(Interpolator.LINEAR);
-            playback.setOnFinished(action -> {
+    /**
+     * Sends the playback bar across the part of the song that plays. The bar's position is read
+     * from the player's clock on every frame rather than estimated up front, so it stays in sync
+     * with the audio however long the song is.
+     */
+    void startPlayback(MediaPlayer player, double tempo) {
+        startPlayback(() -> {
+            Status status = player.getStatus();
+            Duration endTime = player.getStopTime();
+            Duration currentTime = player.getCurrentTime();
+            if (status == Status.STOPPED || status == Status.HALTED || status == Status.DISPOSED
+                    || (!endTime.isUnknown() && !currentTime.lessThan(endTime))) {
+                return -1;
+            }
+            return currentTime.toMillis();
+        }, tempo);
+    }
+
+    /**
+     * Sends the playback bar across the selected region over and over.
+     *
+     * @param positionMs How far into the current loop playback is, or -1 once it stops.
+     */
+    void startLoopPlayback(DoubleSupplier positionMs, double tempo) {
+        startPlayback(positionMs, tempo);
+    }
+
+    private void startPlayback(DoubleSupplier positionMs, double tempo) {
+        stopPlayback();
+        double startX = bars.getChildren().contains(startBar) ? startBar.getTranslateX() : 0;
+        Line playBar = new Line(0, 0, 0, scaler.scaleY(totalHeight));
+        playBar.getStyleClass().addAll("playback-bar");
+        playBar.setTranslateX(startX);
+        bars.getChildren().add(playBar);
+
+        double pixelsPerMs = tempo * scaler.scaleX(Quantizer.COL_WIDTH) / 60000;
+        playback = Optional.of(new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                double currentMs = positionMs.getAsDouble();
+                if (currentMs < 0) {
+                    stopPlayback();
+                    return;
+                }
+                // Only the bar moves, so this doesn't trigger layout of the rest of the track.
+                double barX = startX + currentMs * pixelsPerMs;
+                playBar.setTranslateX(barX);
+                playbackX.set(barX);
+            }
+
+            @Override
+            public void stop() {
+                super.stop();
                 bars.getChildren().remove(playBar);
-            });
-            playback.play();
+            }
+        });
+        playback.get().start();
+    }
+
+    /** The x-coordinate of the playback bar, updated every frame while playing. */
+    ReadOnlyDoubleProperty playbackXProperty() {
+        return playbackX;
+    }
+
+    private void stopPlayback() {
+        if (playback.isPresent()) {
+            playback.get().stop();
+            playback = Optional.absent();
         }
     }
 
-    void highlightTo(Note highlightToMe, Collection<Note> allNotes) {
+    void highlightTo(Note highlightToMe, NoteMap noteMap) {
         RegionBounds noteBounds = highlightToMe.getValidBounds();
         RegionBounds addRegion;
         if (highlighted.isEmpty()) {
@@ -86,7 +142,7 @@ public class PlaybackBarManager {
         endBar.setTranslateX(scaler.scaleX(addRegion.getMaxMs()));
 
         // Highlight all notes within the add region.
-        for (Note note : allNotes) {
+        for (Note note : noteMap.getValidNotesInRegion(addRegion)) {
             if (addRegion.intersects(note.getValidBounds())) {
                 // These operations are idempotent.
                 highlighted.add(note);
@@ -111,7 +167,7 @@ public class PlaybackBarManager {
     }
 
     void clear() {
-        playback.stop(); // Stop any ongoing playback.
+        stopPlayback(); // Stop any ongoing playback.
         bars = new Group();
         clearHighlights();
 
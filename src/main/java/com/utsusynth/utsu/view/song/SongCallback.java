@@ -1,5 +1,6 @@
 package com.utsusynth.utsu.view.song;
 
+import com.utsusynth.utsu.common.RegionBounds;
 import com.utsusynth.utsu.common.data.AddResponse;
 import com.utsusynth.utsu.common.data.NoteData;
 import com.utsusynth.utsu.common.data.RemoveResponse;
@@ -19,6 +20,18 @@ public interface SongCallback {
     /** Modify a note without changing its position or duration. */
     void modifyNote(NoteData toModify);
 
+    /**
+     * Samples the song's pitch curve, one value per 5ms step from firstStep to lastStep inclusive.
+     * Values are absolute pitches in tenths of a semitone, matching what resamplers receive.
+     */
+    double[] getPitches(int firstStep, int lastStep);
+
+    /** Plays a quick preview of the note at a position, without rendering the song. */
+    void auditionNote(int position);
+
+    /** Starts decoding voicebank samples used in a region, in ms, so auditions start sooner. */
+    void prefetchSamples(RegionBounds region);
+
     /** Gets the current mode: ADD, EDIT, or DELETE. */
     Mode getCurrentMode();
 
@@ -27,4 +40,7 @@ public interface SongCallback {
      * that the user is scrolled to the same spot as before.
      */
     void adjustScrollbar(double oldWidth, double newWidth);
+
+    /** Scrolls the track if needed to keep the playback bar, at the given x-value, in view. */
+    void followPlayback(double barX);
 }
@@ -1,6 +1,9 @@
 package com.utsusynth.utsu.view.song;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
 import com.google.common.base.Optional;
 import com.google.inject.Inject;
 import com.utsusynth.utsu.common.PitchUtils;
@@ -11,7 +14,9 @@ import com.utsusynth.utsu.common.data.NeighborData;
 import com.utsusynth.utsu.common.data.NoteData;
 import com.utsusynth.utsu.common.data.PitchbendData;
 import com.utsusynth.utsu.common.data.RemoveResponse;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
 import com.utsusynth.utsu.common.exception.NoteAlreadyExistsException;
+import com.utsusynth.utsu.common.metrics.Metrics;
 import com.utsusynth.utsu.common.quantize.Quantizer;
 import com.utsusynth.utsu.common.quantize.Scaler;
 import com.utsusynth.utsu.controller.SongController.Mode;
@@ -20,28 +25,37 @@ import com.utsusynth.utsu.view.song.note.NoteCallback;
 import com.utsusynth.utsu.view.song.note.NoteFactory;
 import com.utsusynth.utsu.view.song.note.envelope.EnvelopeCallback;
 import com.utsusynth.utsu.view.song.note.pitch.PitchbendCallback;
+import javafx.animation.AnimationTimer;
 import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
 import javafx.scene.Group;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.ContextMenu;
 import javafx.scene.input.MouseButton;
-import javafx.scene.layout.AnchorPane;
-import javafx.scene.layout.GridPane;
-import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
-import javafx.util.Duration;
+import javafx.scene.media.MediaPlayer;
 
 public class SongEditor {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final long LOAD_NANOS_PER_FRAME = 8_000_000; // Half of a 60fps frame.
+    private static final Metrics metrics = Metrics.getMetrics();
+
     private final PlaybackBarManager playbackManager;
     private final NoteFactory noteFactory;
     private final NoteMap noteMap;
+    private final TrackGrid trackGrid;
+    private final PitchCurveOverlay pitchCurve;
     private final Scaler scaler;
 
     // Whether the vibrato editor is active for this song editor.
     private final BooleanProperty vibratoEditor;
+    private final DoubleProperty loadProgress;
+
+    private Optional<AnimationTimer> trackLoader; // Adds notes of a newly loaded song to the track.
 
-    private HBox measures;
-    private HBox dynamics;
-    private int numMeasures;
     private SongCallback model;
 
     @Inject
@@ -49,25 +63,38 @@ public class SongEditor {
             PlaybackBarManager playbackManager,
             NoteFactory trackNoteFactory,
             NoteMap noteMap,
+            TrackGrid trackGrid,
+            PitchCurveOverlay pitchCurve,
             Scaler scaler) {
         this.playbackManager = playbackManager;
         this.noteFactory = trackNoteFactory;
         this.noteMap = noteMap;
+        this.trackGrid = trackGrid;
+        this.pitchCurve = pitchCurve;
         this.scaler = scaler;
 
         vibratoEditor = new SimpleBooleanProperty(false);
+        loadProgress = new SimpleDoubleProperty(1);
+        trackLoader = Optional.absent();
     }
 
     /** Initialize track with data from the controller. Not song-specific. */
     public void initialize(SongCallback callback) {
         this.model = callback;
+        pitchCurve.initialize(callback, noteMap);
+        playbackManager.playbackXProperty().addListener((event, oldX, newX) -> {
+            model.followPlayback(newX.doubleValue());
+        });
     }
 
-    /** Initialize track with data for a specific song. */
-    public HBox createNewTrack(List<NoteData> notes) {
+    /**
+     * Initialize track with data for a specific song. Notes are added over the next few frames,
+     * starting with the visible ones, so that long songs don't freeze the window while loading.
+     */
+    public Pane createNewTrack(List<NoteData> notes) {
         clearTrack();
         if (notes.isEmpty()) {
-            return measures;
+            return trackGrid.getTrackElement();
         }
 
         // Add as many octaves as needed.
@@ -75,46 +102,90 @@ public class SongEditor {
         setNumMeasures((lastNote.getPosition() / Quantizer.COL_WIDTH / 4) + 4);
 
         // Add all notes.
-        NoteData prevNote = notes.get(0);
-        for (NoteData note : notes) {
-            Note newNote = noteFactory.createNote(note, noteCallback, vibratoEditor);
-            int position = note.getPosition();
-            try {
-                noteMap.putNote(position, newNote);
-                if (note.getEnvelope().isPresent()) {
-                    noteMap.putEnvelope(
-                            position,
-                            note.getEnvelope().get(),
-                            getEnvelopeCallback(position));
+        loadProgress.set(0);
+        long loadStartNanos = System.nanoTime();
+        trackLoader = Optional.of(new AnimationTimer() {
+            private List<Integer> loadOrder; // Indices into notes.
+            private int numLoaded = 0;
+
+            @Override
+            public void handle(long now) {
+                if (loadOrder == null) {
+                    // Wait for the first frame, by which time the visible region has been set.
+                    loadOrder = getLoadOrder(notes, noteMap.getVisibleRegion());
                 }
-                if (note.getPitchbend().isPresent()) {
-                    noteMap.putPitchbend(
-                            position,
-                            prevNote.getPitch(),
-                            note.getPitchbend().get(),
-                            getPitchbendCallback(position),
-                            vibratoEditor);
+                long deadline = System.nanoTime() + LOAD_NANOS_PER_FRAME;
+                while (numLoaded < loadOrder.size() && System.nanoTime() < deadline) {
+                    int index = loadOrder.get(numLoaded++);
+                    loadNote(notes.get(index), notes.get(Math.max(0, index - 1)));
                 }
-            } catch (NoteAlreadyExistsException e) {
-                // TODO: Throw an error here?
-                System.out.println("UST read found two notes in the same place :(");
+                loadProgress.set((double) numLoaded / loadOrder.size());
+                if (numLoaded == loadOrder.size()) {
+                    stop();
+                    long loadNanos = System.nanoTime() - loadStartNanos;
+                    metrics.timer("view.populate").record(loadNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        });
+        trackLoader.get().start();
+        return trackGrid.getTrackElement();
+    }
+
+    /** Fraction of the current song's notes added to the track so far. */
+    public ReadOnlyDoubleProperty loadProgressProperty() {
+        return loadProgress;
+    }
+
+    // Orders notes so those in the visible region come first, otherwise keeping song order.
+    private static List<Integer> getLoadOrder(List<NoteData> notes, RegionBounds visibleRegion) {
+        List<Integer> loadOrder = new ArrayList<>(notes.size());
+        List<Integer> hiddenNotes = new ArrayList<>();
+        for (int i = 0; i < notes.size(); i++) {
+            NoteData note = notes.get(i);
+            if (visibleRegion.intersects(
+                    note.getPosition(),
+                    note.getPosition() + note.getDuration())) {
+                loadOrder.add(i);
+            } else {
+                hiddenNotes.add(i);
+            }
+        }
+        loadOrder.addAll(hiddenNotes);
+        return loadOrder;
+    }
+
+    private void loadNote(NoteData note, NoteData prevNote) {
+        Note newNote = noteFactory.createNote(note, noteCallback, vibratoEditor);
+        int position = note.getPosition();
+        try {
+            noteMap.putNote(position, newNote);
+            if (note.getEnvelope().isPresent()) {
+                noteMap.putEnvelope(
+                        position,
+                        note.getEnvelope().get(),
+                        getEnvelopeCallback(position));
             }
-            noteMap.addNoteElement(newNote);
-            prevNote = note;
+            if (note.getPitchbend().isPresent()) {
+                noteMap.putPitchbend(
+                        position,
+                        prevNote.getPitch(),
+                        note.getPitchbend().get(),
+                        getPitchbendCallback(position),
+                        vibratoEditor);
+            }
+        } catch (NoteAlreadyExistsException e) {
+            // TODO: Throw an error here?
+            errorLogger.logWarning("UST read found two notes in the same place :(");
         }
-        return measures;
+        noteMap.addNoteElement(newNote);
     }
 
     public Group getNotesElement() {
         return noteMap.getNotesElement();
     }
 
-    public HBox getDynamicsElement() {
-        if (dynamics == null) {
-            // TODO: Handle this;
-            System.out.println("Dynamics element is empty!");
-        }
-        return dynamics;
+    public Pane getDynamicsElement() {
+        return trackGrid.getDynamicsElement();
     }
 
     public Group getEnvelopesElement() {
@@ -125,16 +196,25 @@ public class SongEditor {
         return noteMap.getPitchbendsElement();
     }
 
+    public Group getPitchCurveElement() {
+        return pitchCurve.getElement();
+    }
+
     public Group getPlaybackElement() {
         return playbackManager.getElement();
     }
 
-    /** Start the playback bar animation. It will end on its own. */
-    public Void startPlayback(Duration duration, double tempo) {
-        playbackManager.startPlayback(duration, tempo);
+    /** Start the playback bar, which follows the player until it stops. */
+    public Void startPlayback(MediaPlayer player, double tempo) {
+        playbackManager.startPlayback(player, tempo);
         return null;
     }
 
+    /** Start the playback bar on a loop of the selected region, following it until it stops. */
+    public void startLoopPlayback(DoubleSupplier positionMs, double tempo) {
+        playbackManager.startLoopPlayback(positionMs, tempo);
+    }
+
     public RegionBounds getSelectedTrack() {
         return playbackManager.getRegionBounds();
     }
@@ -142,135 +222,188 @@ public class SongEditor {
     public void selectivelyShowRegion(double centerPercent, double margin) {
         int measureWidthMs = 4 * Quantizer.COL_WIDTH;
         int marginMeasures = ((int) (margin / Math.round(scaler.scaleX(measureWidthMs)))) + 3;
+        int numMeasures = trackGrid.getNumMeasures();
         int centerMeasure = (int) Math.round((numMeasures - 1) * centerPercent);
         int clampedStartMeasure =
                 Math.min(Math.max(centerMeasure - marginMeasures, 0), numMeasures - 1);
         int clampedEndMeasure =
                 Math.min(Math.max(centerMeasure + marginMeasures, 0), numMeasures - 1);
         // Use measures to we don't have to redraw the visible region too much.
-        noteMap.setVisibleRegion(
+        RegionBounds visibleRegion = new RegionBounds(
+                clampedStartMeasure * measureWidthMs,
+                (clampedEndMeasure + 1) * measureWidthMs);
+        noteMap.setVisibleRegion(visibleRegion);
+        trackGrid.setVisibleRegion(visibleRegion);
+        pitchCurve.setVisibleRegion(visibleRegion);
+        // Also look one screen ahead, since that's where the user usually scrolls next.
+        model.prefetchSamples(
                 new RegionBounds(
-                        clampedStartMeasure * measureWidthMs,
-                        (clampedEndMeasure + 1) * measureWidthMs));
+                        visibleRegion.getMinMs(),
+                        visibleRegion.getMaxMs() + visibleRegion.getMaxMs()
+                                - visibleRegion.getMinMs()));
     }
 
     private void clearTrack() {
         // Remove current track.
+        if (trackLoader.isPresent()) {
+            trackLoader.get().stop();
+            trackLoader = Optional.absent();
+        }
+        loadProgress.set(1);
         playbackManager.clear();
         noteMap.clear();
-        measures = new HBox();
-        dynamics = new HBox();
+        trackGrid.clear();
+        pitchCurve.clear();
+        trackGrid.getTrackElement().setOnMouseClicked(event -> {
+            // Clear highlights regardless of current button or current mode.
+            playbackManager.clearHighlights();
+            if (event.getButton() != MouseButton.PRIMARY) {
+                return;
+            }
+            Mode currentMode = model.getCurrentMode();
+            if (currentMode == Mode.ADD) {
+                // Create note.
+                Note newNote = noteFactory.createDefaultNote(
+                        trackGrid.getRow(event.getY()),
+                        trackGrid.getColumn(event.getX()),
+                        noteCallback,
+                        vibratoEditor);
+                noteMap.addNoteElement(newNote);
+            }
+        });
+        ContextMenu trackMenu = new ContextMenu();
+        CheckMenuItem pitchCurveMenuItem = new CheckMenuItem("Show Pitch Curve");
+        pitchCurveMenuItem.selectedProperty().bindBidirectional(pitchCurve.showCurveProperty());
+        trackMenu.getItems().add(pitchCurveMenuItem);
+        trackGrid.getTrackElement().setOnContextMenuRequested(event -> {
+            trackMenu.hide();
+            trackMenu.show(trackGrid.getTrackElement(), event.getScreenX(), event.getScreenY());
+        });
 
-        numMeasures = 0;
         setNumMeasures(4);
     }
 
     private void setNumMeasures(int newNumMeasures) {
+        if (newNumMeasures < 0 || newNumMeasures == trackGrid.getNumMeasures()) {
+            return;
+        }
         // Adjust the scrollbar to be in the same place when size of the grid changes.
         double measureWidth = 4 * Math.round(scaler.scaleX(Quantizer.COL_WIDTH));
-        model.adjustScrollbar(measureWidth * numMeasures, measureWidth * newNumMeasures);
+        model.adjustScrollbar(
+                measureWidth * trackGrid.getNumMeasures(),
+                measureWidth * newNumMeasures);
+        trackGrid.setNumMeasures(newNumMeasures);
+    }
 
-        if (newNumMeasures < 0) {
-            return;
-        } else if (newNumMeasures > numMeasures) {
-            for (int i = numMeasures; i < newNumMeasures; i++) {
-                addMeasure();
-            }
-        } else if (newNumMeasures == numMeasures) {
-            // Nothing needs to be done.
+    /** Adds a note to both the song and the track, as if the user had drawn it. */
+    public void addNote(NoteData toAdd) throws NoteAlreadyExistsException {
+        Note newNote = noteFactory.createNote(toAdd, noteCallback, vibratoEditor);
+        addToSong(newNote, toAdd);
+        noteMap.addNoteElement(newNote);
+    }
+
+    /** Removes a note from both the song and the track, as if the user had deleted it. */
+    public void removeNote(int position) {
+        if (!noteMap.hasNote(position)) {
             return;
-        } else {
-            int maxWidth = (int) measureWidth * newNumMeasures;
-            // Remove measures.
-            measures.getChildren().removeIf((child) -> {
-                return (int) Math.round(child.getLayoutX()) >= maxWidth;
-            });
-            // Remove dynamics columns.
-            dynamics.getChildren().removeIf((child) -> {
-                return (int) Math.round(child.getLayoutX()) >= maxWidth;
-            });
-            numMeasures = newNumMeasures;
         }
+        Note trackNote = noteMap.getNote(position);
+        noteCallback.removeSongNote(position);
+        noteCallback.removeTrackNote(trackNote);
     }
 
-    private void addMeasure() {
-        GridPane newMeasure = new GridPane();
-        int rowNum = 0;
-        for (int octave = 7; octave > 0; octave--) {
-            for (String pitch : PitchUtils.REVERSE_PITCHES) {
-                // Add row to track.
-                for (int colNum = 0; colNum < 4; colNum++) {
-                    Pane newCell = new Pane();
-                    newCell.setPrefSize(
-                            Math.round(scaler.scaleX(Quantizer.COL_WIDTH)),
-                            Math.round(scaler.scaleY(Quantizer.ROW_HEIGHT)));
-                    newCell.getStyleClass().add("track-cell");
-                    newCell.getStyleClass().add(pitch.endsWith("#") ? "black-key" : "white-key");
-                    if (colNum == 0) {
-                        newCell.getStyleClass().add("measure-start");
-                    } else if (colNum == 3) {
-                        newCell.getStyleClass().add("measure-end");
-                    }
+    private void addToSong(Note note, NoteData toAdd) throws NoteAlreadyExistsException {
+        int position = toAdd.getPosition();
+        if (noteMap.hasNote(position)) {
+            throw new NoteAlreadyExistsException();
+        } else {
+            AddResponse response = model.addNote(toAdd);
+            noteMap.putNote(position, note);
 
-                    final int currentRowNum = rowNum;
-                    final int currentColNum = colNum + (numMeasures * 4);
-                    newCell.setOnMouseClicked((event) -> {
-                        // Clear highlights regardless of current button or current mode.
-                        playbackManager.clearHighlights();
-                        if (event.getButton() != MouseButton.PRIMARY) {
-                            return;
-                        }
-                        Mode currentMode = model.getCurrentMode();
-                        if (currentMode == Mode.ADD) {
-                            // Create note.
-                            Note newNote = noteFactory.createDefaultNote(
-                                    currentRowNum,
-                                    currentColNum,
-                                    noteCallback,
-                                    vibratoEditor);
-                            noteMap.addNoteElement(newNote);
-                        }
-                    });
-                    newMeasure.add(newCell, colNum, rowNum);
-                }
-                rowNum++;
+            String curPitch = response.getNote().getPitch();
+            String prevPitch = curPitch;
+            if (response.getPrev().isPresent()) {
+                NeighborData prev = response.getPrev().get();
+                int prevDelta = prev.getDelta();
+                Note prevTrackNote = noteMap.getNote(position - prevDelta);
+                prevTrackNote.adjustForOverlap(prevDelta);
+                prevPitch = PitchUtils.rowNumToPitch(prevTrackNote.getRow());
+                noteMap.putEnvelope(
+                        position - prevDelta,
+                        prev.getEnvelope(),
+                        getEnvelopeCallback(position - prevDelta));
             }
-        }
-        measures.getChildren().add(newMeasure);
-
-        // Add new columns to dynamics.
-        GridPane newDynamics = new GridPane();
-        for (int colNum = 0; colNum < 4; colNum++) {
-            AnchorPane topCell = new AnchorPane();
-            topCell.setPrefSize(scaler.scaleX(Quantizer.COL_WIDTH), 50);
-            topCell.getStyleClass().add("dynamics-top-cell");
-            if (colNum == 0) {
-                topCell.getStyleClass().add("measure-start");
+            if (response.getNext().isPresent()) {
+                NeighborData next = response.getNext().get();
+                int nextDelta = next.getDelta();
+                note.adjustForOverlap(nextDelta);
+                noteMap.getNote(position + nextDelta)
+                        .setTrueLyric(next.getConfig().getTrueLyric());
+                noteMap.putEnvelope(
+                        position + nextDelta,
+                        next.getEnvelope(),
+                        getEnvelopeCallback(position + nextDelta));
+                noteMap.putPitchbend(
+                        position + nextDelta,
+                        curPitch,
+                        next.getPitchbend(),
+                        getPitchbendCallback(position + nextDelta),
+                        vibratoEditor);
+            }
+            // Refresh whether note is highlighted, must be after adjusting for overlap.
+            playbackManager.refreshHighlights(note);
+
+            // Add envelope, must be after adjusting note for overlap.
+            Optional<EnvelopeData> newEnvelope = response.getNote().getEnvelope();
+            if (newEnvelope.isPresent()) {
+                noteMap.putEnvelope(position, newEnvelope.get(), getEnvelopeCallback(position));
             }
-            newDynamics.add(topCell, colNum, 0);
-            AnchorPane bottomCell = new AnchorPane();
-            bottomCell.setPrefSize(scaler.scaleX(Quantizer.COL_WIDTH), 50);
-            bottomCell.getStyleClass().add("dynamics-bottom-cell");
-            if (colNum == 0) {
-                bottomCell.getStyleClass().add("measure-start");
+            if (response.getNote().getPitchbend().isPresent()) {
+                noteMap.putPitchbend(
+                        position,
+                        prevPitch,
+                        response.getNote().getPitchbend().get(),
+                        getPitchbendCallback(position),
+                        vibratoEditor);
             }
-            newDynamics.add(bottomCell, colNum, 1);
-        }
-        dynamics.getChildren().add(newDynamics);
 
-        numMeasures++;
+            // Add measures if necessary.
+            if (!response.getNext().isPresent()) {
+                setNumMeasures((position / Quantizer.COL_WIDTH / 4) + 4);
+            }
+
+            // Set the true lyric for this note.
+            if (response.getNote().getConfig().isPresent()) {
+                note.setTrueLyric(response.getNote().getConfig().get().getTrueLyric());
+            }
+
+            // Neighbors' portamento depends on this note, so redraw their curves too.
+            RegionBounds changed = note.getBounds();
+            if (response.getPrev().isPresent()) {
+                changed = changed.mergeWith(
+                        noteMap.getNote(position - response.getPrev().get().getDelta())
+                                .getBounds());
+            }
+            if (response.getNext().isPresent()) {
+                changed = changed.mergeWith(
+                        noteMap.getNote(position + response.getNext().get().getDelta())
+                                .getBounds());
+            }
+            pitchCurve.markDirty(changed);
+        }
     }
 
     private final NoteCallback noteCallback = new NoteCallback() {
         @Override
         public void highlightExclusive(Note note) {
             playbackManager.clearHighlights();
-            playbackManager.highlightTo(note, noteMap.getAllValidNotes());
+            playbackManager.highlightTo(note, noteMap);
+            model.auditionNote(note.getAbsPositionMs());
         }
 
         @Override
         public void highlightInclusive(Note note) {
-            playbackManager.highlightTo(note, noteMap.getAllValidNotes());
+            playbackManager.highlightTo(note, noteMap);
         }
 
         @Override
@@ -280,74 +413,14 @@ public class SongEditor {
 
         @Override
         public void addSongNote(Note note, NoteData toAdd) throws NoteAlreadyExistsException {
-            int position = toAdd.getPosition();
-            if (noteMap.hasNote(position)) {
-                throw new NoteAlreadyExistsException();
-            } else {
-                AddResponse response = model.addNote(toAdd);
-                noteMap.putNote(position, note);
-
-                String curPitch = response.getNote().getPitch();
-                String prevPitch = curPitch;
-                if (response.getPrev().isPresent()) {
-                    NeighborData prev = response.getPrev().get();
-                    int prevDelta = prev.getDelta();
-                    Note prevTrackNote = noteMap.getNote(position - prevDelta);
-                    prevTrackNote.adjustForOverlap(prevDelta);
-                    prevPitch = PitchUtils.rowNumToPitch(prevTrackNote.getRow());
-                    noteMap.putEnvelope(
-                            position - prevDelta,
-                            prev.getEnvelope(),
-                            getEnvelopeCallback(position - prevDelta));
-                }
-                if (response.getNext().isPresent()) {
-                    NeighborData next = response.getNext().get();
-                    int nextDelta = next.getDelta();
-                    note.adjustForOverlap(nextDelta);
-                    noteMap.getNote(position + nextDelta)
-                            .setTrueLyric(next.getConfig().getTrueLyric());
-                    noteMap.putEnvelope(
-                            position + nextDelta,
-                            next.getEnvelope(),
-                            getEnvelopeCallback(position + nextDelta));
-                    noteMap.putPitchbend(
-                            position + nextDelta,
-                            curPitch,
-                            next.getPitchbend(),
-                            getPitchbendCallback(position + nextDelta),
-                            vibratoEditor);
-                }
-                // Refresh whether note is highlighted, must be after adjusting for overlap.
-                playbackManager.refreshHighlights(note);
-
-                // Add envelope, must be after adjusting note for overlap.
-                Optional<EnvelopeData> newEnvelope = response.getNote().getEnvelope();
-                if (newEnvelope.isPresent()) {
-                    noteMap.putEnvelope(position, newEnvelope.get(), getEnvelopeCallback(position));
-                }
-                if (response.getNote().getPitchbend().isPresent()) {
-                    noteMap.putPitchbend(
-                            position,
-                            prevPitch,
-                            response.getNote().getPitchbend().get(),
-                            getPitchbendCallback(position),
-                            vibratoEditor);
-                }
-
-                // Add measures if necessary.
-                if (!response.getNext().isPresent()) {
-                    setNumMeasures((position / Quantizer.COL_WIDTH / 4) + 4);
-                }
-
-                // Set the true lyric for this note.
-                if (response.getNote().getConfig().isPresent()) {
-                    note.setTrueLyric(response.getNote().getConfig().get().getTrueLyric());
-                }
-            }
+            addToSong(note, toAdd);
+            // Let the user hear the note they just edited.
+            model.auditionNote(toAdd.getPosition());
         }
 
         @Override
         public void removeSongNote(int position) {
+            RegionBounds changed = noteMap.getNote(position).getBounds();
             noteMap.removeFullNote(position);
             RemoveResponse response = model.removeNote(position);
             if (response.getPrev().isPresent()) {
@@ -391,6 +464,19 @@ public class SongEditor {
             if (noteMap.isEmpty()) {
                 setNumMeasures(4);
             }
+
+            // Neighbors' portamento depends on this note, so redraw their curves too.
+            if (response.getPrev().isPresent()) {
+                changed = changed.mergeWith(
+                        noteMap.getNote(position - response.getPrev().get().getDelta())
+                                .getBounds());
+            }
+            if (response.getNext().isPresent()) {
+                changed = changed.mergeWith(
+                        noteMap.getNote(position + response.getNext().get().getDelta())
+                                .getBounds());
+            }
+            pitchCurve.markDirty(changed);
         }
 
         @Override
@@ -465,6 +551,26 @@ public class SongEditor {
                         toModify.getLyric(),
                         noteMap.getPitchbend(position).getData(position));
                 model.modifyNote(mutation);
+
+                // Portamento can start in the previous note and run past the end of this one.
+                RegionBounds changed = toModify.getBounds();
+                for (Note prevNote : noteMap.getValidNotesInRegion(
+                        new RegionBounds(position - 1, position))) {
+                    changed = changed.mergeWith(prevNote.getBounds());
+                }
+                PitchbendData data = mutation.getPitchbend().get();
+                if (!data.getPBS().isEmpty()) {
+                    double portamentoStart = position + data.getPBS().get(0);
+                    double portamentoEnd = portamentoStart;
+                    for (double width : data.getPBW()) {
+                        portamentoEnd += width;
+                    }
+                    changed = changed.mergeWith(
+                            new RegionBounds(
+                                    (int) Math.floor(portamentoStart),
+                                    (int) Math.ceil(portamentoEnd)));
+                }
+                pitchCurve.markDirty(changed);
             }
         };
     }
@@ -0,0 +1,180 @@
+package com.utsusynth.utsu.view.song;
+
+import java.util.ArrayList;
+import java.util.List;
+import com.google.inject.Inject;
+import com.utsusynth.utsu.common.PitchUtils;
+import com.utsusynth.utsu.common.RegionBounds;
+import com.utsusynth.utsu.common.quantize.Quantizer;
+import com.utsusynth.utsu.common.quantize.Scaler;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+/**
+ * Background grid of the piano roll and the dynamics pane below it. Every measure looks the same,
+ * so the grid is drawn as one canvas per visible measure, painted once per zoom level and moved
+ * around as the user scrolls. Measures outside the visible region have no nodes at all.
+ */
+public class TrackGrid {
+    static final int NUM_OCTAVES = 7;
+    static final int NUM_ROWS = NUM_OCTAVES * PitchUtils.REVERSE_PITCHES.size();
+    static final int COLS_PER_MEASURE = 4;
+    static final int DYNAMICS_ROW_HEIGHT = 50;
+    static final int DEFAULT_VISIBLE_MEASURES = 16; // Used until a visible region is set.
+
+    // Grid colors, kept in line with the piano and note styles in piano_roll.css.
+    private static final Color WHITE_KEY = Color.WHITE;
+    private static final Color BLACK_KEY = Color.WHITESMOKE;
+    private static final Color CELL_BORDER = Color.LIGHTGRAY;
+    private static final Color MEASURE_BORDER = Color.LIGHTSKYBLUE;
+    private static final Color DYNAMICS_BACKGROUND = Color.BLACK;
+    private static final Color DYNAMICS_BORDER = Color.DARKGRAY;
+
+    private final Scaler scaler;
+
+    private Pane track;
+    private Pane dynamics;
+    private List<Canvas> trackTiles; // Pool of painted measures, some of which may be hidden.
+    private List<Canvas> dynamicsTiles;
+    private int numMeasures;
+    private RegionBounds visibleRegion;
+
+    @Inject
+    public TrackGrid(Scaler scaler) {
+        this.scaler = scaler;
+        clear();
+    }
+
+    Pane getTrackElement() {
+        return track;
+    }
+
+    Pane getDynamicsElement() {
+        return dynamics;
+    }
+
+    /** Resets the grid, discarding painted measures so they're redrawn at the current zoom. */
+    void clear() {
+        track = new Pane();
+        dynamics = new Pane();
+        trackTiles = new ArrayList<>();
+        dynamicsTiles = new ArrayList<>();
+        numMeasures = 0;
+        visibleRegion = new RegionBounds(
+                0,
+                DEFAULT_VISIBLE_MEASURES * COLS_PER_MEASURE * Quantizer.COL_WIDTH);
+    }
+
+    int getNumMeasures() {
+        return numMeasures;
+    }
+
+    void setNumMeasures(int newNumMeasures) {
+        numMeasures = Math.max(newNumMeasures, 0);
+        double width = getMeasureWidth() * numMeasures;
+        track.setPrefSize(width, getRowHeight() * NUM_ROWS);
+        track.setMinSize(width, getRowHeight() * NUM_ROWS);
+        dynamics.setPrefSize(width, DYNAMICS_ROW_HEIGHT * 2);
+        dynamics.setMinSize(width, DYNAMICS_ROW_HEIGHT * 2);
+        layoutTiles();
+    }
+
+    /** Shows measures intersecting the given region, in ms, and hides everything else. */
+    void setVisibleRegion(RegionBounds region) {
+        visibleRegion = region;
+        layoutTiles();
+    }
+
+    /** Maps a y-coordinate on the track to a row number, where 0 is the highest pitch. */
+    int getRow(double y) {
+        return Math.max(0, Math.min(NUM_ROWS - 1, (int) (y / getRowHeight())));
+    }
+
+    /** Maps an x-coordinate on the track to a column number, each column being one beat. */
+    int getColumn(double x) {
+        return Math.max(0, (int) (x / getColWidth()));
+    }
+
+    private void layoutTiles() {
+        int measureMs = COLS_PER_MEASURE * Quantizer.COL_WIDTH;
+        int firstMeasure = Math.max(0, visibleRegion.getMinMs() / measureMs);
+        int lastMeasure = (int) Math.min(
+                numMeasures,
+                ((long) visibleRegion.getMaxMs() + measureMs - 1) / measureMs);
+        int numVisible = Math.max(0, lastMeasure - firstMeasure);
+        while (trackTiles.size() < numVisible) {
+            Canvas trackTile = createTrackTile();
+            trackTiles.add(trackTile);
+            track.getChildren().add(trackTile);
+            Canvas dynamicsTile = createDynamicsTile();
+            dynamicsTiles.add(dynamicsTile);
+            dynamics.getChildren().add(dynamicsTile);
+        }
+        for (int i = 0; i < trackTiles.size(); i++) {
+            boolean visible = i < numVisible;
+            double x = (firstMeasure + i) * getMeasureWidth();
+            trackTiles.get(i).setVisible(visible);
+            trackTiles.get(i).setLayoutX(x);
+            dynamicsTiles.get(i).setVisible(visible);
+            dynamicsTiles.get(i).setLayoutX(x);
+        }
+    }
+
+    private Canvas createTrackTile() {
+        double colWidth = getColWidth();
+        double rowHeight = getRowHeight();
+        Canvas tile = new Canvas(getMeasureWidth(), rowHeight * NUM_ROWS);
+        tile.setMouseTransparent(true);
+        GraphicsContext gc = tile.getGraphicsContext2D();
+        int rowNum = 0;
+        for (int octave = NUM_OCTAVES; octave > 0; octave--) {
+            for (String pitch : PitchUtils.REVERSE_PITCHES) {
+                double y = rowNum * rowHeight;
+                gc.setFill(CELL_BORDER);
+                gc.fillRect(0, y, tile.getWidth(), rowHeight);
+                gc.setFill(pitch.endsWith("#") ? BLACK_KEY : WHITE_KEY);
+                // Leave a one-pixel border on the bottom and right of each cell.
+                for (int colNum = 0; colNum < COLS_PER_MEASURE; colNum++) {
+                    gc.fillRect(colNum * colWidth, y, colWidth - 1, rowHeight - 1);
+                }
+                rowNum++;
+            }
+        }
+        // Measure boundaries are highlighted on both sides.
+        gc.setFill(MEASURE_BORDER);
+        gc.fillRect(0, 0, 1, tile.getHeight());
+        gc.fillRect(tile.getWidth() - 1, 0, 1, tile.getHeight());
+        return tile;
+    }
+
+    private Canvas createDynamicsTile() {
+        double colWidth = getColWidth();
+        Canvas tile = new Canvas(getMeasureWidth(), DYNAMICS_ROW_HEIGHT * 2);
+        tile.setMouseTransparent(true);
+        GraphicsContext gc = tile.getGraphicsContext2D();
+        gc.setFill(DYNAMICS_BORDER);
+        gc.fillRect(0, 0, tile.getWidth(), tile.getHeight());
+        gc.setFill(DYNAMICS_BACKGROUND);
+        for (int colNum = 0; colNum < COLS_PER_MEASURE; colNum++) {
+            double x = colNum == 0 ? 1 : colNum * colWidth;
+            double width = colNum == 0 ? colWidth - 2 : colWidth - 1;
+            gc.fillRect(x, 0, width, DYNAMICS_ROW_HEIGHT - 1);
+            gc.fillRect(x, DYNAMICS_ROW_HEIGHT, width, DYNAMICS_ROW_HEIGHT);
+        }
+        return tile;
+    }
+
+    private double getColWidth() {
+        return Math.round(scaler.scaleX(Quantizer.COL_WIDTH));
+    }
+
+    private double getRowHeight() {
+        return Math.round(scaler.scaleY(Quantizer.ROW_HEIGHT));
+    }
+
+    private double getMeasureWidth() {
+        return getColWidth() * COLS_PER_MEASURE;
+    }
+}
@@ -1,59 +1,75 @@
 package com.utsusynth.utsu.view.voicebank;
 
-import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
 import com.google.common.base.Optional;
-import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.inject.Inject;
 import com.utsusynth.utsu.common.data.FrequencyData;
 import com.utsusynth.utsu.common.data.LyricConfigData;
-import com.utsusynth.utsu.common.data.WavData;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.engine.NoteAuditioner;
+import com.utsusynth.utsu.files.MappedWavFile;
 import com.utsusynth.utsu.files.SoundFileReader;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.geometry.Side;
+import com.utsusynth.utsu.view.voicebank.SpectrogramCache.Tile;
+import com.utsusynth.utsu.view.voicebank.WaveformCache.Waveform;
 import javafx.scene.Cursor;
 import javafx.scene.Group;
-import javafx.scene.chart.LineChart;
-import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.XYChart.Data;
-import javafx.scene.chart.XYChart.Series;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.MenuItem;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Pane;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
+import javafx.scene.paint.Color;
 import javafx.scene.shape.Line;
-import javafx.util.Duration;
 
 public class LyricConfigEditor {
-    private static final int maxAmplitude = 32767;
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
     private static final double scaleX = 0.8;
     private static final int height = 150;
-    private static MediaPlayer mediaPlayer; // Used for audio playback.
+    private static final int maxTileWidth = 2048; // Keeps each canvas under texture size limits.
+    private static boolean showSpectrogram = false; // Remembered between lyrics.
 
     private final SoundFileReader soundFileReader;
+    private final WaveformCache waveformCache;
+    private final SpectrogramCache spectrogramCache;
+    private final NoteAuditioner noteAuditioner;
 
     private Optional<LyricConfigData> configData;
     private GridPane background;
-    private LineChart<Number, Number> chart;
+    private Group chart;
+    private Group spectrogram;
+    private List<Future<?>> spectrogramRequests; // Tiles the current spectrogram is waiting for.
     private Group controlBars;
 
     @Inject
-    public LyricConfigEditor(SoundFileReader soundFileReader) {
+    public LyricConfigEditor(
+            SoundFileReader soundFileReader,
+            WaveformCache waveformCache,
+            SpectrogramCache spectrogramCache,
+            NoteAuditioner noteAuditioner) {
         this.soundFileReader = soundFileReader;
+        this.waveformCache = waveformCache;
+        this.spectrogramCache = spectrogramCache;
+        this.noteAuditioner = noteAuditioner;
 
         // Initialize with dummy data.
         configData = Optional.absent();
         background = new GridPane();
-        chart = new LineChart<>(new NumberAxis(), new NumberAxis());
-        chart.setOpacity(0);
+        chart = new Group();
+        spectrogram = new Group();
+        spectrogramRequests = new ArrayList<>();
         controlBars = new Group();
     }
 
     public GridPane createConfigEditor(LyricConfigData config) {
         this.configData = Optional.of(config);
-        double lengthMs = createLineChart(config);
+        double lengthMs = createWaveform(config);
 
         background = new GridPane();
         double curLength = lengthMs;
@@ -78,6 +94,14 @@ public class LyricConfigEditor {
         double overlapBarX = Math
                 .min(Math.max((offsetLength + config.overlapProperty().get()) * scaleX, 0), totalX);
 
+        // Spectrogram, if enabled, sits between the background colors and the waveform.
+        clearSpectrogram();
+        spectrogram = new Group();
+        spectrogram.setMouseTransparent(true);
+        if (showSpectrogram) {
+            createSpectrogram(config, totalX);
+        }
+
         // Background colors.
         Pane offsetPane = createBackground(offsetBarX, "offset");
         Pane consonantPane = createBackground(consonantBarX - offsetBarX, "consonant");
@@ -100,7 +124,17 @@ public class LyricConfigEditor {
         playItem.setOnAction(event -> {
             playSound();
         });
-        ContextMenu contextMenu = new ContextMenu(playItem);
+        CheckMenuItem spectrogramItem = new CheckMenuItem("Show Spectrogram");
+        spectrogramItem.setSelected(showSpectrogram);
+        spectrogramItem.setOnAction(event -> {
+            showSpectrogram = spectrogramItem.isSelected();
+            if (showSpectrogram) {
+                createSpectrogram(config, totalX);
+            } else {
+                clearSpectrogram();
+            }
+        });
+        ContextMenu contextMenu = new ContextMenu(playItem, spectrogramItem);
         background.setOnContextMenuRequested(event -> {
             contextMenu.show(background, event.getScreenX(), event.getScreenY());
         });
@@ -182,10 +216,14 @@ public class LyricConfigEditor {
         return background;
     }
 
-    public LineChart<Number, Number> getChartElement() {
+    public Group getChartElement() {
         return chart;
     }
 
+    public Group getSpectrogramElement() {
+        return spectrogram;
+    }
+
     public Group getControlElement() {
         return controlBars;
     }
@@ -194,22 +232,10 @@ public class LyricConfigEditor {
         if (!configData.isPresent()) {
             return;
         }
-        Media media = new Media(configData.get().getPathToFile().toURI().toString());
-        mediaPlayer = new MediaPlayer(media);
-        mediaPlayer.setOnReady(() -> {
-            double lengthMs = media.getDuration().toMillis();
-            double offsetLengthMs =
-                    Math.max(Math.min(configData.get().offsetProperty().get(), lengthMs), 0);
-            double cutoffLengthMs = configData.get().cutoffProperty().get();
-            if (cutoffLengthMs >= 0) {
-                cutoffLengthMs = Math.max(Math.min(cutoffLengthMs, lengthMs - offsetLengthMs), 0);
-            } else {
-                cutoffLengthMs = Math.max(lengthMs - offsetLengthMs + cutoffLengthMs, 0);
-            }
-            mediaPlayer.setStartTime(Duration.millis(offsetLengthMs));
-            mediaPlayer.setStopTime(Duration.millis(lengthMs - cutoffLengthMs));
-            mediaPlayer.play();
-        });
+        noteAuditioner.auditionAlias(
+                configData.get().getPathToFile(),
+                configData.get().offsetProperty().get(),
+                configData.get().cutoffProperty().get());
     }
 
     private Pane createBackground(double widthX, String style) {
@@ -240,96 +266,158 @@ public class LyricConfigEditor {
         return bar;
     }
 
-    private double createLineChart(LyricConfigData config) {
-        NumberAxis xAxis = new NumberAxis();
-        xAxis.setOpacity(0);
-        xAxis.setTickLabelsVisible(false);
-        xAxis.setTickMarkVisible(false);
-        xAxis.setMinorTickVisible(false);
-        NumberAxis yAxis = new NumberAxis();
-        yAxis.setAutoRanging(false);
-        yAxis.setLowerBound(-maxAmplitude);
-        yAxis.setUpperBound(maxAmplitude);
-        yAxis.setTickUnit(maxAmplitude / 5);
-        yAxis.setSide(Side.RIGHT);
-        yAxis.setOpacity(0);
-        yAxis.setTickLabelsVisible(false);
-        yAxis.setTickMarkVisible(false);
-        yAxis.setMinorTickVisible(false);
-        chart = new LineChart<>(xAxis, yAxis);
+    /** Lays out the waveform canvas and fills it in once its peaks have been computed. */
+    private double createWaveform(LyricConfigData config) {
+        chart = new Group();
         chart.setMouseTransparent(true);
-        chart.setHorizontalGridLinesVisible(false);
-        chart.setVerticalGridLinesVisible(false);
-        chart.setVerticalZeroLineVisible(false);
-        chart.setCreateSymbols(false);
-        chart.setPrefHeight(height);
-
-        // Initialize chart data sets.
-        ObservableList<Data<Number, Number>> wavSamples = FXCollections.observableArrayList();
-        Series<Number, Number> waveform = new Series<>(wavSamples);
-        ObservableList<Data<Number, Number>> frqSamples = FXCollections.observableArrayList();
-        Series<Number, Number> frequency = new Series<>(frqSamples);
-        chart.getData().setAll(ImmutableList.of(waveform, frequency));
-
-        // Populate wav chart data.
-        File pathToWav = config.getPathToFile();
-        Optional<WavData> wavData = soundFileReader.loadWavData(pathToWav);
-        double msPerSample = 0;
-        if (wavData.isPresent()) {
-            msPerSample = wavData.get().getLengthMs() / wavData.get().getSamples().length;
-            double currentTimeMs = msPerSample / 2; // Data point is halfway through sample.
-            double ampSum = 0;
-            for (int i = 0; i < wavData.get().getSamples().length; i++) {
-                ampSum += Math.abs(wavData.get().getSamples()[i]);
-                if (i % 100 == 0) {
-                    // Only render every 100th sample to avoid overloading the frontend.
-                    double ampValue = i % 200 == 0 ? ampSum / 100.0 : ampSum / -100.0;
-                    wavSamples.add(new Data<>(currentTimeMs, ampValue));
-                    ampSum = 0;
+
+        // Only the header is parsed here; samples are summarized in the background.
+        Optional<MappedWavFile> wav = soundFileReader.readWav(config.getPathToFile());
+        if (!wav.isPresent()) {
+            return 0.0;
+        }
+        double lengthMs = wav.get().getLengthMs();
+        // Preferred width is 800 pixels per second.
+        int totalWidth = (int) Math.ceil(lengthMs * scaleX);
+        for (int tileX = 0; tileX < totalWidth; tileX += maxTileWidth) {
+            Canvas tile = new Canvas(Math.min(maxTileWidth, totalWidth - tileX), height);
+            tile.setLayoutX(tileX);
+            chart.getChildren().add(tile);
+        }
+
+        Group waveformChart = chart;
+        waveformCache.getWaveform(config.getPathToFile(), new FutureCallback<Optional<Waveform>>() {
+            @Override
+            public void onSuccess(Optional<Waveform> waveform) {
+                // Skip drawing if another lyric was selected in the meantime.
+                if (waveform.isPresent() && chart == waveformChart) {
+                    drawWaveform(waveform.get());
                 }
-                currentTimeMs += msPerSample;
             }
-            // Preferred width is 800 pixels per second.
-            chart.setPrefWidth(wavData.get().getLengthMs() * scaleX);
-        } else {
-            // Make chart invisible if wav file can't be read.
-            chart.setOpacity(0);
+
+            @Override
+            public void onFailure(Throwable t) {
+                errorLogger.logError(t);
+            }
+        });
+        return lengthMs;
+    }
+
+    /** Paints spectrogram tiles one at a time as they finish computing. */
+    private void createSpectrogram(LyricConfigData config, double totalX) {
+        clearSpectrogram();
+        Group spectrogramTiles = spectrogram;
+        List<Future<?>> requests = spectrogramRequests;
+        int numTiles = (int) Math.ceil(totalX / SpectrogramCache.TILE_WIDTH);
+        for (int i = 0; i < numTiles; i++) {
+            int tileX = i * SpectrogramCache.TILE_WIDTH;
+            requests.add(spectrogramCache.getTile(
+                    config.getPathToFile(),
+                    scaleX,
+                    height,
+                    i,
+                    new FutureCallback<Optional<Tile>>() {
+                        @Override
+                        public void onSuccess(Optional<Tile> tile) {
+                            // Skip tiles that finished just before the spectrogram was cleared.
+                            if (!tile.isPresent() || spectrogramRequests != requests) {
+                                return;
+                            }
+                            Canvas canvas = new Canvas(tile.get().getWidth(), height);
+                            canvas.setLayoutX(tileX);
+                            canvas.getGraphicsContext2D().getPixelWriter().setPixels(
+                                    0,
+                                    0,
+                                    tile.get().getWidth(),
+                                    tile.get().getHeight(),
+                                    PixelFormat.getIntArgbInstance(),
+                                    tile.get().getPixels(),
+                                    0,
+                                    tile.get().getWidth());
+                            spectrogramTiles.getChildren().add(canvas);
+                        }
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            errorLogger.logError(t);
+                        }
+                    }));
         }
+    }
+
+    /** Removes the spectrogram, and stops computing any of its tiles that aren't done yet. */
+    private void clearSpectrogram() {
+        for (Future<?> request : spectrogramRequests) {
+            request.cancel(false);
+        }
+        spectrogramRequests = new ArrayList<>();
+        spectrogram.getChildren().clear();
+    }
 
-        // Populate frequency chart data.
-        populateFrqValues(frqSamples, pathToWav, wavData);
+    private void drawWaveform(Waveform waveform) {
+        PeakPyramid peaks = waveform.getPeaks();
+        double framesPerPixel = waveform.getSampleRate() / (1000 * scaleX);
+        int level = peaks.getLevel(framesPerPixel);
+        float[] minMax = new float[2];
+        for (Node node : chart.getChildren()) {
+            Canvas tile = (Canvas) node;
+            int tileX = (int) tile.getLayoutX();
+            GraphicsContext gc = tile.getGraphicsContext2D();
+            gc.clearRect(0, 0, tile.getWidth(), tile.getHeight());
 
-        return wavData.isPresent() ? wavData.get().getLengthMs() : 0.0;
+            // One vertical min/max line per pixel column.
+            gc.setStroke(Color.ROYALBLUE);
+            gc.setLineWidth(1);
+            for (int x = 0; x < tile.getWidth(); x++) {
+                int startFrame = (int) ((tileX + x) * framesPerPixel);
+                int endFrame = (int) ((tileX + x + 1) * framesPerPixel);
+                if (startFrame >= peaks.getNumFrames()) {
+                    break;
+                }
+                peaks.getPeaks(level, startFrame, endFrame, minMax);
+                gc.strokeLine(x + 0.5, toY(minMax[1]), x + 0.5, toY(minMax[0]));
+            }
+
+            if (waveform.getFrequencies().isPresent()) {
+                drawFrequencies(gc, tileX, tile.getWidth(), waveform);
+            }
+        }
     }
 
-    private void populateFrqValues(
-            ObservableList<Data<Number, Number>> frqSamples,
-            File wavFile,
-            Optional<WavData> wavData) {
-        if (!wavData.isPresent()) {
+    private void drawFrequencies(GraphicsContext gc, int tileX, double tileWidth, Waveform wave) {
+        FrequencyData frqData = wave.getFrequencies().get();
+        double avgFreq = frqData.getAverageFreq();
+        double pixelsPerFrqValue =
+                frqData.getSamplesPerFreqValue() * 1000.0 / wave.getSampleRate() * scaleX;
+        double[] frequencies = frqData.getFrequencies();
+        if (pixelsPerFrqValue <= 0 || frequencies.length == 0 || avgFreq <= 0) {
             return;
         }
-        double msPerSample = wavData.get().getLengthMs() / wavData.get().getSamples().length;
-
-        // Populate frequency chart data.
-        String wavName = wavFile.getName();
-        String frqName = wavFile.getName().substring(0, wavName.length() - 4) + "_wav.frq";
-        File frqFile = wavFile.getParentFile().toPath().resolve(frqName).toFile();
-        Optional<FrequencyData> frqData = soundFileReader.loadFrqData(frqFile);
-        // Don't bother populating frq data if there is no wav data.
-        if (wavData.isPresent() && frqData.isPresent()) {
-            frqSamples.clear();
-            double avgFreq = frqData.get().getAverageFreq();
-            double msPerFrqValue = frqData.get().getSamplesPerFreqValue() * msPerSample;
-            double currentTimeMs = msPerFrqValue / 2; // Data point is halfway through frq value.
-            for (double frqValue : frqData.get().getFrequencies()) {
-                // Scale to a value of [-10, 10] to make a good logistic function input.
-                double scaledFrq = (frqValue - avgFreq) * 10 / avgFreq;
-                // Apply logistic function to enhance central values.
-                double squashedFrq = (maxAmplitude * 2 / (1 + Math.exp(-scaledFrq)));
-                frqSamples.add(new Data<>(currentTimeMs, squashedFrq - maxAmplitude));
-                currentTimeMs += msPerFrqValue;
+        // Include one point on either side of the tile so lines cross tile boundaries.
+        int first = Math.max(0, (int) (tileX / pixelsPerFrqValue) - 1);
+        int last = Math.min(
+                frequencies.length - 1,
+                (int) ((tileX + tileWidth) / pixelsPerFrqValue) + 1);
+        gc.setStroke(Color.CRIMSON);
+        gc.beginPath();
+        for (int i = first; i <= last; i++) {
+            // Data point is halfway through frq value.
+            double x = (i + 0.5) * pixelsPerFrqValue - tileX;
+            // Scale to a value of [-10, 10] to make a good logistic function input.
+            double scaledFrq = (frequencies[i] - avgFreq) * 10 / avgFreq;
+            // Apply logistic function to enhance central values.
+            double squashedFrq = 2 / (1 + Math.exp(-scaledFrq)) - 1;
+            if (i == first) {
+                gc.moveTo(x, toY(squashedFrq));
+            } else {
+                gc.lineTo(x, toY(squashedFrq));
             }
         }
+        gc.stroke();
+    }
+
+    // Maps a value in [-1, 1] to a y-position, with 1 at the top.
+    private static double toY(double value) {
+        return (1 - value) * height / 2;
     }
 }
@@ -0,0 +1,117 @@
+package com.utsusynth.utsu.view.voicebank;
+
+import com.utsusynth.utsu.files.DecodedSample;
+
+/**
+ * Multi-resolution min/max summary of a wav file. Level 0 stores the min and max of every
+ * BASE_BUCKET_SIZE frames, and each level above it halves the number of buckets, so any zoom level
+ * can be drawn from roughly one bucket per pixel.
+ */
+public class PeakPyramid {
+    static final int BASE_BUCKET_SIZE = 32; // Frames per bucket at level 0.
+
+    private final int numFrames;
+    private final float[][] mins; // Indexed by level, then bucket.
+    private final float[][] maxes;
+
+    private PeakPyramid(int numFrames, float[][] mins, float[][] maxes) {
+        this.numFrames = numFrames;
+        this.mins = mins;
+        this.maxes = maxes;
+    }
+
+    /** Reads every frame of a sample once. Should not be called on the FX thread. */
+    public static PeakPyramid compute(DecodedSample wav) {
+        int numFrames = wav.getNumFrames();
+        int numBuckets = Math.max(1, (numFrames + BASE_BUCKET_SIZE - 1) / BASE_BUCKET_SIZE);
+        int numLevels = 1;
+        for (int buckets = numBuckets; buckets > 1; buckets = (buckets + 1) / 2) {
+            numLevels++;
+        }
+        float[][] mins = new float[numLevels][];
+        float[][] maxes = new float[numLevels][];
+
+        // Fill level 0 directly from samples.
+        mins[0] = new float[numBuckets];
+        maxes[0] = new float[numBuckets];
+        for (int bucket = 0; bucket < numBuckets; bucket++) {
+            int start = bucket * BASE_BUCKET_SIZE;
+            int end = Math.min(start + BASE_BUCKET_SIZE, numFrames);
+            float min = 0;
+            float max = 0;
+            for (int frame = start; frame < end; frame++) {
+                float sample = wav.getMonoSample(frame);
+                min = Math.min(min, sample);
+                max = Math.max(max, sample);
+            }
+            mins[0][bucket] = min;
+            maxes[0][bucket] = max;
+        }
+
+        // Each higher level merges pairs of buckets from the level below.
+        for (int level = 1; level < numLevels; level++) {
+            float[] prevMins = mins[level - 1];
+            float[] prevMaxes = maxes[level - 1];
+            int levelBuckets = (prevMins.length + 1) / 2;
+            mins[level] = new float[levelBuckets];
+            maxes[level] = new float[levelBuckets];
+            for (int bucket = 0; bucket < levelBuckets; bucket++) {
+                int left = bucket * 2;
+                int right = Math.min(left + 1, prevMins.length - 1);
+                mins[level][bucket] = Math.min(prevMins[left], prevMins[right]);
+                maxes[level][bucket] = Math.max(prevMaxes[left], prevMaxes[right]);
+            }
+        }
+        return new PeakPyramid(numFrames, mins, maxes);
+    }
+
+    public int getNumFrames() {
+        return numFrames;
+    }
+
+    public int getNumLevels() {
+        return mins.length;
+    }
+
+    /** Returns the coarsest level whose buckets are no wider than the given number of frames. */
+    public int getLevel(double framesPerPixel) {
+        int level = 0;
+        while (level + 1 < mins.length && bucketSize(level + 1) <= framesPerPixel) {
+            level++;
+        }
+        return level;
+    }
+
+    static int bucketSize(int level) {
+        return BASE_BUCKET_SIZE << level;
+    }
+
+    /**
+     * Finds the min and max sample in a frame range at the given level.
+     *
+     * @param result An array of size 2 to store the min and max into, to avoid allocation.
+     */
+    public void getPeaks(int level, int startFrame, int endFrame, float[] result) {
+        int size = bucketSize(level);
+        int firstBucket = Math.max(0, startFrame / size);
+        int lastFrame = Math.max(startFrame, endFrame - 1);
+        int lastBucket = Math.min(mins[level].length - 1, lastFrame / size);
+        float min = 0;
+        float max = 0;
+        for (int bucket = firstBucket; bucket <= lastBucket; bucket++) {
+            min = Math.min(min, mins[level][bucket]);
+            max = Math.max(max, maxes[level][bucket]);
+        }
+        result[0] = min;
+        result[1] = max;
+    }
+
+    /** Approximate heap size of this pyramid, in bytes. */
+    public int getSizeBytes() {
+        int size = 0;
+        for (float[] level : mins) {
+            size += level.length * 4 * 2;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,253 @@
+package com.utsusynth.utsu.view.voicebank;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.utsusynth.utsu.common.FastFourierTransform;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.files.DecodedSample;
+import com.utsusynth.utsu.files.SampleCache;
+import javafx.application.Platform;
+import javafx.scene.paint.Color;
+
+/**
+ * Computes spectrograms of voicebank samples in fixed-width time tiles on a background thread.
+ * Tiles are cached by file and zoom level, so aliases sharing a wav file reuse each other's tiles.
+ */
+public class SpectrogramCache {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final long MAX_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final int FFT_SIZE = 1024;
+    private static final double MIN_DB = -90; // Anything quieter is drawn transparent.
+    static final int TILE_WIDTH = 256; // Pixel columns per tile.
+
+    /** One tile of ARGB pixels, TILE_WIDTH columns wide or fewer at the end of a file. */
+    public static class Tile {
+        private final int width;
+        private final int height;
+        private final int[] pixels;
+
+        Tile(int width, int height, int[] pixels) {
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /** Row-major ARGB pixels. Should not be modified. */
+        public int[] getPixels() {
+            return pixels;
+        }
+    }
+
+    /** A tile being computed, and how many requests for it haven't been cancelled. */
+    private static class PendingTile {
+        private final ListenableFutureTask<Optional<Tile>> task;
+        private int numRequests;
+
+        private PendingTile(ListenableFutureTask<Optional<Tile>> task) {
+            this.task = task;
+        }
+    }
+
+    private final SampleCache sampleCache;
+    private final ListeningExecutorService executor;
+    private final Cache<String, Optional<Tile>> cache;
+    private final Map<String, PendingTile> pending; // Guarded by this.
+    private final FastFourierTransform fft;
+    private final double[] window;
+    private final int[] palette;
+
+    @Inject
+    public SpectrogramCache(SampleCache sampleCache) {
+        this.sampleCache = sampleCache;
+        this.executor = MoreExecutors.listeningDecorator(
+                Executors.newFixedThreadPool(
+                        2,
+                        new ThreadFactoryBuilder().setDaemon(true)
+                                .setNameFormat("spectrogram-%d").build()));
+        this.cache = CacheBuilder.newBuilder().maximumWeight(MAX_CACHE_BYTES)
+                .weigher((String key, Optional<Tile> value) -> {
+                    return value.isPresent() ? value.get().getPixels().length * 4 : 0;
+                }).build();
+        this.pending = new HashMap<>();
+        this.fft = new FastFourierTransform(FFT_SIZE);
+        this.window = FastFourierTransform.hannWindow(FFT_SIZE);
+
+        // Quiet bins are dark blue and mostly transparent, loud bins are opaque yellow.
+        this.palette = new int[256];
+        for (int i = 0; i < palette.length; i++) {
+            double level = i / 255.0;
+            Color color = Color.hsb(240 - 180 * level, 1.0, 0.4 + 0.6 * level, level);
+            palette[i] = ((int) Math.round(color.getOpacity() * 255) << 24)
+                    | ((int) Math.round(color.getRed() * 255) << 16)
+                    | ((int) Math.round(color.getGreen() * 255) << 8)
+                    | (int) Math.round(color.getBlue() * 255);
+        }
+    }
+
+    /**
+     * Fetches one tile of a spectrogram, computing it in the background if necessary. The
+     * callback is always run on the FX thread. Requests for a tile that is already being computed
+     * share that computation.
+     *
+     * @param pixelsPerMs Horizontal zoom level.
+     * @param tileIndex Which tile to fetch, where tile i starts at pixel i * TILE_WIDTH.
+     * @return The request, which can be cancelled if the tile is no longer needed. The callback
+     *         is not run for cancelled requests, and a tile that no request needs anymore is not
+     *         computed.
+     */
+    public Future<?> getTile(
+            File wavFile,
+            double pixelsPerMs,
+            int height,
+            int tileIndex,
+            FutureCallback<Optional<Tile>> callback) {
+        String key = wavFile.getAbsolutePath() + ":" + wavFile.lastModified() + ":" + pixelsPerMs
+                + ":" + height + ":" + tileIndex;
+        Optional<Tile> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            ListenableFuture<Optional<Tile>> done = Futures.immediateFuture(cached);
+            Futures.addCallback(done, callback, Platform::runLater);
+            return done;
+        }
+        PendingTile tile =
+                requestTile(key, () -> computeTile(wavFile, pixelsPerMs, height, tileIndex));
+        // Cancelling one request shouldn't cancel the tile for anyone else waiting for it.
+        ListenableFuture<Optional<Tile>> request = Futures.nonCancellationPropagating(tile.task);
+        request.addListener(() -> {
+            if (request.isCancelled()) {
+                releaseTile(tile);
+            }
+        }, MoreExecutors.directExecutor());
+        Futures.addCallback(request, new FutureCallback<Optional<Tile>>() {
+            @Override
+            public void onSuccess(Optional<Tile> result) {
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (!(t instanceof CancellationException)) {
+                    callback.onFailure(t);
+                }
+            }
+        }, Platform::runLater);
+        return request;
+    }
+
+    private synchronized PendingTile requestTile(String key, Callable<Optional<Tile>> compute) {
+        PendingTile tile = pending.get(key);
+        if (tile == null) {
+            ListenableFutureTask<Optional<Tile>> task = ListenableFutureTask.create(compute);
+            PendingTile newTile = new PendingTile(task);
+            task.addListener(() -> finishTile(key, newTile), MoreExecutors.directExecutor());
+            pending.put(key, newTile);
+            executor.execute(task);
+            tile = newTile;
+        }
+        tile.numRequests++;
+        return tile;
+    }
+
+    private synchronized void releaseTile(PendingTile tile) {
+        tile.numRequests--;
+        if (tile.numRequests == 0) {
+            // A tile that hasn't started yet is skipped, and one that has is thrown away.
+            tile.task.cancel(false);
+        }
+    }
+
+    private synchronized void finishTile(String key, PendingTile tile) {
+        if (!tile.task.isCancelled()) {
+            try {
+                cache.put(key, Futures.getDone(tile.task));
+            } catch (ExecutionException e) {
+                errorLogger.logError(e);
+            }
+        }
+        pending.remove(key, tile);
+    }
+
+    private Optional<Tile> computeTile(
+            File wavFile,
+            double pixelsPerMs,
+            int height,
+            int tileIndex) {
+        Optional<DecodedSample> wav = sampleCache.get(wavFile);
+        if (!wav.isPresent()) {
+            return Optional.absent();
+        }
+        int numFrames = wav.get().getNumFrames();
+        double framesPerPixel = wav.get().getSampleRate() / (1000 * pixelsPerMs);
+        int totalWidth = (int) Math.ceil(numFrames / framesPerPixel);
+        int startX = tileIndex * TILE_WIDTH;
+        int width = Math.min(TILE_WIDTH, totalWidth - startX);
+        if (width <= 0) {
+            return Optional.absent();
+        }
+
+        int numBins = FFT_SIZE / 2;
+        double[] real = new double[FFT_SIZE];
+        double[] imag = new double[FFT_SIZE];
+        float[] samples = new float[FFT_SIZE];
+        // Full-scale sine through a Hann window peaks at FFT_SIZE / 4.
+        double reference = FFT_SIZE / 4.0;
+        int[] pixels = new int[width * height];
+        for (int x = 0; x < width; x++) {
+            // Center the analysis window on the middle of the pixel column.
+            int centerFrame = (int) ((startX + x + 0.5) * framesPerPixel);
+            int firstFrame = centerFrame - FFT_SIZE / 2;
+            int readStart = Math.max(0, firstFrame);
+            int readEnd = Math.min(numFrames, firstFrame + FFT_SIZE);
+            Arrays.fill(samples, 0);
+            if (readEnd > readStart) {
+                wav.get().readMono(readStart, samples, readStart - firstFrame, readEnd - readStart);
+            }
+            for (int i = 0; i < FFT_SIZE; i++) {
+                real[i] = samples[i] * window[i];
+                imag[i] = 0;
+            }
+            fft.transform(real, imag);
+
+            // Each row takes the loudest bin it covers, with low frequencies at the bottom.
+            for (int y = 0; y < height; y++) {
+                int firstBin = (height - 1 - y) * numBins / height;
+                int lastBin = Math.max(firstBin + 1, (height - y) * numBins / height);
+                double maxMagnitude = 0;
+                for (int bin = firstBin; bin < lastBin; bin++) {
+                    double magnitude = Math.hypot(real[bin], imag[bin]);
+                    maxMagnitude = Math.max(maxMagnitude, magnitude);
+                }
+                double db = 20 * Math.log10(Math.max(maxMagnitude / reference, 1e-10));
+                double level = Math.max(0, Math.min(1, (db - MIN_DB) / -MIN_DB));
+                pixels[y * width + x] = palette[(int) Math.round(level * 255)];
+            }
+        }
+        return Optional.of(new Tile(width, height, pixels));
+    }
+}
@@ -0,0 +1,155 @@
+package com.utsusynth.utsu.view.voicebank;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.utsusynth.utsu.common.data.FrequencyData;
+import com.utsusynth.utsu.common.exception.ErrorLogger;
+import com.utsusynth.utsu.files.DecodedSample;
+import com.utsusynth.utsu.files.SampleCache;
+import com.utsusynth.utsu.files.SoundFileReader;
+import javafx.application.Platform;
+
+/**
+ * Computes waveform summaries of voicebank samples on a background thread and caches them, so
+ * that switching between aliases that share a wav file never rereads it. Shared by all voicebank
+ * editors.
+ */
+public class WaveformCache {
+    private static final ErrorLogger errorLogger = ErrorLogger.getLogger();
+    private static final long MAX_CACHE_BYTES = 64L * 1024 * 1024;
+
+    /** Everything the oto editor needs to draw one wav file. */
+    public static class Waveform {
+        private final double lengthMs;
+        private final int sampleRate;
+        private final PeakPyramid peaks;
+        private final Optional<FrequencyData> frequencies;
+
+        Waveform(
+                double lengthMs,
+                int sampleRate,
+                PeakPyramid peaks,
+                Optional<FrequencyData> frequencies) {
+            this.lengthMs = lengthMs;
+            this.sampleRate = sampleRate;
+            this.peaks = peaks;
+            this.frequencies = frequencies;
+        }
+
+        public double getLengthMs() {
+            return lengthMs;
+        }
+
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        public PeakPyramid getPeaks() {
+            return peaks;
+        }
+
+        public Optional<FrequencyData> getFrequencies() {
+            return frequencies;
+        }
+
+        int getSizeBytes() {
+            int frqSize = frequencies.isPresent()
+                    ? frequencies.get().getFrequencies().length * 8 * 2
+                    : 0;
+            return peaks.getSizeBytes() + frqSize;
+        }
+    }
+
+    private final SoundFileReader soundFileReader;
+    private final SampleCache sampleCache;
+    private final ListeningExecutorService executor;
+    private final Cache<String, Optional<Waveform>> cache;
+    private final Map<String, ListenableFuture<Optional<Waveform>>> pending;
+
+    @Inject
+    public WaveformCache(SoundFileReader soundFileReader, SampleCache sampleCache) {
+        this.soundFileReader = soundFileReader;
+        this.sampleCache = sampleCache;
+        this.executor = MoreExecutors.listeningDecorator(
+                Executors.newFixedThreadPool(
+                        2,
+                        new ThreadFactoryBuilder().setDaemon(true)
+                                .setNameFormat("waveform-%d").build()));
+        this.cache = CacheBuilder.newBuilder().maximumWeight(MAX_CACHE_BYTES)
+                .weigher((String key, Optional<Waveform> value) -> {
+                    return value.isPresent() ? value.get().getSizeBytes() : 0;
+                }).build();
+        this.pending = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Fetches the waveform of a wav file, computing it in the background if necessary. The
+     * callback is always run on the FX thread.
+     */
+    public void getWaveform(File wavFile, FutureCallback<Optional<Waveform>> callback) {
+        String key = getKey(wavFile);
+        Optional<Waveform> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            Futures.addCallback(Futures.immediateFuture(cached), callback, Platform::runLater);
+            return;
+        }
+        ListenableFutureTask<Optional<Waveform>> task =
+                ListenableFutureTask.create(() -> computeWaveform(wavFile));
+        ListenableFuture<Optional<Waveform>> future = pending.computeIfAbsent(key, newKey -> task);
+        if (future == task) {
+            // Only the call that added the task runs it. The listener changes the pending map, so
+            // it's added here rather than inside computeIfAbsent.
+            task.addListener(() -> {
+                try {
+                    cache.put(key, Futures.getDone(task));
+                } catch (ExecutionException e) {
+                    errorLogger.logError(e);
+                }
+                pending.remove(key, task);
+            }, MoreExecutors.directExecutor());
+            executor.execute(task);
+        }
+        Futures.addCallback(future, callback, Platform::runLater);
+    }
+
+    private Optional<Waveform> computeWaveform(File wavFile) {
+        Optional<DecodedSample> wav = sampleCache.get(wavFile);
+        if (!wav.isPresent()) {
+            return Optional.absent();
+        }
+        PeakPyramid peaks = PeakPyramid.compute(wav.get());
+        Optional<FrequencyData> frequencies = soundFileReader.loadFrqData(getFrqFile(wavFile));
+        return Optional.of(
+                new Waveform(
+                        wav.get().getLengthMs(),
+                        wav.get().getSampleRate(),
+                        peaks,
+                        frequencies));
+    }
+
+    // Changes to either the wav or its frq file should invalidate the cached waveform.
+    private static String getKey(File wavFile) {
+        return wavFile.getAbsolutePath() + ":" + wavFile.lastModified() + ":"
+                + getFrqFile(wavFile).lastModified();
+    }
+
+    static File getFrqFile(File wavFile) {
+        String wavName = wavFile.getName();
+        String frqName = wavName.substring(0, wavName.length() - 4) + "_wav.frq";
+        return wavFile.getParentFile().toPath().resolve(frqName).toFile();
+    }
+}
@@ -0,0 +1,60 @@
+package com.utsusynth.utsu.common;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/** Tests for the {@link FastFourierTransform}. */
+public class FastFourierTransformTest {
+  @Test
+  public void putsSineInSingleBin() {
+    int size = 64;
+    FastFourierTransform fft = new FastFourierTransform(size);
+    double[] real = new double[size];
+    double[] imag = new double[size];
+    for (int i = 0; i < size; i++) {
+      real[i] = Math.sin(2 * Math.PI * 5 * i / size);
+    }
+    fft.transform(real, imag);
+
+    for (int bin = 0; bin <= size / 2; bin++) {
+      double magnitude = Math.hypot(real[bin], imag[bin]);
+      assertThat(magnitude).isWithin(1e-6).of(bin == 5 ? size / 2.0 : 0.0);
+    }
+  }
+
+  @Test
+  public void matchesNaiveTransform() {
+    int size = 16;
+    FastFourierTransform fft = new FastFourierTransform(size);
+    double[] input = new double[size];
+    for (int i = 0; i < size; i++) {
+      input[i] = (i * 7 % 5) - 2.0;
+    }
+    double[] real = input.clone();
+    double[] imag = new double[size];
+    fft.transform(real, imag);
+
+    for (int k = 0; k < size; k++) {
+      double expectedReal = 0;
+      double expectedImag = 0;
+      for (int n = 0; n < size; n++) {
+        expectedReal += input[n] * Math.cos(2 * Math.PI * k * n / size);
+        expectedImag -= input[n] * Math.sin(2 * Math.PI * k * n / size);
+      }
+      assertThat(real[k]).isWithin(1e-9).of(expectedReal);
+      assertThat(imag[k]).isWithin(1e-9).of(expectedImag);
+    }
+  }
+
+  @Test
+  public void rejectsSizeThatIsNotPowerOfTwo() {
+    try {
+      new FastFourierTransform(48);
+      fail("Expected an IllegalArgumentException.");
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+}
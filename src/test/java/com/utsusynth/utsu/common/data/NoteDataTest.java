@@ -0,0 +1,44 @@
+package com.utsusynth.utsu.common.data;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+/** Tests for the {@link NoteData}. */
+public class NoteDataTest {
+  @Test
+  public void equalsNoteWithSameFields() {
+    assertThat(makeNote(100, 5.0, "")).isEqualTo(makeNote(100, 5.0, ""));
+    assertThat(makeNote(100, 5.0, "").hashCode()).isEqualTo(makeNote(100, 5.0, "").hashCode());
+  }
+
+  @Test
+  public void differsFromNoteWithOtherOptionalFields() {
+    // Same position, duration, pitch, and lyric, but a different envelope, pitchbend, or config.
+    assertThat(makeNote(100, 5.0, "")).isNotEqualTo(makeNote(80, 5.0, ""));
+    assertThat(makeNote(100, 5.0, "")).isNotEqualTo(makeNote(100, 0.0, ""));
+    assertThat(makeNote(100, 5.0, "")).isNotEqualTo(makeNote(100, 5.0, "g-5"));
+    assertThat(makeNote(100, 5.0, "")).isNotEqualTo(new NoteData(0, 480, "C4", "a"));
+  }
+
+  private static NoteData makeNote(double envelopeHeight, double pitchbendShift, String flags) {
+    EnvelopeData envelope =
+        new EnvelopeData(new double[] {0, 5, 35, 0, 0}, new double[] {0, 100, envelopeHeight});
+    PitchbendData pitchbend = new PitchbendData(
+        ImmutableList.of(-20.0, 0.0),
+        ImmutableList.of(40.0),
+        ImmutableList.of(pitchbendShift),
+        ImmutableList.of(""));
+    NoteConfigData config = new NoteConfigData("a", 100, 100, flags);
+    return new NoteData(
+        0,
+        480,
+        "C4",
+        "a",
+        Optional.of(envelope),
+        Optional.of(pitchbend),
+        Optional.of(config));
+  }
+}
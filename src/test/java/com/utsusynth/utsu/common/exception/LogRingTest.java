@@ -0,0 +1,53 @@
+package com.utsusynth.utsu.common.exception;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/** Tests for {@link LogRing}. */
+public class LogRingTest {
+  @Test
+  public void drainsInOrderAndDropsWhenFull() {
+    LogRing<Integer> ring = new LogRing<>(4);
+    for (int i = 0; i < 6; i++) {
+      ring.offer(i);
+    }
+    List<Integer> drained = new ArrayList<>();
+    assertThat(ring.drain(drained::add)).isEqualTo(4);
+    assertThat(drained).containsExactly(0, 1, 2, 3).inOrder();
+    assertThat(ring.takeNumDropped()).isEqualTo(2);
+    assertThat(ring.takeNumDropped()).isEqualTo(0);
+
+    // Slots are reused once drained.
+    assertThat(ring.offer(6)).isTrue();
+    drained.clear();
+    ring.drain(drained::add);
+    assertThat(drained).containsExactly(6);
+  }
+
+  @Test
+  public void keepsEveryElementFromManyThreads() throws InterruptedException {
+    LogRing<Integer> ring = new LogRing<>(1 << 16);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      int offset = t * 10000;
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 10000; i++) {
+          ring.offer(offset + i);
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    boolean[] seen = new boolean[40000];
+    assertThat(ring.drain(element -> seen[element] = true)).isEqualTo(40000);
+    for (boolean wasSeen : seen) {
+      assertThat(wasSeen).isTrue();
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.utsusynth.utsu.common.exception;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link RotatingLogFile}. */
+public class RotatingLogFileTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void rotatesWhenFull() throws Exception {
+    File logDir = new File(tempFolder.getRoot(), "logs");
+    RotatingLogFile logFile = new RotatingLogFile(logDir, 10, 2);
+    for (String line : new String[] {"first\n", "second\n", "third\n", "fourth\n"}) {
+      logFile.write(line);
+    }
+    logFile.close();
+
+    assertThat(read(logFile.getFile(0))).isEqualTo("fourth\n");
+    assertThat(read(logFile.getFile(1))).isEqualTo("third\n");
+    assertThat(read(logFile.getFile(2))).isEqualTo("second\n");
+    // Only two old files are kept.
+    assertThat(logFile.getFile(3).exists()).isFalse();
+  }
+
+  private static String read(File file) throws Exception {
+    return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,91 @@
+package com.utsusynth.utsu.common.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/** Tests for {@link Metrics}. */
+public class MetricsTest {
+  private final Metrics metrics = new Metrics();
+
+  @Test
+  public void summarizesEachKindOfMetric() {
+    metrics.counter("render.notes").add(3);
+    metrics.counter("render.notes").increment();
+    for (int i = 1; i <= 100; i++) {
+      metrics.histogram("ust.notes").record(i);
+      metrics.timer("ust.read").record(i, TimeUnit.MILLISECONDS);
+    }
+
+    MetricSummary counter = metrics.summarize().get(0);
+    assertThat(counter.getName()).isEqualTo("render.notes");
+    assertThat(counter.getCount()).isEqualTo(4);
+
+    MetricSummary histogram = metrics.summarize().get(1);
+    assertThat(histogram.getName()).isEqualTo("ust.notes");
+    assertThat(histogram.getCount()).isEqualTo(100);
+    assertThat(histogram.getMean()).isWithin(0.001).of(50.5);
+    assertThat(histogram.getMin()).isWithin(0.001).of(1);
+    assertThat(histogram.getMax()).isWithin(0.001).of(100);
+    // Percentiles are approximate, but never off by more than an eighth.
+    assertThat(histogram.getP50()).isWithin(50 / 8.0).of(50);
+    assertThat(histogram.getP90()).isWithin(90 / 8.0).of(90);
+
+    MetricSummary timer = metrics.summarize().get(2);
+    assertThat(timer.getName()).isEqualTo("ust.read");
+    assertThat(timer.getTotal()).isWithin(0.001).of(5050);
+    assertThat(timer.getP99()).isWithin(99 / 8.0).of(99);
+
+    metrics.reset();
+    assertThat(metrics.summarize().get(0).getCount()).isEqualTo(0);
+    assertThat(metrics.summarize().get(2).getMax()).isWithin(0.001).of(0);
+  }
+
+  @Test
+  public void timesWork() {
+    Timer timer = metrics.timer("voicebank.load");
+    assertThat(timer.time(() -> "voicebank")).isEqualTo("voicebank");
+    timer.time(() -> {});
+    assertThat(timer.getSnapshot().getCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void timesWorkThatThrows() {
+    Timer timer = metrics.timer("ust.write");
+    try {
+      timer.time(() -> {
+        throw new IOException("Disk full.");
+      });
+      fail("Expected an IOException.");
+    } catch (IOException e) {
+      // Expected.
+    }
+    assertThat(timer.getSnapshot().getCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void exportsJson() {
+    metrics.counter("render.missing\"Lyrics\"").increment();
+    metrics.timer("render.total").record(1500, TimeUnit.MICROSECONDS);
+
+    String json = metrics.toJson();
+    assertThat(json).contains(
+        "{\"name\": \"render.missing\\\"Lyrics\\\"\", \"type\": \"counter\", \"count\": 1}");
+    assertThat(json).contains("{\"name\": \"render.total\", \"type\": \"timer\", \"count\": 1");
+    assertThat(json).contains("\"total\": 1.500");
+  }
+
+  @Test
+  public void namesHaveOneType() {
+    metrics.timer("ust.read");
+    try {
+      metrics.counter("ust.read");
+      fail("Expected an IllegalArgumentException.");
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+}
@@ -0,0 +1,217 @@
+package com.utsusynth.utsu.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.google.common.base.Optional;
+import com.google.inject.Guice;
+import com.utsusynth.utsu.common.PitchUtils;
+import com.utsusynth.utsu.common.RegionBounds;
+import com.utsusynth.utsu.common.metrics.Metrics;
+import com.utsusynth.utsu.files.Ust12Reader;
+import com.utsusynth.utsu.model.ModelModule;
+import com.utsusynth.utsu.model.song.Song;
+
+/** Tests for the {@link Engine} resampling on worker processes. */
+public class EngineTest {
+  private static final String[] LYRICS = {"a", "ka", "sa", "ta"};
+  private static final int NUM_NOTES = 24;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<Process> workerProcesses = new ArrayList<>();
+  private ResampleWorkerPool pool;
+  private Engine engine;
+  private Song song;
+
+  @Before
+  public void setUp() throws Exception {
+    List<InetSocketAddress> addresses = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      addresses.add(startWorkerProcess(folder.newFolder("worker" + i)));
+    }
+    pool = ResampleWorkerPool.connect(addresses);
+
+    StubTools tools = new StubTools();
+    engine = new Engine(
+        new Resampler(tools), new Wavtool(tools), new File("resampler"), new File("wavtool"));
+    engine.setResampleWorkers(Optional.of(pool));
+    song = Guice.createInjector(new EngineModule(), new ModelModule())
+        .getInstance(Ust12Reader.class)
+        .loadSong(writeSong(folder.newFolder("voice")));
+  }
+
+  @After
+  public void tearDown() {
+    pool.close();
+    for (Process process : workerProcesses) {
+      process.destroy();
+    }
+  }
+
+  @Test
+  public void addsNotesInOrderWhileWorkersFinishOutOfOrder() throws Exception {
+    assertThat(pool.getCapacity()).isEqualTo(4);
+    long numRemote = getNumRemoteNotes();
+
+    Optional<File> rendered = engine.render(song, RegionBounds.WHOLE_SONG, RenderQuality.FULL);
+
+    assertThat(rendered.isPresent()).isTrue();
+    assertThat(readNotes(rendered.get())).isEqualTo(expectedNotes());
+    assertThat(getNumRemoteNotes()).isGreaterThan(numRemote);
+  }
+
+  @Test
+  public void resamplesHereWhenWorkersGoAway() throws Exception {
+    for (Process process : workerProcesses) {
+      process.destroyForcibly().waitFor();
+    }
+
+    Optional<File> rendered = engine.render(song, RegionBounds.WHOLE_SONG, RenderQuality.FULL);
+
+    assertThat(rendered.isPresent()).isTrue();
+    assertThat(readNotes(rendered.get())).isEqualTo(expectedNotes());
+    assertThat(pool.getCapacity()).isEqualTo(0);
+  }
+
+  private static long getNumRemoteNotes() {
+    return Metrics.getMetrics().timer("render.resampleRemote").getSnapshot().getCount();
+  }
+
+  private InetSocketAddress startWorkerProcess(File cacheDir) throws IOException {
+    Process process = new ProcessBuilder(
+        new File(System.getProperty("java.home"), "bin" + File.separator + "java").getPath(),
+        "-cp",
+        System.getProperty("java.class.path"),
+        WorkerProcess.class.getName(),
+        cacheDir.getAbsolutePath()).redirectErrorStream(true).start();
+    workerProcesses.add(process);
+    BufferedReader output = new BufferedReader(
+        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    String line;
+    while ((line = output.readLine()) != null) {
+      if (line.startsWith(WorkerProcess.PORT_PREFIX)) {
+        int port = Integer.parseInt(line.substring(WorkerProcess.PORT_PREFIX.length()));
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+      }
+    }
+    throw new IOException("Worker process exited before it started listening.");
+  }
+
+  // A voicebank with one sample per lyric, and a song that uses them in turn.
+  private static String writeSong(File voiceDir) throws IOException {
+    StringBuilder oto = new StringBuilder();
+    for (String lyric : LYRICS) {
+      write(new File(voiceDir, lyric + ".wav"), lyric);
+      write(new File(voiceDir, lyric + "_wav.frq"), "frq");
+      oto.append(lyric).append(".wav=").append(lyric).append(",0,100,-200,50,20\n");
+    }
+    write(new File(voiceDir, "oto.ini"), oto.toString());
+
+    StringBuilder ust = new StringBuilder();
+    ust.append("[#VERSION]\nUST Version 1.20\n");
+    ust.append("[#SETTING]\nTempo=125.00\nProjectName=test\nMode2=True\n");
+    ust.append("VoiceDir=").append(voiceDir.getAbsolutePath()).append("\n");
+    for (int i = 0; i < NUM_NOTES; i++) {
+      ust.append(String.format("[#%04d]\n", i));
+      ust.append("Length=480\nLyric=").append(LYRICS[i % LYRICS.length]).append("\n");
+      ust.append("NoteNum=").append(60 + i % 5).append("\nIntensity=100\n");
+    }
+    ust.append("[#TRACKEND]\n");
+    return ust.toString();
+  }
+
+  private static List<String> expectedNotes() {
+    List<String> notes = new ArrayList<>();
+    for (int i = 0; i < NUM_NOTES; i++) {
+      notes.add(LYRICS[i % LYRICS.length] + " " + PitchUtils.noteNumToPitch(60 + i % 5));
+    }
+    return notes;
+  }
+
+  // Each line of the output is one note, apart from any silences.
+  private static List<String> readNotes(File rendered) throws IOException {
+    List<String> notes = new ArrayList<>();
+    for (String line : Files.readAllLines(rendered.toPath(), StandardCharsets.UTF_8)) {
+      if (!line.equals(StubTools.SILENCE)) {
+        notes.add(line);
+      }
+    }
+    return notes;
+  }
+
+  private static void write(File file, String contents) throws IOException {
+    Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Stands in for the resampler and wavtool. The resampler writes its sample's contents and the
+   * note's pitch, taking longer for some pitches than others, and the wavtool adds a line to the
+   * song.
+   */
+  static class StubTools extends ExternalProcessRunner {
+    static final String SILENCE = "-";
+
+    @Override
+    public void runProcess(String... args) {
+      try {
+        String tool = new File(args[0]).getName();
+        if (tool.equals("resampler")) {
+          File input = new File(args[1]);
+          if (!input.isFile()) {
+            write(new File(args[2]), SILENCE);
+            return;
+          }
+          Thread.sleep(Math.floorMod(args[3].hashCode(), 5) * 20);
+          String sample = new String(Files.readAllBytes(input.toPath()), StandardCharsets.UTF_8);
+          write(new File(args[2]), sample + " " + args[3]);
+        } else if (tool.equals("wavtool")) {
+          File input = new File(args[2]);
+          String note = input.isFile()
+              ? new String(Files.readAllBytes(input.toPath()), StandardCharsets.UTF_8)
+              : SILENCE;
+          Files.write(
+              new File(args[1]).toPath(),
+              (note + "\n").getBytes(StandardCharsets.UTF_8),
+              StandardOpenOption.CREATE,
+              StandardOpenOption.APPEND);
+        } else {
+          throw new IllegalArgumentException("Unknown tool: " + args[0]);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /** A resample worker in its own process, using the stand-in resampler. */
+  public static class WorkerProcess {
+    static final String PORT_PREFIX = "Listening on port ";
+
+    public static void main(String[] args) throws IOException {
+      ResampleWorker worker =
+          new ResampleWorker(new StubTools(), new File("resampler"), new File(args[0]), 2);
+      worker.start(InetAddress.getLoopbackAddress(), 0);
+      System.out.println(PORT_PREFIX + worker.getPort());
+      System.out.flush();
+    }
+  }
+}
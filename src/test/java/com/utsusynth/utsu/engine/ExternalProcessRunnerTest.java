@@ -0,0 +1,76 @@
+package com.utsusynth.utsu.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for the {@link ExternalProcessRunner}. */
+public class ExternalProcessRunnerTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void waitsForItsOwnProcessWhenRendersOverlap() throws Exception {
+    ExternalProcessRunner runner = new ExternalProcessRunner();
+    List<String> notYetWritten = new CopyOnWriteArrayList<>();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService renders = Executors.newFixedThreadPool(2);
+    try {
+      // A slow render and a quick one, like an export and a playback sharing one engine.
+      Future<?> slow = renders.submit(() -> render(runner, "slow", 300, start, notYetWritten));
+      Future<?> quick = renders.submit(() -> render(runner, "quick", 0, start, notYetWritten));
+      start.countDown();
+      slow.get(60, TimeUnit.SECONDS);
+      quick.get(60, TimeUnit.SECONDS);
+    } finally {
+      renders.shutdownNow();
+    }
+    assertThat(notYetWritten).isEmpty();
+  }
+
+  // Runs a few tools in a row, and checks that each one's output is done when runProcess returns.
+  private Void render(
+      ExternalProcessRunner runner,
+      String name,
+      long toolMs,
+      CountDownLatch start,
+      List<String> notYetWritten) throws Exception {
+    start.await();
+    for (int i = 0; i < 4; i++) {
+      File output = new File(tempFolder.getRoot(), name + i + ".txt");
+      String javaPath =
+          new File(System.getProperty("java.home"), "bin" + File.separator + "java").getPath();
+      runner.runProcess(
+          javaPath,
+          "-cp",
+          System.getProperty("java.class.path"),
+          SlowTool.class.getName(),
+          output.getAbsolutePath(),
+          Long.toString(toolMs));
+      if (!output.isFile()) {
+        notYetWritten.add(output.getName());
+      }
+    }
+    return null;
+  }
+
+  /** Stands in for a resampler or wavtool: waits a while, then writes its output. */
+  public static class SlowTool {
+    public static void main(String[] args) throws InterruptedException, IOException {
+      Thread.sleep(Long.parseLong(args[1]));
+      Files.write(new File(args[0]).toPath(), "done".getBytes(StandardCharsets.UTF_8));
+    }
+  }
+}
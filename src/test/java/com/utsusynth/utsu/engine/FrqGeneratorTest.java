@@ -0,0 +1,91 @@
+package com.utsusynth.utsu.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import com.google.common.base.Optional;
+import com.utsusynth.utsu.common.data.FrequencyData;
+import com.utsusynth.utsu.files.SoundFileReader;
+import com.utsusynth.utsu.files.SoundFileWriter;
+import com.utsusynth.utsu.files.WavFixture;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for the {@link FrqGenerator}. */
+public class FrqGeneratorTest {
+  private static final int SAMPLE_RATE = 44100;
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final SoundFileReader reader = new SoundFileReader();
+  private final FrqGenerator generator =
+      new FrqGenerator(reader, new SoundFileWriter(), 256, 2);
+
+  @Test
+  public void estimatesSinePitch() throws Exception {
+    File wavFile = writeSineWav(220.0, 0.5, 0.5);
+    File frqFile = new File(tempFolder.getRoot(), "a_wav.frq");
+
+    assertThat(generator.genFrqFileAsync(wavFile, frqFile).get()).isTrue();
+    Optional<FrequencyData> frqData = reader.loadFrqData(frqFile);
+    assertThat(frqData.isPresent()).isTrue();
+    assertThat(frqData.get().getSamplesPerFreqValue()).isEqualTo(256);
+    assertThat(frqData.get().getFrequencies().length).isEqualTo((SAMPLE_RATE / 2 + 255) / 256);
+    assertThat(frqData.get().getAverageFreq()).isWithin(1.0).of(220.0);
+    // Skip the edges, where the analysis window is zero-padded.
+    double[] frequencies = frqData.get().getFrequencies();
+    for (int i = 10; i < frequencies.length - 10; i++) {
+      assertThat(frequencies[i]).isWithin(1.0).of(220.0);
+    }
+  }
+
+  @Test
+  public void silenceIsUnvoiced() throws Exception {
+    File wavFile = writeSineWav(220.0, 0.0, 0.2);
+    File frqFile = new File(tempFolder.getRoot(), "b_wav.frq");
+
+    assertThat(generator.genFrqFile(wavFile, frqFile)).isTrue();
+    FrequencyData frqData = reader.loadFrqData(frqFile).get();
+    assertThat(frqData.getAverageFreq()).isEqualTo(0.0);
+    for (double frequency : frqData.getFrequencies()) {
+      assertThat(frequency).isEqualTo(0.0);
+    }
+  }
+
+  @Test
+  public void handlesWindowShorterThanBlock() throws Exception {
+    // At 4000 Hz the analysis window is 134 samples, shorter than a 256-sample block.
+    File wavFile = writeSineWav(220.0, 0.5, 0.5, 4000);
+    File frqFile = new File(tempFolder.getRoot(), "d_wav.frq");
+
+    assertThat(generator.genFrqFile(wavFile, frqFile)).isTrue();
+    FrequencyData frqData = reader.loadFrqData(frqFile).get();
+    assertThat(frqData.getAverageFreq()).isWithin(2.0).of(220.0);
+    double[] amplitudes = frqData.getAmplitudes();
+    for (int i = 1; i < amplitudes.length - 1; i++) {
+      assertThat(amplitudes[i]).isWithin(500.0).of(0.5 * Short.MAX_VALUE / Math.sqrt(2));
+    }
+  }
+
+  @Test
+  public void failsOnMissingWav() {
+    File missing = new File(tempFolder.getRoot(), "missing.wav");
+    assertThat(generator.genFrqFile(missing, new File(tempFolder.getRoot(), "c_wav.frq")))
+        .isFalse();
+  }
+
+  private File writeSineWav(double frequency, double amplitude, double seconds)
+      throws IOException {
+    return writeSineWav(frequency, amplitude, seconds, SAMPLE_RATE);
+  }
+
+  private File writeSineWav(double frequency, double amplitude, double seconds, int sampleRate)
+      throws IOException {
+    WavFixture wav = new WavFixture().setSampleRate(sampleRate);
+    short[] samples =
+        wav.sine(frequency, amplitude * Short.MAX_VALUE, (int) (sampleRate * seconds));
+    return wav.write(tempFolder.newFile(), samples);
+  }
+}
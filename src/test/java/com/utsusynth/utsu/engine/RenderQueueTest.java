@@ -0,0 +1,140 @@
+package com.utsusynth.utsu.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import com.google.common.base.Function;
+import com.utsusynth.utsu.common.RegionBounds;
+import com.utsusynth.utsu.engine.RenderJob.Priority;
+import com.utsusynth.utsu.engine.RenderJob.State;
+import com.utsusynth.utsu.model.song.Song;
+import javafx.scene.media.MediaPlayer;
+import org.junit.Test;
+
+/** Tests for the {@link RenderQueue}. */
+public class RenderQueueTest {
+  private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+  @Test
+  public void runsHigherPriorityFirst() throws Exception {
+    CountDownLatch gate = new CountDownLatch(1);
+    RenderQueue queue = new RenderQueue(new FakeEngine() {
+      @Override
+      public boolean renderWav(Song song, File destination, RenderMonitor monitor) {
+        events.add(destination.getName());
+        await(gate);
+        return true;
+      }
+    }, 1);
+
+    RenderJob first = queue.enqueueExport("first", () -> null, new File("first"), Priority.NORMAL);
+    RenderJob low = queue.enqueueExport("low", () -> null, new File("low"), Priority.LOW);
+    RenderJob high = queue.enqueueExport("high", () -> null, new File("high"), Priority.LOW);
+    queue.setPriority(high, Priority.HIGH);
+    assertThat(low.getState()).isEqualTo(State.QUEUED);
+    gate.countDown();
+
+    assertThat(low.getResult().get(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(first.getState()).isEqualTo(State.DONE);
+    assertThat(events).containsExactly("first", "high", "low").inOrder();
+  }
+
+  @Test
+  public void playbackPausesExports() throws Exception {
+    CountDownLatch exportStarted = new CountDownLatch(1);
+    CountDownLatch playbackQueued = new CountDownLatch(1);
+    RenderJob[] export = new RenderJob[1];
+    RenderQueue queue = new RenderQueue(new FakeEngine() {
+      @Override
+      public boolean renderWav(Song song, File destination, RenderMonitor monitor) {
+        for (int i = 0; i < 3; i++) {
+          if (!monitor.beforeNote(i, 3)) {
+            return false;
+          }
+          events.add("export " + i);
+          if (i == 0) {
+            exportStarted.countDown();
+            await(playbackQueued);
+          }
+        }
+        return true;
+      }
+
+      @Override
+      public boolean playSong(
+          Song song,
+          Function<MediaPlayer, Void> callback,
+          RegionBounds bounds,
+          RenderMonitor monitor,
+          RenderQuality quality) {
+        // The export should stop at its next note until playback is done rendering.
+        long deadline = System.currentTimeMillis() + 5000;
+        while (export[0].getState() != State.PAUSED && System.currentTimeMillis() < deadline) {
+          Thread.yield();
+        }
+        events.add("playback " + export[0].getState());
+        return true;
+      }
+    }, 1);
+
+    export[0] = queue.enqueueExport("song", () -> null, new File("song.wav"), Priority.NORMAL);
+    exportStarted.await(5, TimeUnit.SECONDS);
+    RenderJob playback =
+        queue.enqueuePlayback("song", null, RegionBounds.WHOLE_SONG, player -> null);
+    playbackQueued.countDown();
+
+    assertThat(playback.getResult().get(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(export[0].getResult().get(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(events)
+        .containsExactly("export 0", "playback PAUSED", "export 1", "export 2")
+        .inOrder();
+  }
+
+  @Test
+  public void cancelsQueuedAndRunningJobs() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    RenderQueue queue = new RenderQueue(new FakeEngine() {
+      @Override
+      public boolean renderWav(Song song, File destination, RenderMonitor monitor) {
+        started.countDown();
+        while (monitor.beforeNote(0, 1)) {
+          Thread.yield();
+        }
+        return false;
+      }
+    }, 1);
+
+    RenderJob running = queue.enqueueExport("a", () -> null, new File("a"), Priority.NORMAL);
+    RenderJob queued = queue.enqueueExport("b", () -> null, new File("b"), Priority.NORMAL);
+    started.await(5, TimeUnit.SECONDS);
+    queue.cancel(queued);
+    queue.cancel(running);
+
+    assertThat(queued.getResult().get(5, TimeUnit.SECONDS)).isFalse();
+    assertThat(running.getResult().get(5, TimeUnit.SECONDS)).isFalse();
+    assertThat(queued.getState()).isEqualTo(State.CANCELLED);
+    assertThat(running.getState()).isEqualTo(State.CANCELLED);
+    queue.clearFinished();
+    assertThat(queue.getJobs()).isEmpty();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Engine that doesn't render anything unless a test overrides it. */
+  private static class FakeEngine extends Engine {
+    private FakeEngine() {
+      super(null, null, null, null);
+    }
+  }
+}
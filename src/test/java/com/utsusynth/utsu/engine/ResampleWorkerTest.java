@@ -0,0 +1,174 @@
+package com.utsusynth.utsu.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/** Tests for {@link ResampleWorker} and {@link ResampleWorkerPool} over loopback. */
+public class ResampleWorkerTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<ResampleWorker> workers = new ArrayList<>();
+  private ResampleWorkerPool pool;
+  private File sample;
+
+  @Before
+  public void setUp() throws IOException {
+    List<InetSocketAddress> addresses = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      ResampleWorker worker = new ResampleWorker(
+          new FakeResampler(), new File("resampler"), folder.newFolder("worker" + i), 2);
+      worker.start(InetAddress.getLoopbackAddress(), 0);
+      workers.add(worker);
+      addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), worker.getPort()));
+    }
+    pool = ResampleWorkerPool.connect(addresses);
+
+    File voiceDir = folder.newFolder("voice");
+    sample = new File(voiceDir, "a.wav");
+    Files.write(sample.toPath(), "sample".getBytes(StandardCharsets.UTF_8));
+    Files.write(
+        new File(voiceDir, "a_wav.frq").toPath(), "frq".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @After
+  public void tearDown() {
+    pool.close();
+    for (ResampleWorker worker : workers) {
+      worker.stop();
+    }
+  }
+
+  @Test
+  public void spreadsNotesAcrossWorkers() throws Exception {
+    assertThat(pool.getCapacity()).isEqualTo(4);
+    List<ListenableFuture<File>> outputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      String[] args = {"C4", "100", "?", Integer.toString(i)};
+      outputs.add(pool.resample(args, sample, folder.newFile("note" + i + ".wav")));
+    }
+    for (int i = 0; i < outputs.size(); i++) {
+      File output = outputs.get(i).get(5, TimeUnit.SECONDS);
+      assertThat(new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8))
+          .isEqualTo("sample+frq C4 100 ? " + i);
+    }
+
+    int numNotes = 0;
+    for (ResampleWorker worker : workers) {
+      assertThat(worker.getNumNotes()).isGreaterThan(0);
+      // Each worker only needs the sample and its frequency file once.
+      assertThat(worker.getNumSamplesReceived()).isAtMost(2);
+      numNotes += worker.getNumNotes();
+    }
+    assertThat(numNotes).isEqualTo(20);
+  }
+
+  @Test
+  public void keepsWorkersThatFailOneNote() throws Exception {
+    String[] badArgs = {FakeResamplerProcess.WRITE_NOTHING};
+    try {
+      pool.resample(badArgs, sample, folder.newFile("bad.wav")).get(5, TimeUnit.SECONDS);
+      fail("Expected an ExecutionException.");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(IOException.class);
+    }
+    assertThat(pool.getCapacity()).isEqualTo(4);
+
+    String[] args = {"C4"};
+    File output = pool.resample(args, sample, folder.newFile("note.wav")).get(5, TimeUnit.SECONDS);
+    assertThat(new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8))
+        .isEqualTo("sample+frq C4");
+  }
+
+  @Test
+  public void rejectsFilesTooLargeToReceive() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new DataOutputStream(bytes).writeLong(Long.MAX_VALUE);
+    File file = folder.newFile("huge.wav");
+    try {
+      WorkerProtocol.readFile(
+          new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), file);
+      fail("Expected an IOException.");
+    } catch (IOException e) {
+      // Expected.
+    }
+    assertThat(file.length()).isEqualTo(0);
+  }
+
+  @Test
+  public void stopsUsingWorkersThatGoAway() throws Exception {
+    workers.get(0).stop();
+    workers.get(1).stop();
+    String[] args = {"C4"};
+    try {
+      pool.resample(args, sample, folder.newFile("note.wav")).get(5, TimeUnit.SECONDS);
+      fail("Expected an ExecutionException.");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(IOException.class);
+    }
+    assertThat(pool.getCapacity()).isLessThan(4);
+  }
+
+  /**
+   * Runs {@link FakeResamplerProcess} through the real process runner, so that each worker's
+   * slots run their processes at the same time like they would with a real resampler.
+   */
+  private static class FakeResampler extends ExternalProcessRunner {
+    @Override
+    public void runProcess(String... args) {
+      List<String> command = new ArrayList<>();
+      command.add(
+          new File(System.getProperty("java.home"), "bin" + File.separator + "java").getPath());
+      command.add("-cp");
+      command.add(System.getProperty("java.class.path"));
+      command.add(FakeResamplerProcess.class.getName());
+      command.addAll(ImmutableList.copyOf(args).subList(1, args.length));
+      super.runProcess(command.toArray(new String[0]));
+    }
+  }
+
+  /**
+   * Writes the sample, its frequency file, and the arguments to the output file, or nothing when
+   * the first argument is {@link #WRITE_NOTHING}.
+   */
+  public static class FakeResamplerProcess {
+    static final String WRITE_NOTHING = "writeNothing";
+
+    public static void main(String[] args) throws IOException {
+      if (args.length > 2 && args[2].equals(WRITE_NOTHING)) {
+        return;
+      }
+      Path input = Paths.get(args[0]);
+      String inputName = input.getFileName().toString();
+      Path frq = input.resolveSibling(inputName.substring(0, inputName.length() - 4) + "_wav.frq");
+      String output = new String(Files.readAllBytes(input), StandardCharsets.UTF_8) + "+"
+          + new String(Files.readAllBytes(frq), StandardCharsets.UTF_8) + " "
+          + String.join(" ", ImmutableList.copyOf(args).subList(2, args.length));
+      Files.write(Paths.get(args[1]), output.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+}
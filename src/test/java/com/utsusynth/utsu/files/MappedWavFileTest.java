@@ -0,0 +1,110 @@
+package com.utsusynth.utsu.files;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for the {@link MappedWavFile} and {@link MappedFrqFile}. */
+public class MappedWavFileTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void readsStereo16BitRange() throws IOException {
+    ByteBuffer samples = littleEndian(4 * 4);
+    samples.putShort((short) 100).putShort((short) 300); // Frame 0.
+    samples.putShort((short) -200).putShort((short) 0); // Frame 1.
+    samples.putShort((short) 16384).putShort((short) 16384); // Frame 2.
+    samples.putShort((short) 1).putShort((short) 2); // Frame 3.
+    MappedWavFile wav = MappedWavFile.open(writeWav(1, 2, 16, samples.array()));
+
+    assertThat(wav.getNumFrames()).isEqualTo(4);
+    assertThat(wav.getNumChannels()).isEqualTo(2);
+    ShortBuffer range = wav.getShortRange(1, 3);
+    assertThat(range.remaining()).isEqualTo(4);
+    assertThat(range.get(0)).isEqualTo((short) -200);
+    assertThat(range.get(2)).isEqualTo((short) 16384);
+    assertThat(wav.getMonoSample(0)).isWithin(1e-6f).of(200 / 32768f);
+    assertThat(wav.getMonoSample(2)).isWithin(1e-6f).of(0.5f);
+  }
+
+  @Test
+  public void reads24BitAndFloat() throws IOException {
+    byte[] pcm24 = {0x00, 0x00, 0x40, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+    MappedWavFile wav24 = MappedWavFile.open(writeWav(1, 1, 24, pcm24));
+    assertThat(wav24.getNumFrames()).isEqualTo(2);
+    assertThat(wav24.getSample(0, 0)).isWithin(1e-6f).of(0.5f);
+    assertThat(wav24.getSample(1, 0)).isWithin(1e-6f).of(-1 / 8388608f);
+
+    ByteBuffer floats = littleEndian(3 * 4);
+    floats.putFloat(0.25f).putFloat(-0.75f).putFloat(1f);
+    MappedWavFile wavFloat = MappedWavFile.open(writeWav(3, 1, 32, floats.array()));
+    assertThat(wavFloat.isFloatingPoint()).isTrue();
+    assertThat(wavFloat.getFloatRange(1, 3).get(0)).isEqualTo(-0.75f);
+  }
+
+  @Test
+  public void computesAliasFrames() throws IOException {
+    // One second of silence at 1000 Hz, so one frame is one millisecond.
+    MappedWavFile wav = MappedWavFile.open(writeWav(1, 1, 8, new byte[1000], 1000));
+    assertThat(wav.getStartFrame(100)).isEqualTo(100);
+    assertThat(wav.getEndFrame(100, 200)).isEqualTo(800);
+    assertThat(wav.getEndFrame(100, -300)).isEqualTo(400);
+    assertThat(wav.getEndFrame(900, 500)).isEqualTo(900);
+  }
+
+  @Test
+  public void readsCopyThatOutlivesFile() throws IOException {
+    ByteBuffer samples = littleEndian(2 * 2);
+    samples.putShort((short) 16384).putShort((short) -16384);
+    File wavFile = writeWav(1, 1, 16, samples.array());
+    MappedWavFile wav = MappedWavFile.read(wavFile);
+    assertThat(wavFile.delete()).isTrue();
+
+    assertThat(wav.getNumFrames()).isEqualTo(2);
+    assertThat(wav.getSample(0, 0)).isEqualTo(0.5f);
+    assertThat(wav.getSample(1, 0)).isEqualTo(-0.5f);
+  }
+
+  @Test
+  public void readsFrqBlocksLazily() throws IOException {
+    ByteBuffer frq = littleEndian(MappedFrqFile.HEADER_SIZE + 2 * MappedFrqFile.BLOCK_SIZE);
+    frq.put("FREQ0003".getBytes("US-ASCII")).putInt(256).putDouble(440.0).put(new byte[16]);
+    frq.putInt(2).putDouble(430.0).putDouble(0.5).putDouble(450.0).putDouble(0.25);
+    File frqFile = tempFolder.newFile("a_wav.frq");
+    FileUtils.writeByteArrayToFile(frqFile, frq.array());
+
+    MappedFrqFile mapped = MappedFrqFile.open(frqFile);
+    assertThat(mapped.getNumBlocks()).isEqualTo(2);
+    assertThat(mapped.getAverageFreq()).isEqualTo(440.0);
+    assertThat(mapped.getFrequency(1)).isEqualTo(450.0);
+    assertThat(mapped.getAmplitude(0)).isEqualTo(0.5);
+    assertThat(mapped.frameToBlock(300)).isEqualTo(1);
+  }
+
+  private File writeWav(int format, int channels, int bits, byte[] data) throws IOException {
+    return writeWav(format, channels, bits, data, 44100);
+  }
+
+  private File writeWav(int format, int channels, int bits, byte[] data, int sampleRate)
+      throws IOException {
+    return new WavFixture()
+        .setFormat(format)
+        .setNumChannels(channels)
+        .setBitsPerSample(bits)
+        .setSampleRate(sampleRate)
+        .withUnknownChunk()
+        .write(tempFolder.newFile(), data);
+  }
+
+  private static ByteBuffer littleEndian(int size) {
+    return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+}
@@ -0,0 +1,47 @@
+package com.utsusynth.utsu.files;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for the {@link SampleCache} and {@link DecodedSample}. */
+public class SampleCacheTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void decodesOnceAndCountsHits() throws IOException {
+    File wavFile = writeMonoWav(new short[] {0, 16384, -16384, 100});
+    SampleCache cache = new SampleCache(new SoundFileReader(), 1024 * 1024);
+
+    DecodedSample sample = cache.get(wavFile).get();
+    assertThat(sample.getNumFrames()).isEqualTo(4);
+    assertThat(sample.getMonoSample(1)).isWithin(1e-4f).of(0.5f);
+    assertThat(sample.getPcmSample(3)).isEqualTo((short) 100);
+    assertThat(cache.get(wavFile).get()).isSameAs(sample);
+    assertThat(cache.getStats().missCount()).isEqualTo(1);
+    assertThat(cache.getStats().hitCount()).isEqualTo(1);
+    assertThat(cache.getSizeBytes()).isEqualTo(8);
+  }
+
+  @Test
+  public void reloadsChangedFiles() throws IOException {
+    File wavFile = writeMonoWav(new short[] {1, 2, 3});
+    SampleCache cache = new SampleCache(new SoundFileReader(), 1024 * 1024);
+    assertThat(cache.get(wavFile).get().getNumFrames()).isEqualTo(3);
+
+    File newWav = writeMonoWav(new short[] {1, 2, 3, 4, 5});
+    assertThat(newWav.renameTo(wavFile)).isTrue();
+    assertThat(wavFile.setLastModified(wavFile.lastModified() + 2000)).isTrue();
+    assertThat(cache.contains(wavFile)).isFalse();
+    assertThat(cache.get(wavFile).get().getNumFrames()).isEqualTo(5);
+    assertThat(cache.get(new File(tempFolder.getRoot(), "missing.wav")).isPresent()).isFalse();
+  }
+
+  private File writeMonoWav(short[] samples) throws IOException {
+    return new WavFixture().setSampleRate(1000).write(tempFolder.newFile(), samples);
+  }
+}
@@ -0,0 +1,72 @@
+package com.utsusynth.utsu.files;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.utsusynth.utsu.common.data.NoteData;
+import com.utsusynth.utsu.engine.EngineModule;
+import com.utsusynth.utsu.model.ModelModule;
+import com.utsusynth.utsu.model.song.Song;
+
+/** Tests for the {@link SongSnapshotter}. */
+public class SongSnapshotterTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private SongSnapshotter snapshotter;
+  private Song song;
+
+  @Before
+  public void setUp() throws IOException {
+    File voiceDir = folder.newFolder("voice");
+    write(new File(voiceDir, "oto.ini"), "a.wav=a,0,100,-200,50,20\nka.wav=ka,0,100,-200,50,20\n");
+    Injector injector = Guice.createInjector(new EngineModule(), new ModelModule());
+    snapshotter = injector.getInstance(SongSnapshotter.class);
+    song = injector.getInstance(Ust20Reader.class).loadSong(
+        "[#VERSION]\nUST Version2.0\n[#SETTING]\nTempo=140\nVoiceDir=" + voiceDir + "\n"
+            + "[#0000]\nDelta=0\nDuration=480\nLength=480\nLyric=a\nNoteNum=60\n"
+            + "[#0001]\nDelta=480\nDuration=480\nLength=480\nLyric=ka\nNoteNum=62\n"
+            + "[#TRACKEND]\n");
+  }
+
+  @Test
+  public void keepsSongAsItWasWhenTaken() throws Exception {
+    Callable<Song> snapshot = snapshotter.snapshot(song);
+
+    song.removeNote(480);
+
+    Song copy = snapshot.call();
+    assertThat(copy.getTempo()).isEqualTo(140.0);
+    assertThat(copy.getVoiceDir()).isEqualTo(song.getVoiceDir());
+    List<NoteData> notes = copy.getNotes();
+    assertThat(notes).hasSize(2);
+    assertThat(notes.get(1).getPosition()).isEqualTo(480);
+    assertThat(notes.get(1).getLyric()).isEqualTo("ka");
+    assertThat(notes.get(1).getPitch()).isEqualTo("D4");
+    assertThat(song.getNotes()).hasSize(1);
+  }
+
+  @Test
+  public void returnsNewCopyEachTime() throws Exception {
+    Callable<Song> snapshot = snapshotter.snapshot(song);
+
+    Song first = snapshot.call();
+    first.removeNote(0);
+
+    assertThat(snapshot.call().getNotes()).hasSize(2);
+  }
+
+  private static void write(File file, String contents) throws IOException {
+    Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,66 @@
+package com.utsusynth.utsu.files;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.utsusynth.utsu.common.data.NoteData;
+import org.junit.Test;
+
+/** Tests for the {@link Ust12Reader}. */
+public class Ust12ReaderTest {
+  private static final String SETTINGS = "[#VERSION]\nUST Version 1.20\n[#SETTING]\nTempo=125.00\n";
+
+  // Only plugin diffs are tested, which never need to build a song.
+  private final Ust12Reader reader = new Ust12Reader(null, null);
+
+  @Test
+  public void diffsOnlyChangedNotes() {
+    String input = pluginFile(
+        note("[#PREV]", 480, "a", 60),
+        note("[#0001]", 240, "R", 60),
+        note("[#0002]", 480, "ka", 62),
+        note("[#NEXT]", 480, "sa", 64));
+    String output = pluginFile(
+        note("[#PREV]", 480, "a", 60),
+        note("[#0001]", 240, "R", 60),
+        note("[#0002]", 480, "ki", 62),
+        note("[#NEXT]", 480, "sa", 64));
+
+    PluginChanges changes = reader.readPluginChanges(input, output, 1000).get();
+    assertThat(changes.getRemovedNotes()).hasSize(1);
+    assertThat(changes.getRemovedNotes().get(0).getPosition()).isEqualTo(1720);
+    assertThat(changes.getAddedNotes()).hasSize(1);
+    NoteData added = changes.getAddedNotes().get(0);
+    assertThat(added.getPosition()).isEqualTo(1720);
+    assertThat(added.getLyric()).isEqualTo("ki");
+    assertThat(added.getPitch()).isEqualTo("D4");
+    assertThat(changes.getBounds().getMinMs()).isEqualTo(1720);
+    assertThat(changes.getBounds().getMaxMs()).isEqualTo(2200);
+
+    assertThat(reader.readPluginChanges(input, input, 1000).get().isEmpty()).isTrue();
+  }
+
+  @Test
+  public void fallsBackWhenChangesCantBeDiffed() {
+    String input = pluginFile(note("[#0000]", 480, "a", 60), note("[#NEXT]", 480, "ka", 60));
+    String longer = pluginFile(note("[#0000]", 960, "a", 60), note("[#NEXT]", 480, "ka", 60));
+    String newTempo = input.replace("Tempo=125.00", "Tempo=140.00");
+    String preutter = pluginFile(
+        note("[#0000]", 480, "a", 60) + "PreUtterance=30\n",
+        note("[#NEXT]", 480, "ka", 60));
+
+    Optional<PluginChanges> absent = Optional.absent();
+    assertThat(reader.readPluginChanges(input, longer, 0)).isEqualTo(absent);
+    assertThat(reader.readPluginChanges(input, newTempo, 0)).isEqualTo(absent);
+    assertThat(reader.readPluginChanges(input, preutter, 0)).isEqualTo(absent);
+  }
+
+  private static String pluginFile(String... notes) {
+    return SETTINGS + Joiner.on("").join(notes) + "[#TRACKEND]\n";
+  }
+
+  private static String note(String header, int length, String lyric, int noteNum) {
+    return header + "\nLength=" + length + "\nLyric=" + lyric + "\nNoteNum=" + noteNum + "\n";
+  }
+}
@@ -0,0 +1,103 @@
+package com.utsusynth.utsu.files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Writes wav files for tests and benchmarks. Files are 16-bit mono PCM at 44100 Hz unless set
+ * otherwise.
+ */
+public class WavFixture {
+  /** Size of a header without any unknown chunks. */
+  public static final int HEADER_SIZE = 44;
+
+  private static final int FORMAT_SIZE = 16;
+  private static final int UNKNOWN_CHUNK_SIZE = 10;
+
+  private int format = 1;
+  private int numChannels = 1;
+  private int bitsPerSample = 16;
+  private int sampleRate = 44100;
+  private boolean hasUnknownChunk = false;
+
+  /** 1 for PCM, 3 for floating point. */
+  public WavFixture setFormat(int format) {
+    this.format = format;
+    return this;
+  }
+
+  public WavFixture setNumChannels(int numChannels) {
+    this.numChannels = numChannels;
+    return this;
+  }
+
+  public WavFixture setBitsPerSample(int bitsPerSample) {
+    this.bitsPerSample = bitsPerSample;
+    return this;
+  }
+
+  public WavFixture setSampleRate(int sampleRate) {
+    this.sampleRate = sampleRate;
+    return this;
+  }
+
+  /** Puts an odd-sized chunk before the format, which readers must skip along with its padding. */
+  public WavFixture withUnknownChunk() {
+    this.hasUnknownChunk = true;
+    return this;
+  }
+
+  public int getHeaderSize() {
+    return hasUnknownChunk ? HEADER_SIZE + UNKNOWN_CHUNK_SIZE : HEADER_SIZE;
+  }
+
+  /** Puts the header of a file with the given amount of sample data, in bytes. */
+  public void putHeader(ByteBuffer wav, int dataSize) {
+    ByteOrder order = wav.order();
+    wav.order(ByteOrder.LITTLE_ENDIAN);
+    wav.put(ascii("RIFF")).putInt(getHeaderSize() - 8 + dataSize).put(ascii("WAVE"));
+    if (hasUnknownChunk) {
+      wav.put(ascii("LIST")).putInt(1).put((byte) 0).put((byte) 0);
+    }
+    int frameSize = numChannels * bitsPerSample / 8;
+    wav.put(ascii("fmt ")).putInt(FORMAT_SIZE).putShort((short) format);
+    wav.putShort((short) numChannels).putInt(sampleRate).putInt(sampleRate * frameSize);
+    wav.putShort((short) frameSize).putShort((short) bitsPerSample);
+    wav.put(ascii("data")).putInt(dataSize);
+    wav.order(order);
+  }
+
+  /** Writes a file with the given sample data, already in the file's format. */
+  public File write(File wavFile, byte[] data) throws IOException {
+    ByteBuffer wav = ByteBuffer.allocate(getHeaderSize() + data.length);
+    putHeader(wav, data.length);
+    wav.put(data);
+    FileUtils.writeByteArrayToFile(wavFile, wav.array());
+    return wavFile;
+  }
+
+  /** Writes a file with the given 16-bit samples. */
+  public File write(File wavFile, short[] samples) throws IOException {
+    ByteBuffer data = ByteBuffer.allocate(samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+    data.asShortBuffer().put(samples);
+    return write(wavFile, data.array());
+  }
+
+  /** A sine wave that peaks at the given amplitude, in 16-bit sample units. */
+  public short[] sine(double frequency, double amplitude, int numFrames) {
+    short[] samples = new short[numFrames];
+    for (int i = 0; i < numFrames; i++) {
+      double phase = 2 * Math.PI * frequency * i / sampleRate;
+      samples[i] = (short) Math.round(amplitude * Math.sin(phase));
+    }
+    return samples;
+  }
+
+  private static byte[] ascii(String chunkId) {
+    return chunkId.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,50 @@
+package com.utsusynth.utsu.model.song;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+/** Tests for the {@link NoteList}. */
+public class NoteListTest {
+  @Test
+  public void insertsAndRemovesBetweenNotes() throws Exception {
+    NoteList noteList = buildList(3);
+    NoteNode inserted = noteList.insertNote(newNote(), 720);
+    assertThat(inserted.getNote().getDelta()).isEqualTo(240);
+    assertThat(inserted.getPrev().get().getNote().getLength()).isEqualTo(240);
+    assertThat(inserted.getNext().get().getNote().getDelta()).isEqualTo(240);
+
+    assertThat(noteList.removeNote(720)).isSameAs(inserted);
+    assertThat(noteList.getNote(480).getNote().getLength()).isEqualTo(480);
+    assertThat(noteList.getNote(960).getNote().getDelta()).isEqualTo(480);
+  }
+
+  @Test
+  public void editsLongLists() throws Exception {
+    // Longer than the default stack could handle if the list were walked recursively.
+    NoteList noteList = buildList(100000);
+    int lastMs = 99999 * 480;
+    noteList.insertNote(newNote(), lastMs + 240);
+    assertThat(noteList.removeNote(lastMs + 240)).isNotNull();
+    assertThat(noteList.removeNote(lastMs).getPrev().isPresent()).isTrue();
+  }
+
+  // Notes are 240ms long and start every 480ms.
+  private static NoteList buildList(int numNotes) {
+    NoteList.Builder builder = new NoteList().toBuilder();
+    for (int i = 0; i < numNotes; i++) {
+      builder.appendNote(newNote());
+      builder.appendRestNote(newNote());
+    }
+    return builder.build();
+  }
+
+  private static Note newNote() {
+    Note note = new Note();
+    note.setDuration(240);
+    note.setLength(240);
+    note.setLyric("a");
+    note.setNoteNum(60);
+    return note;
+  }
+}
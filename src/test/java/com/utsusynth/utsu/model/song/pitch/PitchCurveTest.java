@@ -0,0 +1,82 @@
+package com.utsusynth.utsu.model.song.pitch;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.utsusynth.utsu.common.data.PitchbendData;
+import com.utsusynth.utsu.model.song.pitch.portamento.PortamentoFactory;
+import org.junit.Test;
+
+/** Tests for the {@link PitchCurve}. */
+public class PitchCurveTest {
+  private static final int[] NO_VIBRATO = new int[10];
+
+  @Test
+  public void rendersPortamentoBetweenNotes() {
+    PitchCurve curve = new PitchCurve(new PortamentoFactory());
+    // Slide from C4 (60) up to E4 (64) over the first 100ms of the second note.
+    curve.addPitchbends(480, 480, pitchbend(0.0, 100.0), 60, 64);
+
+    double[] pitches = curve.renderPitches(96, 200);
+    assertThat(pitches).hasLength(105);
+    assertThat(pitches[0]).isWithin(0.01).of(600.0);
+    assertThat(pitches[10]).isGreaterThan(600.0);
+    assertThat(pitches[10]).isLessThan(640.0);
+    assertThat(pitches[20]).isWithin(0.01).of(640.0);
+    // Steps after the portamento hold its end pitch.
+    assertThat(pitches[104]).isWithin(0.01).of(640.0);
+  }
+
+  @Test
+  public void resamplerStringMatchesPitches() {
+    PitchCurve curve = new PitchCurve(new PortamentoFactory());
+    curve.addPitchbends(480, 480, pitchbend(-50.0, 100.0), 60, 64);
+
+    String rendered = curve.renderPitchbends(100, 199, 64);
+    // Steps past the portamento run-length encode the distance to the note, which is zero.
+    assertThat(rendered).endsWith("AA#93#");
+    double[] pitches = curve.renderPitches(100, 199);
+    assertThat(rendered).startsWith(toBase64((int) ((pitches[0] - 640) * 10)));
+  }
+
+  @Test
+  public void draftStringDropsVibratoAndFineDetail() {
+    PitchCurve plain = new PitchCurve(new PortamentoFactory());
+    plain.addPitchbends(480, 480, pitchbend(-50.0, 100.0), 60, 64);
+    PitchCurve withVibrato = new PitchCurve(new PortamentoFactory());
+    // Vibrato over the whole note, 100 cents deep.
+    withVibrato.addPitchbends(
+        480,
+        480,
+        new PitchbendData(
+            ImmutableList.of(-50.0, 0.0),
+            ImmutableList.of(100.0),
+            ImmutableList.of(),
+            ImmutableList.of("s"),
+            new int[] {100, 100, 100, 0, 0, 0, 0, 0, 0, 0}),
+        60,
+        64);
+
+    String draft = withVibrato.renderDraftPitchbends(100, 199, 64);
+    assertThat(draft).isEqualTo(plain.renderDraftPitchbends(100, 199, 64));
+    // Pitch is held for 20ms at a time, and everything after the portamento is one run.
+    assertThat(draft).endsWith("#3#AA#91#");
+    assertThat(draft.length()).isLessThan(withVibrato.renderPitchbends(100, 199, 64).length() / 10);
+  }
+
+  private static PitchbendData pitchbend(double start, double width) {
+    return new PitchbendData(
+        ImmutableList.of(start, 0.0),
+        ImmutableList.of(width),
+        ImmutableList.of(),
+        ImmutableList.of("s"),
+        NO_VIBRATO);
+  }
+
+  // Same 12-bit encoding as the resampler string.
+  private static String toBase64(int cents) {
+    String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+    int value = cents < 0 ? cents + 4096 : cents;
+    return "" + chars.charAt(value / 64) + chars.charAt(value % 64);
+  }
+}
@@ -0,0 +1,32 @@
+package com.utsusynth.utsu.model.voicebank;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+/** Tests for the {@link DisjointLyricSet}. */
+public class DisjointLyricSetTest {
+  @Test
+  public void groupsAreMergedAcrossLines() {
+    DisjointLyricSet conversionSet = DisjointLyricSet.builder()
+        .addGroup("a", "あ")
+        .addGroup("ア", "a")
+        .addGroup("ka", "か")
+        .build();
+
+    assertThat(conversionSet.getGroup("あ")).containsExactly("a", "あ", "ア");
+    assertThat(conversionSet.getGroup("ka")).containsExactly("ka", "か");
+    assertThat(conversionSet.getGroupId("a")).isEqualTo(conversionSet.getGroupId("ア"));
+    assertThat(conversionSet.getGroupId("a")).isNotEqualTo(conversionSet.getGroupId("か"));
+    assertThat(conversionSet.getNumGroups()).isEqualTo(2);
+  }
+
+  @Test
+  public void unknownAndBlankMembersHaveNoGroup() {
+    DisjointLyricSet conversionSet = DisjointLyricSet.builder().addGroup("", " i ", "い").build();
+
+    assertThat(conversionSet.getGroup("i")).containsExactly("i", "い");
+    assertThat(conversionSet.getGroup("")).isEmpty();
+    assertThat(conversionSet.getGroupId("u")).isEqualTo(DisjointLyricSet.NO_GROUP);
+  }
+}
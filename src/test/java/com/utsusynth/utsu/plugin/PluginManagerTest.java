@@ -0,0 +1,86 @@
+package com.utsusynth.utsu.plugin;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.utsusynth.utsu.common.data.EnvelopeData;
+import com.utsusynth.utsu.common.data.NoteData;
+import com.utsusynth.utsu.files.PluginChanges;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for the {@link PluginManager} and {@link PluginInput}. */
+public class PluginManagerTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  /** Registered in the test resources, as a plugin jar would register it. */
+  public static class HiraganaToKatakana implements UtsuPlugin {
+    @Override
+    public String getName() {
+      return "Hiragana to Katakana";
+    }
+
+    @Override
+    public PluginChanges run(PluginInput input) {
+      PluginChanges.Builder changes = PluginChanges.builder();
+      for (NoteData note : input.getNotes()) {
+        if (note.getLyric().equals("あ")) {
+          changes.replaceNote(
+              note,
+              new NoteData(note.getPosition(), note.getDuration(), note.getPitch(), "ア"));
+        }
+      }
+      return changes.build();
+    }
+  }
+
+  @Test
+  public void findsAndRunsPlugins() throws Exception {
+    PluginManager manager =
+        new PluginManager(tempFolder.getRoot(), getClass().getClassLoader());
+    assertThat(manager.getPlugins()).hasSize(1);
+    UtsuPlugin plugin = manager.getPlugins().get(0);
+    assertThat(plugin.getName()).isEqualTo("Hiragana to Katakana");
+    assertThat(manager.getPlugins().get(0)).isSameAs(plugin);
+
+    PluginInput input = new PluginInput(
+        ImmutableList.of(
+            new NoteData(0, 480, "C4", "あ"), new NoteData(480, 480, "D4", "ka")),
+        125);
+    PluginChanges changes = manager.runPlugin(plugin, input).get();
+    assertThat(changes.getRemovedNotes()).hasSize(1);
+    assertThat(changes.getAddedNotes()).hasSize(1);
+    assertThat(changes.getAddedNotes().get(0).getLyric()).isEqualTo("ア");
+    assertThat(changes.getBounds().getMaxMs()).isEqualTo(480);
+  }
+
+  @Test
+  public void loadsPluginsInBackground() throws Exception {
+    PluginManager manager =
+        new PluginManager(tempFolder.getRoot(), getClass().getClassLoader());
+    ImmutableList<UtsuPlugin> plugins = manager.loadPluginsAsync().get();
+    assertThat(plugins).hasSize(1);
+    assertThat(manager.getPlugins()).isSameAs(plugins);
+  }
+
+  @Test
+  public void inputIsACopy() {
+    double[] widths = {0, 5, 35, 0, 0};
+    double[] heights = {0, 100, 100, 0, 100};
+    NoteData note = new NoteData(
+        0,
+        480,
+        "C4",
+        "a",
+        Optional.of(new EnvelopeData(widths, heights)),
+        Optional.absent(),
+        Optional.absent());
+    PluginInput input = new PluginInput(ImmutableList.of(note), 125);
+
+    input.getNotes().get(0).getEnvelope().get().getWidths()[1] = 50;
+    assertThat(widths[1]).isEqualTo(5.0);
+    assertThat(input.getNotes().get(0).getLyric()).isEqualTo("a");
+  }
+}